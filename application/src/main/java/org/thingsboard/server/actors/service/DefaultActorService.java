@@ -26,9 +26,13 @@ import org.thingsboard.common.util.ThingsBoardExecutors;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.actors.ActorSystemContext;
 import org.thingsboard.server.actors.DefaultTbActorSystem;
+import org.thingsboard.server.actors.MailboxOverflowPolicy;
+import org.thingsboard.server.actors.TbActorDispatcherType;
+import org.thingsboard.server.actors.TbActorMailboxType;
 import org.thingsboard.server.actors.TbActorRef;
 import org.thingsboard.server.actors.TbActorSystem;
 import org.thingsboard.server.actors.TbActorSystemSettings;
+import org.thingsboard.server.actors.TbMailboxStatsFactory;
 import org.thingsboard.server.actors.app.AppActor;
 import org.thingsboard.server.actors.app.AppInitMsg;
 import org.thingsboard.server.actors.stats.StatsActor;
@@ -53,6 +57,9 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
     @Autowired
     private ActorSystemContext actorContext;
 
+    @Autowired
+    private TbMailboxStatsFactory mailboxStatsFactory;
+
     private TbActorSystem system;
 
     private TbActorRef appActor;
@@ -66,6 +73,21 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
     @Value("${actors.system.scheduler_pool_size:1}")
     private int schedulerPoolSize;
 
+    @Value("${actors.system.mailbox.type:LINKED}")
+    private TbActorMailboxType mailboxType;
+
+    @Value("${actors.system.mailbox.array_size:16}")
+    private int mailboxArraySize;
+
+    @Value("${actors.system.mailbox.capacity:0}")
+    private int mailboxCapacity;
+
+    @Value("${actors.system.mailbox.overflow_policy:REJECT}")
+    private MailboxOverflowPolicy mailboxOverflowPolicy;
+
+    @Value("${actors.system.mailbox.block_timeout_ms:1000}")
+    private long mailboxBlockTimeoutMs;
+
     @Value("${actors.system.app_dispatcher_pool_size:1}")
     private int appDispatcherSize;
 
@@ -78,17 +100,30 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
     @Value("${actors.system.rule_dispatcher_pool_size:8}")
     private int ruleDispatcherSize;
 
+    @Value("${actors.system.app_dispatcher_type:PLATFORM}")
+    private TbActorDispatcherType appDispatcherType;
+
+    @Value("${actors.system.tenant_dispatcher_type:PLATFORM}")
+    private TbActorDispatcherType tenantDispatcherType;
+
+    @Value("${actors.system.device_dispatcher_type:PLATFORM}")
+    private TbActorDispatcherType deviceDispatcherType;
+
+    @Value("${actors.system.rule_dispatcher_type:PLATFORM}")
+    private TbActorDispatcherType ruleDispatcherType;
+
     @PostConstruct
     public void initActorSystem() {
         log.info("Initializing actor system.");
         actorContext.setActorService(this);
-        TbActorSystemSettings settings = new TbActorSystemSettings(actorThroughput, schedulerPoolSize, maxActorInitAttempts);
-        system = new DefaultTbActorSystem(settings);
+        TbActorSystemSettings settings = new TbActorSystemSettings(actorThroughput, schedulerPoolSize, maxActorInitAttempts,
+                mailboxCapacity, mailboxOverflowPolicy, mailboxBlockTimeoutMs, mailboxType, mailboxArraySize);
+        system = new DefaultTbActorSystem(settings, mailboxStatsFactory);
 
-        system.createDispatcher(APP_DISPATCHER_NAME, initDispatcherExecutor(APP_DISPATCHER_NAME, appDispatcherSize));
-        system.createDispatcher(TENANT_DISPATCHER_NAME, initDispatcherExecutor(TENANT_DISPATCHER_NAME, tenantDispatcherSize));
-        system.createDispatcher(DEVICE_DISPATCHER_NAME, initDispatcherExecutor(DEVICE_DISPATCHER_NAME, deviceDispatcherSize));
-        system.createDispatcher(RULE_DISPATCHER_NAME, initDispatcherExecutor(RULE_DISPATCHER_NAME, ruleDispatcherSize));
+        system.createDispatcher(APP_DISPATCHER_NAME, initDispatcherExecutor(APP_DISPATCHER_NAME, appDispatcherType, appDispatcherSize));
+        system.createDispatcher(TENANT_DISPATCHER_NAME, initDispatcherExecutor(TENANT_DISPATCHER_NAME, tenantDispatcherType, tenantDispatcherSize));
+        system.createDispatcher(DEVICE_DISPATCHER_NAME, initDispatcherExecutor(DEVICE_DISPATCHER_NAME, deviceDispatcherType, deviceDispatcherSize));
+        system.createDispatcher(RULE_DISPATCHER_NAME, initDispatcherExecutor(RULE_DISPATCHER_NAME, ruleDispatcherType, ruleDispatcherSize));
 
         actorContext.setActorSystem(system);
 
@@ -101,7 +136,14 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
         log.info("Actor system initialized.");
     }
 
-    private ExecutorService initDispatcherExecutor(String dispatcherName, int poolSize) {
+    private ExecutorService initDispatcherExecutor(String dispatcherName, TbActorDispatcherType type, int poolSize) {
+        if (type == TbActorDispatcherType.VIRTUAL) {
+            if (ThingsBoardExecutors.isVirtualThreadsSupported()) {
+                log.info("[{}] Using virtual threads for the dispatcher", dispatcherName);
+                return ThingsBoardExecutors.newVirtualThreadPerTaskExecutor(dispatcherName);
+            }
+            log.warn("[{}] Virtual threads are not supported by the current JVM {}, falling back to the platform threads", dispatcherName, Runtime.version());
+        }
         if (poolSize == 0) {
             int cores = Runtime.getRuntime().availableProcessors();
             poolSize = Math.max(1, cores / 2);
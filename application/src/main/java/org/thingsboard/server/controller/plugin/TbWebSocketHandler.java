@@ -35,6 +35,7 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.PongMessage;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.adapter.NativeWebSocketSession;
@@ -58,6 +59,7 @@ import org.thingsboard.server.service.security.model.UserPrincipal;
 import org.thingsboard.server.service.subscription.SubscriptionErrorCode;
 import org.thingsboard.server.service.ws.AuthCmd;
 import org.thingsboard.server.service.ws.SessionEvent;
+import org.thingsboard.server.service.ws.WsBinaryUpdateEncoder;
 import org.thingsboard.server.service.ws.WebSocketMsgEndpoint;
 import org.thingsboard.server.service.ws.WebSocketService;
 import org.thingsboard.server.service.ws.WebSocketSessionRef;
@@ -68,6 +70,8 @@ import org.thingsboard.server.service.ws.telemetry.cmd.TelemetryCmdsWrapper;
 
 import java.io.IOException;
 import java.security.InvalidParameterException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
@@ -87,7 +91,7 @@ import static org.thingsboard.server.service.ws.DefaultWebSocketService.NUMBER_O
 @TbCoreComponent
 @Slf4j
 @RequiredArgsConstructor
-public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocketMsgEndpoint {
+public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocketMsgEndpoint, SubProtocolCapable {
 
     private final ConcurrentMap<String, SessionMetaData> internalSessionMap = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, String> externalSessionMap = new ConcurrentHashMap<>();
@@ -109,6 +113,8 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
     private int wsMaxQueueMessagesPerSession;
     @Value("${server.ws.auth_timeout_ms:10000}")
     private int authTimeoutMs;
+    @Value("${server.ws.binary_protocol.enabled:false}")
+    private boolean binaryProtocolEnabled;
 
     private final ConcurrentMap<String, WebSocketSessionRef> blacklistedSessions = new ConcurrentHashMap<>();
 
@@ -140,6 +146,11 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
         internalSessionMap.clear();
     }
 
+    @Override
+    public List<String> getSubProtocols() {
+        return binaryProtocolEnabled ? List.of(WsBinaryUpdateEncoder.SUBPROTOCOL) : Collections.emptyList();
+    }
+
     @Override
     public void handleTextMessage(WebSocketSession session, TextMessage message) {
         try {
@@ -338,6 +349,7 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
                 .localAddress(session.getLocalAddress())
                 .remoteAddress(session.getRemoteAddress())
                 .sessionType(sessionType)
+                .binaryUpdates(WsBinaryUpdateEncoder.SUBPROTOCOL.equals(session.getAcceptedProtocol()))
                 .build();
     }
 
@@ -424,6 +436,9 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
                     TbWebSocketTextMsg textMsg = (TbWebSocketTextMsg) msg;
                     this.asyncRemote.sendText(textMsg.getMsg(), this);
                     // isSending status will be reset in the onResult method by call back
+                } else if (TbWebSocketMsgType.BINARY.equals(msg.getType())) {
+                    TbWebSocketBinaryMsg binaryMsg = (TbWebSocketBinaryMsg) msg;
+                    this.asyncRemote.sendBinary(binaryMsg.getMsg(), this);
                 } else {
                     TbWebSocketPingMsg pingMsg = (TbWebSocketPingMsg) msg;
                     this.asyncRemote.sendPing(pingMsg.getMsg()); // blocking call
@@ -487,6 +502,16 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
     @Override
     public void send(WebSocketSessionRef sessionRef, int subscriptionId, String msg) throws IOException {
         log.debug("{} Sending {}", sessionRef, msg);
+        send(sessionRef, subscriptionId, new TbWebSocketTextMsg(msg));
+    }
+
+    @Override
+    public boolean sendBinary(WebSocketSessionRef sessionRef, int subscriptionId, byte[] msg) throws IOException {
+        log.debug("{} Sending binary msg of {} bytes", sessionRef, msg.length);
+        return send(sessionRef, subscriptionId, new TbWebSocketBinaryMsg(msg));
+    }
+
+    private boolean send(WebSocketSessionRef sessionRef, int subscriptionId, TbWebSocketMsg<?> msg) {
         String externalId = sessionRef.getSessionId();
         String internalId = externalSessionMap.get(externalId);
         if (internalId != null) {
@@ -498,18 +523,20 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
                         log.info("{} Failed to process session update. Max session updates limit reached", sessionRef);
                         sessionMd.sendMsg("{\"subscriptionId\":" + subscriptionId + ", \"errorCode\":" + ThingsboardErrorCode.TOO_MANY_UPDATES.getErrorCode() + ", \"errorMsg\":\"Too many updates!\"}");
                     }
-                    return;
+                    return false;
                 } else {
                     log.debug("{} Session is no longer blacklisted.", sessionRef);
                     blacklistedSessions.remove(externalId);
                 }
                 sessionMd.sendMsg(msg);
+                return true;
             } else {
                 log.warn("[{}][{}] Failed to find session by internal id", externalId, internalId);
             }
         } else {
             log.warn("[{}] Failed to find session by external id", externalId);
         }
+        return false;
     }
 
     @Override
@@ -22,6 +22,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
+import org.thingsboard.server.dao.sqlts.rollup.TsKvRollupService;
 import org.thingsboard.server.service.component.ComponentDiscoveryService;
 import org.thingsboard.server.service.install.DatabaseEntitiesUpgradeService;
 import org.thingsboard.server.service.install.DatabaseSchemaSettingsService;
@@ -85,6 +86,9 @@ public class ThingsboardInstallService {
     @Autowired(required = false)
     private TsLatestMigrateService latestMigrateService;
 
+    @Autowired(required = false)
+    private TsKvRollupService tsKvRollupService;
+
     @Autowired
     private InstallScripts installScripts;
 
@@ -99,6 +103,11 @@ public class ThingsboardInstallService {
                 if ("cassandra-latest-to-postgres".equals(upgradeFromVersion)) {
                     log.info("Migrating ThingsBoard latest timeseries data from cassandra to SQL database ...");
                     latestMigrateService.migrate();
+                } else if ("ts-rollups-reset".equals(upgradeFromVersion)) {
+                    log.info("Removing ThingsBoard timeseries rollups ...");
+                    if (tsKvRollupService != null) {
+                        tsKvRollupService.reset();
+                    }
                 } else {
                     // TODO DON'T FORGET to update SUPPORTED_VERSIONS_FROM in DefaultDatabaseSchemaSettingsService
                     databaseSchemaVersionService.validateSchemaSettings();
@@ -137,6 +137,35 @@ public class TbRuleEngineConsumerStats {
         msg.getExceptionsMap().forEach(tenantExceptions::putIfAbsent);
     }
 
+    public void logSuccess(TbProtoQueueMsg<ToRuleEngineMsg> msg) {
+        totalMsgCounter.increment();
+        successMsgCounter.increment();
+        getTenantStats(msg).logSuccess();
+    }
+
+    public void logFailure(TbProtoQueueMsg<ToRuleEngineMsg> msg, TenantId tenantId, RuleEngineException e, boolean finalAttempt) {
+        totalMsgCounter.increment();
+        if (finalAttempt) {
+            failedMsgCounter.increment();
+            getTenantStats(msg).logFailed();
+        } else {
+            tmpFailedMsgCounter.increment();
+            getTenantStats(msg).logTmpFailed();
+        }
+        tenantExceptions.putIfAbsent(tenantId, e);
+    }
+
+    public void logTimeout(TbProtoQueueMsg<ToRuleEngineMsg> msg, boolean finalAttempt) {
+        totalMsgCounter.increment();
+        if (finalAttempt) {
+            timeoutMsgCounter.increment();
+            getTenantStats(msg).logTimeout();
+        } else {
+            tmpTimeoutMsgCounter.increment();
+            getTenantStats(msg).logTmpTimeout();
+        }
+    }
+
     private TbTenantRuleEngineStats getTenantStats(TbProtoQueueMsg<ToRuleEngineMsg> m) {
         ToRuleEngineMsg reMsg = m.getValue();
         return tenantStats.computeIfAbsent(new UUID(reMsg.getTenantIdMSB(), reMsg.getTenantIdLSB()), TbTenantRuleEngineStats::new);
@@ -206,6 +206,7 @@ public class MainQueueConsumerManager<M extends TbQueueMsg, C extends QueueConfi
             try {
                 List<M> msgs = consumer.poll(config.getPollInterval());
                 if (msgs.isEmpty()) {
+                    processEmptyPoll(consumer, config);
                     continue;
                 }
                 processMsgs(msgs, consumer, config);
@@ -223,12 +224,19 @@ public class MainQueueConsumerManager<M extends TbQueueMsg, C extends QueueConfi
         if (consumer.isStopped()) {
             consumer.unsubscribe();
         }
+        onConsumerStopped(consumer);
     }
 
     protected void processMsgs(List<M> msgs, TbQueueConsumer<M> consumer, C config) throws Exception {
         msgPackProcessor.process(msgs, consumer, config);
     }
 
+    protected void processEmptyPoll(TbQueueConsumer<M> consumer, C config) throws Exception {
+    }
+
+    protected void onConsumerStopped(TbQueueConsumer<M> consumer) {
+    }
+
     public void stop() {
         log.debug("[{}] Stopping consumers", queueKey);
         consumerWrapper.getConsumers().forEach(TbQueueConsumerTask::initiateStop);
@@ -49,6 +49,10 @@ public class TbRuleEngineConsumerContext {
     private int topicDeletionDelayInSec;
     @Value("${queue.rule-engine.management-thread-pool-size:12}")
     private int mgmtThreadPoolSize;
+    @Value("${queue.rule-engine.pipelined.enabled:false}")
+    private boolean pipelinedEnabled;
+    @Value("${queue.rule-engine.pipelined.max-in-flight-msgs:10000}")
+    private int pipelinedMaxInFlightMsgs;
 
     private final ActorSystemContext actorContext;
     private final StatsFactory statsFactory;
@@ -0,0 +1,478 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.queue.ruleengine;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.ExceptionUtil;
+import org.thingsboard.server.common.data.StringUtils;
+import org.thingsboard.server.common.data.exception.AbstractRateLimitException;
+import org.thingsboard.server.common.data.id.EntityIdFactory;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.queue.ProcessingStrategy;
+import org.thingsboard.server.common.data.queue.Queue;
+import org.thingsboard.server.common.data.queue.SubmitStrategy;
+import org.thingsboard.server.common.msg.gen.MsgProtos;
+import org.thingsboard.server.common.msg.queue.RuleEngineException;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
+import org.thingsboard.server.queue.TbQueueConsumer;
+import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+import org.thingsboard.server.service.queue.TbRuleEngineConsumerStats;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+import static org.thingsboard.server.service.queue.ruleengine.TbRuleEngineQueueConsumerManager.FAILED_STATUS;
+import static org.thingsboard.server.service.queue.ruleengine.TbRuleEngineQueueConsumerManager.SUCCESSFUL_STATUS;
+
+/**
+ * Pipelined processing of the messages of a single rule engine consumer. Messages are submitted as soon as they are polled,
+ * without waiting for the previous pack, and the consumer commits the contiguous range of the processed messages (the low watermark).
+ * <p>
+ * The messages of the same originator, tenant or queue (depending on the submit strategy) are still submitted one by one.
+ * Failed and timed out messages are retried one by one according to the processing strategy; the failure percentage does not apply.
+ * <p>
+ * {@link #add}, {@link #maintain} and {@link #awaitProgress} are called by the consumer thread only.
+ */
+@Slf4j
+public class TbRuleEngineMsgPipeline {
+
+    private static final Object SEQUENTIAL_KEY = new Object();
+
+    private final String queueName;
+    private final TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer;
+    @Getter
+    private final SubmitStrategy submitStrategy;
+    @Getter
+    private final ProcessingStrategy processingStrategy;
+    private final long processingTimeout;
+    private final int maxInFlightMsgs;
+    private final BiConsumer<TbProtoQueueMsg<ToRuleEngineMsg>, TbMsgCallback> msgSubmitter;
+    private final TbRuleEngineConsumerStats stats;
+    private final boolean statsEnabled;
+    private final boolean timersEnabled;
+
+    private final boolean retryFailed;
+    private final boolean retryTimedOut;
+    private final boolean skipTimedOutMsgs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition progress = lock.newCondition();
+    private final Deque<PipelineMsg> window = new ArrayDeque<>();
+    private final Map<Object, Deque<PipelineMsg>> orderQueues = new HashMap<>();
+    private final LinkedHashMap<Long, PipelineMsg> inFlight = new LinkedHashMap<>();
+    private final List<PipelineMsg> retries = new ArrayList<>();
+    private final ThreadLocal<SubmitQueue> submitQueue = ThreadLocal.withInitial(SubmitQueue::new);
+    private long polledPosition;
+    private long committedPosition;
+    private long attemptSeq;
+    private volatile boolean stopped;
+
+    public TbRuleEngineMsgPipeline(Queue queue, TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer, int maxInFlightMsgs,
+                                   BiConsumer<TbProtoQueueMsg<ToRuleEngineMsg>, TbMsgCallback> msgSubmitter,
+                                   TbRuleEngineConsumerStats stats, boolean statsEnabled, boolean timersEnabled) {
+        this.queueName = queue.getName();
+        this.consumer = consumer;
+        this.submitStrategy = queue.getSubmitStrategy();
+        this.processingStrategy = queue.getProcessingStrategy();
+        this.processingTimeout = queue.getPackProcessingTimeout();
+        this.maxInFlightMsgs = maxInFlightMsgs;
+        this.msgSubmitter = msgSubmitter;
+        this.stats = stats;
+        this.statsEnabled = statsEnabled;
+        this.timersEnabled = timersEnabled;
+        switch (processingStrategy.getType()) {
+            case SKIP_ALL_FAILURES:
+                retryFailed = false;
+                retryTimedOut = false;
+                skipTimedOutMsgs = false;
+                break;
+            case SKIP_ALL_FAILURES_AND_TIMED_OUT:
+                retryFailed = false;
+                retryTimedOut = false;
+                skipTimedOutMsgs = true;
+                break;
+            case RETRY_FAILED:
+                retryFailed = true;
+                retryTimedOut = false;
+                skipTimedOutMsgs = true;
+                break;
+            case RETRY_TIMED_OUT:
+                retryFailed = false;
+                retryTimedOut = true;
+                skipTimedOutMsgs = true;
+                break;
+            case RETRY_ALL:
+            case RETRY_FAILED_AND_TIMED_OUT:
+                retryFailed = true;
+                retryTimedOut = true;
+                skipTimedOutMsgs = true;
+                break;
+            default:
+                throw new RuntimeException("TbRuleEngineProcessingStrategy with type " + processingStrategy.getType() + " is not supported!");
+        }
+    }
+
+    public boolean isUpToDate(Queue queue) {
+        return Objects.equals(submitStrategy, queue.getSubmitStrategy()) && Objects.equals(processingStrategy, queue.getProcessingStrategy())
+                && processingTimeout == queue.getPackProcessingTimeout();
+    }
+
+    public void add(List<TbProtoQueueMsg<ToRuleEngineMsg>> msgs) {
+        List<PipelineMsg> toSubmit = new ArrayList<>(msgs.size());
+        lock.lock();
+        try {
+            for (TbProtoQueueMsg<ToRuleEngineMsg> msg : msgs) {
+                PipelineMsg pipelineMsg = new PipelineMsg(++polledPosition, getOrderKey(msg.getValue()), msg);
+                window.add(pipelineMsg);
+                if (pipelineMsg.orderKey == null) {
+                    toSubmit.add(pipelineMsg);
+                } else {
+                    Deque<PipelineMsg> orderQueue = orderQueues.computeIfAbsent(pipelineMsg.orderKey, key -> new ArrayDeque<>());
+                    orderQueue.add(pipelineMsg);
+                    if (orderQueue.size() == 1) {
+                        toSubmit.add(pipelineMsg);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        submit(toSubmit);
+    }
+
+    /**
+     * Handles the timed out messages, resubmits the messages scheduled for retry and commits the low watermark.
+     */
+    public void maintain() {
+        long ts = System.currentTimeMillis();
+        List<PipelineMsg> toSubmit = new ArrayList<>();
+        long watermark = committedPosition;
+        lock.lock();
+        try {
+            Iterator<PipelineMsg> inFlightIterator = inFlight.values().iterator();
+            while (inFlightIterator.hasNext()) {
+                PipelineMsg msg = inFlightIterator.next();
+                if (msg.deadlineTs > ts) {
+                    break;
+                }
+                inFlightIterator.remove();
+                boolean retry = retryTimedOut && canRetry(msg);
+                log.debug("[{}] Timeout to process message at position {}, retry: {}", queueName, msg.position, retry);
+                if (statsEnabled) {
+                    stats.logTimeout(msg.msg, !retry);
+                }
+                if (retry) {
+                    scheduleRetry(msg, ts);
+                } else {
+                    toSubmit.addAll(complete(msg));
+                }
+            }
+            if (!retries.isEmpty()) {
+                retries.removeIf(msg -> {
+                    if (msg.retryTs <= ts) {
+                        toSubmit.add(msg);
+                        return true;
+                    }
+                    return false;
+                });
+            }
+            while (!window.isEmpty() && window.peek().done) {
+                watermark = window.poll().position;
+            }
+        } finally {
+            lock.unlock();
+        }
+        submit(toSubmit);
+        if (watermark > committedPosition && !stopped) {
+            consumer.commit(watermark);
+            committedPosition = watermark;
+        }
+    }
+
+    public boolean hasCapacity() {
+        lock.lock();
+        try {
+            return window.size() < maxInFlightMsgs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return window.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void awaitProgress(long timeoutMs) throws InterruptedException {
+        lock.lock();
+        try {
+            progress.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void stop() {
+        stopped = true;
+        lock.lock();
+        try {
+            window.clear();
+            orderQueues.clear();
+            inFlight.clear();
+            retries.clear();
+            progress.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void submit(List<PipelineMsg> msgs) {
+        if (msgs.isEmpty()) {
+            return;
+        }
+        // callbacks may be invoked synchronously and submit the next messages of the same order queue
+        SubmitQueue queue = submitQueue.get();
+        queue.msgs.addAll(msgs);
+        if (queue.draining) {
+            return;
+        }
+        queue.draining = true;
+        try {
+            PipelineMsg msg;
+            while ((msg = queue.msgs.poll()) != null) {
+                doSubmit(msg);
+            }
+        } finally {
+            queue.draining = false;
+        }
+    }
+
+    private void doSubmit(PipelineMsg msg) {
+        long attempt;
+        lock.lock();
+        try {
+            if (stopped || msg.done) {
+                return;
+            }
+            attempt = ++attemptSeq;
+            msg.attempt = attempt;
+            msg.deadlineTs = System.currentTimeMillis() + processingTimeout;
+            inFlight.put(attempt, msg);
+        } finally {
+            lock.unlock();
+        }
+        msgSubmitter.accept(msg.msg, new PipelineMsgCallback(msg, attempt));
+    }
+
+    private void onSuccess(PipelineMsg msg, long attempt) {
+        List<PipelineMsg> next;
+        lock.lock();
+        try {
+            if (inFlight.remove(attempt) == null) {
+                return;
+            }
+            if (statsEnabled) {
+                stats.logSuccess(msg.msg);
+            }
+            next = complete(msg);
+        } finally {
+            lock.unlock();
+        }
+        submit(next);
+    }
+
+    private void onFailure(PipelineMsg msg, long attempt, TenantId tenantId, RuleEngineException e) {
+        List<PipelineMsg> next = Collections.emptyList();
+        lock.lock();
+        try {
+            if (inFlight.remove(attempt) == null) {
+                return;
+            }
+            boolean retry = retryFailed && canRetry(msg);
+            if (statsEnabled) {
+                stats.logFailure(msg.msg, tenantId, e, !retry);
+            }
+            if (retry) {
+                scheduleRetry(msg, System.currentTimeMillis());
+            } else {
+                next = complete(msg);
+            }
+        } finally {
+            lock.unlock();
+        }
+        submit(next);
+    }
+
+    private List<PipelineMsg> complete(PipelineMsg msg) {
+        msg.done = true;
+        progress.signalAll();
+        if (msg.orderKey == null) {
+            return Collections.emptyList();
+        }
+        Deque<PipelineMsg> orderQueue = orderQueues.get(msg.orderKey);
+        if (orderQueue == null || orderQueue.peek() != msg) {
+            return Collections.emptyList();
+        }
+        orderQueue.poll();
+        PipelineMsg next = orderQueue.peek();
+        if (next == null) {
+            orderQueues.remove(msg.orderKey);
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(next);
+    }
+
+    private boolean canRetry(PipelineMsg msg) {
+        return processingStrategy.getRetries() <= 0 || msg.retries < processingStrategy.getRetries();
+    }
+
+    private void scheduleRetry(PipelineMsg msg, long ts) {
+        msg.retries++;
+        long pause = processingStrategy.getPauseBetweenRetries();
+        long maxPause = processingStrategy.getMaxPauseBetweenRetries();
+        if (maxPause > pause) {
+            pause = Math.min(maxPause, pause << Math.min(msg.retries - 1, 30));
+        }
+        msg.retryTs = ts + TimeUnit.SECONDS.toMillis(pause);
+        if (StringUtils.isNotEmpty(msg.msg.getValue().getFailureMessage())) {
+            var toRuleEngineMsg = ToRuleEngineMsg.newBuilder(msg.msg.getValue())
+                    .clearFailureMessage()
+                    .clearRelationTypes()
+                    .build();
+            msg.msg = new TbProtoQueueMsg<>(msg.msg.getKey(), toRuleEngineMsg, msg.msg.getHeaders());
+        }
+        retries.add(msg);
+    }
+
+    private Object getOrderKey(ToRuleEngineMsg msg) {
+        switch (submitStrategy.getType()) {
+            case SEQUENTIAL_BY_ORIGINATOR:
+                try {
+                    MsgProtos.TbMsgProto proto = MsgProtos.TbMsgProto.parseFrom(msg.getTbMsg());
+                    return EntityIdFactory.getByTypeAndUuid(proto.getEntityType(), new UUID(proto.getEntityIdMSB(), proto.getEntityIdLSB()));
+                } catch (InvalidProtocolBufferException e) {
+                    log.warn("[{}] Failed to parse TbMsg: {}", queueName, msg);
+                    return null;
+                }
+            case SEQUENTIAL_BY_TENANT:
+                return new UUID(msg.getTenantIdMSB(), msg.getTenantIdLSB());
+            case SEQUENTIAL:
+                return SEQUENTIAL_KEY;
+            default:
+                return null;
+        }
+    }
+
+    private static class PipelineMsg {
+
+        private final long position;
+        private final Object orderKey;
+        private TbProtoQueueMsg<ToRuleEngineMsg> msg;
+        private volatile long attempt;
+        private long deadlineTs;
+        private long retryTs;
+        private int retries;
+        private volatile boolean done;
+
+        private PipelineMsg(long position, Object orderKey, TbProtoQueueMsg<ToRuleEngineMsg> msg) {
+            this.position = position;
+            this.orderKey = orderKey;
+            this.msg = msg;
+        }
+
+    }
+
+    private static class SubmitQueue {
+
+        private final Deque<PipelineMsg> msgs = new ArrayDeque<>();
+        private boolean draining;
+
+    }
+
+    private class PipelineMsgCallback implements TbMsgCallback {
+
+        private final PipelineMsg msg;
+        private final long attempt;
+        private final TenantId tenantId;
+        private final long startTs;
+
+        private PipelineMsgCallback(PipelineMsg msg, long attempt) {
+            this.msg = msg;
+            this.attempt = attempt;
+            ToRuleEngineMsg value = msg.msg.getValue();
+            this.tenantId = TenantId.fromUUID(new UUID(value.getTenantIdMSB(), value.getTenantIdLSB()));
+            this.startTs = System.currentTimeMillis();
+        }
+
+        @Override
+        public void onSuccess() {
+            recordTime(SUCCESSFUL_STATUS);
+            TbRuleEngineMsgPipeline.this.onSuccess(msg, attempt);
+        }
+
+        @Override
+        public void onRateLimit(RuleEngineException e) {
+            log.debug("[{}] Rate limit while processing message at position {}", queueName, msg.position, e);
+            recordTime(FAILED_STATUS);
+            TbRuleEngineMsgPipeline.this.onSuccess(msg, attempt);
+        }
+
+        @Override
+        public void onFailure(RuleEngineException e) {
+            if (ExceptionUtil.lookupExceptionInCause(e, AbstractRateLimitException.class) != null) {
+                onRateLimit(e);
+                return;
+            }
+            recordTime(FAILED_STATUS);
+            TbRuleEngineMsgPipeline.this.onFailure(msg, attempt, tenantId, e);
+        }
+
+        @Override
+        public boolean isMsgValid() {
+            return !skipTimedOutMsgs || (!stopped && !msg.done && msg.attempt == attempt);
+        }
+
+        private void recordTime(String status) {
+            if (timersEnabled) {
+                Timer timer = stats.getTimer(tenantId, status);
+                timer.record(System.currentTimeMillis() - startTs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+    }
+
+}
@@ -49,6 +49,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -62,6 +64,7 @@ public class TbRuleEngineQueueConsumerManager extends MainQueueConsumerManager<T
 
     private final TbRuleEngineConsumerContext ctx;
     private final TbRuleEngineConsumerStats stats;
+    private final ConcurrentMap<TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>>, TbRuleEngineMsgPipeline> pipelines = new ConcurrentHashMap<>();
 
     @Builder(builderMethodName = "create") // not to conflict with super.builder()
     public TbRuleEngineQueueConsumerManager(TbRuleEngineConsumerContext ctx,
@@ -119,6 +122,10 @@ public class TbRuleEngineQueueConsumerManager extends MainQueueConsumerManager<T
     protected void processMsgs(List<TbProtoQueueMsg<ToRuleEngineMsg>> msgs,
                                TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer,
                                Queue queue) throws Exception {
+        if (ctx.isPipelinedEnabled() && consumer.isCommitByPositionSupported()) {
+            processMsgsPipelined(msgs, consumer, queue);
+            return;
+        }
         TbRuleEngineSubmitStrategy submitStrategy = getSubmitStrategy(queue);
         TbRuleEngineProcessingStrategy ackStrategy = getProcessingStrategy(queue);
         submitStrategy.init(msgs);
@@ -154,6 +161,51 @@ public class TbRuleEngineQueueConsumerManager extends MainQueueConsumerManager<T
         }
     }
 
+    private void processMsgsPipelined(List<TbProtoQueueMsg<ToRuleEngineMsg>> msgs,
+                                      TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer,
+                                      Queue queue) throws InterruptedException {
+        TbRuleEngineMsgPipeline pipeline = pipelines.get(consumer);
+        if (pipeline != null && !pipeline.isUpToDate(queue)) {
+            log.info("[{}] Processing strategies were updated, waiting for the in-flight messages", queueKey);
+            awaitPipeline(pipeline, consumer, queue, false);
+            pipeline.stop();
+            pipeline = null;
+        }
+        if (pipeline == null) {
+            log.info("[{}] Starting pipelined consumption with max {} in-flight messages", queueKey, ctx.getPipelinedMaxInFlightMsgs());
+            pipeline = new TbRuleEngineMsgPipeline(queue, consumer, ctx.getPipelinedMaxInFlightMsgs(),
+                    this::submitMessage, stats, ctx.isStatsEnabled(), ctx.isPrometheusStatsEnabled());
+            pipelines.put(consumer, pipeline);
+        }
+        pipeline.add(msgs);
+        awaitPipeline(pipeline, consumer, queue, true);
+    }
+
+    private void awaitPipeline(TbRuleEngineMsgPipeline pipeline, TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer,
+                               Queue queue, boolean untilCapacity) throws InterruptedException {
+        pipeline.maintain();
+        while (!stopped && !consumer.isStopped() && (untilCapacity ? !pipeline.hasCapacity() : !pipeline.isEmpty())) {
+            pipeline.awaitProgress(queue.getPollInterval());
+            pipeline.maintain();
+        }
+    }
+
+    @Override
+    protected void processEmptyPoll(TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer, Queue queue) {
+        TbRuleEngineMsgPipeline pipeline = pipelines.get(consumer);
+        if (pipeline != null) {
+            pipeline.maintain();
+        }
+    }
+
+    @Override
+    protected void onConsumerStopped(TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer) {
+        TbRuleEngineMsgPipeline pipeline = pipelines.remove(consumer);
+        if (pipeline != null) {
+            pipeline.stop();
+        }
+    }
+
     private TbRuleEngineSubmitStrategy getSubmitStrategy(Queue queue) {
         return ctx.getSubmitStrategyFactory().newInstance(queue.getName(), queue.getSubmitStrategy());
     }
@@ -169,6 +221,12 @@ public class TbRuleEngineQueueConsumerManager extends MainQueueConsumerManager<T
         TbMsgCallback callback = ctx.isPrometheusStatsEnabled() ?
                 new TbMsgPackCallback(id, tenantId, packCtx, stats.getTimer(tenantId, SUCCESSFUL_STATUS), stats.getTimer(tenantId, FAILED_STATUS)) :
                 new TbMsgPackCallback(id, tenantId, packCtx);
+        submitMessage(msg, callback);
+    }
+
+    private void submitMessage(TbProtoQueueMsg<ToRuleEngineMsg> msg, TbMsgCallback callback) {
+        ToRuleEngineMsg toRuleEngineMsg = msg.getValue();
+        TenantId tenantId = TenantId.fromUUID(new UUID(toRuleEngineMsg.getTenantIdMSB(), toRuleEngineMsg.getTenantIdLSB()));
         try {
             if (!toRuleEngineMsg.getTbMsg().isEmpty()) {
                 forwardToRuleEngineActor(config.getName(), tenantId, toRuleEngineMsg, callback);
@@ -28,6 +28,7 @@ import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.TbMsgPayload;
 
 import javax.script.ScriptException;
 import java.util.ArrayList;
@@ -124,7 +125,9 @@ public class RuleNodeTbelScriptEngine extends RuleNodeScriptEngine<TbelInvokeSer
     protected Object[] prepareArgs(TbMsg msg) {
         Object[] args = new Object[3];
         if (msg.getData() != null) {
-            args[0] = JacksonUtil.fromString(msg.getData(), Object.class);
+            // The parsed data is cached by the message and shared with other nodes, so the script gets its own copy.
+            JsonNode data = msg.getDataAsJson();
+            args[0] = data != null ? JacksonUtil.treeToPlainObject(data) : JacksonUtil.fromString(msg.getData(), Object.class);
         } else {
             args[0] = new HashMap<>();
         }
@@ -134,11 +137,12 @@ public class RuleNodeTbelScriptEngine extends RuleNodeScriptEngine<TbelInvokeSer
     }
 
     private static TbMsg unbindMsg(Map msgData, TbMsg msg) {
-        String data = null;
+        TbMsgPayload data = null;
         Map<String, String> metadata = null;
         String messageType = null;
         if (msgData.containsKey(RuleNodeScriptFactory.MSG)) {
-            data = JacksonUtil.toString(msgData.get(RuleNodeScriptFactory.MSG));
+            // The result is serialized only when the string form of the data is requested
+            data = TbMsgPayload.ofValue(msgData.get(RuleNodeScriptFactory.MSG), JacksonUtil.OBJECT_MAPPER);
         }
         if (msgData.containsKey(RuleNodeScriptFactory.METADATA)) {
             Object msgMetadataObj = msgData.get(RuleNodeScriptFactory.METADATA);
@@ -153,7 +157,7 @@ public class RuleNodeTbelScriptEngine extends RuleNodeScriptEngine<TbelInvokeSer
         if (msgData.containsKey(RuleNodeScriptFactory.MSG_TYPE)) {
             messageType = msgData.get(RuleNodeScriptFactory.MSG_TYPE).toString();
         }
-        String newData = data != null ? data : msg.getData();
+        TbMsgPayload newData = data != null ? data : msg.getPayload();
         TbMsgMetaData newMetadata = metadata != null ? new TbMsgMetaData(metadata) : msg.getMetaData().copy();
         String newMessageType = !StringUtils.isEmpty(messageType) ? messageType : msg.getType();
         return TbMsg.transformMsg(msg, newMessageType, msg.getOriginator(), newMetadata, newData);
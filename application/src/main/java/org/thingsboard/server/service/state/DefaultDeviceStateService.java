@@ -23,6 +23,8 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import jakarta.annotation.PostConstruct;
@@ -60,12 +62,6 @@ import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.data.notification.rule.trigger.DeviceActivityTrigger;
 import org.thingsboard.server.common.data.page.PageData;
 import org.thingsboard.server.common.data.page.PageDataIterable;
-import org.thingsboard.server.common.data.query.EntityData;
-import org.thingsboard.server.common.data.query.EntityDataPageLink;
-import org.thingsboard.server.common.data.query.EntityDataQuery;
-import org.thingsboard.server.common.data.query.EntityKey;
-import org.thingsboard.server.common.data.query.EntityKeyType;
-import org.thingsboard.server.common.data.query.EntityListFilter;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgDataType;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
@@ -73,10 +69,12 @@ import org.thingsboard.server.common.msg.notification.NotificationRuleProcessor;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TbCallback;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.common.stats.TbApiUsageReportClient;
 import org.thingsboard.server.dao.attributes.AttributesService;
+import org.thingsboard.server.dao.device.DeviceLatestValues;
 import org.thingsboard.server.dao.device.DeviceService;
-import org.thingsboard.server.dao.sql.query.EntityQueryRepository;
 import org.thingsboard.server.dao.timeseries.TimeseriesService;
 import org.thingsboard.server.dao.util.DbTypeInfoComponent;
 import org.thingsboard.server.gen.transport.TransportProtos;
@@ -89,7 +87,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -99,6 +96,7 @@ import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -123,40 +121,17 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     public static final String INACTIVITY_ALARM_TIME = "inactivityAlarmTime";
     public static final String INACTIVITY_TIMEOUT = "inactivityTimeout";
 
-    private static final List<EntityKey> PERSISTENT_TELEMETRY_KEYS = Arrays.asList(
-            new EntityKey(EntityKeyType.TIME_SERIES, LAST_ACTIVITY_TIME),
-            new EntityKey(EntityKeyType.TIME_SERIES, INACTIVITY_ALARM_TIME),
-            new EntityKey(EntityKeyType.TIME_SERIES, INACTIVITY_TIMEOUT),
-            new EntityKey(EntityKeyType.TIME_SERIES, ACTIVITY_STATE),
-            new EntityKey(EntityKeyType.TIME_SERIES, LAST_CONNECT_TIME),
-            new EntityKey(EntityKeyType.TIME_SERIES, LAST_DISCONNECT_TIME),
-            new EntityKey(EntityKeyType.SERVER_ATTRIBUTE, INACTIVITY_TIMEOUT));
-
-    private static final List<EntityKey> PERSISTENT_ATTRIBUTE_KEYS = Arrays.asList(
-            new EntityKey(EntityKeyType.SERVER_ATTRIBUTE, LAST_ACTIVITY_TIME),
-            new EntityKey(EntityKeyType.SERVER_ATTRIBUTE, INACTIVITY_ALARM_TIME),
-            new EntityKey(EntityKeyType.SERVER_ATTRIBUTE, INACTIVITY_TIMEOUT),
-            new EntityKey(EntityKeyType.SERVER_ATTRIBUTE, ACTIVITY_STATE),
-            new EntityKey(EntityKeyType.SERVER_ATTRIBUTE, LAST_CONNECT_TIME),
-            new EntityKey(EntityKeyType.SERVER_ATTRIBUTE, LAST_DISCONNECT_TIME));
-
     public static final List<String> PERSISTENT_ATTRIBUTES = Arrays.asList(ACTIVITY_STATE, LAST_CONNECT_TIME,
             LAST_DISCONNECT_TIME, LAST_ACTIVITY_TIME, INACTIVITY_ALARM_TIME, INACTIVITY_TIMEOUT);
-    private static final List<EntityKey> PERSISTENT_ENTITY_FIELDS = Arrays.asList(
-            new EntityKey(EntityKeyType.ENTITY_FIELD, "name"),
-            new EntityKey(EntityKeyType.ENTITY_FIELD, "type"),
-            new EntityKey(EntityKeyType.ENTITY_FIELD, "label"),
-            new EntityKey(EntityKeyType.ENTITY_FIELD, "createdTime"));
-
     private final DeviceService deviceService;
     private final AttributesService attributesService;
     private final TimeseriesService tsService;
     private final TbClusterService clusterService;
     private final PartitionService partitionService;
-    private final EntityQueryRepository entityQueryRepository;
     private final DbTypeInfoComponent dbTypeInfoComponent;
     private final TbApiUsageReportClient apiUsageReportClient;
     private final NotificationRuleProcessor notificationRuleProcessor;
+    private final StatsFactory statsFactory;
     @Autowired
     @Lazy
     private TelemetrySubscriptionService tsSubService;
@@ -196,6 +171,12 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     private ListeningExecutorService deviceStateCallbackExecutor;
 
     final ConcurrentMap<DeviceId, DeviceStateData> deviceStates = new ConcurrentHashMap<>();
+    final DeviceInactivityDeadlineQueue inactivityDeadlines = new DeviceInactivityDeadlineQueue();
+
+    private Timer statesLoadTimer;
+    private Timer statesLoadPageTimer;
+    private DefaultCounter scannedDevicesCounter;
+    private DefaultCounter loadedStatesCounter;
 
     @PostConstruct
     public void init() {
@@ -206,6 +187,10 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                 Math.max(4, Runtime.getRuntime().availableProcessors()), "device-state-callback"));
         scheduledExecutor.scheduleWithFixedDelay(this::checkStates, new Random().nextInt(defaultStateCheckIntervalInSec), defaultStateCheckIntervalInSec, TimeUnit.SECONDS);
         scheduledExecutor.scheduleWithFixedDelay(this::reportActivityStats, defaultActivityStatsIntervalInSec, defaultActivityStatsIntervalInSec, TimeUnit.SECONDS);
+        statesLoadTimer = statsFactory.createTimer("deviceStatesLoadTime", "scope", "total");
+        statesLoadPageTimer = statsFactory.createTimer("deviceStatesLoadTime", "scope", "page");
+        scannedDevicesCounter = statsFactory.createDefaultCounter("deviceStatesLoadCount", "type", "scannedDevices");
+        loadedStatesCounter = statsFactory.createDefaultCounter("deviceStatesLoadCount", "type", "loadedStates");
     }
 
     @PreDestroy
@@ -271,6 +256,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
             save(deviceId, LAST_ACTIVITY_TIME, lastReportedActivity);
             DeviceState state = stateData.getState();
             state.setLastActivityTime(lastReportedActivity);
+            scheduleInactivityCheck(deviceId, stateData);
             if (!state.isActive()) {
                 state.setActive(true);
                 if (lastReportedActivity <= state.getLastInactivityAlarmTime()) {
@@ -414,12 +400,99 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     private void initializeActivityState(DeviceId deviceId, DeviceStateData fetchedState) {
         DeviceStateData cachedState = deviceStates.putIfAbsent(fetchedState.getDeviceId(), fetchedState);
+        if (cachedState == null) {
+            scheduleInactivityCheck(deviceId, fetchedState);
+        }
         boolean activityState = Objects.requireNonNullElse(cachedState, fetchedState).getState().isActive();
         save(deviceId, ACTIVITY_STATE, activityState);
     }
 
     @Override
     protected Map<TopicPartitionInfo, List<ListenableFuture<?>>> onAddedPartitions(Set<TopicPartitionInfo> addedPartitions) {
+        if (persistToTelemetry && !dbTypeInfoComponent.isLatestTsDaoStoredToSql()) {
+            return fetchDeviceStatesUsingSeparateRequests(addedPartitions);
+        }
+        var result = new HashMap<TopicPartitionInfo, List<ListenableFuture<?>>>();
+        Map<TopicPartitionInfo, SettableFuture<Void>> partitionFutures = new HashMap<>();
+        for (TopicPartitionInfo tpi : addedPartitions) {
+            SettableFuture<Void> future = SettableFuture.create();
+            partitionFutures.put(tpi, future);
+            result.put(tpi, Collections.singletonList(future));
+        }
+        deviceStateExecutor.submit(() -> {
+            try {
+                loadDeviceStates(partitionFutures);
+                partitionFutures.values().forEach(future -> future.set(null));
+            } catch (Throwable t) {
+                log.error("Unexpected exception while loading device states", t);
+                partitionFutures.values().forEach(future -> future.setException(t));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Streams all devices with their persistent state in keyset-paginated pages and restores the states of the devices
+     * that belong to the added partitions. Partitions removed during the load have their futures cancelled and are skipped.
+     */
+    private void loadDeviceStates(Map<TopicPartitionInfo, SettableFuture<Void>> partitionFutures) {
+        long startTs = System.currentTimeMillis();
+        List<String> attributeKeys = persistToTelemetry ? Collections.singletonList(INACTIVITY_TIMEOUT) : PERSISTENT_ATTRIBUTES;
+        List<String> timeseriesKeys = persistToTelemetry ? PERSISTENT_ATTRIBUTES : Collections.emptyList();
+        Map<TopicPartitionInfo, AtomicInteger> loadedStates = new HashMap<>();
+        int scannedDevices = 0;
+        int totalLoadedStates = 0;
+        DeviceId lastDeviceId = null;
+        List<DeviceLatestValues> devices;
+        do {
+            if (partitionFutures.values().stream().allMatch(Future::isCancelled)) {
+                log.info("Device states loading is cancelled after scanning {} devices", scannedDevices);
+                return;
+            }
+            long pageStartTs = System.currentTimeMillis();
+            devices = deviceService.findDevicesWithLatestValues(lastDeviceId, initFetchPackSize, attributeKeys, timeseriesKeys);
+            int pageLoadedStates = 0;
+            for (DeviceLatestValues deviceLatestValues : devices) {
+                Device device = deviceLatestValues.getDevice();
+                TopicPartitionInfo tpi;
+                try {
+                    tpi = partitionService.resolve(ServiceType.TB_CORE, device.getTenantId(), device.getId());
+                } catch (Exception e) {
+                    log.warn("Failed to resolve partition for device with id [{}], tenant id [{}], customer id [{}]. Reason: {}",
+                            device.getId(), device.getTenantId(), device.getCustomerId(), e.getMessage());
+                    continue;
+                }
+                SettableFuture<Void> partitionFuture = partitionFutures.get(tpi);
+                Set<DeviceId> deviceIds = partitionedEntities.get(tpi);
+                if (partitionFuture == null || partitionFuture.isCancelled() || deviceIds == null) {
+                    continue;
+                }
+                DeviceStateData state = toDeviceStateData(deviceLatestValues);
+                deviceIds.add(device.getId());
+                if (deviceStates.putIfAbsent(device.getId(), state) == null) {
+                    checkAndUpdateState(device.getId(), state);
+                    loadedStates.computeIfAbsent(tpi, key -> new AtomicInteger()).incrementAndGet();
+                    pageLoadedStates++;
+                }
+            }
+            scannedDevices += devices.size();
+            totalLoadedStates += pageLoadedStates;
+            if (!devices.isEmpty()) {
+                lastDeviceId = devices.get(devices.size() - 1).getDevice().getId();
+            }
+            statesLoadPageTimer.record(System.currentTimeMillis() - pageStartTs, TimeUnit.MILLISECONDS);
+            scannedDevicesCounter.add(devices.size());
+            loadedStatesCounter.add(pageLoadedStates);
+            log.debug("Loaded {} device states out of {} devices in {} ms. Total: {} device states out of {} scanned devices in {} ms",
+                    pageLoadedStates, devices.size(), System.currentTimeMillis() - pageStartTs,
+                    totalLoadedStates, scannedDevices, System.currentTimeMillis() - startTs);
+        } while (devices.size() == initFetchPackSize);
+        loadedStates.forEach((tpi, count) -> log.info("[{}] Initialized {} device states", tpi.getFullTopicName(), count.get()));
+        statesLoadTimer.record(System.currentTimeMillis() - startTs, TimeUnit.MILLISECONDS);
+        log.info("Initialized {} device states for {} partitions in {} ms", totalLoadedStates, partitionFutures.size(), System.currentTimeMillis() - startTs);
+    }
+
+    private Map<TopicPartitionInfo, List<ListenableFuture<?>>> fetchDeviceStatesUsingSeparateRequests(Set<TopicPartitionInfo> addedPartitions) {
         var result = new HashMap<TopicPartitionInfo, List<ListenableFuture<?>>>();
         PageDataIterable<DeviceIdInfo> deviceIdInfos = new PageDataIterable<>(deviceService::findDeviceIdInfos, initFetchPackSize);
         Map<TopicPartitionInfo, List<DeviceIdInfo>> tpiDeviceMap = new HashMap<>();
@@ -440,18 +513,12 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
         for (var entry : tpiDeviceMap.entrySet()) {
             AtomicInteger counter = new AtomicInteger(0);
-            // hard-coded limit of 1000 is due to the Entity Data Query limitations and should not be changed.
             for (List<DeviceIdInfo> partition : Lists.partition(entry.getValue(), 1000)) {
                 log.info("[{}] Submit task for device states: {}", entry.getKey(), partition.size());
                 DevicePackFutureHolder devicePackFutureHolder = new DevicePackFutureHolder();
                 var devicePackFuture = deviceStateExecutor.submit(() -> {
                     try {
-                        List<DeviceStateData> states;
-                        if (persistToTelemetry && !dbTypeInfoComponent.isLatestTsDaoStoredToSql()) {
-                            states = fetchDeviceStateDataUsingSeparateRequests(partition);
-                        } else {
-                            states = fetchDeviceStateDataUsingEntityDataQuery(partition);
-                        }
+                        List<DeviceStateData> states = fetchDeviceStateDataUsingSeparateRequests(partition);
                         if (devicePackFutureHolder.future == null || !devicePackFutureHolder.future.isCancelled()) {
                             for (var state : states) {
                                 TopicPartitionInfo tpi = entry.getKey();
@@ -497,39 +564,56 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                 }
             }
         }
+        scheduleInactivityCheck(deviceId, state);
     }
 
     void checkStates() {
         try {
             final long ts = getCurrentTimeMillis();
-            partitionedEntities.forEach((tpi, deviceIds) -> {
-                log.debug("Calculating state updates. tpi {} for {} devices", tpi.getFullTopicName(), deviceIds.size());
-                Set<DeviceId> idsFromRemovedTenant = new HashSet<>();
-                for (DeviceId deviceId : deviceIds) {
-                    DeviceStateData stateData;
-                    try {
-                        stateData = getOrFetchDeviceStateData(deviceId);
-                    } catch (Exception e) {
-                        log.error("[{}] Failed to get or fetch device state data", deviceId, e);
-                        continue;
-                    }
-                    try {
-                        updateInactivityStateIfExpired(ts, deviceId, stateData);
-                    } catch (Exception e) {
-                        if (e instanceof TenantNotFoundException) {
-                            idsFromRemovedTenant.add(deviceId);
-                        } else {
-                            log.warn("[{}] Failed to update inactivity state [{}]", deviceId, e.getMessage());
-                        }
+            List<DeviceId> expiredDeviceIds = inactivityDeadlines.pollExpired(ts);
+            if (expiredDeviceIds.isEmpty()) {
+                return;
+            }
+            log.debug("Calculating state updates for {} devices", expiredDeviceIds.size());
+            for (DeviceId deviceId : expiredDeviceIds) {
+                DeviceStateData stateData = deviceStates.get(deviceId);
+                if (stateData == null) {
+                    continue;
+                }
+                try {
+                    updateInactivityStateIfExpired(ts, deviceId, stateData);
+                    scheduleInactivityCheck(deviceId, stateData);
+                } catch (Exception e) {
+                    if (e instanceof TenantNotFoundException) {
+                        partitionedEntities.values().forEach(deviceIds -> deviceIds.remove(deviceId));
+                    } else {
+                        log.warn("[{}] Failed to update inactivity state [{}]", deviceId, e.getMessage());
+                        inactivityDeadlines.schedule(deviceId, ts + TimeUnit.SECONDS.toMillis(defaultStateCheckIntervalInSec));
                     }
                 }
-                deviceIds.removeAll(idsFromRemovedTenant);
-            });
+            }
         } catch (Throwable t) {
             log.warn("Failed to check devices states", t);
         }
     }
 
+    /**
+     * Schedules the inactivity check of the device at its inactivity deadline,
+     * unless the inactivity was already reported after the last activity.
+     */
+    void scheduleInactivityCheck(DeviceId deviceId, DeviceStateData stateData) {
+        DeviceState state = stateData.getState();
+        if (state.getLastInactivityAlarmTime() != 0L && state.getLastInactivityAlarmTime() > state.getLastActivityTime()) {
+            return;
+        }
+        if (deviceStates.get(deviceId) != stateData) {
+            return;
+        }
+        long lastActivityTime = Math.max(state.getLastActivityTime(), stateData.getDeviceCreationTime());
+        long deadline = lastActivityTime + state.getInactivityTimeout();
+        inactivityDeadlines.schedule(deviceId, deadline >= lastActivityTime ? deadline : Long.MAX_VALUE);
+    }
+
     void reportActivityStats() {
         try {
             Map<TenantId, Pair<AtomicInteger, AtomicInteger>> stats = new HashMap<>();
@@ -590,7 +674,12 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     @Nonnull
     DeviceStateData getOrFetchDeviceStateData(DeviceId deviceId) {
-        return deviceStates.computeIfAbsent(deviceId, this::fetchDeviceStateDataUsingSeparateRequests);
+        DeviceStateData stateData = deviceStates.get(deviceId);
+        if (stateData == null) {
+            stateData = deviceStates.computeIfAbsent(deviceId, this::fetchDeviceStateDataUsingSeparateRequests);
+            scheduleInactivityCheck(deviceId, stateData);
+        }
+        return stateData;
     }
 
     DeviceStateData fetchDeviceStateDataUsingSeparateRequests(final DeviceId deviceId) {
@@ -638,6 +727,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     private void cleanupEntity(DeviceId deviceId) {
         deviceStates.remove(deviceId);
+        inactivityDeadlines.cancel(deviceId);
     }
 
 
@@ -738,86 +828,21 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         }
     }
 
-    private List<DeviceStateData> fetchDeviceStateDataUsingEntityDataQuery(List<DeviceIdInfo> deviceIds) {
-        EntityListFilter ef = new EntityListFilter();
-        ef.setEntityType(EntityType.DEVICE);
-        ef.setEntityList(deviceIds.stream().map(DeviceIdInfo::getDeviceId).map(DeviceId::getId).map(UUID::toString).collect(Collectors.toList()));
-
-        EntityDataQuery query = new EntityDataQuery(ef,
-                new EntityDataPageLink(deviceIds.size(), 0, null, null),
-                PERSISTENT_ENTITY_FIELDS,
-                persistToTelemetry ? PERSISTENT_TELEMETRY_KEYS : PERSISTENT_ATTRIBUTE_KEYS, Collections.emptyList());
-        PageData<EntityData> queryResult = entityQueryRepository.findEntityDataByQueryInternal(query);
-
-        Map<EntityId, DeviceIdInfo> deviceIdInfos = deviceIds.stream().collect(Collectors.toMap(DeviceIdInfo::getDeviceId, java.util.function.Function.identity()));
-
-        return queryResult.getData().stream().map(ed -> toDeviceStateData(ed, deviceIdInfos.get(ed.getEntityId()))).collect(Collectors.toList());
-
-    }
-
-    DeviceStateData toDeviceStateData(EntityData ed, DeviceIdInfo deviceIdInfo) {
-        long lastActivityTime = getEntryValue(ed, getKeyType(), LAST_ACTIVITY_TIME, 0L);
-        long inactivityAlarmTime = getEntryValue(ed, getKeyType(), INACTIVITY_ALARM_TIME, 0L);
-        long inactivityTimeout = getEntryValue(ed, getKeyType(), INACTIVITY_TIMEOUT, defaultInactivityTimeoutMs);
-        if (persistToTelemetry && inactivityTimeout == defaultInactivityTimeoutMs) {
+    DeviceStateData toDeviceStateData(DeviceLatestValues deviceLatestValues) {
+        Device device = deviceLatestValues.getDevice();
+        DeviceStateData deviceStateData = persistToTelemetry ?
+                this.<TsKvEntry>extractDeviceStateData(device).apply(deviceLatestValues.getLatestTimeseries()) :
+                this.<AttributeKvEntry>extractDeviceStateData(device).apply(deviceLatestValues.getServerAttributes());
+        DeviceState state = deviceStateData.getState();
+        if (persistToTelemetry && state.getInactivityTimeout() == defaultInactivityTimeoutMs) {
             log.trace("[{}] default value for inactivity timeout fetched {}, going to fetch inactivity timeout from attributes",
-                    deviceIdInfo.getDeviceId(), inactivityTimeout);
-            inactivityTimeout = getEntryValue(ed, EntityKeyType.SERVER_ATTRIBUTE, INACTIVITY_TIMEOUT, defaultInactivityTimeoutMs);
-        }
-        // Actual active state by wall-clock will be updated outside this method. This method is only for fetching persistent state
-        final boolean active = getEntryValue(ed, getKeyType(), ACTIVITY_STATE, false);
-        DeviceState deviceState = DeviceState.builder()
-                .active(active)
-                .lastConnectTime(getEntryValue(ed, getKeyType(), LAST_CONNECT_TIME, 0L))
-                .lastDisconnectTime(getEntryValue(ed, getKeyType(), LAST_DISCONNECT_TIME, 0L))
-                .lastActivityTime(lastActivityTime)
-                .lastInactivityAlarmTime(inactivityAlarmTime)
-                .inactivityTimeout(inactivityTimeout)
-                .build();
-        TbMsgMetaData md = new TbMsgMetaData();
-        md.putValue("deviceName", getEntryValue(ed, EntityKeyType.ENTITY_FIELD, "name", ""));
-        md.putValue("deviceLabel", getEntryValue(ed, EntityKeyType.ENTITY_FIELD, "label", ""));
-        md.putValue("deviceType", getEntryValue(ed, EntityKeyType.ENTITY_FIELD, "type", ""));
-        return DeviceStateData.builder()
-                .customerId(deviceIdInfo.getCustomerId())
-                .tenantId(deviceIdInfo.getTenantId())
-                .deviceId(deviceIdInfo.getDeviceId())
-                .deviceCreationTime(getEntryValue(ed, EntityKeyType.ENTITY_FIELD, "createdTime", 0L))
-                .metaData(md)
-                .state(deviceState).build();
-    }
-
-    private EntityKeyType getKeyType() {
-        return persistToTelemetry ? EntityKeyType.TIME_SERIES : EntityKeyType.SERVER_ATTRIBUTE;
-    }
-
-    private String getEntryValue(EntityData ed, EntityKeyType keyType, String keyName, String defaultValue) {
-        return getEntryValue(ed, keyType, keyName, s -> s, defaultValue);
-    }
-
-    private long getEntryValue(EntityData ed, EntityKeyType keyType, String keyName, long defaultValue) {
-        return getEntryValue(ed, keyType, keyName, Long::parseLong, defaultValue);
-    }
-
-    private boolean getEntryValue(EntityData ed, EntityKeyType keyType, String keyName, boolean defaultValue) {
-        return getEntryValue(ed, keyType, keyName, Boolean::parseBoolean, defaultValue);
-    }
-
-    private <T> T getEntryValue(EntityData ed, EntityKeyType entityKeyType, String attributeName, Function<String, T> converter, T defaultValue) {
-        if (ed != null && ed.getLatest() != null) {
-            var map = ed.getLatest().get(entityKeyType);
-            if (map != null) {
-                var value = map.get(attributeName);
-                if (value != null && !StringUtils.isEmpty(value.getValue())) {
-                    try {
-                        return converter.apply(value.getValue());
-                    } catch (Exception e) {
-                        return defaultValue;
-                    }
-                }
+                    deviceStateData.getDeviceId(), state.getInactivityTimeout());
+            long inactivityTimeout = getEntryValue(deviceLatestValues.getServerAttributes(), INACTIVITY_TIMEOUT, defaultInactivityTimeoutMs);
+            if (inactivityTimeout > 0) {
+                state.setInactivityTimeout(inactivityTimeout);
             }
         }
-        return defaultValue;
+        return deviceStateData;
     }
 
     private long getEntryValue(List<? extends KvEntry> kvEntries, String attributeName, long defaultValue) {
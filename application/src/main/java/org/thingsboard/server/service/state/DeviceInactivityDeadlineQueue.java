@@ -0,0 +1,83 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.state;
+
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Devices ordered by the time their inactivity should be checked.
+ * Every device has at most one deadline. A deadline that moves later is kept as is,
+ * so the frequent activity updates do not touch the queue, and the device is rescheduled when the deadline is polled.
+ */
+class DeviceInactivityDeadlineQueue {
+
+    private final ConcurrentMap<DeviceId, Long> deadlines = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Deadline> queue = new ConcurrentSkipListSet<>(
+            Comparator.comparingLong(Deadline::ts).thenComparing(deadline -> deadline.deviceId().getId()));
+
+    void schedule(DeviceId deviceId, long ts) {
+        deadlines.compute(deviceId, (id, current) -> {
+            if (current != null) {
+                if (current <= ts) {
+                    return current;
+                }
+                queue.remove(new Deadline(current, id));
+            }
+            queue.add(new Deadline(ts, id));
+            return ts;
+        });
+    }
+
+    void cancel(DeviceId deviceId) {
+        deadlines.computeIfPresent(deviceId, (id, current) -> {
+            queue.remove(new Deadline(current, id));
+            return null;
+        });
+    }
+
+    List<DeviceId> pollExpired(long ts) {
+        List<DeviceId> expired = new ArrayList<>();
+        for (Deadline deadline : queue) {
+            if (deadline.ts() > ts) {
+                break;
+            }
+            // the deadline is removed under the lock of the device, so a concurrent schedule with the same ts is not lost
+            deadlines.compute(deadline.deviceId(), (id, current) -> {
+                queue.remove(deadline);
+                if (current != null && current == deadline.ts()) {
+                    expired.add(id);
+                    return null;
+                }
+                return current;
+            });
+        }
+        return expired;
+    }
+
+    int size() {
+        return deadlines.size();
+    }
+
+    private record Deadline(long ts, DeviceId deviceId) {}
+
+}
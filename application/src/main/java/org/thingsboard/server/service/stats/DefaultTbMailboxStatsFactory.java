@@ -0,0 +1,118 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.stats;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.actors.TbMailboxStats;
+import org.thingsboard.server.actors.TbMailboxStatsFactory;
+import org.thingsboard.server.common.stats.StatsCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.stats.StatsType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DefaultTbMailboxStatsFactory implements TbMailboxStatsFactory {
+
+    private static final String MAILBOX_STATS_KEY = StatsType.ACTOR.getName() + ".mailbox";
+    private static final String DISPATCHER_TAG = "dispatcher";
+
+    private final StatsFactory statsFactory;
+    private final Map<String, DispatcherMailboxStats> dispatcherStats = new ConcurrentHashMap<>();
+
+    @Value("${actors.system.mailbox.stats.enabled:false}")
+    private boolean statsEnabled;
+
+    @Override
+    public TbMailboxStats createMailboxStats(String dispatcherId) {
+        return dispatcherStats.computeIfAbsent(dispatcherId, DispatcherMailboxStats::new);
+    }
+
+    @Scheduled(fixedDelayString = "${actors.system.mailbox.stats.print_interval_ms:60000}")
+    public void printStats() {
+        if (statsEnabled) {
+            dispatcherStats.values().forEach(stats -> {
+                log.info("[{}] Mailbox stats: depth = [{}], enqueued = [{}], rejected = [{}], dropped = [{}]",
+                        stats.dispatcherId, stats.depth.get(), stats.enqueued.get(), stats.rejected.get(), stats.dropped.get());
+                stats.reset();
+            });
+        }
+    }
+
+    private class DispatcherMailboxStats implements TbMailboxStats {
+
+        private final String dispatcherId;
+        private final AtomicLong depth;
+        private final StatsCounter enqueued;
+        private final StatsCounter rejected;
+        private final StatsCounter dropped;
+        private final Timer processingTimer;
+
+        DispatcherMailboxStats(String dispatcherId) {
+            this.dispatcherId = dispatcherId;
+            this.depth = statsFactory.createGauge(MAILBOX_STATS_KEY + ".depth", new AtomicLong(), DISPATCHER_TAG, dispatcherId);
+            this.enqueued = statsFactory.createStatsCounter(MAILBOX_STATS_KEY, "enqueued", DISPATCHER_TAG, dispatcherId);
+            this.rejected = statsFactory.createStatsCounter(MAILBOX_STATS_KEY, "rejected", DISPATCHER_TAG, dispatcherId);
+            this.dropped = statsFactory.createStatsCounter(MAILBOX_STATS_KEY, "dropped", DISPATCHER_TAG, dispatcherId);
+            this.processingTimer = statsFactory.createTimer(MAILBOX_STATS_KEY + ".processing", DISPATCHER_TAG, dispatcherId);
+        }
+
+        @Override
+        public void onMsgEnqueued() {
+            depth.incrementAndGet();
+            enqueued.increment();
+        }
+
+        @Override
+        public void onMsgDequeued() {
+            depth.decrementAndGet();
+        }
+
+        @Override
+        public void onMsgRejected() {
+            rejected.increment();
+        }
+
+        @Override
+        public void onMsgDropped() {
+            depth.decrementAndGet();
+            dropped.increment();
+        }
+
+        @Override
+        public void onMsgProcessed(long processingTimeNanos) {
+            processingTimer.record(processingTimeNanos, TimeUnit.NANOSECONDS);
+        }
+
+        void reset() {
+            enqueued.clear();
+            rejected.clear();
+            dropped.clear();
+        }
+
+    }
+
+}
@@ -0,0 +1,277 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.query.EntityCountQuery;
+import org.thingsboard.server.common.data.query.EntityDataQuery;
+import org.thingsboard.server.common.data.query.EntityDataSortOrder;
+import org.thingsboard.server.common.data.query.EntityFilterType;
+import org.thingsboard.server.common.data.query.EntityKey;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.KeyFilter;
+import org.thingsboard.server.dao.eventsourcing.DeleteEntityEvent;
+import org.thingsboard.server.dao.eventsourcing.SaveEntityEvent;
+import org.thingsboard.server.dao.relation.EntityRelationEvent;
+import org.thingsboard.server.queue.util.TbCoreComponent;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Shares the results of the dynamic entity data and entity count queries between the websocket subscriptions
+ * and tracks the entity, relation and key changes of each tenant. A periodic refresh reuses the previous result
+ * when the same query was executed within the dedup window, or when nothing the query depends on has changed since.
+ * Concurrent executions of the same query are collapsed into one, the other callers wait for its result.
+ * <p>
+ * Only the changes made through this node are observed. In the monolith mode a result is never reused for longer
+ * than {@code max_skip_interval_sec}. In the cluster mode the changes made through the other nodes are not seen,
+ * so the results are reused only within the dedup window, which is bounded by the refresh interval.
+ */
+@Slf4j
+@TbCoreComponent
+@Component
+public class DynamicQueryResultCache {
+
+    private static final Set<EntityType> QUERYABLE_ENTITY_TYPES = EnumSet.of(EntityType.ASSET, EntityType.DEVICE,
+            EntityType.ENTITY_VIEW, EntityType.DASHBOARD, EntityType.CUSTOMER, EntityType.USER, EntityType.TENANT,
+            EntityType.API_USAGE_STATE, EntityType.EDGE, EntityType.RULE_CHAIN, EntityType.DEVICE_PROFILE,
+            EntityType.ASSET_PROFILE, EntityType.TENANT_PROFILE, EntityType.QUEUE_STATS);
+
+    private static final Set<EntityFilterType> RELATION_FILTER_TYPES = EnumSet.of(EntityFilterType.RELATIONS_QUERY,
+            EntityFilterType.ASSET_SEARCH_QUERY, EntityFilterType.DEVICE_SEARCH_QUERY,
+            EntityFilterType.ENTITY_VIEW_SEARCH_QUERY, EntityFilterType.EDGE_SEARCH_QUERY);
+
+    @Getter
+    @Value("${server.ws.dynamic_page_link.incremental.enabled:false}")
+    private boolean enabled;
+    @Value("${server.ws.dynamic_page_link.incremental.dedup_window_ms:5000}")
+    private long dedupWindowMs;
+    @Value("${server.ws.dynamic_page_link.incremental.max_skip_interval_sec:300}")
+    private long maxSkipIntervalSec;
+    @Value("${server.ws.dynamic_page_link.incremental.max_cached_queries:10000}")
+    private long maxCachedQueries;
+    @Value("${server.ws.dynamic_page_link.refresh_interval:6}")
+    private long refreshIntervalSec;
+    @Value("${service.type:monolith}")
+    private String serviceType;
+
+    private final AtomicLong seq = new AtomicLong();
+    private final ConcurrentMap<TenantId, TenantChanges> tenantChanges = new ConcurrentHashMap<>();
+    private volatile long systemChangeSeq;
+    private volatile long relationChangeSeq;
+
+    private final ConcurrentMap<QueryKey, CompletableFuture<CachedQueryResult<?>>> inFlight = new ConcurrentHashMap<>();
+    private Cache<QueryKey, CachedQueryResult<?>> results;
+    private boolean skipUnchanged;
+
+    @PostConstruct
+    public void init() {
+        skipUnchanged = "monolith".equalsIgnoreCase(serviceType);
+        if (!skipUnchanged) {
+            dedupWindowMs = Math.min(dedupWindowMs, TimeUnit.SECONDS.toMillis(refreshIntervalSec));
+            if (enabled) {
+                log.info("Dynamic query results are reused within the dedup window of {} ms only, since the changes made through the other nodes " +
+                        "are not tracked by the '{}' service type", dedupWindowMs, serviceType);
+            }
+        }
+        long maxAgeMs = skipUnchanged ? Math.max(dedupWindowMs, TimeUnit.SECONDS.toMillis(maxSkipIntervalSec)) : dedupWindowMs;
+        results = Caffeine.newBuilder()
+                .maximumSize(maxCachedQueries)
+                .expireAfterWrite(maxAgeMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Returns the result of the query, executing it only if no reusable result is cached.
+     * The returned result may be shared with other subscriptions and must not be modified.
+     * If the same query is already being executed, waits for that execution instead of starting another one.
+     */
+    @SuppressWarnings("unchecked")
+    public <R> CachedQueryResult<R> getOrExecute(TenantId tenantId, CustomerId customerId, EntityCountQuery query,
+                                                 SubscriptionServiceStatistics stats, Supplier<R> executor) {
+        QueryKey key = new QueryKey(tenantId, customerId, query.getClass(), JacksonUtil.toString(query));
+        long now = System.currentTimeMillis();
+        CachedQueryResult<R> cached = (CachedQueryResult<R>) results.getIfPresent(key);
+        if (cached != null && isReusable(cached, tenantId, query, now)) {
+            stats.getDynamicQueryAvoidedCnt().incrementAndGet();
+            return cached;
+        }
+        CompletableFuture<CachedQueryResult<?>> future = new CompletableFuture<>();
+        CompletableFuture<CachedQueryResult<?>> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            stats.getDynamicQueryAvoidedCnt().incrementAndGet();
+            return (CachedQueryResult<R>) await(running);
+        }
+        try {
+            // the sequence is taken before the execution, so that the changes made concurrently invalidate the result
+            long executionSeq = seq.get();
+            CachedQueryResult<R> executed = new CachedQueryResult<>(executor.get(), executionSeq, now);
+            results.put(key, executed);
+            future.complete(executed);
+            return executed;
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    public void onKeysChanged(TenantId tenantId, Collection<String> keys) {
+        if (!enabled || keys.isEmpty()) {
+            return;
+        }
+        long changeSeq = seq.incrementAndGet();
+        TenantChanges changes = tenantChanges.computeIfAbsent(tenantId, id -> new TenantChanges());
+        for (String key : keys) {
+            changes.getKeyChangeSeq().put(key, changeSeq);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(SaveEntityEvent<?> event) {
+        onEntityChanged(event.getTenantId(), event.getEntityId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(DeleteEntityEvent<?> event) {
+        onEntityChanged(event.getTenantId(), event.getEntityId());
+        EntityId entityId = event.getEntityId();
+        if (entityId != null && EntityType.TENANT.equals(entityId.getEntityType())) {
+            tenantChanges.remove(TenantId.fromUUID(entityId.getId()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(EntityRelationEvent event) {
+        if (enabled) {
+            relationChangeSeq = seq.incrementAndGet();
+        }
+    }
+
+    void onEntityChanged(TenantId tenantId, EntityId entityId) {
+        if (!enabled || (entityId != null && !QUERYABLE_ENTITY_TYPES.contains(entityId.getEntityType()))) {
+            return;
+        }
+        long changeSeq = seq.incrementAndGet();
+        if (tenantId == null || tenantId.isSysTenantId()) {
+            systemChangeSeq = changeSeq;
+        } else {
+            tenantChanges.computeIfAbsent(tenantId, id -> new TenantChanges()).setEntityChangeSeq(changeSeq);
+        }
+    }
+
+    private static CachedQueryResult<?> await(CompletableFuture<CachedQueryResult<?>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // the waiters fail with the same exception as the execution
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private boolean isReusable(CachedQueryResult<?> cached, TenantId tenantId, EntityCountQuery query, long now) {
+        long age = now - cached.getExecutedTs();
+        if (age < dedupWindowMs) {
+            return true;
+        }
+        return skipUnchanged && age < TimeUnit.SECONDS.toMillis(maxSkipIntervalSec) && !isChangedSince(tenantId, query, cached.getSeq());
+    }
+
+    private boolean isChangedSince(TenantId tenantId, EntityCountQuery query, long since) {
+        if (systemChangeSeq > since) {
+            return true;
+        }
+        if (query.getEntityFilter() == null || RELATION_FILTER_TYPES.contains(query.getEntityFilter().getType())) {
+            if (relationChangeSeq > since) {
+                return true;
+            }
+        }
+        TenantChanges changes = tenantChanges.get(tenantId);
+        if (changes == null) {
+            return false;
+        }
+        if (changes.getEntityChangeSeq() > since) {
+            return true;
+        }
+        if (query.getKeyFilters() != null) {
+            for (KeyFilter keyFilter : query.getKeyFilters()) {
+                if (isKeyChangedSince(changes, keyFilter.getKey(), since)) {
+                    return true;
+                }
+            }
+        }
+        if (query instanceof EntityDataQuery dataQuery && dataQuery.getPageLink() != null) {
+            EntityDataSortOrder sortOrder = dataQuery.getPageLink().getSortOrder();
+            return sortOrder != null && isKeyChangedSince(changes, sortOrder.getKey(), since);
+        }
+        return false;
+    }
+
+    private static boolean isKeyChangedSince(TenantChanges changes, EntityKey key, long since) {
+        if (key == null || EntityKeyType.ENTITY_FIELD.equals(key.getType())) {
+            // entity fields are only modified together with the entity itself
+            return false;
+        }
+        Long keyChangeSeq = changes.getKeyChangeSeq().get(key.getKey());
+        return keyChangeSeq != null && keyChangeSeq > since;
+    }
+
+    @Data
+    public static class CachedQueryResult<R> {
+        private final R result;
+        private final long seq;
+        private final long executedTs;
+    }
+
+    private record QueryKey(TenantId tenantId, CustomerId customerId, Class<?> queryClass, String query) {
+    }
+
+    @Data
+    private static class TenantChanges {
+        private volatile long entityChangeSeq;
+        private final ConcurrentMap<String, Long> keyChangeSeq = new ConcurrentHashMap<>();
+    }
+
+}
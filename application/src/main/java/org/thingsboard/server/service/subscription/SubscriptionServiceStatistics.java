@@ -25,6 +25,7 @@ public class SubscriptionServiceStatistics {
     private AtomicInteger alarmQueryInvocationCnt = new AtomicInteger();
     private AtomicInteger regularQueryInvocationCnt = new AtomicInteger();
     private AtomicInteger dynamicQueryInvocationCnt = new AtomicInteger();
+    private AtomicInteger dynamicQueryAvoidedCnt = new AtomicInteger();
     private AtomicLong alarmQueryTimeSpent = new AtomicLong();
     private AtomicLong regularQueryTimeSpent = new AtomicLong();
     private AtomicLong dynamicQueryTimeSpent = new AtomicLong();
@@ -80,7 +80,11 @@ public abstract class TbAbstractDataSubCtx<T extends AbstractDataQuery<? extends
 
     @Override
     protected synchronized void update() {
-        PageData<EntityData> newData = findEntityData();
+        PageData<EntityData> newData = findUpdatedEntityData();
+        if (newData == null) {
+            log.trace("[{}][{}] Entity data query result did not change", sessionRef.getSessionId(), cmdId);
+            return;
+        }
         Map<EntityId, EntityData> oldDataMap;
         if (data != null && !data.getData().isEmpty()) {
             oldDataMap = data.getData().stream().collect(Collectors.toMap(EntityData::getEntityId, Function.identity(), (a, b) -> a));
@@ -96,6 +100,13 @@ public abstract class TbAbstractDataSubCtx<T extends AbstractDataQuery<? extends
         }
     }
 
+    /**
+     * Returns the data for the periodic refresh of the dynamic query, or null if the previous result is still up to date.
+     */
+    protected PageData<EntityData> findUpdatedEntityData() {
+        return findEntityData();
+    }
+
     protected abstract void doUpdate(Map<EntityId, EntityData> newDataMap);
 
     protected abstract EntityDataQuery buildEntityDataQuery();
@@ -27,11 +27,14 @@ import org.thingsboard.server.service.ws.telemetry.cmd.v2.EntityCountUpdate;
 public class TbEntityCountSubCtx extends TbAbstractEntityQuerySubCtx<EntityCountQuery> {
 
     private volatile int result;
+    private final DynamicQueryResultCache queryResultCache;
 
     public TbEntityCountSubCtx(String serviceId, WebSocketService wsService, EntityService entityService,
                                TbLocalSubscriptionService localSubscriptionService, AttributesService attributesService,
-                               SubscriptionServiceStatistics stats, WebSocketSessionRef sessionRef, int cmdId) {
+                               SubscriptionServiceStatistics stats, WebSocketSessionRef sessionRef, int cmdId,
+                               DynamicQueryResultCache queryResultCache) {
         super(serviceId, wsService, entityService, localSubscriptionService, attributesService, stats, sessionRef, cmdId);
+        this.queryResultCache = queryResultCache;
     }
 
     @Override
@@ -42,7 +45,14 @@ public class TbEntityCountSubCtx extends TbAbstractEntityQuerySubCtx<EntityCount
 
     @Override
     protected void update() {
-        int newCount = (int) entityService.countEntitiesByQuery(getTenantId(), getCustomerId(), query);
+        int newCount;
+        // resolved dynamic values are not serialized with the query, so such queries are never shared
+        if (queryResultCache != null && queryResultCache.isEnabled() && dynamicValues.isEmpty()) {
+            newCount = queryResultCache.getOrExecute(getTenantId(), getCustomerId(), query, stats,
+                    () -> entityService.countEntitiesByQuery(getTenantId(), getCustomerId(), query)).getResult().intValue();
+        } else {
+            newCount = (int) entityService.countEntitiesByQuery(getTenantId(), getCustomerId(), query);
+        }
         if (newCount != result) {
             result = newCount;
             sendWsMsg(new EntityCountUpdate(cmdId, result));
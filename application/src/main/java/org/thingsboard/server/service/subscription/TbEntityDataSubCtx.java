@@ -58,12 +58,16 @@ public class TbEntityDataSubCtx extends TbAbstractDataSubCtx<EntityDataQuery> {
     @Getter
     private final int maxEntitiesPerDataSubscription;
     private Map<EntityId, Map<String, TsValue>> latestTsEntityData;
+    private final DynamicQueryResultCache queryResultCache;
+    private DynamicQueryResultCache.CachedQueryResult<PageData<EntityData>> lastQueryResult;
 
     public TbEntityDataSubCtx(String serviceId, WebSocketService wsService, EntityService entityService,
                               TbLocalSubscriptionService localSubscriptionService, AttributesService attributesService,
-                              SubscriptionServiceStatistics stats, WebSocketSessionRef sessionRef, int cmdId, int maxEntitiesPerDataSubscription) {
+                              SubscriptionServiceStatistics stats, WebSocketSessionRef sessionRef, int cmdId, int maxEntitiesPerDataSubscription,
+                              DynamicQueryResultCache queryResultCache) {
         super(serviceId, wsService, entityService, localSubscriptionService, attributesService, stats, sessionRef, cmdId);
         this.maxEntitiesPerDataSubscription = maxEntitiesPerDataSubscription;
+        this.queryResultCache = queryResultCache;
     }
 
     @Override
@@ -240,4 +244,35 @@ public class TbEntityDataSubCtx extends TbAbstractDataSubCtx<EntityDataQuery> {
         return query;
     }
 
+    @Override
+    protected PageData<EntityData> findUpdatedEntityData() {
+        // resolved dynamic values are not serialized with the query, so such queries are never shared
+        if (queryResultCache == null || !queryResultCache.isEnabled() || !dynamicValues.isEmpty()) {
+            return super.findUpdatedEntityData();
+        }
+        var queryResult = queryResultCache.getOrExecute(getTenantId(), getCustomerId(), query, stats, this::findEntityData);
+        if (queryResult == lastQueryResult) {
+            return null;
+        }
+        lastQueryResult = queryResult;
+        return copyOf(queryResult.getResult());
+    }
+
+    private static PageData<EntityData> copyOf(PageData<EntityData> pageData) {
+        List<EntityData> data = new ArrayList<>(pageData.getData().size());
+        for (EntityData entityData : pageData.getData()) {
+            Map<EntityKeyType, Map<String, TsValue>> latest = null;
+            if (entityData.getLatest() != null) {
+                latest = new HashMap<>();
+                for (var entry : entityData.getLatest().entrySet()) {
+                    latest.put(entry.getKey(), new HashMap<>(entry.getValue()));
+                }
+            }
+            data.add(new EntityData(entityData.getEntityId(), latest,
+                    entityData.getTimeseries() != null ? new HashMap<>(entityData.getTimeseries()) : null,
+                    entityData.getAggLatest() != null ? new HashMap<>(entityData.getAggLatest()) : null));
+        }
+        return new PageData<>(data, pageData.getTotalPages(), pageData.getTotalElements(), pageData.hasNext());
+    }
+
 }
@@ -24,6 +24,7 @@ import jakarta.annotation.Nullable;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
@@ -51,6 +52,7 @@ import org.thingsboard.server.dao.timeseries.TimeseriesService;
 import org.thingsboard.server.dao.util.KvUtils;
 import org.thingsboard.server.service.apiusage.TbApiUsageStateService;
 import org.thingsboard.server.service.entitiy.entityview.TbEntityViewService;
+import org.thingsboard.server.service.subscription.DynamicQueryResultCache;
 import org.thingsboard.server.service.subscription.TbSubscriptionUtils;
 
 import java.util.ArrayList;
@@ -80,6 +82,9 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
 
     private ExecutorService tsCallBackExecutor;
 
+    @Autowired
+    private Optional<DynamicQueryResultCache> dynamicQueryResultCache;
+
     @Value("${sql.ts.value_no_xss_validation:false}")
     private boolean valueNoXssValidation;
 
@@ -464,6 +469,7 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
     }
 
     private void onAttributesUpdate(TenantId tenantId, EntityId entityId, String scope, List<AttributeKvEntry> attributes, boolean notifyDevice) {
+        onKeysChanged(tenantId, attributes.stream().map(AttributeKvEntry::getKey).toList());
         forwardToSubscriptionManagerService(tenantId, entityId, subscriptionManagerService -> {
             subscriptionManagerService.onAttributesUpdate(tenantId, entityId, scope, attributes, notifyDevice, TbCallback.EMPTY);
         }, () -> {
@@ -472,6 +478,7 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
     }
 
     private void onAttributesDelete(TenantId tenantId, EntityId entityId, String scope, List<String> keys, boolean notifyDevice) {
+        onKeysChanged(tenantId, keys);
         forwardToSubscriptionManagerService(tenantId, entityId, subscriptionManagerService -> {
             subscriptionManagerService.onAttributesDelete(tenantId, entityId, scope, keys, notifyDevice, TbCallback.EMPTY);
         }, () -> {
@@ -480,6 +487,7 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
     }
 
     private void onTimeSeriesUpdate(TenantId tenantId, EntityId entityId, List<TsKvEntry> ts) {
+        onKeysChanged(tenantId, ts.stream().map(TsKvEntry::getKey).toList());
         forwardToSubscriptionManagerService(tenantId, entityId, subscriptionManagerService -> {
             subscriptionManagerService.onTimeSeriesUpdate(tenantId, entityId, ts, TbCallback.EMPTY);
         }, () -> {
@@ -488,6 +496,7 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
     }
 
     private void onTimeSeriesDelete(TenantId tenantId, EntityId entityId, List<String> keys, List<TsKvLatestRemovingResult> ts) {
+        onKeysChanged(tenantId, keys);
         forwardToSubscriptionManagerService(tenantId, entityId, subscriptionManagerService -> {
             List<TsKvEntry> updated = new ArrayList<>();
             List<String> deleted = new ArrayList<>();
@@ -509,6 +518,10 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
         });
     }
 
+    private void onKeysChanged(TenantId tenantId, List<String> keys) {
+        dynamicQueryResultCache.ifPresent(cache -> cache.onKeysChanged(tenantId, keys));
+    }
+
     private <S> void addVoidCallback(ListenableFuture<S> saveFuture, final FutureCallback<Void> callback) {
         if (callback == null) return;
         Futures.addCallback(saveFuture, new FutureCallback<S>() {
@@ -138,6 +138,12 @@ public class DefaultWebSocketService implements WebSocketService {
 
     @Value("${server.ws.ping_timeout:30000}")
     private long pingTimeout;
+    @Value("${server.ws.binary_protocol.max_keys:10000}")
+    private int binaryProtocolMaxKeys;
+    @Value("${server.ws.updates_coalescing.enabled:false}")
+    private boolean updatesCoalescingEnabled;
+    @Value("${server.ws.updates_coalescing.flush_interval_ms:100}")
+    private long updatesFlushIntervalMs;
 
     private final ConcurrentMap<TenantId, Set<String>> tenantSubscriptionsMap = new ConcurrentHashMap<>();
     private final ConcurrentMap<CustomerId, Set<String>> customerSubscriptionsMap = new ConcurrentHashMap<>();
@@ -147,6 +153,8 @@ public class DefaultWebSocketService implements WebSocketService {
 
     private ExecutorService executor;
     private ScheduledExecutorService pingExecutor;
+    private ScheduledExecutorService updatesFlushExecutor;
+    private final Set<String> sessionsWithPendingUpdates = ConcurrentHashMap.newKeySet();
     private String serviceId;
 
     private Map<WsCmdType, WsCmdHandler<? extends WsCmd>> cmdsHandlers;
@@ -159,6 +167,11 @@ public class DefaultWebSocketService implements WebSocketService {
         pingExecutor = ThingsBoardExecutors.newSingleThreadScheduledExecutor("telemetry-web-socket-ping");
         pingExecutor.scheduleWithFixedDelay(this::sendPing, pingTimeout / NUMBER_OF_PING_ATTEMPTS, pingTimeout / NUMBER_OF_PING_ATTEMPTS, TimeUnit.MILLISECONDS);
 
+        if (updatesCoalescingEnabled) {
+            updatesFlushExecutor = ThingsBoardExecutors.newSingleThreadScheduledExecutor("web-socket-updates-flush");
+            updatesFlushExecutor.scheduleWithFixedDelay(this::flushPendingUpdates, updatesFlushIntervalMs, updatesFlushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+
         cmdsHandlers = new EnumMap<>(WsCmdType.class);
         cmdsHandlers.put(WsCmdType.ATTRIBUTES, newCmdHandler(this::handleWsAttributesSubscriptionCmd));
         cmdsHandlers.put(WsCmdType.TIMESERIES, newCmdHandler(this::handleWsTimeseriesSubscriptionCmd));
@@ -186,6 +199,10 @@ public class DefaultWebSocketService implements WebSocketService {
             pingExecutor.shutdownNow();
         }
 
+        if (updatesFlushExecutor != null) {
+            updatesFlushExecutor.shutdownNow();
+        }
+
         if (executor != null) {
             executor.shutdownNow();
         }
@@ -198,7 +215,7 @@ public class DefaultWebSocketService implements WebSocketService {
         log.debug(PROCESSING_MSG, sessionId, event);
         switch (event.getEventType()) {
             case ESTABLISHED:
-                wsSessionsMap.put(sessionId, new WsSessionMetaData(sessionRef));
+                wsSessionsMap.put(sessionId, new WsSessionMetaData(sessionRef, binaryProtocolMaxKeys));
                 break;
             case ERROR:
                 log.debug("[{}][{}] Unknown websocket session error: ", tenantId, sessionId,
@@ -270,13 +287,26 @@ public class DefaultWebSocketService implements WebSocketService {
 
     @Override
     public void sendUpdate(String sessionId, int cmdId, TelemetrySubscriptionUpdate update) {
+        sendSubscriptionUpdate(sessionId, cmdId, update, false);
+    }
+
+    private void sendSubscriptionUpdate(String sessionId, int cmdId, TelemetrySubscriptionUpdate update, boolean latestValues) {
         // We substitute the subscriptionId with cmdId for old-style subscriptions.
-        doSendUpdate(sessionId, cmdId, update.copyWithNewSubscriptionId(cmdId));
+        TelemetrySubscriptionUpdate cmdUpdate = update.copyWithNewSubscriptionId(cmdId);
+        if (updatesCoalescingEnabled && WsUpdatesBuffer.isMergeable(cmdUpdate)) {
+            bufferUpdate(sessionId, buffer -> buffer.add(cmdId, cmdUpdate, latestValues));
+        } else {
+            doSendUpdate(sessionId, cmdId, cmdUpdate);
+        }
     }
 
     @Override
     public void sendUpdate(String sessionId, CmdUpdate update) {
-        doSendUpdate(sessionId, update.getCmdId(), update);
+        if (updatesCoalescingEnabled && update instanceof EntityDataUpdate entityDataUpdate && WsUpdatesBuffer.isMergeable(entityDataUpdate)) {
+            bufferUpdate(sessionId, buffer -> buffer.add(update.getCmdId(), entityDataUpdate));
+        } else {
+            doSendUpdate(sessionId, update.getCmdId(), update);
+        }
     }
 
     @Override
@@ -292,6 +322,51 @@ public class DefaultWebSocketService implements WebSocketService {
         }
     }
 
+    /*
+     * The updates buffer of the session is also the lock that orders the pending updates relative to the ones sent directly:
+     * the updates are buffered, drained and sent while holding it.
+     */
+    private void bufferUpdate(String sessionId, Consumer<WsUpdatesBuffer> action) {
+        WsSessionMetaData md = wsSessionsMap.get(sessionId);
+        if (md != null) {
+            WsUpdatesBuffer buffer = md.getUpdatesBuffer();
+            synchronized (buffer) {
+                action.accept(buffer);
+                sessionsWithPendingUpdates.add(sessionId);
+            }
+        }
+    }
+
+    private void flushPendingUpdates() {
+        for (String sessionId : sessionsWithPendingUpdates) {
+            WsSessionMetaData md = wsSessionsMap.get(sessionId);
+            if (md == null) {
+                sessionsWithPendingUpdates.remove(sessionId);
+                continue;
+            }
+            try {
+                flushPendingUpdates(md);
+            } catch (Exception e) {
+                log.warn("[{}] Failed to flush pending updates", sessionId, e);
+            }
+        }
+    }
+
+    private void flushPendingUpdates(WsSessionMetaData md) {
+        WsUpdatesBuffer buffer = md.getUpdatesBuffer();
+        synchronized (buffer) {
+            List<Object> updates = buffer.drain();
+            sessionsWithPendingUpdates.remove(md.getSessionRef().getSessionId());
+            if (updates.isEmpty()) {
+                return;
+            }
+            // all pending updates of the session are sent as a single frame
+            Object first = updates.get(0);
+            int cmdId = first instanceof CmdUpdate cmdUpdate ? cmdUpdate.getCmdId() : ((TelemetrySubscriptionUpdate) first).getSubscriptionId();
+            doSend(md.getSessionRef(), cmdId, updates.size() == 1 ? first : updates);
+        }
+    }
+
     @Override
     public void close(String sessionId, CloseStatus status) {
         WsSessionMetaData md = wsSessionsMap.get(sessionId);
@@ -468,7 +543,7 @@ public class DefaultWebSocketService implements WebSocketService {
                         .updateProcessor((subscription, update) -> {
                             subLock.lock();
                             try {
-                                sendUpdate(subscription.getSessionId(), cmd.getCmdId(), update);
+                                sendSubscriptionUpdate(subscription.getSessionId(), cmd.getCmdId(), update, true);
                             } finally {
                                 subLock.unlock();
                             }
@@ -580,7 +655,7 @@ public class DefaultWebSocketService implements WebSocketService {
                         .updateProcessor((subscription, update) -> {
                             subLock.lock();
                             try {
-                                sendUpdate(subscription.getSessionId(), cmd.getCmdId(), update);
+                                sendSubscriptionUpdate(subscription.getSessionId(), cmd.getCmdId(), update, true);
                             } finally {
                                 subLock.unlock();
                             }
@@ -855,6 +930,29 @@ public class DefaultWebSocketService implements WebSocketService {
     }
 
     private void sendUpdate(WebSocketSessionRef sessionRef, int cmdId, Object update) {
+        if (updatesCoalescingEnabled) {
+            WsSessionMetaData md = wsSessionsMap.get(sessionRef.getSessionId());
+            if (md != null) {
+                // keep the order of the updates that are not coalesced relative to the pending ones
+                synchronized (md.getUpdatesBuffer()) {
+                    flushPendingUpdates(md);
+                    doSend(sessionRef, cmdId, update);
+                }
+                return;
+            }
+        }
+        doSend(sessionRef, cmdId, update);
+    }
+
+    private void doSend(WebSocketSessionRef sessionRef, int cmdId, Object update) {
+        if (sessionRef.isBinaryUpdates()) {
+            List<?> updates = update instanceof List<?> list ? list : List.of(update);
+            WsSessionMetaData md = wsSessionsMap.get(sessionRef.getSessionId());
+            if (md != null && updates.stream().allMatch(WsBinaryUpdateEncoder::isSupported)) {
+                sendBinary(sessionRef, md.getBinaryEncoder(), cmdId, updates);
+                return;
+            }
+        }
         try {
             String msg = JacksonUtil.OBJECT_MAPPER.writeValueAsString(update);
             executor.submit(() -> {
@@ -869,6 +967,16 @@ public class DefaultWebSocketService implements WebSocketService {
         }
     }
 
+    private void sendBinary(WebSocketSessionRef sessionRef, WsBinaryUpdateEncoder encoder, int cmdId, List<?> updates) {
+        try {
+            encoder.enqueue(cmdId, updates);
+        } catch (Exception e) {
+            log.warn("[{}] Failed to encode binary reply: {}", sessionRef.getSessionId(), updates, e);
+            return;
+        }
+        executor.submit(() -> encoder.flush((frameCmdId, frame) -> msgEndpoint.sendBinary(sessionRef, frameCmdId, frame)));
+    }
+
     private void sendPing() {
         long currentTime = System.currentTimeMillis();
         wsSessionsMap.values().forEach(md ->
@@ -26,6 +26,13 @@ public interface WebSocketMsgEndpoint {
 
     void send(WebSocketSessionRef sessionRef, int subscriptionId, String msg) throws IOException;
 
+    /**
+     * Sends the binary frame to the session that negotiated the binary subprotocol.
+     *
+     * @return false if the frame was dropped, e.g. due to the rate limits
+     */
+    boolean sendBinary(WebSocketSessionRef sessionRef, int subscriptionId, byte[] msg) throws IOException;
+
     void sendPing(WebSocketSessionRef sessionRef, long currentTime) throws IOException;
 
     void close(WebSocketSessionRef sessionRef, CloseStatus withReason) throws IOException;
@@ -38,6 +38,7 @@ public class WebSocketSessionRef {
     private final InetSocketAddress localAddress;
     private final InetSocketAddress remoteAddress;
     private final WebSocketSessionType sessionType;
+    private final boolean binaryUpdates;
     private final AtomicInteger sessionSubIdSeq = new AtomicInteger();
 
     public TenantId getTenantId() {
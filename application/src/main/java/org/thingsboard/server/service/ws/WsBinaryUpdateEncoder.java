@@ -0,0 +1,232 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ws;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.TsValue;
+import org.thingsboard.server.gen.ws.WsProtos;
+import org.thingsboard.server.service.ws.telemetry.cmd.v2.EntityDataUpdate;
+import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Encodes the subscription updates of a WebSocket session that negotiated the binary subprotocol.
+ * Keys are replaced by the ids of the session dictionary, so the frames must be delivered in the order they are encoded.
+ * The dictionary is reset once it reaches the max number of keys, or when a frame could not be sent.
+ */
+@Slf4j
+public class WsBinaryUpdateEncoder {
+
+    public static final String SUBPROTOCOL = "tb-proto-v1";
+
+    private final int maxKeys;
+    private final Map<String, Integer> keyIds = new HashMap<>();
+    private final List<String> newKeys = new ArrayList<>();
+    private boolean resetPending;
+    private volatile int epoch;
+
+    private final Queue<Frame> frames = new ConcurrentLinkedQueue<>();
+    private final Lock sendLock = new ReentrantLock();
+
+    public WsBinaryUpdateEncoder(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    public static boolean isSupported(Object update) {
+        if (update instanceof TelemetrySubscriptionUpdate telemetryUpdate) {
+            return WsUpdatesBuffer.isMergeable(telemetryUpdate);
+        } else if (update instanceof EntityDataUpdate entityDataUpdate) {
+            return WsUpdatesBuffer.isMergeable(entityDataUpdate);
+        }
+        return false;
+    }
+
+    /**
+     * Encodes the updates into a single frame and queues it. The frames are encoded under the lock of the encoder,
+     * so they are queued in the order of encoding, and are sent outside of it by {@link #flush(FrameSender)}.
+     */
+    public void enqueue(int cmdId, List<?> updates) {
+        synchronized (this) {
+            frames.add(new Frame(cmdId, encode(updates), epoch));
+        }
+    }
+
+    /**
+     * Sends the queued frames in order. Only one thread sends the frames of the session at a time, the others return immediately.
+     * When a frame is not sent, the dictionary is reset and the frames encoded with the previous dictionary are dropped,
+     * since they may refer to the keys defined by the lost frame.
+     */
+    public void flush(FrameSender sender) {
+        while (!frames.isEmpty()) {
+            if (!sendLock.tryLock()) {
+                return;
+            }
+            try {
+                Frame frame;
+                while ((frame = frames.poll()) != null) {
+                    if (frame.epoch() != epoch) {
+                        continue;
+                    }
+                    boolean sent;
+                    try {
+                        sent = sender.send(frame.cmdId(), frame.data());
+                    } catch (Exception e) {
+                        log.warn("Failed to send binary frame of {} bytes", frame.data().length, e);
+                        sent = false;
+                    }
+                    if (!sent) {
+                        reset();
+                    }
+                }
+            } finally {
+                sendLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Drops the dictionary. The next frame resets the dictionary of the client and defines the keys again.
+     */
+    public synchronized void reset() {
+        keyIds.clear();
+        resetPending = true;
+        epoch++;
+    }
+
+    /**
+     * Encodes the updates into a single frame. The keys used for the first time are defined in the frame
+     * and become part of the dictionary. Must be called under the lock of the encoder.
+     */
+    byte[] encode(List<?> updates) {
+        newKeys.clear();
+        WsProtos.WsUpdateFrameProto.Builder frame = WsProtos.WsUpdateFrameProto.newBuilder();
+        if (resetPending || keyIds.size() >= maxKeys) {
+            keyIds.clear();
+            resetPending = false;
+            frame.setResetKeys(true);
+        }
+        for (Object update : updates) {
+            if (update instanceof TelemetrySubscriptionUpdate telemetryUpdate) {
+                frame.addTelemetryUpdates(toProto(telemetryUpdate));
+            } else if (update instanceof EntityDataUpdate entityDataUpdate) {
+                frame.addEntityDataUpdates(toProto(entityDataUpdate));
+            } else {
+                throw new IllegalArgumentException("Unsupported update: " + update);
+            }
+        }
+        for (String key : newKeys) {
+            frame.addKeys(WsProtos.WsKeyProto.newBuilder().setId(keyIds.get(key)).setKey(key));
+        }
+        return frame.build().toByteArray();
+    }
+
+    private WsProtos.WsTelemetryUpdateProto toProto(TelemetrySubscriptionUpdate update) {
+        WsProtos.WsTelemetryUpdateProto.Builder builder = WsProtos.WsTelemetryUpdateProto.newBuilder()
+                .setSubscriptionId(update.getSubscriptionId());
+        update.getData().forEach((key, values) -> {
+            WsProtos.WsKeyValuesProto.Builder keyValues = WsProtos.WsKeyValuesProto.newBuilder().setKeyId(getKeyId(key));
+            long prevTs = 0;
+            for (Object value : values) {
+                Object[] tsValue = (Object[]) value;
+                long ts = (long) tsValue[0];
+                WsProtos.WsTsValueProto.Builder valueProto = WsProtos.WsTsValueProto.newBuilder().setTsDelta(ts - prevTs);
+                if (tsValue[1] != null) {
+                    valueProto.setValue((String) tsValue[1]);
+                }
+                keyValues.addValues(valueProto);
+                prevTs = ts;
+            }
+            builder.addData(keyValues);
+        });
+        return builder.build();
+    }
+
+    private WsProtos.WsEntityDataUpdateProto toProto(EntityDataUpdate update) {
+        WsProtos.WsEntityDataUpdateProto.Builder builder = WsProtos.WsEntityDataUpdateProto.newBuilder()
+                .setCmdId(update.getCmdId())
+                .setAllowedEntities(update.getAllowedEntities());
+        for (EntityData entityData : update.getUpdate()) {
+            WsProtos.WsEntityDataProto.Builder entityProto = WsProtos.WsEntityDataProto.newBuilder()
+                    .setEntityType(entityData.getEntityId().getEntityType().name())
+                    .setEntityIdMSB(entityData.getEntityId().getId().getMostSignificantBits())
+                    .setEntityIdLSB(entityData.getEntityId().getId().getLeastSignificantBits());
+            if (entityData.getLatest() != null) {
+                entityData.getLatest().forEach((keyType, values) -> {
+                    WsProtos.WsLatestValuesProto.Builder latestProto = WsProtos.WsLatestValuesProto.newBuilder().setKeyType(toProto(keyType));
+                    values.forEach((key, value) -> latestProto.addValues(toProto(key, new TsValue[]{value})));
+                    entityProto.addLatest(latestProto);
+                });
+            }
+            if (entityData.getTimeseries() != null) {
+                entityData.getTimeseries().forEach((key, values) -> entityProto.addTimeseries(toProto(key, values)));
+            }
+            builder.addUpdate(entityProto);
+        }
+        return builder.build();
+    }
+
+    private WsProtos.WsKeyValuesProto toProto(String key, TsValue[] values) {
+        WsProtos.WsKeyValuesProto.Builder builder = WsProtos.WsKeyValuesProto.newBuilder().setKeyId(getKeyId(key));
+        long prevTs = 0;
+        for (TsValue value : values) {
+            WsProtos.WsTsValueProto.Builder valueProto = WsProtos.WsTsValueProto.newBuilder().setTsDelta(value.getTs() - prevTs);
+            if (value.getValue() != null) {
+                valueProto.setValue(value.getValue());
+            }
+            if (value.getCount() != null) {
+                valueProto.setCount(value.getCount());
+            }
+            builder.addValues(valueProto);
+            prevTs = value.getTs();
+        }
+        return builder.build();
+    }
+
+    private static WsProtos.WsEntityKeyType toProto(EntityKeyType keyType) {
+        return WsProtos.WsEntityKeyType.valueOf(keyType.name());
+    }
+
+    private int getKeyId(String key) {
+        Integer id = keyIds.get(key);
+        if (id == null) {
+            id = keyIds.size();
+            keyIds.put(key, id);
+            newKeys.add(key);
+        }
+        return id;
+    }
+
+    @FunctionalInterface
+    public interface FrameSender {
+
+        boolean send(int cmdId, byte[] frame) throws Exception;
+
+    }
+
+    private record Frame(int cmdId, byte[] data, int epoch) {
+    }
+
+}
@@ -22,11 +22,14 @@ package org.thingsboard.server.service.ws;
 public class WsSessionMetaData {
     private WebSocketSessionRef sessionRef;
     private long lastActivityTime;
+    private final WsUpdatesBuffer updatesBuffer = new WsUpdatesBuffer();
+    private final WsBinaryUpdateEncoder binaryEncoder;
 
-    public WsSessionMetaData(WebSocketSessionRef sessionRef) {
+    public WsSessionMetaData(WebSocketSessionRef sessionRef, int binaryMaxKeys) {
         super();
         this.sessionRef = sessionRef;
         this.lastActivityTime = System.currentTimeMillis();
+        this.binaryEncoder = new WsBinaryUpdateEncoder(binaryMaxKeys);
     }
 
     public WebSocketSessionRef getSessionRef() {
@@ -45,6 +48,14 @@ public class WsSessionMetaData {
         this.lastActivityTime = lastActivityTime;
     }
 
+    public WsUpdatesBuffer getUpdatesBuffer() {
+        return updatesBuffer;
+    }
+
+    public WsBinaryUpdateEncoder getBinaryEncoder() {
+        return binaryEncoder;
+    }
+
     @Override
     public String toString() {
         return "WsSessionMetaData [sessionRef=" + sessionRef + ", lastActivityTime=" + lastActivityTime + "]";
@@ -0,0 +1,160 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ws;
+
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.TsValue;
+import org.thingsboard.server.service.subscription.SubscriptionErrorCode;
+import org.thingsboard.server.service.ws.telemetry.cmd.v2.EntityDataUpdate;
+import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Pending subscription updates of a WebSocket session. Updates of the same subscription are merged until the next flush:
+ * the latest value of each key is the one with the highest timestamp, while the time series values are appended.
+ */
+public class WsUpdatesBuffer {
+
+    private final Map<Integer, Object> updates = new LinkedHashMap<>();
+
+    public static boolean isMergeable(EntityDataUpdate update) {
+        return update.getErrorCode() == SubscriptionErrorCode.NO_ERROR.getCode() && update.getData() == null && update.getUpdate() != null
+                && update.getUpdate().stream().allMatch(entityData -> entityData.getAggLatest() == null);
+    }
+
+    public static boolean isMergeable(TelemetrySubscriptionUpdate update) {
+        return update.getErrorCode() == SubscriptionErrorCode.NO_ERROR.getCode() && update.getData() != null;
+    }
+
+    /**
+     * Adds the time series or attributes subscription update.
+     *
+     * @param latestValues whether only the latest value of each key is relevant, as for the attributes subscriptions
+     */
+    public synchronized void add(int cmdId, TelemetrySubscriptionUpdate update, boolean latestValues) {
+        Object pending = updates.get(cmdId);
+        if (pending instanceof TelemetrySubscriptionUpdate pendingUpdate) {
+            updates.put(cmdId, merge(pendingUpdate, update, latestValues));
+        } else {
+            updates.put(cmdId, update);
+        }
+    }
+
+    public synchronized void add(int cmdId, EntityDataUpdate update) {
+        Object pending = updates.get(cmdId);
+        if (pending instanceof EntityDataUpdate pendingUpdate) {
+            updates.put(cmdId, merge(pendingUpdate, update));
+        } else {
+            updates.put(cmdId, update);
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return updates.isEmpty();
+    }
+
+    /**
+     * Returns the pending updates in the order of their subscriptions' first update and clears the buffer.
+     */
+    public synchronized List<Object> drain() {
+        if (updates.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Object> result = new ArrayList<>(updates.values());
+        updates.clear();
+        return result;
+    }
+
+    static TelemetrySubscriptionUpdate merge(TelemetrySubscriptionUpdate pending, TelemetrySubscriptionUpdate update, boolean latestValues) {
+        Map<String, List<Object>> data = new TreeMap<>();
+        pending.getData().forEach((key, values) -> data.put(key, new ArrayList<>(values)));
+        update.getData().forEach((key, values) -> {
+            List<Object> merged = data.get(key);
+            if (merged == null || (latestValues && getLatestTs(values) >= getLatestTs(merged))) {
+                data.put(key, new ArrayList<>(values));
+            } else if (!latestValues) {
+                merged.addAll(values);
+            }
+        });
+        return new TelemetrySubscriptionUpdate(pending.getSubscriptionId(), data);
+    }
+
+    private static long getLatestTs(List<Object> values) {
+        if (!values.isEmpty() && values.get(values.size() - 1) instanceof Object[] value && value[0] instanceof Long ts) {
+            return ts;
+        }
+        return Long.MIN_VALUE;
+    }
+
+    static EntityDataUpdate merge(EntityDataUpdate pending, EntityDataUpdate update) {
+        Map<EntityId, EntityData> entities = new LinkedHashMap<>();
+        for (EntityData entityData : pending.getUpdate()) {
+            entities.merge(entityData.getEntityId(), entityData, WsUpdatesBuffer::merge);
+        }
+        for (EntityData entityData : update.getUpdate()) {
+            entities.merge(entityData.getEntityId(), entityData, WsUpdatesBuffer::merge);
+        }
+        return new EntityDataUpdate(pending.getCmdId(), null, new ArrayList<>(entities.values()), update.getAllowedEntities());
+    }
+
+    private static EntityData merge(EntityData pending, EntityData update) {
+        Map<EntityKeyType, Map<String, TsValue>> latest = null;
+        if (pending.getLatest() != null || update.getLatest() != null) {
+            latest = new HashMap<>();
+            mergeLatest(latest, pending.getLatest());
+            mergeLatest(latest, update.getLatest());
+        }
+        Map<String, TsValue[]> timeseries = null;
+        if (pending.getTimeseries() != null || update.getTimeseries() != null) {
+            timeseries = new HashMap<>();
+            mergeTimeseries(timeseries, pending.getTimeseries());
+            mergeTimeseries(timeseries, update.getTimeseries());
+        }
+        return new EntityData(pending.getEntityId(), latest, timeseries);
+    }
+
+    private static void mergeLatest(Map<EntityKeyType, Map<String, TsValue>> target, Map<EntityKeyType, Map<String, TsValue>> source) {
+        if (source == null) {
+            return;
+        }
+        source.forEach((keyType, values) -> {
+            Map<String, TsValue> targetValues = target.computeIfAbsent(keyType, k -> new HashMap<>());
+            values.forEach((key, value) -> targetValues.merge(key, value, (a, b) -> b.getTs() >= a.getTs() ? b : a));
+        });
+    }
+
+    private static void mergeTimeseries(Map<String, TsValue[]> target, Map<String, TsValue[]> source) {
+        if (source == null) {
+            return;
+        }
+        source.forEach((key, values) -> target.merge(key, values, (a, b) -> {
+            TsValue[] merged = Arrays.copyOf(a, a.length + b.length);
+            System.arraycopy(b, 0, merged, a.length, b.length);
+            return merged;
+        }));
+    }
+
+}
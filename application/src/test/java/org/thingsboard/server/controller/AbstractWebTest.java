@@ -63,9 +63,9 @@ import org.springframework.util.MultiValueMap;
 import org.springframework.web.context.WebApplicationContext;
 import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.rule.engine.api.MailService;
+import org.thingsboard.server.actors.AbstractTbActorMailbox;
 import org.thingsboard.server.actors.DefaultTbActorSystem;
 import org.thingsboard.server.actors.TbActorId;
-import org.thingsboard.server.actors.TbActorMailbox;
 import org.thingsboard.server.actors.TbEntityActorId;
 import org.thingsboard.server.actors.device.DeviceActor;
 import org.thingsboard.server.actors.device.DeviceActorMessageProcessor;
@@ -1127,10 +1127,10 @@ public abstract class AbstractWebTest extends AbstractInMemoryStorageTest {
 
     protected DeviceActorMessageProcessor getDeviceActorProcessor(DeviceId deviceId) {
         DefaultTbActorSystem actorSystem = (DefaultTbActorSystem) ReflectionTestUtils.getField(actorService, "system");
-        ConcurrentMap<TbActorId, TbActorMailbox> actors = (ConcurrentMap<TbActorId, TbActorMailbox>) ReflectionTestUtils.getField(actorSystem, "actors");
+        ConcurrentMap<TbActorId, AbstractTbActorMailbox> actors = (ConcurrentMap<TbActorId, AbstractTbActorMailbox>) ReflectionTestUtils.getField(actorSystem, "actors");
         Awaitility.await("Device actor was created").atMost(TIMEOUT, TimeUnit.SECONDS)
                 .until(() -> actors.containsKey(new TbEntityActorId(deviceId)));
-        TbActorMailbox actorMailbox = actors.get(new TbEntityActorId(deviceId));
+        AbstractTbActorMailbox actorMailbox = actors.get(new TbEntityActorId(deviceId));
         DeviceActor actor = (DeviceActor) ReflectionTestUtils.getField(actorMailbox, "actor");
         return (DeviceActorMessageProcessor) ReflectionTestUtils.getField(actor, "processor");
     }
@@ -0,0 +1,179 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.queue.ruleengine;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.data.queue.ProcessingStrategy;
+import org.thingsboard.server.common.data.queue.ProcessingStrategyType;
+import org.thingsboard.server.common.data.queue.Queue;
+import org.thingsboard.server.common.data.queue.SubmitStrategy;
+import org.thingsboard.server.common.data.queue.SubmitStrategyType;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.queue.RuleEngineException;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
+import org.thingsboard.server.queue.TbQueueConsumer;
+import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+import org.thingsboard.server.service.queue.TbRuleEngineConsumerStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class TbRuleEngineMsgPipelineTest {
+
+    private TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer;
+    private TbRuleEngineConsumerStats stats;
+    private Queue queue;
+    private List<Submission> submissions;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void beforeEach() {
+        consumer = mock(TbQueueConsumer.class);
+        stats = mock(TbRuleEngineConsumerStats.class);
+        submissions = new ArrayList<>();
+        queue = new Queue();
+        queue.setName("Test");
+        queue.setPackProcessingTimeout(60000);
+        SubmitStrategy submitStrategy = new SubmitStrategy();
+        submitStrategy.setType(SubmitStrategyType.BURST);
+        queue.setSubmitStrategy(submitStrategy);
+        ProcessingStrategy processingStrategy = new ProcessingStrategy();
+        processingStrategy.setType(ProcessingStrategyType.SKIP_ALL_FAILURES_AND_TIMED_OUT);
+        queue.setProcessingStrategy(processingStrategy);
+    }
+
+    @Test
+    public void testCommitsContiguousWatermark() {
+        TbRuleEngineMsgPipeline pipeline = createPipeline(10);
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        pipeline.add(List.of(newMsg(deviceId), newMsg(deviceId), newMsg(deviceId)));
+        assertThat(submissions).hasSize(3);
+
+        submissions.get(1).callback.onSuccess();
+        submissions.get(2).callback.onSuccess();
+        pipeline.maintain();
+        verify(consumer, never()).commit(anyLong());
+
+        submissions.get(0).callback.onSuccess();
+        pipeline.maintain();
+        verify(consumer).commit(3);
+        assertThat(pipeline.isEmpty()).isTrue();
+        verify(stats, times(3)).logSuccess(any());
+    }
+
+    @Test
+    public void testKeepsOrderPerOriginator() {
+        queue.getSubmitStrategy().setType(SubmitStrategyType.SEQUENTIAL_BY_ORIGINATOR);
+        TbRuleEngineMsgPipeline pipeline = createPipeline(10);
+        DeviceId first = new DeviceId(UUID.randomUUID());
+        DeviceId second = new DeviceId(UUID.randomUUID());
+        TbProtoQueueMsg<ToRuleEngineMsg> msg1 = newMsg(first);
+        TbProtoQueueMsg<ToRuleEngineMsg> msg2 = newMsg(second);
+        TbProtoQueueMsg<ToRuleEngineMsg> msg3 = newMsg(first);
+        pipeline.add(List.of(msg1, msg2));
+        pipeline.add(List.of(msg3));
+        assertThat(submissions).extracting(s -> s.msg).containsExactly(msg1, msg2);
+
+        submissions.get(1).callback.onSuccess();
+        assertThat(submissions).hasSize(2);
+
+        submissions.get(0).callback.onSuccess();
+        assertThat(submissions).extracting(s -> s.msg).containsExactly(msg1, msg2, msg3);
+    }
+
+    @Test
+    public void testSkipsTimedOutMsgs() throws Exception {
+        queue.setPackProcessingTimeout(1);
+        TbRuleEngineMsgPipeline pipeline = createPipeline(10);
+        pipeline.add(List.of(newMsg(new DeviceId(UUID.randomUUID()))));
+        Thread.sleep(10);
+
+        pipeline.maintain();
+        verify(consumer).commit(1);
+        assertThat(submissions.get(0).callback.isMsgValid()).isFalse();
+        verify(stats).logTimeout(submissions.get(0).msg, true);
+
+        submissions.get(0).callback.onSuccess();
+        verify(stats, never()).logSuccess(any());
+    }
+
+    @Test
+    public void testRetriesFailedMsgs() {
+        queue.getProcessingStrategy().setType(ProcessingStrategyType.RETRY_FAILED);
+        queue.getProcessingStrategy().setRetries(1);
+        TbRuleEngineMsgPipeline pipeline = createPipeline(10);
+        pipeline.add(List.of(newMsg(new DeviceId(UUID.randomUUID()))));
+
+        RuleEngineException error = new RuleEngineException("test");
+        submissions.get(0).callback.onFailure(error);
+        pipeline.maintain();
+        verify(consumer, never()).commit(anyLong());
+        assertThat(submissions).hasSize(2);
+        assertThat(submissions.get(0).callback.isMsgValid()).isFalse();
+
+        submissions.get(1).callback.onFailure(error);
+        pipeline.maintain();
+        verify(consumer).commit(1);
+        assertThat(submissions).hasSize(2);
+    }
+
+    @Test
+    public void testLimitsInFlightMsgs() {
+        TbRuleEngineMsgPipeline pipeline = createPipeline(2);
+        pipeline.add(List.of(newMsg(new DeviceId(UUID.randomUUID()))));
+        assertThat(pipeline.hasCapacity()).isTrue();
+        pipeline.add(List.of(newMsg(new DeviceId(UUID.randomUUID()))));
+        assertThat(pipeline.hasCapacity()).isFalse();
+
+        submissions.get(0).callback.onSuccess();
+        pipeline.maintain();
+        assertThat(pipeline.hasCapacity()).isTrue();
+    }
+
+    private TbRuleEngineMsgPipeline createPipeline(int maxInFlightMsgs) {
+        return new TbRuleEngineMsgPipeline(queue, consumer, maxInFlightMsgs,
+                (msg, callback) -> submissions.add(new Submission(msg, callback)), stats, true, false);
+    }
+
+    private TbProtoQueueMsg<ToRuleEngineMsg> newMsg(EntityId originator) {
+        TbMsg tbMsg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, originator, new TbMsgMetaData(), "{}");
+        UUID tenantId = UUID.randomUUID();
+        return new TbProtoQueueMsg<>(UUID.randomUUID(), ToRuleEngineMsg.newBuilder()
+                .setTenantIdMSB(tenantId.getMostSignificantBits())
+                .setTenantIdLSB(tenantId.getLeastSignificantBits())
+                .setTbMsg(TbMsg.toByteString(tbMsg))
+                .build());
+    }
+
+    private record Submission(TbProtoQueueMsg<ToRuleEngineMsg> msg, TbMsgCallback callback) {
+    }
+
+}
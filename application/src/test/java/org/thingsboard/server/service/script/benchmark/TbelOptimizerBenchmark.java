@@ -0,0 +1,148 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.script.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.script.api.RuleNodeScriptFactory;
+import org.thingsboard.script.api.tbel.DefaultTbelInvokeService;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.service.script.RuleNodeTbelScriptEngine;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the TBEL execution modes on the scripts of the filter, switch and transform nodes:
+ * "reflective" is the default mode, "jit" is the {@code tbel.jit} mode.
+ * <p>
+ * Run with {@code mvn -pl application test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=org.thingsboard.server.service.script.benchmark.TbelOptimizerBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class TbelOptimizerBenchmark {
+
+    private static final String FILTER_SCRIPT = "return msg.temperature > 20 && msg.humidity < 60 && metadata.deviceType == 'thermostat';";
+    private static final String SWITCH_SCRIPT = "if (msg.temperature > 30) {\n" +
+            "    return ['High temperature'];\n" +
+            "} else if (msg.humidity < 40) {\n" +
+            "    return ['Low humidity'];\n" +
+            "}\n" +
+            "return ['Normal'];";
+    private static final String TRANSFORM_SCRIPT = "var newMsg = {};\n" +
+            "newMsg.temperatureF = msg.temperature * 1.8 + 32;\n" +
+            "newMsg.humidity = msg.humidity;\n" +
+            "newMsg.comfort = 'normal';\n" +
+            "if (msg.humidity < 30 || msg.humidity > 60) {\n" +
+            "    newMsg.comfort = 'poor';\n" +
+            "}\n" +
+            "metadata.converted = 'true';\n" +
+            "return {msg: newMsg, metadata: metadata, msgType: msgType};";
+    private static final String DATA = "{\"temperature\":21.5,\"humidity\":45,\"pressure\":1013}";
+
+    @Param({"reflective", "jit"})
+    private String mode;
+
+    private DefaultTbelInvokeService invokeService;
+    private RuleNodeTbelScriptEngine filterEngine;
+    private RuleNodeTbelScriptEngine switchEngine;
+    private RuleNodeTbelScriptEngine transformEngine;
+    private TbMsgMetaData metaData;
+    private DeviceId deviceId;
+
+    @Setup
+    public void setup() {
+        invokeService = new DefaultTbelInvokeService(Optional.empty(), Optional.empty(), Optional.empty()) {};
+        ReflectionTestUtils.setField(invokeService, "maxTotalArgsSize", 100000L);
+        ReflectionTestUtils.setField(invokeService, "maxResultSize", 300000L);
+        ReflectionTestUtils.setField(invokeService, "maxScriptBodySize", 50000L);
+        ReflectionTestUtils.setField(invokeService, "maxErrors", 3);
+        ReflectionTestUtils.setField(invokeService, "maxBlackListDurationSec", 60);
+        ReflectionTestUtils.setField(invokeService, "threadPoolSize", 4);
+        ReflectionTestUtils.setField(invokeService, "maxMemoryLimitMb", 8L);
+        ReflectionTestUtils.setField(invokeService, "compiledScriptsCacheSize", 10);
+        ReflectionTestUtils.setField(invokeService, "jitEnabled", !"reflective".equals(mode));
+        ReflectionTestUtils.setField(invokeService, "jitTenants", Set.of(TenantId.SYS_TENANT_ID.getId()));
+        invokeService.init();
+
+        String[] argNames = {RuleNodeScriptFactory.MSG, RuleNodeScriptFactory.METADATA, RuleNodeScriptFactory.MSG_TYPE};
+        filterEngine = new RuleNodeTbelScriptEngine(TenantId.SYS_TENANT_ID, invokeService, FILTER_SCRIPT, argNames);
+        switchEngine = new RuleNodeTbelScriptEngine(TenantId.SYS_TENANT_ID, invokeService, SWITCH_SCRIPT, argNames);
+        transformEngine = new RuleNodeTbelScriptEngine(TenantId.SYS_TENANT_ID, invokeService, TRANSFORM_SCRIPT, argNames);
+
+        metaData = new TbMsgMetaData();
+        metaData.putValue("deviceName", "Thermostat A1");
+        metaData.putValue("deviceType", "thermostat");
+        deviceId = new DeviceId(UUID.randomUUID());
+    }
+
+    @TearDown
+    public void tearDown() {
+        invokeService.stop();
+    }
+
+    @Benchmark
+    public Boolean filter() throws Exception {
+        return filterEngine.executeFilterAsync(newMsg()).get();
+    }
+
+    @Benchmark
+    public Set<String> switchScript() throws Exception {
+        return switchEngine.executeSwitchAsync(newMsg()).get();
+    }
+
+    @Benchmark
+    public List<TbMsg> transform() throws Exception {
+        return transformEngine.executeUpdateAsync(newMsg()).get();
+    }
+
+    private TbMsg newMsg() {
+        return TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, deviceId, metaData, DATA);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TbelOptimizerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.script.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.script.api.RuleNodeScriptFactory;
+import org.thingsboard.script.api.ScriptType;
+import org.thingsboard.script.api.tbel.DefaultTbelInvokeService;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.service.script.RuleNodeTbelScriptEngine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the TBEL transformation of typical telemetry messages with the former binding, which read the data
+ * into a map from the string and wrote the result back to a string, and with the native binding of
+ * {@link RuleNodeTbelScriptEngine}. Both variants request the data of the resulting message as a string,
+ * as the nodes that save telemetry do.
+ * <p>
+ * Run with {@code mvn -pl application test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=org.thingsboard.server.service.script.benchmark.TbelScriptBindingBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class TbelScriptBindingBenchmark {
+
+    private static final String SCRIPT = "msg.temperatureF = msg.temperature * 1.8 + 32;\n" +
+            "metadata.converted = 'true';\n" +
+            "return {msg: msg, metadata: metadata, msgType: msgType};";
+    private static final String[] ARG_NAMES = {RuleNodeScriptFactory.MSG, RuleNodeScriptFactory.METADATA, RuleNodeScriptFactory.MSG_TYPE};
+
+    @Param({"10", "100"})
+    private int keysCount;
+
+    private DefaultTbelInvokeService invokeService;
+    private RuleNodeTbelScriptEngine engine;
+    private UUID scriptId;
+    private String data;
+    private TbMsgMetaData metaData;
+    private DeviceId deviceId;
+
+    @Setup
+    public void setup() throws Exception {
+        invokeService = new DefaultTbelInvokeService(Optional.empty(), Optional.empty(), Optional.empty()) {};
+        ReflectionTestUtils.setField(invokeService, "maxTotalArgsSize", 1000000L);
+        ReflectionTestUtils.setField(invokeService, "maxResultSize", 1000000L);
+        ReflectionTestUtils.setField(invokeService, "maxScriptBodySize", 50000L);
+        ReflectionTestUtils.setField(invokeService, "maxErrors", 3);
+        ReflectionTestUtils.setField(invokeService, "maxBlackListDurationSec", 60);
+        ReflectionTestUtils.setField(invokeService, "threadPoolSize", 4);
+        ReflectionTestUtils.setField(invokeService, "maxMemoryLimitMb", 8L);
+        ReflectionTestUtils.setField(invokeService, "compiledScriptsCacheSize", 10);
+        invokeService.init();
+
+        engine = new RuleNodeTbelScriptEngine(TenantId.SYS_TENANT_ID, invokeService, SCRIPT, ARG_NAMES);
+        scriptId = invokeService.eval(TenantId.SYS_TENANT_ID, ScriptType.RULE_NODE_SCRIPT, SCRIPT, ARG_NAMES).get();
+
+        Map<String, Object> telemetry = new HashMap<>();
+        telemetry.put("temperature", 21.5);
+        for (int i = 1; i < keysCount; i++) {
+            switch (i % 3) {
+                case 0 -> telemetry.put("key" + i, i * 1.5);
+                case 1 -> telemetry.put("key" + i, i);
+                default -> telemetry.put("key" + i, "value" + i);
+            }
+        }
+        data = JacksonUtil.toString(telemetry);
+        metaData = new TbMsgMetaData();
+        metaData.putValue("deviceName", "Thermostat");
+        metaData.putValue("deviceType", "default");
+        metaData.putValue("ts", Long.toString(System.currentTimeMillis()));
+        deviceId = new DeviceId(UUID.randomUUID());
+    }
+
+    @TearDown
+    public void tearDown() {
+        invokeService.stop();
+    }
+
+    @Benchmark
+    public String jsonRoundTrip() throws Exception {
+        TbMsg msg = newMsg();
+        Object[] args = {JacksonUtil.fromString(msg.getData(), Object.class), new HashMap<>(msg.getMetaData().getData()), msg.getType()};
+        // the former args and result size checks serialized the values
+        JacksonUtil.toString(args[0]);
+        JacksonUtil.toString(args[1]);
+        Map<?, ?> result = (Map<?, ?>) invokeService.invokeScript(TenantId.SYS_TENANT_ID, null, scriptId, args).get();
+        JacksonUtil.toString(result);
+        Map<String, String> metadata = new HashMap<>();
+        ((Map<?, ?>) result.get(RuleNodeScriptFactory.METADATA)).forEach((k, v) -> metadata.put(k.toString(), v.toString()));
+        TbMsg output = TbMsg.transformMsg(msg, result.get(RuleNodeScriptFactory.MSG_TYPE).toString(), msg.getOriginator(),
+                new TbMsgMetaData(metadata), JacksonUtil.toString(result.get(RuleNodeScriptFactory.MSG)));
+        return output.getData();
+    }
+
+    @Benchmark
+    public String nativeBinding() throws Exception {
+        TbMsg output = engine.executeUpdateAsync(newMsg()).get().get(0);
+        return output.getData();
+    }
+
+    private TbMsg newMsg() {
+        return TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, deviceId, metaData, data);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TbelScriptBindingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+}
@@ -30,25 +30,26 @@ import org.springframework.test.util.ReflectionTestUtils;
 import org.thingsboard.server.cluster.TbClusterService;
 import org.thingsboard.server.common.data.AttributeScope;
 import org.thingsboard.server.common.data.Device;
-import org.thingsboard.server.common.data.DeviceIdInfo;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.data.notification.rule.trigger.DeviceActivityTrigger;
-import org.thingsboard.server.common.data.page.PageData;
-import org.thingsboard.server.common.data.query.EntityData;
-import org.thingsboard.server.common.data.query.EntityKeyType;
-import org.thingsboard.server.common.data.query.TsValue;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 import org.thingsboard.server.common.msg.notification.NotificationRuleProcessor;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TbCallback;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.attributes.AttributesService;
+import org.thingsboard.server.dao.device.DeviceLatestValues;
 import org.thingsboard.server.dao.device.DeviceService;
-import org.thingsboard.server.dao.sql.query.EntityQueryRepository;
 import org.thingsboard.server.dao.timeseries.TimeseriesService;
 import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.queue.discovery.PartitionService;
@@ -71,14 +72,18 @@ import java.util.stream.Stream;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
 import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
@@ -107,8 +112,6 @@ public class DefaultDeviceStateServiceTest {
     @Mock
     DeviceStateData deviceStateDataMock;
     @Mock
-    EntityQueryRepository entityQueryRepository;
-    @Mock
     TelemetrySubscriptionService telemetrySubscriptionService;
     @Mock
     NotificationRuleProcessor notificationRuleProcessor;
@@ -123,7 +126,7 @@ public class DefaultDeviceStateServiceTest {
 
     @BeforeEach
     public void setUp() {
-        service = spy(new DefaultDeviceStateService(deviceService, attributesService, tsService, clusterService, partitionService, entityQueryRepository, null, defaultTbApiUsageReportClient, notificationRuleProcessor));
+        service = spy(new DefaultDeviceStateService(deviceService, attributesService, tsService, clusterService, partitionService, null, defaultTbApiUsageReportClient, notificationRuleProcessor, mock(StatsFactory.class, RETURNS_DEEP_STUBS)));
         ReflectionTestUtils.setField(service, "tsSubService", telemetrySubscriptionService);
         ReflectionTestUtils.setField(service, "defaultStateCheckIntervalInSec", 60);
         ReflectionTestUtils.setField(service, "defaultActivityStatsIntervalInSec", 60);
@@ -489,6 +492,7 @@ public class DefaultDeviceStateServiceTest {
     public void givenDeviceIdWithoutDeviceStateInMap_whenGetOrFetchDeviceStateData_thenFetchDeviceStateData() {
         service.deviceStates.clear();
         willReturn(deviceStateDataMock).given(service).fetchDeviceStateDataUsingSeparateRequests(deviceId);
+        when(deviceStateDataMock.getState()).thenReturn(DeviceState.builder().build());
         DeviceStateData deviceStateData = service.getOrFetchDeviceStateData(deviceId);
         assertThat(deviceStateData).isEqualTo(deviceStateDataMock);
         verify(service).fetchDeviceStateDataUsingSeparateRequests(deviceId);
@@ -497,35 +501,62 @@ public class DefaultDeviceStateServiceTest {
     @Test
     public void givenPersistToTelemetryAndDefaultInactivityTimeoutFetched_whenTransformingToDeviceStateData_thenTryGetInactivityFromAttribute() {
         var defaultInactivityTimeoutInSec = 60L;
-        var latest =
-                Map.of(
-                        EntityKeyType.TIME_SERIES, Map.of(INACTIVITY_TIMEOUT, new TsValue(0, Long.toString(defaultInactivityTimeoutInSec * 1000))),
-                        EntityKeyType.SERVER_ATTRIBUTE, Map.of(INACTIVITY_TIMEOUT, new TsValue(0, Long.toString(5000L)))
-                );
+        var latestTimeseries = List.<TsKvEntry>of(new BasicTsKvEntry(0, new LongDataEntry(INACTIVITY_TIMEOUT, defaultInactivityTimeoutInSec * 1000)));
+        var serverAttributes = List.<AttributeKvEntry>of(new BaseAttributeKvEntry(new LongDataEntry(INACTIVITY_TIMEOUT, 5000L), 0));
 
-        process(latest, defaultInactivityTimeoutInSec);
+        process(serverAttributes, latestTimeseries, defaultInactivityTimeoutInSec);
     }
 
     @Test
     public void givenPersistToTelemetryAndNoInactivityTimeoutFetchedFromTimeSeries_whenTransformingToDeviceStateData_thenTryGetInactivityFromAttribute() {
         var defaultInactivityTimeoutInSec = 60L;
-        var latest =
-                Map.of(
-                        EntityKeyType.SERVER_ATTRIBUTE, Map.of(INACTIVITY_TIMEOUT, new TsValue(0, Long.toString(5000L)))
-                );
+        var serverAttributes = List.<AttributeKvEntry>of(new BaseAttributeKvEntry(new LongDataEntry(INACTIVITY_TIMEOUT, 5000L), 0));
+
+        process(serverAttributes, Collections.emptyList(), defaultInactivityTimeoutInSec);
+    }
+
+    @Test
+    public void givenDevicesWithLatestValues_whenPartitionAdded_thenDeviceStatesLoadedByKeysetPages() throws Exception {
+        service.init();
+        ReflectionTestUtils.setField(service, "initFetchPackSize", 2);
+        Device first = new Device(new DeviceId(UUID.fromString("00000000-0000-0000-0000-000000000001")));
+        first.setTenantId(tenantId);
+        Device second = new Device(new DeviceId(UUID.fromString("00000000-0000-0000-0000-000000000002")));
+        second.setTenantId(tenantId);
+        Device third = new Device(new DeviceId(UUID.fromString("00000000-0000-0000-0000-000000000003")));
+        third.setTenantId(tenantId);
+        var serverAttributes = List.<AttributeKvEntry>of(new BaseAttributeKvEntry(new LongDataEntry(INACTIVITY_TIMEOUT, 5000L), 0));
+        when(deviceService.findDevicesWithLatestValues(isNull(), eq(2), any(), any())).thenReturn(List.of(
+                new DeviceLatestValues(first, serverAttributes, Collections.emptyList()),
+                new DeviceLatestValues(second, Collections.emptyList(), Collections.emptyList())
+        ));
+        when(deviceService.findDevicesWithLatestValues(eq(second.getId()), eq(2), any(), any())).thenReturn(List.of(
+                new DeviceLatestValues(third, Collections.emptyList(), Collections.emptyList())
+        ));
+        TopicPartitionInfo otherTpi = TopicPartitionInfo.builder().topic("other").myPartition(false).build();
+        when(partitionService.resolve(ServiceType.TB_CORE, tenantId, first.getId())).thenReturn(tpi);
+        when(partitionService.resolve(ServiceType.TB_CORE, tenantId, second.getId())).thenReturn(otherTpi);
+        when(partitionService.resolve(ServiceType.TB_CORE, tenantId, third.getId())).thenReturn(tpi);
+
+        service.onApplicationEvent(new PartitionChangeEvent(this, ServiceType.TB_CORE, Map.of(
+                new QueueKey(ServiceType.TB_CORE), Collections.singleton(tpi)
+        )));
 
-        process(latest, defaultInactivityTimeoutInSec);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> service.deviceStates.size() == 2);
+        assertThat(service.deviceStates).containsOnlyKeys(first.getId(), third.getId());
+        assertThat(service.deviceStates.get(first.getId()).getState().getInactivityTimeout()).isEqualTo(5000L);
+        then(deviceService).should(never()).findDeviceIdInfos(any());
     }
 
-    private void process(Map<EntityKeyType, Map<String, TsValue>> latest, long defaultInactivityTimeoutInSec) {
+    private void process(List<AttributeKvEntry> serverAttributes, List<TsKvEntry> latestTimeseries, long defaultInactivityTimeoutInSec) {
         service.setDefaultInactivityTimeoutInSec(defaultInactivityTimeoutInSec);
         service.setDefaultInactivityTimeoutMs(defaultInactivityTimeoutInSec * 1000);
         service.setPersistToTelemetry(true);
 
-        var deviceUuid = UUID.randomUUID();
-        var deviceId = new DeviceId(deviceUuid);
+        Device device = new Device(new DeviceId(UUID.randomUUID()));
+        device.setTenantId(TenantId.SYS_TENANT_ID);
 
-        DeviceStateData deviceStateData = service.toDeviceStateData(new EntityData(deviceId, latest, Map.of()), new DeviceIdInfo(TenantId.SYS_TENANT_ID.getId(), UUID.randomUUID(), deviceUuid));
+        DeviceStateData deviceStateData = service.toDeviceStateData(new DeviceLatestValues(device, serverAttributes, latestTimeseries));
 
         assertThat(deviceStateData.getState().getInactivityTimeout()).isEqualTo(5000L);
     }
@@ -536,10 +567,7 @@ public class DefaultDeviceStateServiceTest {
         service.setDefaultInactivityTimeoutMs(timeout);
         service.init();
         when(partitionService.resolve(ServiceType.TB_CORE, tenantId, deviceId)).thenReturn(tpi);
-        when(entityQueryRepository.findEntityDataByQueryInternal(any())).thenReturn(new PageData<>());
-        var deviceIdInfo = new DeviceIdInfo(tenantId.getId(), null, deviceId.getId());
-        when(deviceService.findDeviceIdInfos(any()))
-                .thenReturn(new PageData<>(List.of(deviceIdInfo), 0, 1, false));
+        when(deviceService.findDevicesWithLatestValues(any(), anyInt(), any(), any())).thenReturn(Collections.emptyList());
         PartitionChangeEvent event = new PartitionChangeEvent(this, ServiceType.TB_CORE, Map.of(
                 new QueueKey(ServiceType.TB_CORE), Collections.singleton(tpi)
         ));
@@ -547,6 +575,36 @@ public class DefaultDeviceStateServiceTest {
         Thread.sleep(100);
     }
 
+    @Test
+    public void givenDeviceWithFutureInactivityDeadline_whenCheckStates_thenOnlyExpiredDeviceIsChecked() {
+        long ts = System.currentTimeMillis();
+        DeviceId activeDeviceId = new DeviceId(UUID.randomUUID());
+        DeviceStateData expiredStateData = DeviceStateData.builder()
+                .tenantId(tenantId)
+                .deviceId(deviceId)
+                .state(DeviceState.builder().active(true).lastActivityTime(ts - 2000).inactivityTimeout(1000).build())
+                .metaData(new TbMsgMetaData())
+                .build();
+        DeviceStateData activeStateData = DeviceStateData.builder()
+                .tenantId(tenantId)
+                .deviceId(activeDeviceId)
+                .state(DeviceState.builder().active(true).lastActivityTime(ts).inactivityTimeout(60000).build())
+                .metaData(new TbMsgMetaData())
+                .build();
+        service.deviceStates.put(deviceId, expiredStateData);
+        service.deviceStates.put(activeDeviceId, activeStateData);
+        service.scheduleInactivityCheck(deviceId, expiredStateData);
+        service.scheduleInactivityCheck(activeDeviceId, activeStateData);
+        doReturn(tpi).when(partitionService).resolve(ServiceType.TB_CORE, tenantId, deviceId);
+
+        service.checkStates();
+
+        verify(service).updateInactivityStateIfExpired(anyLong(), eq(deviceId), eq(expiredStateData));
+        verify(service, never()).updateInactivityStateIfExpired(anyLong(), eq(activeDeviceId), any());
+        assertThat(expiredStateData.getState().isActive()).isFalse();
+        assertThat(service.inactivityDeadlines.size()).isEqualTo(1);
+    }
+
     @Test
     public void increaseInactivityForInactiveDeviceTest() throws Exception {
         final long defaultTimeout = 1;
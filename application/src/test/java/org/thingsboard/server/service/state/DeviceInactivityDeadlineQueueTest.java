@@ -0,0 +1,88 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.state;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeviceInactivityDeadlineQueueTest {
+
+    private final DeviceInactivityDeadlineQueue queue = new DeviceInactivityDeadlineQueue();
+
+    @Test
+    public void testExpiredDevicesArePolledInDeadlineOrder() {
+        DeviceId first = new DeviceId(UUID.randomUUID());
+        DeviceId second = new DeviceId(UUID.randomUUID());
+        DeviceId third = new DeviceId(UUID.randomUUID());
+        queue.schedule(second, 200);
+        queue.schedule(third, 300);
+        queue.schedule(first, 100);
+
+        assertThat(queue.pollExpired(50)).isEmpty();
+        assertThat(queue.pollExpired(200)).containsExactly(first, second);
+        assertThat(queue.pollExpired(200)).isEmpty();
+        assertThat(queue.size()).isEqualTo(1);
+        assertThat(queue.pollExpired(Long.MAX_VALUE)).containsExactly(third);
+    }
+
+    @Test
+    public void testOnlyEarlierDeadlineIsRescheduled() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        queue.schedule(deviceId, 200);
+        queue.schedule(deviceId, 500);
+        assertThat(queue.pollExpired(200)).containsExactly(deviceId);
+
+        queue.schedule(deviceId, 500);
+        queue.schedule(deviceId, 300);
+        assertThat(queue.pollExpired(300)).containsExactly(deviceId);
+        assertThat(queue.size()).isZero();
+    }
+
+    @Test
+    public void testCancel() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        queue.schedule(deviceId, 100);
+        queue.cancel(deviceId);
+        assertThat(queue.pollExpired(Long.MAX_VALUE)).isEmpty();
+        assertThat(queue.size()).isZero();
+    }
+
+    @Test
+    public void testConcurrentScheduleWithSameDeadlineIsNotLost() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        AtomicBoolean running = new AtomicBoolean(true);
+        CompletableFuture<Void> scheduler = CompletableFuture.runAsync(() -> {
+            while (running.get()) {
+                queue.schedule(deviceId, 100);
+            }
+        });
+        for (int i = 0; i < 100000; i++) {
+            queue.pollExpired(100);
+        }
+        running.set(false);
+        scheduler.join();
+
+        queue.pollExpired(100);
+        assertThat(queue.size()).isZero();
+    }
+
+}
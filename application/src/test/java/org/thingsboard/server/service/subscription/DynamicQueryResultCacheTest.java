@@ -0,0 +1,169 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.AlarmId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.query.EntityDataPageLink;
+import org.thingsboard.server.common.data.query.EntityDataQuery;
+import org.thingsboard.server.common.data.query.EntityDataSortOrder;
+import org.thingsboard.server.common.data.query.EntityKey;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.EntityTypeFilter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DynamicQueryResultCacheTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final SubscriptionServiceStatistics stats = new SubscriptionServiceStatistics();
+    private final AtomicInteger executions = new AtomicInteger();
+    private DynamicQueryResultCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new DynamicQueryResultCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "dedupWindowMs", 0L);
+        ReflectionTestUtils.setField(cache, "maxSkipIntervalSec", 300L);
+        ReflectionTestUtils.setField(cache, "maxCachedQueries", 100L);
+        ReflectionTestUtils.setField(cache, "refreshIntervalSec", 60L);
+        ReflectionTestUtils.setField(cache, "serviceType", "monolith");
+        cache.init();
+    }
+
+    @Test
+    public void testResultIsReusedUntilRelevantChange() {
+        var first = execute(query("temperature"));
+        assertThat(execute(query("temperature"))).isSameAs(first);
+
+        cache.onKeysChanged(tenantId, List.of("humidity"));
+        cache.onEntityChanged(tenantId, new AlarmId(UUID.randomUUID()));
+        assertThat(execute(query("temperature"))).isSameAs(first);
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(stats.getDynamicQueryAvoidedCnt().get()).isEqualTo(2);
+
+        cache.onKeysChanged(tenantId, List.of("temperature"));
+        var second = execute(query("temperature"));
+        assertThat(second).isNotSameAs(first);
+
+        cache.onEntityChanged(tenantId, new DeviceId(UUID.randomUUID()));
+        assertThat(execute(query("temperature"))).isNotSameAs(second);
+        assertThat(executions.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void testChangesOfOtherTenantAreIgnored() {
+        var first = execute(query("temperature"));
+        TenantId otherTenantId = TenantId.fromUUID(UUID.randomUUID());
+        cache.onKeysChanged(otherTenantId, List.of("temperature"));
+        cache.onEntityChanged(otherTenantId, new DeviceId(UUID.randomUUID()));
+        assertThat(execute(query("temperature"))).isSameAs(first);
+    }
+
+    @Test
+    public void testResultIsReusedWithinDedupWindow() {
+        ReflectionTestUtils.setField(cache, "dedupWindowMs", 60000L);
+        var first = execute(query("temperature"));
+        cache.onKeysChanged(tenantId, List.of("temperature"));
+        assertThat(execute(query("temperature"))).isSameAs(first);
+        assertThat(execute(query("humidity"))).isNotSameAs(first);
+    }
+
+    @Test
+    public void testUnchangedResultIsNotReusedInCluster() {
+        ReflectionTestUtils.setField(cache, "serviceType", "tb-core");
+        ReflectionTestUtils.setField(cache, "dedupWindowMs", 60000L);
+        // the dedup window is bounded by the refresh interval
+        ReflectionTestUtils.setField(cache, "refreshIntervalSec", 0L);
+        cache.init();
+
+        var first = execute(query("temperature"));
+        assertThat(execute(query("temperature"))).isNotSameAs(first);
+        assertThat(executions.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testConcurrentExecutionsOfSameQueryAreCollapsed() throws Exception {
+        ReflectionTestUtils.setField(cache, "serviceType", "tb-core");
+        cache.init();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<DynamicQueryResultCache.CachedQueryResult<Integer>> first = executor.submit(() ->
+                    cache.getOrExecute(tenantId, null, query("temperature"), stats, () -> {
+                        started.countDown();
+                        awaitUninterruptibly(release);
+                        return executions.incrementAndGet();
+                    }));
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+            Thread waiter = Thread.currentThread();
+            new Thread(() -> {
+                // releases the execution once the second call waits for it
+                while (waiter.getState() != Thread.State.WAITING) {
+                    Thread.onSpinWait();
+                }
+                release.countDown();
+            }).start();
+
+            var second = execute(query("temperature"));
+
+            assertThat(second).isSameAs(first.get(10, TimeUnit.SECONDS));
+            assertThat(executions.get()).isEqualTo(1);
+            assertThat(stats.getDynamicQueryAvoidedCnt().get()).isEqualTo(1);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private DynamicQueryResultCache.CachedQueryResult<Integer> execute(EntityDataQuery query) {
+        return cache.getOrExecute(tenantId, null, query, stats, executions::incrementAndGet);
+    }
+
+    private static EntityDataQuery query(String sortKey) {
+        EntityTypeFilter filter = new EntityTypeFilter();
+        filter.setEntityType(EntityType.DEVICE);
+        EntityDataSortOrder sortOrder = new EntityDataSortOrder(new EntityKey(EntityKeyType.TIME_SERIES, sortKey));
+        EntityDataPageLink pageLink = new EntityDataPageLink(10, 0, null, sortOrder, true);
+        return new EntityDataQuery(filter, pageLink, Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+    }
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ws;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.TsValue;
+import org.thingsboard.server.gen.ws.WsProtos;
+import org.thingsboard.server.service.subscription.SubscriptionErrorCode;
+import org.thingsboard.server.service.ws.telemetry.cmd.v2.EntityDataUpdate;
+import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WsBinaryUpdateEncoderTest {
+
+    final WsBinaryUpdateEncoder encoder = new WsBinaryUpdateEncoder(2);
+
+    @Test
+    public void givenTelemetryUpdates_whenEncode_thenDefineKeysOnceAndDeltaEncodeTimestamps() throws Exception {
+        TelemetrySubscriptionUpdate update = new TelemetrySubscriptionUpdate(3, List.of(
+                new BasicTsKvEntry(1000L, new LongDataEntry("temperature", 20L)),
+                new BasicTsKvEntry(1500L, new LongDataEntry("temperature", 21L))));
+
+        WsProtos.WsUpdateFrameProto first = WsProtos.WsUpdateFrameProto.parseFrom(encoder.encode(List.of(update)));
+        WsProtos.WsUpdateFrameProto second = WsProtos.WsUpdateFrameProto.parseFrom(encoder.encode(List.of(update)));
+
+        assertThat(first.getKeysList()).extracting(WsProtos.WsKeyProto::getKey).containsExactly("temperature");
+        WsProtos.WsKeyValuesProto values = first.getTelemetryUpdates(0).getData(0);
+        assertThat(values.getKeyId()).isEqualTo(first.getKeys(0).getId());
+        assertThat(values.getValuesList()).extracting(WsProtos.WsTsValueProto::getTsDelta).containsExactly(1000L, 500L);
+        assertThat(values.getValuesList()).extracting(WsProtos.WsTsValueProto::getValue).containsExactly("20", "21");
+        assertThat(second.getKeysList()).isEmpty();
+        assertThat(second.getTelemetryUpdates(0).getData(0).getKeyId()).isEqualTo(values.getKeyId());
+    }
+
+    @Test
+    public void givenReset_whenEncode_thenResetKeysAndDefineKeysAgain() throws Exception {
+        TelemetrySubscriptionUpdate update = new TelemetrySubscriptionUpdate(3, List.of(new BasicTsKvEntry(1000L, new LongDataEntry("humidity", 50L))));
+        WsProtos.WsUpdateFrameProto first = WsProtos.WsUpdateFrameProto.parseFrom(encoder.encode(List.of(update)));
+        assertThat(first.getResetKeys()).isFalse();
+
+        encoder.reset();
+
+        WsProtos.WsUpdateFrameProto frame = WsProtos.WsUpdateFrameProto.parseFrom(encoder.encode(List.of(update)));
+        assertThat(frame.getResetKeys()).isTrue();
+        assertThat(frame.getKeysList()).extracting(WsProtos.WsKeyProto::getKey).containsExactly("humidity");
+    }
+
+    @Test
+    public void givenMaxKeysReached_whenEncode_thenResetKeys() throws Exception {
+        encoder.encode(List.of(new TelemetrySubscriptionUpdate(3, List.of(
+                new BasicTsKvEntry(1000L, new LongDataEntry("a", 1L)),
+                new BasicTsKvEntry(1000L, new LongDataEntry("b", 2L))))));
+
+        WsProtos.WsUpdateFrameProto frame = WsProtos.WsUpdateFrameProto.parseFrom(encoder.encode(List.of(
+                new TelemetrySubscriptionUpdate(3, List.of(new BasicTsKvEntry(1000L, new LongDataEntry("c", 3L)))))));
+
+        assertThat(frame.getResetKeys()).isTrue();
+        assertThat(frame.getKeysList()).extracting(WsProtos.WsKeyProto::getId).containsExactly(0);
+    }
+
+    @Test
+    public void givenFailedSend_whenFlush_thenDropFramesOfPreviousDictionary() throws Exception {
+        TelemetrySubscriptionUpdate update = new TelemetrySubscriptionUpdate(3, List.of(new BasicTsKvEntry(1000L, new LongDataEntry("humidity", 50L))));
+        encoder.enqueue(1, List.of(update));
+        encoder.enqueue(2, List.of(update));
+        List<Integer> sent = new ArrayList<>();
+
+        encoder.flush((cmdId, frame) -> {
+            if (cmdId == 1) {
+                return false;
+            }
+            sent.add(cmdId);
+            return true;
+        });
+        encoder.enqueue(3, List.of(update));
+        List<WsProtos.WsUpdateFrameProto> frames = new ArrayList<>();
+        encoder.flush((cmdId, frame) -> {
+            sent.add(cmdId);
+            frames.add(WsProtos.WsUpdateFrameProto.parseFrom(frame));
+            return true;
+        });
+
+        assertThat(sent).containsExactly(3);
+        assertThat(frames.get(0).getResetKeys()).isTrue();
+        assertThat(frames.get(0).getKeysList()).extracting(WsProtos.WsKeyProto::getKey).containsExactly("humidity");
+    }
+
+    @Test
+    public void givenEntityDataUpdate_whenEncode_thenEncodeLatestAndTimeSeries() throws Exception {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        EntityData entityData = new EntityData(deviceId,
+                Map.of(EntityKeyType.ATTRIBUTE, Map.of("firmware", new TsValue(1000L, "1.0"))),
+                Map.of("temperature", new TsValue[]{new TsValue(2000L, "20"), new TsValue(2010L, "21")}));
+
+        WsProtos.WsUpdateFrameProto frame = WsProtos.WsUpdateFrameProto.parseFrom(
+                encoder.encode(List.of(new EntityDataUpdate(7, null, List.of(entityData), 100))));
+
+        WsProtos.WsEntityDataUpdateProto update = frame.getEntityDataUpdates(0);
+        assertThat(update.getCmdId()).isEqualTo(7);
+        WsProtos.WsEntityDataProto entity = update.getUpdate(0);
+        assertThat(new UUID(entity.getEntityIdMSB(), entity.getEntityIdLSB())).isEqualTo(deviceId.getId());
+        assertThat(entity.getEntityType()).isEqualTo("DEVICE");
+        assertThat(entity.getLatest(0).getKeyType()).isEqualTo(WsProtos.WsEntityKeyType.ATTRIBUTE);
+        assertThat(entity.getLatest(0).getValues(0).getValues(0).getValue()).isEqualTo("1.0");
+        assertThat(entity.getTimeseries(0).getValuesList()).extracting(WsProtos.WsTsValueProto::getTsDelta).containsExactly(2000L, 10L);
+        assertThat(frame.getKeysList()).extracting(WsProtos.WsKeyProto::getKey).containsExactlyInAnyOrder("firmware", "temperature");
+    }
+
+    @Test
+    public void givenErrorUpdate_whenCheckSupported_thenReturnFalse() {
+        assertThat(WsBinaryUpdateEncoder.isSupported(new TelemetrySubscriptionUpdate(1, SubscriptionErrorCode.INTERNAL_ERROR))).isFalse();
+        assertThat(WsBinaryUpdateEncoder.isSupported(new EntityDataUpdate(1, 1, "error"))).isFalse();
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ws;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.TsValue;
+import org.thingsboard.server.service.ws.telemetry.cmd.v2.EntityDataUpdate;
+import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WsUpdatesBufferTest {
+
+    final WsUpdatesBuffer buffer = new WsUpdatesBuffer();
+
+    @Test
+    public void givenTimeSeriesUpdates_whenAdd_thenAppendValuesOfSameSubscription() {
+        buffer.add(1, tsUpdate(1, "temperature", 1000L, 20), false);
+        buffer.add(2, tsUpdate(2, "humidity", 1000L, 50), false);
+        buffer.add(1, tsUpdate(1, "temperature", 2000L, 21), false);
+
+        List<Object> updates = buffer.drain();
+
+        assertThat(updates).hasSize(2);
+        TelemetrySubscriptionUpdate first = (TelemetrySubscriptionUpdate) updates.get(0);
+        assertThat(first.getSubscriptionId()).isEqualTo(1);
+        assertThat(first.getData().get("temperature")).hasSize(2);
+        assertThat(first.getLatestValues()).containsEntry("temperature", 2000L);
+        assertThat(((TelemetrySubscriptionUpdate) updates.get(1)).getSubscriptionId()).isEqualTo(2);
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void givenAttributesUpdates_whenAdd_thenKeepLatestValue() {
+        buffer.add(1, tsUpdate(1, "firmware", 1000L, 1), true);
+        buffer.add(1, tsUpdate(1, "firmware", 2000L, 2), true);
+
+        List<Object> updates = buffer.drain();
+
+        assertThat(updates).hasSize(1);
+        List<Object> values = ((TelemetrySubscriptionUpdate) updates.get(0)).getData().get("firmware");
+        assertThat(values).hasSize(1);
+        assertThat(((Object[]) values.get(0))[1]).isEqualTo("2");
+    }
+
+    @Test
+    public void givenOlderAttributesUpdate_whenAdd_thenKeepValueWithHigherTs() {
+        buffer.add(1, tsUpdate(1, "firmware", 2000L, 2), true);
+        buffer.add(1, tsUpdate(1, "firmware", 1000L, 1), true);
+
+        List<Object> values = ((TelemetrySubscriptionUpdate) buffer.drain().get(0)).getData().get("firmware");
+
+        assertThat(values).hasSize(1);
+        assertThat(((Object[]) values.get(0))[1]).isEqualTo("2");
+    }
+
+    @Test
+    public void givenOlderEntityDataUpdate_whenAdd_thenKeepLatestValueWithHigherTsPerKey() {
+        DeviceId device = new DeviceId(UUID.randomUUID());
+        buffer.add(5, entityDataUpdate(5, new EntityData(device, Map.of(EntityKeyType.TIME_SERIES,
+                Map.of("temperature", new TsValue(2000L, "21"), "humidity", new TsValue(1000L, "50"))), null)));
+        buffer.add(5, entityDataUpdate(5, new EntityData(device, Map.of(EntityKeyType.TIME_SERIES,
+                Map.of("temperature", new TsValue(1000L, "20"), "humidity", new TsValue(2000L, "51"))), null)));
+
+        EntityData entityData = ((EntityDataUpdate) buffer.drain().get(0)).getUpdate().get(0);
+
+        Map<String, TsValue> latest = entityData.getLatest().get(EntityKeyType.TIME_SERIES);
+        assertThat(latest.get("temperature").getValue()).isEqualTo("21");
+        assertThat(latest.get("humidity").getValue()).isEqualTo("51");
+    }
+
+    @Test
+    public void givenEntityDataUpdates_whenAdd_thenMergeLatestAndTimeSeriesByEntity() {
+        DeviceId deviceA = new DeviceId(UUID.randomUUID());
+        DeviceId deviceB = new DeviceId(UUID.randomUUID());
+        buffer.add(5, entityDataUpdate(5, new EntityData(deviceA, Map.of(EntityKeyType.TIME_SERIES, Map.of("temperature", new TsValue(1000L, "20"))), null)));
+        buffer.add(5, entityDataUpdate(5, new EntityData(deviceB, null, Map.of("humidity", new TsValue[]{new TsValue(1000L, "50")}))));
+        buffer.add(5, entityDataUpdate(5, new EntityData(deviceA, Map.of(EntityKeyType.TIME_SERIES, Map.of("temperature", new TsValue(2000L, "21"))), null)));
+        buffer.add(5, entityDataUpdate(5, new EntityData(deviceB, null, Map.of("humidity", new TsValue[]{new TsValue(2000L, "51")}))));
+
+        List<Object> updates = buffer.drain();
+
+        assertThat(updates).hasSize(1);
+        List<EntityData> entities = ((EntityDataUpdate) updates.get(0)).getUpdate();
+        assertThat(entities).hasSize(2);
+        assertThat(entities.get(0).getEntityId()).isEqualTo(deviceA);
+        assertThat(entities.get(0).getLatest().get(EntityKeyType.TIME_SERIES).get("temperature").getValue()).isEqualTo("21");
+        assertThat(entities.get(1).getTimeseries().get("humidity")).extracting(TsValue::getValue).containsExactly("50", "51");
+    }
+
+    @Test
+    public void givenFullDataUpdate_whenCheckMergeable_thenReturnFalse() {
+        EntityDataUpdate update = new EntityDataUpdate(5, new PageData<>(), null, 100);
+
+        assertThat(WsUpdatesBuffer.isMergeable(update)).isFalse();
+        assertThat(WsUpdatesBuffer.isMergeable(entityDataUpdate(5, new EntityData(new DeviceId(UUID.randomUUID()), null, null)))).isTrue();
+    }
+
+    private static TelemetrySubscriptionUpdate tsUpdate(int subscriptionId, String key, long ts, long value) {
+        return new TelemetrySubscriptionUpdate(subscriptionId, List.of(new BasicTsKvEntry(ts, new LongDataEntry(key, value))));
+    }
+
+    private static EntityDataUpdate entityDataUpdate(int cmdId, EntityData entityData) {
+        return new EntityDataUpdate(cmdId, null, List.of(entityData), 100);
+    }
+
+}
@@ -0,0 +1,377 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.msg.MsgType;
+import org.thingsboard.server.common.msg.TbActorError;
+import org.thingsboard.server.common.msg.TbActorMsg;
+import org.thingsboard.server.common.msg.TbActorStopReason;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+@Slf4j
+@Getter
+public abstract class AbstractTbActorMailbox implements TbActorCtx {
+    private static final boolean HIGH_PRIORITY = true;
+    private static final boolean NORMAL_PRIORITY = false;
+
+    protected static final boolean FREE = false;
+    protected static final boolean BUSY = true;
+
+    protected static final boolean NOT_READY = false;
+    protected static final boolean READY = true;
+
+    protected final TbActorSystem system;
+    protected final TbActorSystemSettings settings;
+    protected final TbActorId selfId;
+    protected final TbActorRef parentRef;
+    protected final TbActor actor;
+    protected final Dispatcher dispatcher;
+    protected final AtomicBoolean busy = new AtomicBoolean(FREE);
+    protected final AtomicBoolean ready = new AtomicBoolean(NOT_READY);
+    protected final AtomicBoolean destroyInProgress = new AtomicBoolean();
+    private final AtomicInteger normalPriorityMsgsCount = new AtomicInteger();
+    private final AtomicInteger blockedProducers = new AtomicInteger();
+    private final ReentrantLock capacityLock = new ReentrantLock();
+    private final Condition notFull = capacityLock.newCondition();
+    protected volatile TbActorStopReason stopReason;
+
+    protected AbstractTbActorMailbox(TbActorSystem system, TbActorSystemSettings settings, TbActorId selfId,
+                                     TbActorRef parentRef, TbActor actor, Dispatcher dispatcher) {
+        this.system = system;
+        this.settings = settings;
+        this.selfId = selfId;
+        this.parentRef = parentRef;
+        this.actor = actor;
+        this.dispatcher = dispatcher;
+        if (settings.isBoundedMailbox() && settings.getMailboxOverflowPolicy() == MailboxOverflowPolicy.DROP_OLDEST
+                && !isEvictionSupported()) {
+            throw new IllegalArgumentException("DROP_OLDEST mailbox overflow policy is not supported by " + getClass().getSimpleName() + "!");
+        }
+    }
+
+    protected abstract void addHighPriorityMsg(TbActorMsg msg);
+
+    protected abstract void addNormalPriorityMsg(TbActorMsg msg);
+
+    protected abstract void tryProcessQueue(boolean newMsg);
+
+    /**
+     * Whether the mailbox may be used with the {@link MailboxOverflowPolicy#DROP_OLDEST} overflow policy.
+     * Called from the constructor, so implementations must not depend on their own state.
+     */
+    protected boolean isEvictionSupported() {
+        return false;
+    }
+
+    /**
+     * Removes the oldest normal priority message to free space for the new one.
+     * Only called if {@link #isEvictionSupported()} is true.
+     */
+    protected TbActorMsg pollOldestNormalPriorityMsg() {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support eviction of queued messages!");
+    }
+
+    /**
+     * Notifies all queued messages that the actor is stopped. Executed by the dispatcher after the actor is destroyed.
+     */
+    protected abstract void onActorDestroyed();
+
+    public void initActor() {
+        dispatcher.getExecutor().execute(() -> tryInit(1));
+    }
+
+    private void tryInit(int attempt) {
+        try {
+            log.debug("[{}] Trying to init actor, attempt: {}", selfId, attempt);
+            if (!destroyInProgress.get()) {
+                actor.init(this);
+                if (!destroyInProgress.get()) {
+                    ready.set(READY);
+                    tryProcessQueue(false);
+                }
+            }
+        } catch (Throwable t) {
+            InitFailureStrategy strategy;
+            int attemptIdx = attempt + 1;
+            if (isUnrecoverable(t)) {
+                strategy = InitFailureStrategy.stop();
+            } else {
+                log.debug("[{}] Failed to init actor, attempt: {}", selfId, attempt, t);
+                strategy = actor.onInitFailure(attempt, t);
+            }
+            if (strategy.isStop() || (settings.getMaxActorInitAttempts() > 0 && attemptIdx > settings.getMaxActorInitAttempts())) {
+                log.info("[{}] Failed to init actor, attempt {}, going to stop attempts.", selfId, attempt, t);
+                stopReason = TbActorStopReason.INIT_FAILED;
+                destroy(t.getCause());
+            } else if (strategy.getRetryDelay() > 0) {
+                log.info("[{}] Failed to init actor, attempt {}, going to retry in attempts in {}ms", selfId, attempt, strategy.getRetryDelay());
+                log.debug("[{}] Error", selfId, t);
+                system.getScheduler().schedule(() -> dispatcher.getExecutor().execute(() -> tryInit(attemptIdx)), strategy.getRetryDelay(), TimeUnit.MILLISECONDS);
+            } else {
+                log.info("[{}] Failed to init actor, attempt {}, going to retry immediately", selfId, attempt);
+                log.debug("[{}] Error", selfId, t);
+                dispatcher.getExecutor().execute(() -> tryInit(attemptIdx));
+            }
+        }
+    }
+
+    private static boolean isUnrecoverable(Throwable t) {
+        if (t instanceof TbActorException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t instanceof TbActorError && ((TbActorError) t).isUnrecoverable();
+    }
+
+    private void enqueue(TbActorMsg msg, boolean highPriority) {
+        if (!destroyInProgress.get()) {
+            if (highPriority) {
+                addHighPriorityMsg(msg);
+            } else if (!offerNormalPriorityMsg(msg)) {
+                log.debug("[{}] Mailbox is full, rejecting message: {}", selfId, msg);
+                dispatcher.getStats().onMsgRejected();
+                msg.onTbActorStopped(TbActorStopReason.MAILBOX_OVERFLOW);
+                return;
+            }
+            dispatcher.getStats().onMsgEnqueued();
+            tryProcessQueue(true);
+        } else {
+            if (highPriority && msg.getMsgType().equals(MsgType.RULE_NODE_UPDATED_MSG)) {
+                synchronized (this) {
+                    if (stopReason == TbActorStopReason.INIT_FAILED) {
+                        destroyInProgress.set(false);
+                        stopReason = null;
+                        initActor();
+                    } else {
+                        msg.onTbActorStopped(stopReason);
+                    }
+                }
+            } else {
+                msg.onTbActorStopped(stopReason);
+            }
+        }
+    }
+
+    private boolean offerNormalPriorityMsg(TbActorMsg msg) {
+        if (settings.isBoundedMailbox()) {
+            boolean reserved = switch (settings.getMailboxOverflowPolicy()) {
+                case REJECT -> tryReserveCapacity();
+                case DROP_OLDEST -> reserveCapacityByDroppingOldest();
+                case BLOCK -> awaitCapacity();
+            };
+            if (!reserved) {
+                return false;
+            }
+        }
+        addNormalPriorityMsg(msg);
+        return true;
+    }
+
+    private boolean tryReserveCapacity() {
+        int capacity = settings.getMailboxCapacity();
+        while (true) {
+            int count = normalPriorityMsgsCount.get();
+            if (count >= capacity) {
+                return false;
+            }
+            if (normalPriorityMsgsCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean reserveCapacityByDroppingOldest() {
+        while (!tryReserveCapacity()) {
+            TbActorMsg oldest = pollOldestNormalPriorityMsg();
+            if (oldest != null) {
+                onNormalPriorityMsgPolled();
+                log.debug("[{}] Mailbox is full, dropping oldest message: {}", selfId, oldest);
+                dispatcher.getStats().onMsgDropped();
+                oldest.onTbActorStopped(TbActorStopReason.MAILBOX_OVERFLOW);
+            } else {
+                // capacity is reserved by concurrent producer that did not add the message yet
+                Thread.onSpinWait();
+            }
+        }
+        return true;
+    }
+
+    private boolean awaitCapacity() {
+        if (tryReserveCapacity()) {
+            return true;
+        }
+        blockedProducers.incrementAndGet();
+        capacityLock.lock();
+        try {
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(settings.getMailboxBlockTimeoutMs());
+            while (!tryReserveCapacity()) {
+                if (remainingNanos <= 0 || destroyInProgress.get()) {
+                    return false;
+                }
+                remainingNanos = notFull.awaitNanos(remainingNanos);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            capacityLock.unlock();
+            blockedProducers.decrementAndGet();
+        }
+    }
+
+    protected void onNormalPriorityMsgPolled() {
+        if (settings.isBoundedMailbox()) {
+            normalPriorityMsgsCount.decrementAndGet();
+            if (blockedProducers.get() > 0) {
+                signalBlockedProducers(false);
+            }
+        }
+    }
+
+    private void signalBlockedProducers(boolean all) {
+        capacityLock.lock();
+        try {
+            if (all) {
+                notFull.signalAll();
+            } else {
+                notFull.signal();
+            }
+        } finally {
+            capacityLock.unlock();
+        }
+    }
+
+    protected void processMsg(TbActorMsg msg) {
+        dispatcher.getStats().onMsgDequeued();
+        long startTs = System.nanoTime();
+        try {
+            log.debug("[{}] Going to process message: {}", selfId, msg);
+            actor.process(msg);
+        } catch (TbRuleNodeUpdateException updateException) {
+            stopReason = TbActorStopReason.INIT_FAILED;
+            destroy(updateException.getCause());
+        } catch (Throwable t) {
+            log.debug("[{}] Failed to process message: {}", selfId, msg, t);
+            ProcessFailureStrategy strategy = actor.onProcessFailure(msg, t);
+            if (strategy.isStop()) {
+                system.stop(selfId);
+            }
+        } finally {
+            dispatcher.getStats().onMsgProcessed(System.nanoTime() - startTs);
+        }
+    }
+
+    protected void notifyActorStopped(TbActorMsg msg) {
+        dispatcher.getStats().onMsgDequeued();
+        msg.onTbActorStopped(stopReason);
+    }
+
+    @Override
+    public TbActorId getSelf() {
+        return selfId;
+    }
+
+    @Override
+    public void tell(TbActorId target, TbActorMsg actorMsg) {
+        system.tell(target, actorMsg);
+    }
+
+    @Override
+    public void broadcastToChildren(TbActorMsg msg) {
+        broadcastToChildren(msg, false);
+    }
+
+    @Override
+    public void broadcastToChildren(TbActorMsg msg, boolean highPriority) {
+        system.broadcastToChildren(selfId, msg, highPriority);
+    }
+
+    @Override
+    public void broadcastToChildrenByType(TbActorMsg msg, EntityType entityType) {
+        broadcastToChildren(msg, actorId -> entityType.equals(actorId.getEntityType()));
+    }
+
+    @Override
+    public void broadcastToChildren(TbActorMsg msg, Predicate<TbActorId> childFilter) {
+        system.broadcastToChildren(selfId, childFilter, msg);
+    }
+
+    @Override
+    public List<TbActorId> filterChildren(Predicate<TbActorId> childFilter) {
+        return system.filterChildren(selfId, childFilter);
+    }
+
+    @Override
+    public void stop(TbActorId target) {
+        system.stop(target);
+    }
+
+    @Override
+    public TbActorRef getOrCreateChildActor(TbActorId actorId, Supplier<String> dispatcher, Supplier<TbActorCreator> creator, Supplier<Boolean> createCondition) {
+        TbActorRef actorRef = system.getActor(actorId);
+        if (actorRef == null && createCondition.get()) {
+            return system.createChildActor(dispatcher.get(), creator.get(), selfId);
+        } else {
+            return actorRef;
+        }
+    }
+
+    public void destroy(Throwable cause) {
+        if (stopReason == null) {
+            stopReason = TbActorStopReason.STOPPED;
+        }
+        destroyInProgress.set(true);
+        if (blockedProducers.get() > 0) {
+            signalBlockedProducers(true);
+        }
+        dispatcher.getExecutor().execute(() -> {
+            try {
+                ready.set(NOT_READY);
+                actor.destroy(stopReason, cause);
+                onActorDestroyed();
+            } catch (Throwable t) {
+                log.warn("[{}] Failed to destroy actor: ", selfId, t);
+            }
+        });
+    }
+
+    @Override
+    public TbActorId getActorId() {
+        return selfId;
+    }
+
+    @Override
+    public void tell(TbActorMsg actorMsg) {
+        enqueue(actorMsg, NORMAL_PRIORITY);
+    }
+
+    @Override
+    public void tellWithHighPriority(TbActorMsg actorMsg) {
+        enqueue(actorMsg, HIGH_PRIORITY);
+    }
+
+}
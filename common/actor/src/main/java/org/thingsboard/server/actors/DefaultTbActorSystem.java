@@ -39,7 +39,7 @@ import java.util.stream.Collectors;
 public class DefaultTbActorSystem implements TbActorSystem {
 
     private final ConcurrentMap<String, Dispatcher> dispatchers = new ConcurrentHashMap<>();
-    private final ConcurrentMap<TbActorId, TbActorMailbox> actors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TbActorId, AbstractTbActorMailbox> actors = new ConcurrentHashMap<>();
     private final ConcurrentMap<TbActorId, ReentrantLock> actorCreationLocks = new ConcurrentHashMap<>();
     private final ConcurrentMap<TbActorId, Set<TbActorId>> parentChildMap = new ConcurrentHashMap<>();
 
@@ -47,15 +47,21 @@ public class DefaultTbActorSystem implements TbActorSystem {
     private final TbActorSystemSettings settings;
     @Getter
     private final ScheduledExecutorService scheduler;
+    private final TbMailboxStatsFactory mailboxStatsFactory;
 
     public DefaultTbActorSystem(TbActorSystemSettings settings) {
+        this(settings, TbMailboxStatsFactory.NOOP);
+    }
+
+    public DefaultTbActorSystem(TbActorSystemSettings settings, TbMailboxStatsFactory mailboxStatsFactory) {
         this.settings = settings;
+        this.mailboxStatsFactory = mailboxStatsFactory;
         this.scheduler = ThingsBoardExecutors.newScheduledThreadPool(settings.getSchedulerPoolSize(), "actor-system-scheduler");
     }
 
     @Override
     public void createDispatcher(String dispatcherId, ExecutorService executor) {
-        Dispatcher current = dispatchers.putIfAbsent(dispatcherId, new Dispatcher(dispatcherId, executor));
+        Dispatcher current = dispatchers.putIfAbsent(dispatcherId, new Dispatcher(dispatcherId, executor, mailboxStatsFactory.createMailboxStats(dispatcherId)));
         if (current != null) {
             throw new RuntimeException("Dispatcher with id [" + dispatcherId + "] is already registered!");
         }
@@ -94,7 +100,7 @@ public class DefaultTbActorSystem implements TbActorSystem {
         }
 
         TbActorId actorId = creator.createActorId();
-        TbActorMailbox actorMailbox = actors.get(actorId);
+        AbstractTbActorMailbox actorMailbox = actors.get(actorId);
         if (actorMailbox != null) {
             log.debug("Actor with id [{}] is already registered!", actorId);
         } else {
@@ -112,7 +118,7 @@ public class DefaultTbActorSystem implements TbActorSystem {
                             throw new TbActorNotRegisteredException(parent, "Parent Actor with id [" + parent + "] is not registered!");
                         }
                     }
-                    TbActorMailbox mailbox = new TbActorMailbox(this, settings, actorId, parentRef, actor, dispatcher);
+                    AbstractTbActorMailbox mailbox = createMailbox(actorId, parentRef, actor, dispatcher);
                     actors.put(actorId, mailbox);
                     mailbox.initActor();
                     actorMailbox = mailbox;
@@ -130,6 +136,14 @@ public class DefaultTbActorSystem implements TbActorSystem {
         return actorMailbox;
     }
 
+    private AbstractTbActorMailbox createMailbox(TbActorId actorId, TbActorRef parentRef, TbActor actor, Dispatcher dispatcher) {
+        if (settings.getMailboxType() == TbActorMailboxType.ARRAY) {
+            return new TbActorArrayMailbox(this, settings, actorId, parentRef, actor, dispatcher);
+        } else {
+            return new TbActorMailbox(this, settings, actorId, parentRef, actor, dispatcher);
+        }
+    }
+
     @Override
     public void tellWithHighPriority(TbActorId target, TbActorMsg actorMsg) {
         tell(target, actorMsg, true);
@@ -141,7 +155,7 @@ public class DefaultTbActorSystem implements TbActorSystem {
     }
 
     private void tell(TbActorId target, TbActorMsg actorMsg, boolean highPriority) {
-        TbActorMailbox mailbox = actors.get(target);
+        AbstractTbActorMailbox mailbox = actors.get(target);
         if (mailbox == null) {
             throw new TbActorNotRegisteredException(target, "Actor with id [" + target + "] is not registered!");
         }
@@ -206,7 +220,7 @@ public class DefaultTbActorSystem implements TbActorSystem {
         }
         parentChildMap.values().forEach(parentChildren -> parentChildren.remove(actorId));
 
-        TbActorMailbox mailbox = actors.remove(actorId);
+        AbstractTbActorMailbox mailbox = actors.remove(actorId);
         if (mailbox != null) {
             mailbox.destroy(null);
         }
@@ -0,0 +1,33 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+public enum MailboxOverflowPolicy {
+
+    /**
+     * New message is rejected and notified via {@link org.thingsboard.server.common.msg.TbActorMsg#onTbActorStopped}.
+     */
+    REJECT,
+    /**
+     * The oldest normal priority message is removed from the mailbox to free space for the new one.
+     */
+    DROP_OLDEST,
+    /**
+     * Producer waits until the mailbox has free space, but no longer than the configured timeout.
+     */
+    BLOCK
+
+}
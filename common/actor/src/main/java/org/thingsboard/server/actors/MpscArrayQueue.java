@@ -0,0 +1,99 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer single-consumer queue backed by a preallocated ring buffer.
+ * Unlike {@link java.util.concurrent.ConcurrentLinkedQueue} it does not allocate a node per element.
+ * <p>
+ * Producers claim a slot by incrementing the producer index and then publish the element into the slot.
+ * The consumer treats a {@code null} slot behind the producer index as "publication in progress" and does not wait for it:
+ * {@link #poll()} returns {@code null}, and the producer is expected to notify the consumer once the offer returns.
+ * Only one thread may call {@link #poll()} at a time.
+ */
+final class MpscArrayQueue<E> {
+
+    private final int mask;
+    private final int capacity;
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    MpscArrayQueue(int requestedCapacity) {
+        if (requestedCapacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + requestedCapacity);
+        }
+        this.capacity = 1 << (32 - Integer.numberOfLeadingZeros(requestedCapacity - 1));
+        this.mask = capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * @return false if the queue is full
+     */
+    boolean offer(E e) {
+        while (true) {
+            long pIndex = producerIndex.get();
+            if (pIndex - consumerIndex.get() >= capacity) {
+                return false;
+            }
+            if (producerIndex.compareAndSet(pIndex, pIndex + 1)) {
+                // a volatile write, so the consumer that releases the mailbox after the producer checked it sees the element
+                buffer.set((int) pIndex & mask, e);
+                return true;
+            }
+        }
+    }
+
+    E poll() {
+        long cIndex = consumerIndex.get();
+        int offset = (int) cIndex & mask;
+        E e = buffer.get(offset);
+        if (e == null) {
+            // either empty or the slot is claimed and not published yet
+            return null;
+        }
+        buffer.lazySet(offset, null);
+        consumerIndex.lazySet(cIndex + 1);
+        return e;
+    }
+
+    /**
+     * @return true if {@link #poll()} returns the next element, i.e. the element is published. Called by the consumer.
+     */
+    boolean hasPublished() {
+        return buffer.get((int) consumerIndex.get() & mask) != null;
+    }
+
+    /**
+     * @return true if no slot is claimed, including the slots that are claimed and not published yet
+     */
+    boolean isEmpty() {
+        return consumerIndex.get() == producerIndex.get();
+    }
+
+    int size() {
+        return (int) (producerIndex.get() - consumerIndex.get());
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+}
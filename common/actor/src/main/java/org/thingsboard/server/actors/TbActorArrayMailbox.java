@@ -0,0 +1,147 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.msg.TbActorMsg;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mailbox that keeps normal priority messages in a preallocated {@link MpscArrayQueue} and hands the same
+ * {@link Runnable} to the dispatcher on every round, so the processing loop does not allocate per message.
+ * Messages that do not fit into the ring buffer spill over to a linked queue. Once the spill-over queue is not empty,
+ * new messages go there as well until it is drained, which keeps the FIFO order for every producer.
+ * High priority messages are rare and use a linked queue.
+ */
+@Slf4j
+public final class TbActorArrayMailbox extends AbstractTbActorMailbox {
+
+    private final ConcurrentLinkedQueue<TbActorMsg> highPriorityMsgs = new ConcurrentLinkedQueue<>();
+    private final MpscArrayQueue<TbActorMsg> normalPriorityMsgs;
+    private final ConcurrentLinkedQueue<TbActorMsg> overflowMsgs = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger overflowMsgsCount = new AtomicInteger();
+    private final Runnable processMailboxTask = this::processMailbox;
+
+    public TbActorArrayMailbox(TbActorSystem system, TbActorSystemSettings settings, TbActorId selfId,
+                               TbActorRef parentRef, TbActor actor, Dispatcher dispatcher) {
+        super(system, settings, selfId, parentRef, actor, dispatcher);
+        this.normalPriorityMsgs = new MpscArrayQueue<>(settings.getMailboxArraySize());
+    }
+
+    @Override
+    protected void addHighPriorityMsg(TbActorMsg msg) {
+        highPriorityMsgs.add(msg);
+    }
+
+    @Override
+    protected void addNormalPriorityMsg(TbActorMsg msg) {
+        if (overflowMsgsCount.get() > 0 || !normalPriorityMsgs.offer(msg)) {
+            overflowMsgsCount.incrementAndGet();
+            overflowMsgs.add(msg);
+        }
+    }
+
+    @Override
+    protected void tryProcessQueue(boolean newMsg) {
+        if (ready.get() == READY) {
+            if (newMsg || hasMsgs()) {
+                if (busy.compareAndSet(FREE, BUSY)) {
+                    dispatcher.getExecutor().execute(processMailboxTask);
+                } else {
+                    log.trace("[{}] MessageBox is busy, new msg: {}", selfId, newMsg);
+                }
+            } else {
+                log.trace("[{}] MessageBox is empty, new msg: {}", selfId, newMsg);
+            }
+        } else {
+            log.trace("[{}] MessageBox is not ready, new msg: {}", selfId, newMsg);
+        }
+    }
+
+    /*
+     * Checks only the published messages. A message that is not added by its producer yet is picked up by the round
+     * that the producer submits after adding it, see AbstractTbActorMailbox.enqueue.
+     */
+    private boolean hasMsgs() {
+        return !highPriorityMsgs.isEmpty() || normalPriorityMsgs.hasPublished() || !overflowMsgs.isEmpty();
+    }
+
+    private void processMailbox() {
+        int throughput = settings.getActorThroughput();
+        for (int i = 0; i < throughput; i++) {
+            if (ready.get() == NOT_READY) {
+                // actor was destroyed while the messages were processed
+                drainStoppedMsgs();
+                return;
+            }
+            TbActorMsg msg = pollMsg();
+            if (msg == null) {
+                busy.set(FREE);
+                tryProcessQueue(false);
+                return;
+            }
+            processMsg(msg);
+        }
+        dispatcher.getExecutor().execute(processMailboxTask);
+    }
+
+    private TbActorMsg pollMsg() {
+        TbActorMsg msg = highPriorityMsgs.poll();
+        if (msg != null) {
+            return msg;
+        }
+        msg = normalPriorityMsgs.poll();
+        if (msg == null && overflowMsgsCount.get() > 0) {
+            // the counter is incremented before the message is added. If the producer did not add it yet,
+            // the message is picked up by the processing round that the producer submits after adding it
+            msg = overflowMsgs.poll();
+            if (msg != null) {
+                overflowMsgsCount.decrementAndGet();
+            }
+        }
+        if (msg != null) {
+            onNormalPriorityMsgPolled();
+        }
+        return msg;
+    }
+
+    @Override
+    protected void onActorDestroyed() {
+        if (busy.compareAndSet(FREE, BUSY)) {
+            drainStoppedMsgs();
+        }
+        // otherwise the messages are drained by the running processing loop
+    }
+
+    /**
+     * Notifies the queued messages that the actor is stopped and releases the mailbox. If a message is not added
+     * by its producer yet, the draining is resubmitted to the dispatcher instead of waiting for it, since the producer
+     * does not submit a processing round to the stopped mailbox.
+     */
+    private void drainStoppedMsgs() {
+        TbActorMsg msg;
+        while ((msg = pollMsg()) != null) {
+            notifyActorStopped(msg);
+        }
+        busy.set(FREE);
+        if (!normalPriorityMsgs.isEmpty() || overflowMsgsCount.get() > 0) {
+            dispatcher.getExecutor().execute(this::onActorDestroyed);
+        }
+    }
+
+}
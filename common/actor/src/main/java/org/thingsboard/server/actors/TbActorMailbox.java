@@ -16,119 +16,45 @@
 package org.thingsboard.server.actors;
 
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.thingsboard.server.common.data.EntityType;
-import org.thingsboard.server.common.msg.MsgType;
-import org.thingsboard.server.common.msg.TbActorError;
 import org.thingsboard.server.common.msg.TbActorMsg;
-import org.thingsboard.server.common.msg.TbActorStopReason;
 
-import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.function.Predicate;
-import java.util.function.Supplier;
 
 @Slf4j
 @Getter
-@RequiredArgsConstructor
-public final class TbActorMailbox implements TbActorCtx {
-    private static final boolean HIGH_PRIORITY = true;
-    private static final boolean NORMAL_PRIORITY = false;
+public final class TbActorMailbox extends AbstractTbActorMailbox {
 
-    private static final boolean FREE = false;
-    private static final boolean BUSY = true;
-
-    private static final boolean NOT_READY = false;
-    private static final boolean READY = true;
-
-    private final TbActorSystem system;
-    private final TbActorSystemSettings settings;
-    private final TbActorId selfId;
-    private final TbActorRef parentRef;
-    private final TbActor actor;
-    private final Dispatcher dispatcher;
     private final ConcurrentLinkedQueue<TbActorMsg> highPriorityMsgs = new ConcurrentLinkedQueue<>();
     private final ConcurrentLinkedQueue<TbActorMsg> normalPriorityMsgs = new ConcurrentLinkedQueue<>();
-    private final AtomicBoolean busy = new AtomicBoolean(FREE);
-    private final AtomicBoolean ready = new AtomicBoolean(NOT_READY);
-    private final AtomicBoolean destroyInProgress = new AtomicBoolean();
-    private volatile TbActorStopReason stopReason;
 
-    public void initActor() {
-        dispatcher.getExecutor().execute(() -> tryInit(1));
+    public TbActorMailbox(TbActorSystem system, TbActorSystemSettings settings, TbActorId selfId,
+                          TbActorRef parentRef, TbActor actor, Dispatcher dispatcher) {
+        super(system, settings, selfId, parentRef, actor, dispatcher);
     }
 
-    private void tryInit(int attempt) {
-        try {
-            log.debug("[{}] Trying to init actor, attempt: {}", selfId, attempt);
-            if (!destroyInProgress.get()) {
-                actor.init(this);
-                if (!destroyInProgress.get()) {
-                    ready.set(READY);
-                    tryProcessQueue(false);
-                }
-            }
-        } catch (Throwable t) {
-            InitFailureStrategy strategy;
-            int attemptIdx = attempt + 1;
-            if (isUnrecoverable(t)) {
-                strategy = InitFailureStrategy.stop();
-            } else {
-                log.debug("[{}] Failed to init actor, attempt: {}", selfId, attempt, t);
-                strategy = actor.onInitFailure(attempt, t);
-            }
-            if (strategy.isStop() || (settings.getMaxActorInitAttempts() > 0 && attemptIdx > settings.getMaxActorInitAttempts())) {
-                log.info("[{}] Failed to init actor, attempt {}, going to stop attempts.", selfId, attempt, t);
-                stopReason = TbActorStopReason.INIT_FAILED;
-                destroy(t.getCause());
-            } else if (strategy.getRetryDelay() > 0) {
-                log.info("[{}] Failed to init actor, attempt {}, going to retry in attempts in {}ms", selfId, attempt, strategy.getRetryDelay());
-                log.debug("[{}] Error", selfId, t);
-                system.getScheduler().schedule(() -> dispatcher.getExecutor().execute(() -> tryInit(attemptIdx)), strategy.getRetryDelay(), TimeUnit.MILLISECONDS);
-            } else {
-                log.info("[{}] Failed to init actor, attempt {}, going to retry immediately", selfId, attempt);
-                log.debug("[{}] Error", selfId, t);
-                dispatcher.getExecutor().execute(() -> tryInit(attemptIdx));
-            }
-        }
+    @Override
+    protected void addHighPriorityMsg(TbActorMsg msg) {
+        highPriorityMsgs.add(msg);
     }
 
-    private static boolean isUnrecoverable(Throwable t) {
-        if (t instanceof TbActorException && t.getCause() != null) {
-            t = t.getCause();
-        }
-        return t instanceof TbActorError && ((TbActorError) t).isUnrecoverable();
+    @Override
+    protected void addNormalPriorityMsg(TbActorMsg msg) {
+        normalPriorityMsgs.add(msg);
     }
 
-    private void enqueue(TbActorMsg msg, boolean highPriority) {
-        if (!destroyInProgress.get()) {
-            if (highPriority) {
-                highPriorityMsgs.add(msg);
-            } else {
-                normalPriorityMsgs.add(msg);
-            }
-            tryProcessQueue(true);
-        } else {
-            if (highPriority && msg.getMsgType().equals(MsgType.RULE_NODE_UPDATED_MSG)) {
-                synchronized (this) {
-                    if (stopReason == TbActorStopReason.INIT_FAILED) {
-                        destroyInProgress.set(false);
-                        stopReason = null;
-                        initActor();
-                    } else {
-                        msg.onTbActorStopped(stopReason);
-                    }
-                }
-            } else {
-                msg.onTbActorStopped(stopReason);
-            }
-        }
+    @Override
+    protected boolean isEvictionSupported() {
+        return true;
+    }
+
+    @Override
+    protected TbActorMsg pollOldestNormalPriorityMsg() {
+        return normalPriorityMsgs.poll();
     }
 
-    private void tryProcessQueue(boolean newMsg) {
+    @Override
+    protected void tryProcessQueue(boolean newMsg) {
         if (ready.get() == READY) {
             if (newMsg || !highPriorityMsgs.isEmpty() || !normalPriorityMsgs.isEmpty()) {
                 if (busy.compareAndSet(FREE, BUSY)) {
@@ -150,21 +76,12 @@ public final class TbActorMailbox implements TbActorCtx {
             TbActorMsg msg = highPriorityMsgs.poll();
             if (msg == null) {
                 msg = normalPriorityMsgs.poll();
+                if (msg != null) {
+                    onNormalPriorityMsgPolled();
+                }
             }
             if (msg != null) {
-                try {
-                    log.debug("[{}] Going to process message: {}", selfId, msg);
-                    actor.process(msg);
-                } catch (TbRuleNodeUpdateException updateException) {
-                    stopReason = TbActorStopReason.INIT_FAILED;
-                    destroy(updateException.getCause());
-                } catch (Throwable t) {
-                    log.debug("[{}] Failed to process message: {}", selfId, msg, t);
-                    ProcessFailureStrategy strategy = actor.onProcessFailure(msg, t);
-                    if (strategy.isStop()) {
-                        system.stop(selfId);
-                    }
-                }
+                processMsg(msg);
             } else {
                 noMoreElements = true;
                 break;
@@ -179,85 +96,9 @@ public final class TbActorMailbox implements TbActorCtx {
     }
 
     @Override
-    public TbActorId getSelf() {
-        return selfId;
-    }
-
-    @Override
-    public void tell(TbActorId target, TbActorMsg actorMsg) {
-        system.tell(target, actorMsg);
-    }
-
-    @Override
-    public void broadcastToChildren(TbActorMsg msg) {
-        broadcastToChildren(msg, false);
-    }
-
-    @Override
-    public void broadcastToChildren(TbActorMsg msg, boolean highPriority) {
-        system.broadcastToChildren(selfId, msg, highPriority);
-    }
-
-    @Override
-    public void broadcastToChildrenByType(TbActorMsg msg, EntityType entityType) {
-        broadcastToChildren(msg, actorId -> entityType.equals(actorId.getEntityType()));
-    }
-
-    @Override
-    public void broadcastToChildren(TbActorMsg msg, Predicate<TbActorId> childFilter) {
-        system.broadcastToChildren(selfId, childFilter, msg);
-    }
-
-    @Override
-    public List<TbActorId> filterChildren(Predicate<TbActorId> childFilter) {
-        return system.filterChildren(selfId, childFilter);
-    }
-
-    @Override
-    public void stop(TbActorId target) {
-        system.stop(target);
-    }
-
-    @Override
-    public TbActorRef getOrCreateChildActor(TbActorId actorId, Supplier<String> dispatcher, Supplier<TbActorCreator> creator, Supplier<Boolean> createCondition) {
-        TbActorRef actorRef = system.getActor(actorId);
-        if (actorRef == null && createCondition.get()) {
-            return system.createChildActor(dispatcher.get(), creator.get(), selfId);
-        } else {
-            return actorRef;
-        }
-    }
-
-    public void destroy(Throwable cause) {
-        if (stopReason == null) {
-            stopReason = TbActorStopReason.STOPPED;
-        }
-        destroyInProgress.set(true);
-        dispatcher.getExecutor().execute(() -> {
-            try {
-                ready.set(NOT_READY);
-                actor.destroy(stopReason, cause);
-                highPriorityMsgs.forEach(msg -> msg.onTbActorStopped(stopReason));
-                normalPriorityMsgs.forEach(msg -> msg.onTbActorStopped(stopReason));
-            } catch (Throwable t) {
-                log.warn("[{}] Failed to destroy actor: ", selfId, t);
-            }
-        });
-    }
-
-    @Override
-    public TbActorId getActorId() {
-        return selfId;
-    }
-
-    @Override
-    public void tell(TbActorMsg actorMsg) {
-        enqueue(actorMsg, NORMAL_PRIORITY);
-    }
-
-    @Override
-    public void tellWithHighPriority(TbActorMsg actorMsg) {
-        enqueue(actorMsg, HIGH_PRIORITY);
+    protected void onActorDestroyed() {
+        highPriorityMsgs.forEach(this::notifyActorStopped);
+        normalPriorityMsgs.forEach(this::notifyActorStopped);
     }
 
 }
@@ -15,13 +15,43 @@
  */
 package org.thingsboard.server.actors;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
 
 @Data
+@AllArgsConstructor
 public class TbActorSystemSettings {
 
     private final int actorThroughput;
     private final int schedulerPoolSize;
     private final int maxActorInitAttempts;
+    /**
+     * Max number of normal priority messages in the actor's mailbox. 0 means unbounded.
+     */
+    private final int mailboxCapacity;
+    private final MailboxOverflowPolicy mailboxOverflowPolicy;
+    /**
+     * Max time the producer is blocked by {@link MailboxOverflowPolicy#BLOCK} before the message is rejected.
+     */
+    private final long mailboxBlockTimeoutMs;
+    private final TbActorMailboxType mailboxType;
+    /**
+     * Size of the preallocated ring buffer for the {@link TbActorMailboxType#ARRAY} mailbox. Rounded up to the power of two.
+     */
+    private final int mailboxArraySize;
+
+    public TbActorSystemSettings(int actorThroughput, int schedulerPoolSize, int maxActorInitAttempts) {
+        this(actorThroughput, schedulerPoolSize, maxActorInitAttempts, 0, MailboxOverflowPolicy.REJECT, 0);
+    }
+
+    public TbActorSystemSettings(int actorThroughput, int schedulerPoolSize, int maxActorInitAttempts,
+                                 int mailboxCapacity, MailboxOverflowPolicy mailboxOverflowPolicy, long mailboxBlockTimeoutMs) {
+        this(actorThroughput, schedulerPoolSize, maxActorInitAttempts, mailboxCapacity, mailboxOverflowPolicy, mailboxBlockTimeoutMs,
+                TbActorMailboxType.LINKED, 0);
+    }
+
+    public boolean isBoundedMailbox() {
+        return mailboxCapacity > 0;
+    }
 
 }
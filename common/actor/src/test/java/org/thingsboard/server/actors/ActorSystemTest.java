@@ -19,11 +19,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.awaitility.Awaitility;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.thingsboard.common.util.ThingsBoardExecutors;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.TbActorMsg;
+import org.thingsboard.server.common.msg.TbActorStopReason;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -111,6 +114,134 @@ public class ActorSystemTest {
         testActorsAndMessages(1000, 1000, 10);
     }
 
+    @Test
+    public void test1KActorsAnd1KMessagesVirtualThreads() throws InterruptedException {
+        Assumptions.assumeTrue(ThingsBoardExecutors.isVirtualThreadsSupported());
+        executor = ThingsBoardExecutors.newVirtualThreadPerTaskExecutor(getClass().getSimpleName());
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor);
+        testActorsAndMessages(1000, 1000, 10);
+    }
+
+    @Test
+    public void test1actorsAnd100KMessagesArrayMailbox() throws InterruptedException {
+        recreateActorSystem(new TbActorSystemSettings(5, parallelism, 42, 0, MailboxOverflowPolicy.REJECT, 0, TbActorMailboxType.ARRAY, 16));
+        executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor);
+        testActorsAndMessages(1, _100K, 1);
+    }
+
+    @Test
+    public void test1KActorsAnd1KMessagesArrayMailbox() throws InterruptedException {
+        recreateActorSystem(new TbActorSystemSettings(5, parallelism, 42, 0, MailboxOverflowPolicy.REJECT, 0, TbActorMailboxType.ARRAY, 16));
+        executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor);
+        testActorsAndMessages(1000, 1000, 10);
+    }
+
+    @Test
+    public void testArrayMailboxKeepsMessagesOrder() throws InterruptedException {
+        recreateActorSystem(new TbActorSystemSettings(5, parallelism, 42, 0, MailboxOverflowPolicy.REJECT, 0, TbActorMailboxType.ARRAY, 4));
+        executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor);
+        int msgNumber = 10000;
+        List<Integer> processed = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(msgNumber);
+        TbActorRef actorRef = actorSystem.createRootActor(ROOT_DISPATCHER, new TbActorCreator() {
+            @Override
+            public TbActorId createActorId() {
+                return new TbEntityActorId(new DeviceId(UUID.randomUUID()));
+            }
+
+            @Override
+            public TbActor createActor() {
+                return new AbstractTbActor() {
+                    @Override
+                    public boolean process(TbActorMsg msg) {
+                        processed.add(((IntTbActorMsg) msg).getValue());
+                        latch.countDown();
+                        return true;
+                    }
+                };
+            }
+        });
+        for (int i = 0; i < msgNumber; i++) {
+            actorRef.tell(new IntTbActorMsg(i));
+        }
+        Assertions.assertTrue(latch.await(TIMEOUT_AWAIT_MAX_SEC, TimeUnit.SECONDS));
+        for (int i = 0; i < msgNumber; i++) {
+            Assertions.assertEquals(i, processed.get(i));
+        }
+    }
+
+    @Test
+    public void testArrayMailboxDeliversMessagesOfConcurrentProducers() throws InterruptedException {
+        // the small ring buffer makes the producers race for the slots and spill over to the linked queue
+        recreateActorSystem(new TbActorSystemSettings(5, parallelism, 42, 0, MailboxOverflowPolicy.REJECT, 0, TbActorMailboxType.ARRAY, 4));
+        executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor);
+        int producers = 4;
+        int msgNumber = 10000;
+        int[] lastValues = new int[producers];
+        AtomicInteger outOfOrder = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(producers * msgNumber);
+        TbActorRef actorRef = actorSystem.createRootActor(ROOT_DISPATCHER, new TbActorCreator() {
+            @Override
+            public TbActorId createActorId() {
+                return new TbEntityActorId(new DeviceId(UUID.randomUUID()));
+            }
+
+            @Override
+            public TbActor createActor() {
+                return new AbstractTbActor() {
+                    @Override
+                    public boolean process(TbActorMsg msg) {
+                        int value = ((IntTbActorMsg) msg).getValue();
+                        int producer = value / msgNumber;
+                        if (value != lastValues[producer] + 1) {
+                            outOfOrder.incrementAndGet();
+                        }
+                        lastValues[producer] = value;
+                        latch.countDown();
+                        return true;
+                    }
+                };
+            }
+        });
+        for (int p = 0; p < producers; p++) {
+            lastValues[p] = p * msgNumber - 1;
+            int producer = p;
+            submitPool.submit(() -> {
+                for (int i = 0; i < msgNumber; i++) {
+                    actorRef.tell(new IntTbActorMsg(producer * msgNumber + i));
+                }
+            });
+        }
+        Assertions.assertTrue(latch.await(TIMEOUT_AWAIT_MAX_SEC, TimeUnit.SECONDS));
+        assertThat(outOfOrder.get()).isZero();
+    }
+
+    @Test
+    public void testArrayMailboxDoesNotSupportDropOldest() {
+        recreateActorSystem(new TbActorSystemSettings(5, parallelism, 42, 3, MailboxOverflowPolicy.DROP_OLDEST, 0, TbActorMailboxType.ARRAY, 16));
+        executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor);
+        ActorTestCtx testCtx = getActorTestCtx(1);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> actorSystem.createRootActor(ROOT_DISPATCHER,
+                new SlowInitActor.SlowInitActorCreator(new TbEntityActorId(new DeviceId(UUID.randomUUID())), testCtx)));
+    }
+
+    @Test
+    public void testArrayMailboxRejectsDropOldestWhenCreatedDirectly() {
+        TbActorSystemSettings settings = new TbActorSystemSettings(5, parallelism, 42, 3, MailboxOverflowPolicy.DROP_OLDEST, 0, TbActorMailboxType.ARRAY, 16);
+        Dispatcher dispatcher = new Dispatcher(ROOT_DISPATCHER, Executors.newSingleThreadExecutor(), TbMailboxStatsFactory.NOOP.createMailboxStats(ROOT_DISPATCHER));
+        try {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> new TbActorArrayMailbox(actorSystem, settings,
+                    new TbEntityActorId(new DeviceId(UUID.randomUUID())), null, null, dispatcher));
+        } finally {
+            dispatcher.getExecutor().shutdownNow();
+        }
+    }
+
     @Test
     public void testNoMessagesAfterDestroy() throws InterruptedException {
         executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
@@ -217,6 +348,43 @@ public class ActorSystemTest {
         Assertions.assertTrue(testCtx1.getLatch().await(3, TimeUnit.SECONDS));
     }
 
+    @Test
+    public void testBoundedMailboxRejectsNewMessages() throws InterruptedException {
+        AtomicInteger rejected = new AtomicInteger();
+        ActorTestCtx testCtx = testBoundedMailbox(MailboxOverflowPolicy.REJECT, rejected);
+        Assertions.assertTrue(testCtx.getLatch().await(TIMEOUT_AWAIT_MAX_SEC, TimeUnit.SECONDS));
+        Assertions.assertEquals(1 + 2 + 3, testCtx.getActual().get());
+        Assertions.assertEquals(2, rejected.get());
+    }
+
+    @Test
+    public void testBoundedMailboxDropsOldestMessages() throws InterruptedException {
+        AtomicInteger dropped = new AtomicInteger();
+        ActorTestCtx testCtx = testBoundedMailbox(MailboxOverflowPolicy.DROP_OLDEST, dropped);
+        Assertions.assertTrue(testCtx.getLatch().await(TIMEOUT_AWAIT_MAX_SEC, TimeUnit.SECONDS));
+        Assertions.assertEquals(3 + 4 + 5, testCtx.getActual().get());
+        Assertions.assertEquals(2, dropped.get());
+    }
+
+    private ActorTestCtx testBoundedMailbox(MailboxOverflowPolicy policy, AtomicInteger overflowCount) {
+        recreateActorSystem(new TbActorSystemSettings(5, parallelism, 42, 3, policy, 0));
+        executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor);
+        ActorTestCtx testCtx = getActorTestCtx(3);
+        TbActorRef actorRef = actorSystem.createRootActor(ROOT_DISPATCHER, new SlowInitActor.SlowInitActorCreator(
+                new TbEntityActorId(new DeviceId(UUID.randomUUID())), testCtx));
+        for (int i = 1; i <= 5; i++) {
+            actorRef.tell(new IntTbActorMsg(i) {
+                @Override
+                public void onTbActorStopped(TbActorStopReason reason) {
+                    if (reason == TbActorStopReason.MAILBOX_OVERFLOW) {
+                        overflowCount.incrementAndGet();
+                    }
+                }
+            });
+        }
+        return testCtx;
+    }
 
     public void testActorsAndMessages(int actorsCount, int msgNumber, int times) throws InterruptedException {
         Random random = new Random();
@@ -265,6 +433,11 @@ public class ActorSystemTest {
         }
     }
 
+    private void recreateActorSystem(TbActorSystemSettings settings) {
+        actorSystem.stop();
+        actorSystem = new DefaultTbActorSystem(settings);
+    }
+
     private ActorTestCtx getActorTestCtx(int i) {
         CountDownLatch countDownLatch = new CountDownLatch(1);
         AtomicLong actual = new AtomicLong();
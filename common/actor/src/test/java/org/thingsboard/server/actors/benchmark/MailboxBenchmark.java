@@ -0,0 +1,162 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.thingsboard.common.util.ThingsBoardExecutors;
+import org.thingsboard.server.actors.AbstractTbActor;
+import org.thingsboard.server.actors.DefaultTbActorSystem;
+import org.thingsboard.server.actors.MailboxOverflowPolicy;
+import org.thingsboard.server.actors.TbActor;
+import org.thingsboard.server.actors.TbActorCreator;
+import org.thingsboard.server.actors.TbActorId;
+import org.thingsboard.server.actors.TbActorMailboxType;
+import org.thingsboard.server.actors.TbActorRef;
+import org.thingsboard.server.actors.TbActorSystem;
+import org.thingsboard.server.actors.TbActorSystemSettings;
+import org.thingsboard.server.actors.TbStringActorId;
+import org.thingsboard.server.common.msg.MsgType;
+import org.thingsboard.server.common.msg.TbActorMsg;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares messages per second and allocations per message of the linked and array mailboxes.
+ * Every benchmark operation is a single message, see {@code gc.alloc.rate.norm} for the bytes allocated per message.
+ * <p>
+ * Run with {@code mvn -pl common/actor test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=org.thingsboard.server.actors.benchmark.MailboxBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(MailboxBenchmark.MSGS_PER_INVOCATION)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class MailboxBenchmark {
+
+    static final int MSGS_PER_INVOCATION = 100_000;
+    private static final String DISPATCHER = "benchmark-dispatcher";
+
+    @Param({"LINKED", "ARRAY"})
+    private TbActorMailboxType mailboxType;
+
+    @Param({"1", "100", "10000"})
+    private int actorsCount;
+
+    @Param({"5", "100"})
+    private int actorThroughput;
+
+    @Param({"4"})
+    private int poolSize;
+
+    private TbActorSystem actorSystem;
+    private TbActorRef[] actors;
+    private volatile CountDownLatch latch;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        actorSystem = new DefaultTbActorSystem(new TbActorSystemSettings(actorThroughput, 1, 1,
+                0, MailboxOverflowPolicy.REJECT, 0, mailboxType, 1024));
+        actorSystem.createDispatcher(DISPATCHER, ThingsBoardExecutors.newWorkStealingPool(poolSize, DISPATCHER));
+        actors = new TbActorRef[actorsCount];
+        for (int i = 0; i < actorsCount; i++) {
+            actors[i] = actorSystem.createRootActor(DISPATCHER, new BenchmarkActorCreator(new TbStringActorId("actor-" + i)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        actorSystem.stop();
+    }
+
+    @Benchmark
+    public void processMessages() throws InterruptedException {
+        latch = new CountDownLatch(MSGS_PER_INVOCATION);
+        for (int i = 0; i < MSGS_PER_INVOCATION; i++) {
+            actors[i % actorsCount].tell(BenchmarkMsg.INSTANCE);
+        }
+        if (!latch.await(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Messages were not processed in time: " + latch.getCount());
+        }
+    }
+
+    private enum BenchmarkMsg implements TbActorMsg {
+        INSTANCE;
+
+        @Override
+        public MsgType getMsgType() {
+            return MsgType.QUEUE_TO_RULE_ENGINE_MSG;
+        }
+    }
+
+    private class BenchmarkActor extends AbstractTbActor {
+
+        @Override
+        public boolean process(TbActorMsg msg) {
+            latch.countDown();
+            return true;
+        }
+
+    }
+
+    private class BenchmarkActorCreator implements TbActorCreator {
+
+        private final TbActorId actorId;
+
+        BenchmarkActorCreator(TbActorId actorId) {
+            this.actorId = actorId;
+        }
+
+        @Override
+        public TbActorId createActorId() {
+            return actorId;
+        }
+
+        @Override
+        public TbActor createActor() {
+            return new BenchmarkActor();
+        }
+
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MailboxBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+}
@@ -19,6 +19,7 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NullValue;
 
 import java.io.Serializable;
 import java.util.Collection;
@@ -54,6 +55,26 @@ public abstract class CaffeineTbTransactionalCache<K extends Serializable, V ext
         return SimpleTbCacheValueWrapper.wrap(cache.get(key));
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<K, TbCacheValueWrapper<V>> getAll(Collection<K> keys) {
+        if (!(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache)) {
+            return TbTransactionalCache.super.getAll(keys);
+        }
+        Map<Object, Object> storeValues = ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativeCache).getAllPresent(keys);
+        Map<K, TbCacheValueWrapper<V>> result = new HashMap<>(storeValues.size());
+        storeValues.forEach((key, storeValue) -> result.put((K) key, toValueWrapper(storeValue)));
+        return result;
+    }
+
+    /**
+     * Converts the value stored in the native cache, bypassing {@link Cache#get(Object)}.
+     */
+    @SuppressWarnings("unchecked")
+    TbCacheValueWrapper<V> toValueWrapper(Object storeValue) {
+        return SimpleTbCacheValueWrapper.wrap(storeValue instanceof NullValue ? null : (V) storeValue);
+    }
+
     @Override
     public void put(K key, V value) {
         lock.lock();
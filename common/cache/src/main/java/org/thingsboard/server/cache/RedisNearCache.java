@@ -0,0 +1,111 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory (L1) cache in front of the Redis (L2) cache.
+ * Entries are keyed by the string form of the cache key, the same one used for the Redis key,
+ * so that invalidation messages from other nodes can be applied without the key object.
+ */
+@Slf4j
+class RedisNearCache<K extends Serializable, V extends Serializable> {
+
+    private static final String STATS_NAME = "nearCache";
+
+    @Getter
+    private final String cacheName;
+    @Getter
+    private final byte[] channel;
+    private final Cache<String, TbCacheValueWrapper<V>> cache;
+    // Incremented on every invalidation, so that a value read from Redis before a concurrent invalidation is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final DefaultCounter l1HitCounter;
+    private final DefaultCounter l2HitCounter;
+    private final DefaultCounter missCounter;
+
+    RedisNearCache(String cacheName, byte[] channel, int maxSize, long ttlInSec, StatsFactory statsFactory) {
+        this.cacheName = cacheName;
+        this.channel = channel;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlInSec, TimeUnit.SECONDS)
+                .build();
+        this.l1HitCounter = statsFactory.createDefaultCounter(STATS_NAME, "cacheName", cacheName, "result", "l1Hit");
+        this.l2HitCounter = statsFactory.createDefaultCounter(STATS_NAME, "cacheName", cacheName, "result", "l2Hit");
+        this.missCounter = statsFactory.createDefaultCounter(STATS_NAME, "cacheName", cacheName, "result", "miss");
+    }
+
+    TbCacheValueWrapper<V> getIfPresent(K key) {
+        TbCacheValueWrapper<V> value = cache.getIfPresent(key.toString());
+        if (value != null) {
+            l1HitCounter.increment();
+        }
+        return value;
+    }
+
+    long getInvalidationStamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Caches the value read from Redis unless there were invalidations since the stamp was taken.
+     */
+    void put(K key, TbCacheValueWrapper<V> value, long invalidationStamp) {
+        if (value == null) {
+            missCounter.increment();
+            return;
+        }
+        l2HitCounter.increment();
+        if (invalidations.get() == invalidationStamp) {
+            cache.put(key.toString(), value);
+        }
+    }
+
+    /**
+     * Invalidates the key locally and notifies the other nodes using the connection that was used to update Redis.
+     */
+    void invalidate(K key, RedisConnection connection) {
+        String keyString = key.toString();
+        invalidate(keyString);
+        connection.publish(channel, keyString.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void onInvalidationMessage(byte[] message) {
+        String keyString = new String(message, StandardCharsets.UTF_8);
+        log.trace("[{}] Received invalidation for key {}", cacheName, keyString);
+        invalidate(keyString);
+    }
+
+    private void invalidate(String keyString) {
+        invalidations.incrementAndGet();
+        cache.invalidate(keyString);
+    }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.io.Serializable;
+import java.util.Set;
+
+/**
+ * Creates the near caches for the Redis caches listed in 'cache.near_cache.caches' and delivers
+ * the invalidation messages published by the other nodes through Redis pub/sub.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnExpression("'${cache.type:caffeine}'=='redis' && '${cache.near_cache.enabled:false}'=='true'")
+public class RedisNearCacheManager {
+
+    private static final String CHANNEL_PREFIX = "tbNearCache:";
+
+    private final RedisConnectionFactory connectionFactory;
+    private final StatsFactory statsFactory;
+
+    @Value("${cache.near_cache.caches:devices,deviceProfiles,assetProfiles,tenantProfiles,tenants}")
+    private Set<String> cacheNames;
+    @Value("${cache.near_cache.max_size:10000}")
+    private int maxSize;
+    @Value("${cache.near_cache.ttl_sec:60}")
+    private long ttlInSec;
+
+    private RedisMessageListenerContainer listenerContainer;
+
+    @PostConstruct
+    public void init() {
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+        log.info("Near cache is enabled for caches: {}", cacheNames);
+    }
+
+    /**
+     * @return near cache subscribed to the invalidations of the cache or null if the near cache is not enabled for the cache
+     */
+    <K extends Serializable, V extends Serializable> RedisNearCache<K, V> createNearCache(String cacheName) {
+        if (!cacheNames.contains(cacheName)) {
+            return null;
+        }
+        String channel = CHANNEL_PREFIX + cacheName;
+        RedisNearCache<K, V> nearCache = new RedisNearCache<>(cacheName, StringRedisSerializer.UTF_8.serialize(channel), maxSize, ttlInSec, statsFactory);
+        listenerContainer.addMessageListener((message, pattern) -> nearCache.onInvalidationMessage(message.getBody()), new ChannelTopic(channel));
+        return nearCache;
+    }
+
+    @PreDestroy
+    public void destroy() throws Exception {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+
+}
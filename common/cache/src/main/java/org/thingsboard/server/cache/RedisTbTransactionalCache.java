@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.cache;
 
+import jakarta.annotation.PostConstruct;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,9 +35,13 @@ import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.util.JedisClusterCRC16;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
@@ -50,6 +55,8 @@ public abstract class RedisTbTransactionalCache<K extends Serializable, V extend
 
     @Autowired
     private FstStatsService fstStatsService;
+    @Autowired(required = false)
+    private RedisNearCacheManager nearCacheManager;
 
     @Getter
     private final String cacheName;
@@ -60,6 +67,7 @@ public abstract class RedisTbTransactionalCache<K extends Serializable, V extend
     protected final Expiration evictExpiration;
     protected final Expiration cacheTtl;
     protected final boolean cacheEnabled;
+    private RedisNearCache<K, V> nearCache;
 
     public RedisTbTransactionalCache(String cacheName,
                                      CacheSpecsMap cacheSpecsMap,
@@ -85,33 +93,100 @@ public abstract class RedisTbTransactionalCache<K extends Serializable, V extend
                 .orElse(false);
     }
 
+    @PostConstruct
+    public void initNearCache() {
+        if (cacheEnabled && nearCacheManager != null) {
+            nearCache = nearCacheManager.createNearCache(cacheName);
+        }
+    }
+
     @Override
     public TbCacheValueWrapper<V> get(K key) {
         if (!cacheEnabled) {
             return null;
         }
+        if (nearCache == null) {
+            return doGet(key);
+        }
+        TbCacheValueWrapper<V> cacheValueWrapper = nearCache.getIfPresent(key);
+        if (cacheValueWrapper == null) {
+            long invalidationStamp = nearCache.getInvalidationStamp();
+            cacheValueWrapper = doGet(key);
+            nearCache.put(key, cacheValueWrapper, invalidationStamp);
+        }
+        return cacheValueWrapper;
+    }
+
+    private TbCacheValueWrapper<V> doGet(K key) {
         try (var connection = connectionFactory.getConnection()) {
             byte[] rawValue = doGet(key, connection);
-            if (rawValue == null || rawValue.length == 0) {
-                return null;
-            } else if (Arrays.equals(rawValue, BINARY_NULL_VALUE)) {
-                return SimpleTbCacheValueWrapper.empty();
+            return toValueWrapper(key, rawValue);
+        }
+    }
+
+    @Override
+    public Map<K, TbCacheValueWrapper<V>> getAll(Collection<K> keys) {
+        if (!cacheEnabled || keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<K, TbCacheValueWrapper<V>> result = new HashMap<>(keys.size());
+        List<K> keysList = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            TbCacheValueWrapper<V> cacheValueWrapper = nearCache != null ? nearCache.getIfPresent(key) : null;
+            if (cacheValueWrapper != null) {
+                result.put(key, cacheValueWrapper);
             } else {
-                long startTime = System.nanoTime();
-                V value = valueSerializer.deserialize(key, rawValue);
-                if (value != null) {
-                    fstStatsService.recordDecodeTime(value.getClass(), startTime);
-                    fstStatsService.incrementDecode(value.getClass());
-                }
-                return SimpleTbCacheValueWrapper.wrap(value);
+                keysList.add(key);
+            }
+        }
+        if (keysList.isEmpty()) {
+            return result;
+        }
+        long invalidationStamp = nearCache != null ? nearCache.getInvalidationStamp() : 0;
+        List<byte[]> rawValues;
+        try (var connection = connectionFactory.getConnection()) {
+            rawValues = doGetAll(keysList, connection);
+        }
+        for (int i = 0; i < keysList.size(); i++) {
+            K key = keysList.get(i);
+            TbCacheValueWrapper<V> cacheValueWrapper = toValueWrapper(key, rawValues.get(i));
+            if (nearCache != null) {
+                nearCache.put(key, cacheValueWrapper, invalidationStamp);
+            }
+            if (cacheValueWrapper != null) {
+                result.put(key, cacheValueWrapper);
             }
         }
+        return result;
+    }
+
+    private TbCacheValueWrapper<V> toValueWrapper(K key, byte[] rawValue) {
+        if (rawValue == null || rawValue.length == 0) {
+            return null;
+        } else if (Arrays.equals(rawValue, BINARY_NULL_VALUE)) {
+            return SimpleTbCacheValueWrapper.empty();
+        } else {
+            long startTime = System.nanoTime();
+            V value = valueSerializer.deserialize(key, rawValue);
+            if (value != null) {
+                fstStatsService.recordDecodeTime(value.getClass(), startTime);
+                fstStatsService.incrementDecode(value.getClass());
+            }
+            return SimpleTbCacheValueWrapper.wrap(value);
+        }
     }
 
     protected byte[] doGet(K key, RedisConnection connection) {
         return connection.stringCommands().get(getRawKey(key));
     }
 
+    /**
+     * Returns raw values in the order of the keys, using a single MGET command.
+     */
+    protected List<byte[]> doGetAll(List<K> keys, RedisConnection connection) {
+        return connection.stringCommands().mGet(keys.stream().map(this::getRawKey).toArray(byte[][]::new));
+    }
+
     @Override
     public void put(K key, V value) {
         if (!cacheEnabled) {
@@ -119,6 +194,7 @@ public abstract class RedisTbTransactionalCache<K extends Serializable, V extend
         }
         try (var connection = connectionFactory.getConnection()) {
             put(key, value, connection);
+            invalidateNearCache(key, connection);
         }
     }
 
@@ -133,6 +209,7 @@ public abstract class RedisTbTransactionalCache<K extends Serializable, V extend
         }
         try (var connection = connectionFactory.getConnection()) {
             put(connection, key, value, RedisStringCommands.SetOption.SET_IF_ABSENT);
+            invalidateNearCache(key, connection);
         }
     }
 
@@ -143,6 +220,7 @@ public abstract class RedisTbTransactionalCache<K extends Serializable, V extend
         }
         try (var connection = connectionFactory.getConnection()) {
             connection.keyCommands().del(getRawKey(key));
+            invalidateNearCache(key, connection);
         }
     }
 
@@ -157,6 +235,7 @@ public abstract class RedisTbTransactionalCache<K extends Serializable, V extend
         }
         try (var connection = connectionFactory.getConnection()) {
             connection.keyCommands().del(keys.stream().map(this::getRawKey).toArray(byte[][]::new));
+            keys.forEach(key -> invalidateNearCache(key, connection));
         }
     }
 
@@ -172,6 +251,7 @@ public abstract class RedisTbTransactionalCache<K extends Serializable, V extend
                 //We need to put the value in case of Redis, because evict will NOT cancel concurrent transaction used to "get" the missing value from cache.
                 connection.stringCommands().set(rawKey, getRawValue(value), evictExpiration, RedisStringCommands.SetOption.UPSERT);
             }
+            invalidateNearCache(key, connection);
         }
     }
 
@@ -196,6 +276,16 @@ public abstract class RedisTbTransactionalCache<K extends Serializable, V extend
         return TbTransactionalCache.super.getAndPutInTransaction(key, dbCall, cacheValueToResult, dbValueToCacheValue, cacheNullValue);
     }
 
+    /**
+     * Drops the key from the near cache of this node and publishes the invalidation to the other nodes.
+     * Values put within a cache transaction are not published: they fill the keys that are absent in Redis.
+     */
+    protected void invalidateNearCache(K key, RedisConnection connection) {
+        if (nearCache != null) {
+            nearCache.invalidate(key, connection);
+        }
+    }
+
     protected RedisConnection getConnection(byte[] rawKey) {
         if (!connectionFactory.isRedisClusterAware()) {
             return connectionFactory.getConnection();
@@ -17,7 +17,9 @@ package org.thingsboard.server.cache;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -27,6 +29,22 @@ public interface TbTransactionalCache<K extends Serializable, V extends Serializ
 
     TbCacheValueWrapper<V> get(K key);
 
+    /**
+     * Reads several keys at once. Implementations should fetch all the keys in a single round trip to the cache.
+     * @param keys - keys to read
+     * @return cached values by key; keys that are missing in the cache are absent in the map
+     */
+    default Map<K, TbCacheValueWrapper<V>> getAll(Collection<K> keys) {
+        Map<K, TbCacheValueWrapper<V>> result = new HashMap<>();
+        for (K key : keys) {
+            TbCacheValueWrapper<V> cacheValueWrapper = get(key);
+            if (cacheValueWrapper != null) {
+                result.put(key, cacheValueWrapper);
+            }
+        }
+        return result;
+    }
+
     void put(K key, V value);
 
     void putIfAbsent(K key, V value);
@@ -37,6 +37,12 @@ public abstract class VersionedCaffeineTbCache<K extends VersionedCacheKey, V ex
         return null;
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    TbCacheValueWrapper<V> toValueWrapper(Object storeValue) {
+        return SimpleTbCacheValueWrapper.wrap(((TbPair<Long, V>) storeValue).getSecond());
+    }
+
     @Override
     public void put(K key, V value) {
         Long version = getVersion(value);
@@ -25,9 +25,12 @@ import org.springframework.data.redis.connection.ReturnType;
 import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.thingsboard.server.common.data.HasVersion;
+import redis.clients.jedis.util.JedisClusterCRC16;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 @Slf4j
 public abstract class VersionedRedisTbCache<K extends VersionedCacheKey, V extends Serializable & HasVersion> extends RedisTbTransactionalCache<K, V> implements VersionedTbCache<K, V> {
@@ -87,6 +90,48 @@ public abstract class VersionedRedisTbCache<K extends VersionedCacheKey, V exten
         return connection.stringCommands().getRange(rawKey, VERSION_SIZE, VALUE_END_OFFSET);
     }
 
+    /**
+     * Versioned values are read with GETRANGE that has no multi-key form, so the reads are pipelined instead.
+     * Cluster connections do not support pipelining: the keys are pipelined through the node connection
+     * when they share the same slot (e.g. all the keys of one entity), otherwise they are read one by one.
+     */
+    @Override
+    protected List<byte[]> doGetAll(List<K> keys, RedisConnection connection) {
+        if (!getConnectionFactory().isRedisClusterAware()) {
+            return doGetAllPipelined(keys, connection);
+        }
+        byte[] firstRawKey = getRawKey(keys.get(0));
+        int slot = JedisClusterCRC16.getSlot(firstRawKey);
+        if (keys.stream().allMatch(key -> JedisClusterCRC16.getSlot(getRawKey(key)) == slot)) {
+            try (var slotConnection = getConnection(firstRawKey)) {
+                return doGetAllPipelined(keys, slotConnection);
+            }
+        }
+        List<byte[]> rawValues = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            rawValues.add(doGet(key, connection));
+        }
+        return rawValues;
+    }
+
+    private List<byte[]> doGetAllPipelined(List<K> keys, RedisConnection connection) {
+        connection.openPipeline();
+        try {
+            for (K key : keys) {
+                doGet(key, connection);
+            }
+        } catch (Exception e) {
+            connection.closePipeline();
+            throw e;
+        }
+        List<Object> results = connection.closePipeline();
+        List<byte[]> rawValues = new ArrayList<>(results.size());
+        for (Object result : results) {
+            rawValues.add((byte[]) result);
+        }
+        return rawValues;
+    }
+
     @Override
     public void put(K key, V value) {
         if (!key.isVersioned()) {
@@ -122,6 +167,7 @@ public abstract class VersionedRedisTbCache<K extends VersionedCacheKey, V exten
         final byte[] rawKey = getRawKey(key);
         try (var connection = getConnection(rawKey)) {
             doPut(rawKey, value, version, expiration, connection);
+            invalidateNearCache(key, connection);
         }
     }
 
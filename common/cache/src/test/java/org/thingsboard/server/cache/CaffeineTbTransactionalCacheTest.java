@@ -0,0 +1,79 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.thingsboard.server.cache.device.DeviceCacheKey;
+import org.thingsboard.server.cache.device.DeviceCaffeineCache;
+import org.thingsboard.server.common.data.CacheConstants;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CaffeineTbTransactionalCacheTest {
+
+    private SimpleCacheManager cacheManager;
+
+    @BeforeEach
+    public void setUp() {
+        cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(
+                new CaffeineCache("test", Caffeine.newBuilder().build()),
+                new CaffeineCache(CacheConstants.DEVICE_CACHE, Caffeine.newBuilder().build())
+        ));
+        cacheManager.initializeCaches();
+    }
+
+    @Test
+    public void givenCachedAndNullValues_whenGetAll_thenReturnOnlyPresentKeys() {
+        var cache = new CaffeineTbTransactionalCache<String, String>(cacheManager, "test") {};
+        cache.put("a", "A");
+        cache.put("b", null);
+
+        var result = cache.getAll(List.of("a", "b", "c"));
+
+        assertThat(result).containsOnlyKeys("a", "b");
+        assertThat(result.get("a").get()).isEqualTo("A");
+        assertThat(result.get("b").get()).isNull();
+    }
+
+    @Test
+    public void givenVersionedValues_whenGetAll_thenReturnUnwrappedValues() {
+        var cache = new DeviceCaffeineCache(cacheManager);
+        Device device = new Device(new DeviceId(UUID.randomUUID()));
+        device.setVersion(1L);
+        var presentKey = new DeviceCacheKey(device.getId());
+        var evictedKey = new DeviceCacheKey(new DeviceId(UUID.randomUUID()));
+        var missingKey = new DeviceCacheKey(new DeviceId(UUID.randomUUID()));
+        cache.put(presentKey, device);
+        cache.evict(evictedKey, 2L);
+
+        var result = cache.getAll(List.of(presentKey, evictedKey, missingKey));
+
+        assertThat(result).containsOnlyKeys(presentKey, evictedKey);
+        assertThat(result.get(presentKey).get()).isEqualTo(device);
+        assertThat(result.get(evictedKey).get()).isNull();
+    }
+
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class RedisNearCacheTest {
+
+    private static final byte[] CHANNEL = "tbNearCache:test".getBytes(StandardCharsets.UTF_8);
+
+    private RedisNearCache<String, String> nearCache;
+
+    @BeforeEach
+    public void setUp() {
+        nearCache = new RedisNearCache<>("test", CHANNEL, 100, 60, mock(StatsFactory.class, RETURNS_DEEP_STUBS));
+    }
+
+    @Test
+    public void givenValueFromRedis_whenPut_thenServedFromNearCache() {
+        nearCache.put("key", SimpleTbCacheValueWrapper.wrap("value"), nearCache.getInvalidationStamp());
+
+        assertThat(nearCache.getIfPresent("key").get()).isEqualTo("value");
+    }
+
+    @Test
+    public void givenInvalidationAfterRedisRead_whenPut_thenValueIsNotCached() {
+        long invalidationStamp = nearCache.getInvalidationStamp();
+        nearCache.onInvalidationMessage("other".getBytes(StandardCharsets.UTF_8));
+
+        nearCache.put("key", SimpleTbCacheValueWrapper.wrap("value"), invalidationStamp);
+
+        assertThat(nearCache.getIfPresent("key")).isNull();
+    }
+
+    @Test
+    public void givenCachedValue_whenInvalidationMessageReceived_thenValueIsRemoved() {
+        nearCache.put("key", SimpleTbCacheValueWrapper.wrap("value"), nearCache.getInvalidationStamp());
+
+        nearCache.onInvalidationMessage("key".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(nearCache.getIfPresent("key")).isNull();
+    }
+
+    @Test
+    public void givenCachedValue_whenInvalidatedLocally_thenValueIsRemovedAndInvalidationPublished() {
+        RedisConnection connection = mock(RedisConnection.class);
+        nearCache.put("key", SimpleTbCacheValueWrapper.empty(), nearCache.getInvalidationStamp());
+        assertThat(nearCache.getIfPresent("key")).isNotNull();
+
+        nearCache.invalidate("key", connection);
+
+        assertThat(nearCache.getIfPresent("key")).isNull();
+        verify(connection).publish(CHANNEL, "key".getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -27,6 +27,7 @@ import org.thingsboard.server.common.data.id.EdgeId;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.plugin.ComponentLifecycleEvent;
+import org.thingsboard.server.common.data.security.DeviceCredentials;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.ToDeviceActorNotificationMsg;
 import org.thingsboard.server.common.msg.edge.EdgeEventUpdateMsg;
@@ -94,6 +95,8 @@ public interface TbClusterService extends TbQueueClusterService {
 
     void onDeviceDeleted(TenantId tenantId, Device device, TbQueueCallback callback);
 
+    void onDeviceCredentialsUpdated(TenantId tenantId, DeviceCredentials deviceCredentials, TbQueueCallback callback);
+
     void onDeviceAssignedToTenant(TenantId oldTenantId, Device device);
 
     void onResourceChange(TbResourceInfo resource, TbQueueCallback callback);
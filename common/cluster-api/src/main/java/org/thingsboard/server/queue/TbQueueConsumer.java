@@ -36,6 +36,18 @@ public interface TbQueueConsumer<T extends TbQueueMsg> {
 
     void commit();
 
+    /**
+     * Commits the messages up to the given position, which is the number of messages returned by {@link #poll(long)}
+     * since the consumer was created. Unlike {@link #commit()}, leaves the messages polled after the position uncommitted.
+     */
+    default void commit(long position) {
+        throw new UnsupportedOperationException("Commit by position is not supported by " + getClass().getSimpleName());
+    }
+
+    default boolean isCommitByPositionSupported() {
+        return false;
+    }
+
     boolean isStopped();
 
     List<String> getFullTopicNames();
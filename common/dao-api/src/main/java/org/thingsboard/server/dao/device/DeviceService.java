@@ -73,6 +73,14 @@ public interface DeviceService extends EntityDaoService {
 
     PageData<DeviceIdInfo> findDeviceIdInfos(PageLink pageLink);
 
+    /**
+     * Finds devices ordered by id with the latest values of the given keys, using keyset pagination.
+     *
+     * @param lastDeviceId the id of the last device of the previous page, or null for the first page
+     * @param timeseriesKeys latest time series keys to fetch, should be empty unless the latest time series are stored in SQL
+     */
+    List<DeviceLatestValues> findDevicesWithLatestValues(DeviceId lastDeviceId, int limit, List<String> serverAttributeKeys, List<String> timeseriesKeys);
+
     PageData<Device> findDevicesByTenantIdAndType(TenantId tenantId, String type, PageLink pageLink);
 
     PageData<Device> findDevicesByTenantIdAndTypeAndEmptyOtaPackage(TenantId tenantId, DeviceProfileId deviceProfileId, OtaPackageType type, PageLink pageLink);
@@ -0,0 +1,172 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.msg;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import org.thingsboard.common.util.JacksonUtil;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * Immutable payload of the {@link TbMsg}. Keeps the UTF-8 bytes the payload was received with,
+ * or the value produced by a script, and lazily builds the string and the JSON tree on first access,
+ * caching both. Since every transformation of the data creates a new payload, the original bytes may be
+ * sent to the queue as is while the payload is passed through the rule chain unmodified.
+ */
+public final class TbMsgPayload implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private volatile String string;
+    private volatile ByteString bytes;
+    private transient volatile JsonNode json;
+    private transient volatile Object value;
+    private transient ObjectMapper valueMapper;
+
+    private TbMsgPayload(String string, ByteString bytes) {
+        this.string = string;
+        this.bytes = bytes;
+    }
+
+    private TbMsgPayload(Object value, ObjectMapper valueMapper) {
+        this.value = value;
+        this.valueMapper = valueMapper;
+    }
+
+    public static TbMsgPayload of(String data) {
+        return data != null ? new TbMsgPayload(data, (ByteString) null) : null;
+    }
+
+    public static TbMsgPayload of(ByteString data) {
+        return data != null ? new TbMsgPayload((String) null, data) : null;
+    }
+
+    /**
+     * Creates the payload from the value that is serialized to JSON by the given mapper only when the string,
+     * the bytes or the tree are requested. The value must not be modified afterwards.
+     */
+    public static TbMsgPayload ofValue(Object value, ObjectMapper mapper) {
+        return value != null ? new TbMsgPayload(value, mapper) : null;
+    }
+
+    public String getString() {
+        String string = this.string;
+        if (string == null) {
+            ByteString bytes = this.bytes;
+            string = bytes != null ? bytes.toStringUtf8() : writeValue();
+            this.string = string;
+        }
+        return string;
+    }
+
+    public ByteString getBytes() {
+        ByteString bytes = this.bytes;
+        if (bytes == null) {
+            bytes = ByteString.copyFromUtf8(getString());
+            this.bytes = bytes;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return 'true' if the encoded form of the payload is available without encoding the string.
+     */
+    public boolean hasBytes() {
+        return bytes != null;
+    }
+
+    /**
+     * Returns the payload parsed as JSON, or null for the empty payload. The tree is parsed once and shared
+     * by all the messages that carry this payload, so it must not be modified: use {@link JsonNode#deepCopy()}
+     * to get a mutable copy.
+     *
+     * @throws IllegalArgumentException if the payload is not a valid JSON
+     */
+    public JsonNode getJson() {
+        JsonNode json = this.json;
+        if (json == null) {
+            json = parse();
+            this.json = json;
+        }
+        return json;
+    }
+
+    /**
+     * @return 'true' if the payload is backed by the given string instance, so that it is not necessary to replace it.
+     */
+    boolean isBackedBy(String data) {
+        return data != null && data == string;
+    }
+
+    private JsonNode parse() {
+        ByteString bytes = this.bytes;
+        String string = this.string;
+        if (bytes == null && string == null) {
+            return valueMapper.valueToTree(value);
+        }
+        if (bytes != null ? bytes.isEmpty() : string.isEmpty()) {
+            return null;
+        }
+        try {
+            return bytes != null ? JacksonUtil.OBJECT_MAPPER.readTree(bytes.newInput()) : JacksonUtil.OBJECT_MAPPER.readTree(string);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The message data cannot be transformed to Json object", e);
+        }
+    }
+
+    private String writeValue() {
+        try {
+            return valueMapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The message data cannot be transformed to Json string", e);
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getString();
+        out.defaultWriteObject();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TbMsgPayload that = (TbMsgPayload) o;
+        if (bytes != null && that.bytes != null) {
+            return bytes.equals(that.bytes);
+        }
+        return getString().equals(that.getString());
+    }
+
+    @Override
+    public int hashCode() {
+        return getString().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return getString();
+    }
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.msg;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.msg.gen.MsgProtos;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TbMsgPayloadTest {
+
+    private static final String DATA = "{\"temperature\":42,\"name\":\"Тест\"}";
+
+    @Test
+    public void testPayloadIsParsedOnce() {
+        TbMsg msg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(UUID.randomUUID()), TbMsgMetaData.EMPTY, DATA);
+
+        assertThat(msg.getDataAsJson().get("temperature").asInt()).isEqualTo(42);
+        assertThat(msg.getDataAsJson()).isSameAs(msg.getDataAsJson());
+
+        TbMsg sameData = TbMsg.transformMsg(msg, new TbMsgMetaData(), msg.getData());
+        assertThat(sameData.getDataAsJson()).isSameAs(msg.getDataAsJson());
+
+        TbMsg newData = TbMsg.transformMsgData(msg, "{\"temperature\":43}");
+        assertThat(newData.getDataAsJson().get("temperature").asInt()).isEqualTo(43);
+    }
+
+    @Test
+    public void testReceivedBytesAreReusedWhenPayloadIsNotModified() throws Exception {
+        TbMsg msg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(UUID.randomUUID()), TbMsgMetaData.EMPTY, DATA);
+        TbMsg received = TbMsg.fromBytes("Main", TbMsg.toByteArray(msg), TbMsgCallback.EMPTY);
+
+        TbMsg forwarded = TbMsg.transformMsgOriginator(received, new DeviceId(UUID.randomUUID()));
+        ByteString forwardedData = MsgProtos.TbMsgProto.parseFrom(TbMsg.toByteArray(forwarded)).getDataBytes();
+
+        assertThat(forwarded.getPayload()).isSameAs(received.getPayload());
+        assertThat(forwarded.getPayload().hasBytes()).isTrue();
+        assertThat(forwardedData.toStringUtf8()).isEqualTo(DATA);
+        assertThat(forwarded.getData()).isEqualTo(DATA);
+        assertThat(forwarded.getDataAsJson().get("name").asText()).isEqualTo("Тест");
+    }
+
+    @Test
+    public void testPayloadEquality() {
+        TbMsgPayload fromString = TbMsgPayload.of(DATA);
+        TbMsgPayload fromBytes = TbMsgPayload.of(ByteString.copyFromUtf8(DATA));
+
+        assertThat(fromBytes).isEqualTo(fromString);
+        assertThat(fromBytes.hashCode()).isEqualTo(fromString.hashCode());
+        assertThat(TbMsgPayload.of((String) null)).isNull();
+    }
+
+    @Test
+    public void testValuePayloadIsSerializedOnRequest() {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("temperature", 42);
+        value.put("name", "Тест");
+        TbMsgPayload payload = TbMsgPayload.ofValue(value, new ObjectMapper());
+
+        assertThat(payload.hasBytes()).isFalse();
+        assertThat(payload.getJson().get("temperature").asInt()).isEqualTo(42);
+        assertThat(payload.getString()).isEqualTo(DATA);
+        assertThat(payload.getBytes().toStringUtf8()).isEqualTo(DATA);
+        assertThat(payload).isEqualTo(TbMsgPayload.of(DATA));
+    }
+
+    @Test
+    public void testEmptyAndInvalidPayload() {
+        assertThat(TbMsgPayload.of("").getJson()).isNull();
+        assertThatThrownBy(() -> TbMsgPayload.of("not a json").getJson()).isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
@@ -99,15 +99,7 @@ public class JsonConverter {
                         if (metadataResult == null) {
                             metadataResult = new ArrayList<>();
                         }
-                        if (metadataElem.isJsonObject()) {
-                            JsonObject metadataObj = metadataElem.getAsJsonObject();
-                            var connector = getAndValidateMetadataElement(metadataObj, "connector").getAsString();
-                            var receivedTs = getAndValidateMetadataElement(metadataObj, "receivedTs").getAsLong();
-                            var publishedTs = getAndValidateMetadataElement(metadataObj, "publishedTs").getAsLong();
-                            metadataResult.add(new GatewayMetadata(connector, receivedTs, publishedTs));
-                        } else {
-                            throw new JsonSyntaxException("Can't parse gateway metadata: " + metadataElem);
-                        }
+                        metadataResult.add(parseGatewayMetadata(metadataElem));
                     }
                     parseObject(systemTs, null, builder, jo);
                 } else {
@@ -120,6 +112,18 @@ public class JsonConverter {
         return TbPair.of(builder.build(), metadataResult);
     }
 
+    static GatewayMetadata parseGatewayMetadata(JsonElement metadataElem) {
+        if (metadataElem.isJsonObject()) {
+            JsonObject metadataObj = metadataElem.getAsJsonObject();
+            var connector = getAndValidateMetadataElement(metadataObj, "connector").getAsString();
+            var receivedTs = getAndValidateMetadataElement(metadataObj, "receivedTs").getAsLong();
+            var publishedTs = getAndValidateMetadataElement(metadataObj, "publishedTs").getAsLong();
+            return new GatewayMetadata(connector, receivedTs, publishedTs);
+        } else {
+            throw new JsonSyntaxException("Can't parse gateway metadata: " + metadataElem);
+        }
+    }
+
     private static JsonElement getAndValidateMetadataElement(JsonObject metadata, String elementName) {
         var element = metadata.get(elementName);
         if (element == null || element.isJsonNull()) {
@@ -237,21 +241,7 @@ public class JsonConverter {
             if (element.isJsonPrimitive()) {
                 JsonPrimitive value = element.getAsJsonPrimitive();
                 if (value.isString()) {
-                    if (maxStringValueLength > 0 && value.getAsString().length() > maxStringValueLength) {
-                        String message = String.format("String value length [%d] for key [%s] is greater than maximum allowed [%d]", value.getAsString().length(), valueEntry.getKey(), maxStringValueLength);
-                        throw new JsonSyntaxException(message);
-                    }
-                    if (isTypeCastEnabled && NumberUtils.isParsable(value.getAsString())) {
-                        try {
-                            result.add(buildNumericKeyValueProto(value, valueEntry.getKey()));
-                        } catch (RuntimeException th) {
-                            result.add(KeyValueProto.newBuilder().setKey(valueEntry.getKey()).setType(KeyValueType.STRING_V)
-                                    .setStringV(value.getAsString()).build());
-                        }
-                    } else {
-                        result.add(KeyValueProto.newBuilder().setKey(valueEntry.getKey()).setType(KeyValueType.STRING_V)
-                                .setStringV(value.getAsString()).build());
-                    }
+                    result.add(buildStringKeyValueProto(value.getAsString(), valueEntry.getKey()));
                 } else if (value.isBoolean()) {
                     result.add(KeyValueProto.newBuilder().setKey(valueEntry.getKey()).setType(KeyValueType.BOOLEAN_V)
                             .setBoolV(value.getAsBoolean()).build());
@@ -269,8 +259,27 @@ public class JsonConverter {
         return result;
     }
 
+    static KeyValueProto buildStringKeyValueProto(String value, String key) {
+        if (maxStringValueLength > 0 && value.length() > maxStringValueLength) {
+            String message = String.format("String value length [%d] for key [%s] is greater than maximum allowed [%d]", value.length(), key, maxStringValueLength);
+            throw new JsonSyntaxException(message);
+        }
+        if (isTypeCastEnabled && NumberUtils.isParsable(value)) {
+            try {
+                return buildNumericKeyValueProto(value, key);
+            } catch (RuntimeException th) {
+                return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.STRING_V).setStringV(value).build();
+            }
+        } else {
+            return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.STRING_V).setStringV(value).build();
+        }
+    }
+
     private static KeyValueProto buildNumericKeyValueProto(JsonPrimitive value, String key) {
-        String valueAsString = value.getAsString();
+        return buildNumericKeyValueProto(value.getAsString(), key);
+    }
+
+    static KeyValueProto buildNumericKeyValueProto(String valueAsString, String key) {
         KeyValueProto.Builder builder = KeyValueProto.newBuilder().setKey(key);
         var bd = new BigDecimal(valueAsString);
         if (bd.stripTrailingZeros().scale() <= 0 && !isSimpleDouble(valueAsString)) {
@@ -0,0 +1,231 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.adaptor;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.thingsboard.server.common.data.util.TbPair;
+import org.thingsboard.server.common.msg.gateway.metrics.GatewayMetadata;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueProto;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueType;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TsKvListProto;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Streaming counterpart of the telemetry methods of {@link JsonConverter}.
+ * <p>
+ * Reads the payload token by token and emits {@link KeyValueProto}s without building the intermediate JSON tree.
+ * Only nested object and array values, which are stored as JSON_V, are parsed into a tree to keep their serialized form.
+ * Payloads that the streaming path can not map one to one to the tree based conversion (duplicate keys, a "values" key
+ * without "ts", non numeric "ts", invalid values or malformed JSON) are converted by {@link JsonConverter} instead,
+ * so the result and the thrown exceptions are always the same as for {@code JsonConverter.convertToTelemetryProto(JsonParser.parseReader(reader))}.
+ */
+public class JsonTelemetryDecoder {
+
+    private static final String TS = "ts";
+    private static final String VALUES = "values";
+    private static final String METADATA = "metadata";
+
+    private static final UnsupportedPayloadException UNSUPPORTED_PAYLOAD = new UnsupportedPayloadException();
+
+    public static PostTelemetryMsg convertToTelemetryProto(Supplier<Reader> payload) throws JsonSyntaxException {
+        return convertToTelemetryProto(payload, System.currentTimeMillis());
+    }
+
+    public static PostTelemetryMsg convertToTelemetryProto(Supplier<Reader> payload, long systemTs) throws JsonSyntaxException {
+        try (JsonReader reader = newReader(payload)) {
+            PostTelemetryMsg.Builder builder = PostTelemetryMsg.newBuilder();
+            JsonToken token = reader.peek();
+            if (token == JsonToken.BEGIN_OBJECT) {
+                readTelemetryObject(reader, systemTs, builder, null);
+            } else if (token == JsonToken.BEGIN_ARRAY) {
+                readTelemetryArray(reader, systemTs, builder, null);
+            } else {
+                throw UNSUPPORTED_PAYLOAD;
+            }
+            checkEndOfDocument(reader);
+            return builder.build();
+        } catch (Exception e) {
+            return JsonConverter.convertToTelemetryProto(JsonParser.parseReader(payload.get()), systemTs);
+        }
+    }
+
+    /**
+     * Converts the gateway telemetry payload, an object of device names to the arrays of telemetry objects.
+     *
+     * @return telemetry and gateway metadata per device name or {@code null} if the payload has to be converted
+     * with {@link JsonConverter#convertToGatewayTelemetry(JsonElement, long)} device by device.
+     */
+    public static Map<String, TbPair<PostTelemetryMsg, List<GatewayMetadata>>> convertToGatewayTelemetry(Supplier<Reader> payload, long systemTs) {
+        try (JsonReader reader = newReader(payload)) {
+            Map<String, TbPair<PostTelemetryMsg, List<GatewayMetadata>>> result = new LinkedHashMap<>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String deviceName = reader.nextName();
+                if (result.containsKey(deviceName) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    throw UNSUPPORTED_PAYLOAD;
+                }
+                PostTelemetryMsg.Builder builder = PostTelemetryMsg.newBuilder();
+                List<GatewayMetadata> metadata = new ArrayList<>();
+                readTelemetryArray(reader, systemTs, builder, metadata);
+                result.put(deviceName, TbPair.of(builder.build(), metadata.isEmpty() ? null : metadata));
+            }
+            reader.endObject();
+            checkEndOfDocument(reader);
+            return result;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static JsonReader newReader(Supplier<Reader> payload) {
+        JsonReader reader = new JsonReader(payload.get());
+        // Same as JsonParser.parseReader
+        reader.setLenient(true);
+        return reader;
+    }
+
+    private static void checkEndOfDocument(JsonReader reader) throws IOException {
+        reader.setLenient(false);
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw UNSUPPORTED_PAYLOAD;
+        }
+    }
+
+    private static void readTelemetryArray(JsonReader reader, long systemTs, PostTelemetryMsg.Builder builder, List<GatewayMetadata> metadata) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                throw UNSUPPORTED_PAYLOAD;
+            }
+            readTelemetryObject(reader, systemTs, builder, metadata);
+        }
+        reader.endArray();
+    }
+
+    /**
+     * Reads either {"ts": 1, "values": {...}} or a plain object of values, the form is known only at the end of the object.
+     */
+    private static void readTelemetryObject(JsonReader reader, long systemTs, PostTelemetryMsg.Builder builder, List<GatewayMetadata> metadata) throws IOException {
+        Set<String> keys = new HashSet<>();
+        List<KeyValueProto> kvList = new ArrayList<>();
+        String ts = null;
+        int tsIdx = -1;
+        List<KeyValueProto> values = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (!keys.add(key)) {
+                throw UNSUPPORTED_PAYLOAD;
+            }
+            if (metadata != null && METADATA.equals(key)) {
+                metadata.add(JsonConverter.parseGatewayMetadata(JsonParser.parseReader(reader)));
+            } else if (TS.equals(key)) {
+                if (reader.peek() != JsonToken.NUMBER) {
+                    throw UNSUPPORTED_PAYLOAD;
+                }
+                ts = reader.nextString();
+                tsIdx = kvList.size();
+            } else if (VALUES.equals(key)) {
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    throw UNSUPPORTED_PAYLOAD;
+                }
+                values = readValues(reader);
+            } else {
+                KeyValueProto kv = readValue(reader, key);
+                if (kv != null) {
+                    kvList.add(kv);
+                }
+            }
+        }
+        reader.endObject();
+        TsKvListProto.Builder tsKvList = TsKvListProto.newBuilder();
+        if (ts != null && values != null) {
+            tsKvList.setTs(new LazilyParsedNumber(ts).longValue());
+            tsKvList.addAllKv(values);
+        } else if (values != null) {
+            // The "values" object has to be stored as JSON_V with the tree based serialization
+            throw UNSUPPORTED_PAYLOAD;
+        } else {
+            if (ts != null) {
+                kvList.add(tsIdx, JsonConverter.buildNumericKeyValueProto(ts, TS));
+            }
+            tsKvList.setTs(systemTs);
+            tsKvList.addAllKv(kvList);
+        }
+        builder.addTsKvList(tsKvList.build());
+    }
+
+    private static List<KeyValueProto> readValues(JsonReader reader) throws IOException {
+        Set<String> keys = new HashSet<>();
+        List<KeyValueProto> result = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (!keys.add(key)) {
+                throw UNSUPPORTED_PAYLOAD;
+            }
+            KeyValueProto kv = readValue(reader, key);
+            if (kv != null) {
+                result.add(kv);
+            }
+        }
+        reader.endObject();
+        return result;
+    }
+
+    private static KeyValueProto readValue(JsonReader reader, String key) throws IOException {
+        switch (reader.peek()) {
+            case STRING:
+                return JsonConverter.buildStringKeyValueProto(reader.nextString(), key);
+            case NUMBER:
+                return JsonConverter.buildNumericKeyValueProto(reader.nextString(), key);
+            case BOOLEAN:
+                return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.BOOLEAN_V).setBoolV(reader.nextBoolean()).build();
+            case NULL:
+                reader.nextNull();
+                return null;
+            case BEGIN_OBJECT:
+            case BEGIN_ARRAY:
+                return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.JSON_V).setJsonV(JsonParser.parseReader(reader).toString()).build();
+            default:
+                throw UNSUPPORTED_PAYLOAD;
+        }
+    }
+
+    private static class UnsupportedPayloadException extends RuntimeException {
+
+        UnsupportedPayloadException() {
+            super(null, null, false, false);
+        }
+
+    }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.adaptor;
+
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Isolated("JsonConverter static settings being modified")
+public class JsonTelemetryDecoderTest {
+
+    private static final long TS = 42L;
+
+    @AfterEach
+    public void after() {
+        JsonConverter.setTypeCastEnabled(true);
+        JsonConverter.setMaxStringValueLength(0);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"temperature\": 42, \"humidity\": 73.5, \"active\": true, \"name\": \"sensor\", \"empty\": null}",
+            "{\"ts\": 1451649600512, \"values\": {\"temperature\": 42, \"humidity\": 73.5}}",
+            "{\"values\": {\"temperature\": 42}, \"ts\": 1451649600512, \"ignored\": \"" + "x" + "\"}",
+            "[{\"ts\": 1451649600512, \"values\": {\"a\": 1}}, {\"ts\": 1451649600513, \"values\": {\"b\": \"2\"}}, {\"c\": 3}]",
+            "{\"ts\": 1451649600512, \"temperature\": 42}",
+            "{\"ts\": 1.5E12, \"values\": {\"a\": 1}}",
+            "{\"str\": \"42\", \"dbl\": \"4.2\", \"big\": 123456789012345678901234567890, \"bigStr\": \"1E+400\", \"exp\": 1E+1, \"scale\": 1.00000000000000000001}",
+            "{\"json\": {\"b\": [1, 2.50, \"x\\u2028\"], \"a\": {\"c\": null}}, \"arr\": []}",
+            "{\"values\": {\"a\": 1}}",
+            "{\"values\": 1, \"ts\": 1}",
+            "{\"ts\": \"1451649600512\", \"values\": {\"a\": 1}}",
+            "{\"a\": 1, \"a\": 2, \"b\": 3}",
+            "{unquoted: value, 'single': 'quoted'}",
+            "{\"nan\": NaN}",
+            "[1]",
+            "42",
+            "",
+            "{\"a\": 1} {\"b\": 2}",
+            "{\"a\": ",
+    })
+    public void testSameResultAsJsonConverter(String payload) {
+        assertSameResult(payload);
+        JsonConverter.setTypeCastEnabled(false);
+        assertSameResult(payload);
+        JsonConverter.setMaxStringValueLength(3);
+        assertSameResult(payload);
+    }
+
+    @Test
+    public void testGatewayTelemetry() {
+        String payload = "{\"Device A\": [{\"ts\": 1, \"values\": {\"a\": 1}, \"metadata\": {\"connector\": \"MQTT\", \"receivedTs\": 1, \"publishedTs\": 2}}]," +
+                " \"Device B\": [{\"b\": \"2\"}]}";
+        var result = JsonTelemetryDecoder.convertToGatewayTelemetry(() -> new StringReader(payload), TS);
+        var expected = JsonParser.parseString(payload).getAsJsonObject();
+
+        assertThat(result).containsOnlyKeys("Device A", "Device B");
+        var deviceA = JsonConverter.convertToGatewayTelemetry(expected.get("Device A"), TS);
+        assertThat(result.get("Device A").getFirst()).isEqualTo(deviceA.getFirst());
+        assertThat(result.get("Device A").getSecond()).isEqualTo(deviceA.getSecond());
+        var deviceB = JsonConverter.convertToGatewayTelemetry(expected.get("Device B"), TS);
+        assertThat(result.get("Device B").getFirst()).isEqualTo(deviceB.getFirst());
+        assertThat(result.get("Device B").getSecond()).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"Device A\": {\"a\": 1}}",
+            "{\"Device A\": [1]}",
+            "{\"Device A\": [{\"a\": 1, \"metadata\": {\"connector\": \"MQTT\"}}]}",
+            "{\"Device A\": [], \"Device A\": []}",
+            "[]",
+    })
+    public void testGatewayTelemetryFallback(String payload) {
+        assertThat(JsonTelemetryDecoder.convertToGatewayTelemetry(() -> new StringReader(payload), TS)).isNull();
+    }
+
+    private static void assertSameResult(String payload) {
+        PostTelemetryMsg expected;
+        try {
+            expected = JsonConverter.convertToTelemetryProto(JsonParser.parseString(payload), TS);
+        } catch (Exception e) {
+            assertThatThrownBy(() -> JsonTelemetryDecoder.convertToTelemetryProto(() -> new StringReader(payload), TS))
+                    .isInstanceOf(e.getClass())
+                    .hasMessage(e.getMessage());
+            return;
+        }
+        assertThat(JsonTelemetryDecoder.convertToTelemetryProto(() -> new StringReader(payload), TS)).isEqualTo(expected);
+    }
+
+}
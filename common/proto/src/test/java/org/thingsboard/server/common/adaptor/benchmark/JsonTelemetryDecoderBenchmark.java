@@ -0,0 +1,118 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.adaptor.benchmark;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.thingsboard.server.common.adaptor.JsonConverter;
+import org.thingsboard.server.common.adaptor.JsonTelemetryDecoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the tree based and the streaming decoding of gateway telemetry payloads.
+ * See {@code gc.alloc.rate.norm} for the bytes allocated per payload.
+ * <p>
+ * Run with {@code mvn -pl common/proto test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=org.thingsboard.server.common.adaptor.benchmark.JsonTelemetryDecoderBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class JsonTelemetryDecoderBenchmark {
+
+    @Param({"1", "100"})
+    private int devicesCount;
+
+    @Param({"10", "100"})
+    private int valuesCount;
+
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < devicesCount; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("\"Device ").append(i).append("\":[{\"ts\":").append(1700000000000L + i).append(",\"values\":{");
+            for (int j = 0; j < valuesCount; j++) {
+                if (j > 0) {
+                    json.append(',');
+                }
+                switch (j % 4) {
+                    case 0 -> json.append("\"temperature").append(j).append("\":").append(20.5 + j);
+                    case 1 -> json.append("\"counter").append(j).append("\":").append(j);
+                    case 2 -> json.append("\"active").append(j).append("\":").append(j % 3 == 0);
+                    default -> json.append("\"status").append(j).append("\":\"OK\"");
+                }
+            }
+            json.append("}}]");
+        }
+        payload = json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Object tree() {
+        long systemTs = System.currentTimeMillis();
+        JsonObject json = JsonParser.parseString(new String(payload, StandardCharsets.UTF_8)).getAsJsonObject();
+        Map<String, Object> result = new HashMap<>();
+        for (Map.Entry<String, JsonElement> deviceEntry : json.entrySet()) {
+            result.put(deviceEntry.getKey(), JsonConverter.convertToGatewayTelemetry(deviceEntry.getValue().getAsJsonArray(), systemTs));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Object streaming() {
+        return JsonTelemetryDecoder.convertToGatewayTelemetry(() -> new InputStreamReader(new ByteArrayInputStream(payload), StandardCharsets.UTF_8),
+                System.currentTimeMillis());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JsonTelemetryDecoderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+}
@@ -22,6 +22,8 @@ import org.springframework.context.annotation.Configuration;
 import org.thingsboard.server.queue.azure.servicebus.TbServiceBusAdmin;
 import org.thingsboard.server.queue.azure.servicebus.TbServiceBusQueueConfigs;
 import org.thingsboard.server.queue.azure.servicebus.TbServiceBusSettings;
+import org.thingsboard.server.queue.file.FileQueueAdmin;
+import org.thingsboard.server.queue.file.FileQueueStorage;
 import org.thingsboard.server.queue.kafka.TbKafkaAdmin;
 import org.thingsboard.server.queue.kafka.TbKafkaSettings;
 import org.thingsboard.server.queue.kafka.TbKafkaTopicConfigs;
@@ -63,6 +65,9 @@ public class RuleEngineTbQueueAdminFactory {
     @Autowired(required = false)
     private TbServiceBusSettings serviceBusSettings;
 
+    @Autowired(required = false)
+    private FileQueueStorage fileQueueStorage;
+
     @ConditionalOnExpression("'${queue.type:null}'=='kafka'")
     @Bean
     public TbQueueAdmin createKafkaAdmin() {
@@ -93,6 +98,12 @@ public class RuleEngineTbQueueAdminFactory {
         return new TbServiceBusAdmin(serviceBusSettings, serviceBusQueueConfigs.getRuleEngineConfigs());
     }
 
+    @ConditionalOnExpression("'${queue.type:null}'=='file'")
+    @Bean
+    public TbQueueAdmin createFileAdmin() {
+        return new FileQueueAdmin(fileQueueStorage);
+    }
+
     @ConditionalOnExpression("'${queue.type:null}'=='in-memory'")
     @Bean
     public TbQueueAdmin createInMemoryAdmin() {
@@ -109,7 +109,9 @@ public abstract class AbstractTbQueueConsumerTemplate<R, T extends TbQueueMsg> i
             return sleepAndReturnEmpty(startNanos, durationInMillis);
         }
 
-        return decodeRecords(records);
+        List<T> msgs = decodeRecords(records);
+        onRecordsDecoded(records);
+        return msgs;
     }
 
     @Nonnull
@@ -193,6 +195,9 @@ public abstract class AbstractTbQueueConsumerTemplate<R, T extends TbQueueMsg> i
 
     abstract protected void doUnsubscribe();
 
+    protected void onRecordsDecoded(List<R> records) {
+    }
+
     @Override
     public List<String> getFullTopicNames() {
         if (partitions == null) {
@@ -0,0 +1,48 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.file;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.queue.TbQueueAdmin;
+
+import java.io.IOException;
+
+@Slf4j
+public class FileQueueAdmin implements TbQueueAdmin {
+
+    private final FileQueueStorage storage;
+
+    public FileQueueAdmin(FileQueueStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public void createTopicIfNotExists(String topic, String properties) {
+    }
+
+    @Override
+    public void deleteTopic(String topic) {
+        try {
+            storage.deleteTopic(topic);
+        } catch (IOException e) {
+            log.error("Failed to delete file queue topic [{}].", topic, e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
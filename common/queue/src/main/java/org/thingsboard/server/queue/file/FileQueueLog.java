@@ -0,0 +1,509 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.file;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.queue.TbQueueMsg;
+import org.thingsboard.server.queue.TbQueueMsgHeaders;
+import org.thingsboard.server.queue.common.DefaultTbQueueMsgHeaders;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Log of a single topic partition: a sequence of segment files named by the offset of their first record,
+ * and the read position and committed offset of every consumer group.
+ */
+@Slf4j
+class FileQueueLog {
+
+    private static final String OFFSET_FILE_SUFFIX = ".offset";
+    private static final Pattern FILE_NAME_ESCAPE = Pattern.compile("[^A-Za-z0-9._-]");
+
+    @Getter
+    private final String topic;
+    private final Path dir;
+    private final int segmentSize;
+    private final ConcurrentNavigableMap<Long, FileQueueSegment> segments = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, ConsumerGroup> groups = new ConcurrentHashMap<>();
+    private volatile FileQueueSegment activeSegment;
+    /*
+     * Set under the lock of the writer before the segments are unmapped. The writer checks it under the same lock
+     * and the readers under the lock of their group, which the close acquires after setting it.
+     */
+    private volatile boolean closed;
+
+    FileQueueLog(String topic, Path dir, int segmentSize) throws IOException {
+        this.topic = topic;
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                String fileName = file.getFileName().toString();
+                if (fileName.endsWith(FileQueueSegment.FILE_SUFFIX)) {
+                    FileQueueSegment segment = FileQueueSegment.open(file);
+                    segments.put(segment.getBaseOffset(), segment);
+                } else if (fileName.endsWith(OFFSET_FILE_SUFFIX)) {
+                    // the offsets of the groups that are not subscribed yet still hold the segments back from deletion
+                    groups.put(fileName.substring(0, fileName.length() - OFFSET_FILE_SUFFIX.length()), new ConsumerGroup(file));
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            roll(0);
+        } else {
+            // the tail segment is reused, so a restart does not leave a mostly empty preallocated file behind
+            activeSegment = segments.lastEntry().getValue();
+            segments.headMap(activeSegment.getBaseOffset()).values().forEach(FileQueueSegment::seal);
+        }
+    }
+
+    /**
+     * Appends the message and returns its offset.
+     *
+     * @throws LogClosedException if the log is closed, e.g. the topic was deleted concurrently
+     */
+    synchronized long append(TbQueueMsg msg) throws IOException {
+        if (closed) {
+            throw new LogClosedException(topic);
+        }
+        byte[] body = encode(msg);
+        FileQueueSegment segment = activeSegment;
+        if (!segment.append(body)) {
+            segment = roll(segment.getNextOffset(), body.length);
+            if (!segment.append(body)) {
+                throw new IOException("Failed to append message of " + body.length + " bytes to " + segment.getPath());
+            }
+        }
+        return segment.getNextOffset() - 1;
+    }
+
+    private FileQueueSegment roll(long baseOffset) throws IOException {
+        return roll(baseOffset, 0);
+    }
+
+    private FileQueueSegment roll(long baseOffset, int recordSize) throws IOException {
+        FileQueueSegment previous = activeSegment;
+        FileQueueSegment existing = segments.get(baseOffset);
+        if (existing != null) {
+            // the active segment is empty and has no room for the record
+            segments.remove(baseOffset);
+            releaseCursors(existing);
+            existing.delete();
+            previous = null;
+        }
+        int capacity = Math.max(segmentSize, recordSize + 2 * FileQueueSegment.RECORD_HEADER_SIZE);
+        FileQueueSegment segment = FileQueueSegment.create(dir, baseOffset, capacity);
+        segments.put(baseOffset, segment);
+        activeSegment = segment;
+        if (previous != null) {
+            previous.seal();
+            previous.flush();
+        }
+        log.debug("[{}] Created segment {}", topic, segment.getPath());
+        return segment;
+    }
+
+    /**
+     * Moves the read position of the group back to its committed offset, so the messages that were polled but not committed are redelivered.
+     */
+    void rewind(String groupId) {
+        ConsumerGroup group = getGroup(groupId);
+        if (group == null) {
+            return;
+        }
+        synchronized (group) {
+            if (closed) {
+                return;
+            }
+            group.cursor = null;
+            group.readOffset = group.committedOffset;
+        }
+    }
+
+    /**
+     * Reads up to maxRecords records. Every consumer group has its own read position,
+     * the consumers of the same group compete for the messages. Returns no records if the log is closed.
+     */
+    List<FileQueueRecord> read(String groupId, int maxRecords) {
+        ConsumerGroup group = getGroup(groupId);
+        if (group == null) {
+            return Collections.emptyList();
+        }
+        synchronized (group) {
+            if (closed) {
+                return Collections.emptyList();
+            }
+            if (group.cursor == null) {
+                group.cursor = openCursor(Math.max(group.readOffset, group.committedOffset));
+            }
+            Cursor cursor = group.cursor;
+            List<FileQueueRecord> records = new ArrayList<>((int) Math.max(0, Math.min(getEndOffset() - cursor.offset, maxRecords)));
+            read(cursor, maxRecords, records);
+            group.readOffset = cursor.offset;
+            return records;
+        }
+    }
+
+    private Cursor openCursor(long offset) {
+        Map.Entry<Long, FileQueueSegment> entry = segments.floorEntry(offset);
+        if (entry == null) {
+            entry = segments.firstEntry();
+            log.warn("[{}] Offset {} was removed by retention, consuming from {}", topic, offset, entry.getKey());
+            offset = entry.getKey();
+        }
+        Cursor cursor = new Cursor(entry.getValue());
+        while (cursor.offset < offset) {
+            if (!cursor.skip()) {
+                break;
+            }
+        }
+        return cursor;
+    }
+
+    private void read(Cursor cursor, int maxRecords, List<FileQueueRecord> records) {
+        int count = 0;
+        while (count < maxRecords) {
+            if (cursor.hasNext()) {
+                if (cursor.isValid()) {
+                    records.add(cursor.next());
+                    count++;
+                } else if (!cursor.skipCorrupted()) {
+                    break;
+                }
+            } else if (cursor.segment.isSealed() && cursor.offset == cursor.segment.getNextOffset()) {
+                Map.Entry<Long, FileQueueSegment> next = segments.ceilingEntry(cursor.offset);
+                if (next == null || next.getValue() == cursor.segment) {
+                    break;
+                }
+                cursor.moveTo(next.getValue());
+            } else {
+                break;
+            }
+        }
+    }
+
+    void commit(String groupId, long offset) {
+        ConsumerGroup group = getGroup(groupId);
+        if (group == null) {
+            return;
+        }
+        synchronized (group) {
+            if (!closed && offset > group.committedOffset) {
+                group.committedOffset = offset;
+                group.offsetBuffer.putLong(0, offset);
+            }
+        }
+    }
+
+    long getCommittedOffset(String groupId) {
+        ConsumerGroup group = getGroup(groupId);
+        return group != null ? group.committedOffset : 0;
+    }
+
+    long getStartOffset() {
+        return segments.firstKey();
+    }
+
+    long getEndOffset() {
+        return activeSegment.getNextOffset();
+    }
+
+    /**
+     * Returns the lag of the slowest consumer group.
+     */
+    long getLag() {
+        if (closed) {
+            return 0;
+        }
+        return getEndOffset() - getMinCommittedOffset();
+    }
+
+    private long getMinCommittedOffset() {
+        long minOffset = getEndOffset();
+        for (ConsumerGroup group : groups.values()) {
+            minOffset = Math.min(minOffset, Math.max(group.committedOffset, getStartOffset()));
+        }
+        return minOffset;
+    }
+
+    /**
+     * Removes the sealed segments that are either consumed by all consumer groups or older than the retention period.
+     * Runs under the lock of the writer, so a segment is never deleted while the log is rolled.
+     */
+    synchronized void deleteExpiredSegments(long expirationTs) {
+        long consumedOffset = groups.isEmpty() ? getStartOffset() : getMinCommittedOffset();
+        for (FileQueueSegment segment : new ArrayList<>(segments.values())) {
+            if (segment == activeSegment) {
+                break;
+            }
+            if (segment.getNextOffset() <= consumedOffset || segment.getLastAppendTs() < expirationTs) {
+                segments.remove(segment.getBaseOffset());
+                releaseCursors(segment);
+                segment.delete();
+                log.debug("[{}] Deleted segment {}", topic, segment.getPath());
+            } else {
+                break;
+            }
+        }
+    }
+
+    /*
+     * The buffer of the segment is unmapped on delete, so the groups reading it reopen their cursors on the next read.
+     */
+    private void releaseCursors(FileQueueSegment segment) {
+        for (ConsumerGroup group : groups.values()) {
+            synchronized (group) {
+                if (group.cursor != null && group.cursor.segment == segment) {
+                    group.cursor = null;
+                }
+            }
+        }
+    }
+
+    void flush() {
+        if (closed) {
+            return;
+        }
+        activeSegment.flush();
+        groups.values().forEach(group -> group.offsetBuffer.force());
+    }
+
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        activeSegment.seal();
+        for (FileQueueSegment segment : segments.values()) {
+            releaseCursors(segment);
+            segment.close();
+        }
+        groups.values().forEach(ConsumerGroup::close);
+    }
+
+    /**
+     * Closes the log and deletes its files. The producers and consumers that still hold the log see it closed
+     * and never access the unmapped segments.
+     */
+    synchronized void delete() throws IOException {
+        close();
+        segments.values().forEach(FileQueueSegment::delete);
+        segments.clear();
+        groups.clear();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    /*
+     * The groups are stored by the names of their offset files, so the groups restored on startup match the subscribed ones.
+     * Returns null if the log is closed; the offset file is created under the lock of the writer, so it is never created
+     * in the directory of the deleted log.
+     */
+    private ConsumerGroup getGroup(String groupId) {
+        ConsumerGroup group = groups.get(groupId);
+        if (group != null) {
+            return group;
+        }
+        synchronized (this) {
+            if (closed) {
+                return null;
+            }
+            return groups.computeIfAbsent(toFileName(groupId), name -> {
+                try {
+                    return new ConsumerGroup(dir.resolve(name + OFFSET_FILE_SUFFIX));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to open offset file of group " + groupId + " for topic " + topic, e);
+                }
+            });
+        }
+    }
+
+    static String toFileName(String name) {
+        return FILE_NAME_ESCAPE.matcher(name).replaceAll("_");
+    }
+
+    static byte[] encode(TbQueueMsg msg) {
+        Map<String, byte[]> headers = msg.getHeaders() != null ? msg.getHeaders().getData() : Map.of();
+        byte[] data = msg.getData();
+        int size = 2 * Long.BYTES + Integer.BYTES * 2 + data.length;
+        List<byte[]> headerKeys = new ArrayList<>(headers.size());
+        for (Map.Entry<String, byte[]> header : headers.entrySet()) {
+            byte[] key = header.getKey().getBytes(StandardCharsets.UTF_8);
+            headerKeys.add(key);
+            size += Integer.BYTES * 2 + key.length + header.getValue().length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(msg.getKey().getMostSignificantBits());
+        buffer.putLong(msg.getKey().getLeastSignificantBits());
+        buffer.putInt(headers.size());
+        int i = 0;
+        for (byte[] value : headers.values()) {
+            byte[] key = headerKeys.get(i++);
+            buffer.putInt(key.length).put(key);
+            buffer.putInt(value.length).put(value);
+        }
+        buffer.putInt(data.length).put(data);
+        return buffer.array();
+    }
+
+    static class LogClosedException extends IOException {
+
+        LogClosedException(String topic) {
+            super("Queue log of topic " + topic + " is closed");
+        }
+
+    }
+
+    private static class ConsumerGroup {
+
+        private final FileChannel offsetChannel;
+        private final MappedByteBuffer offsetBuffer;
+        private volatile long committedOffset;
+        private long readOffset;
+        private Cursor cursor;
+
+        private ConsumerGroup(Path offsetFile) throws IOException {
+            offsetChannel = FileChannel.open(offsetFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            offsetBuffer = offsetChannel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES);
+            committedOffset = offsetBuffer.getLong(0);
+            readOffset = committedOffset;
+        }
+
+        private void close() {
+            try {
+                offsetChannel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close offset file", e);
+            }
+        }
+
+    }
+
+    private class Cursor {
+
+        private FileQueueSegment segment;
+        private ByteBuffer view;
+        private int position;
+        private long offset;
+
+        private Cursor(FileQueueSegment segment) {
+            moveTo(segment);
+        }
+
+        private void moveTo(FileQueueSegment segment) {
+            this.segment = segment;
+            this.view = segment.view();
+            this.position = 0;
+            this.offset = segment.getBaseOffset();
+        }
+
+        private boolean hasNext() {
+            return position < segment.getWritePosition();
+        }
+
+        private boolean skip() {
+            if (!hasNext()) {
+                return false;
+            }
+            position += FileQueueSegment.RECORD_HEADER_SIZE + view.getInt(position);
+            offset++;
+            return true;
+        }
+
+        private boolean isValid() {
+            int length = view.getInt(position);
+            if (length <= 0 || position + FileQueueSegment.RECORD_HEADER_SIZE + length > segment.getWritePosition()) {
+                return false;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(view.slice(position + FileQueueSegment.RECORD_HEADER_SIZE, length));
+            return (int) crc.getValue() == view.getInt(position + 4);
+        }
+
+        /*
+         * Skips the corrupted record if its length is still readable, otherwise skips the rest of the sealed segment.
+         */
+        private boolean skipCorrupted() {
+            int length = view.getInt(position);
+            if (length > 0 && position + FileQueueSegment.RECORD_HEADER_SIZE + length <= segment.getWritePosition()) {
+                log.warn("[{}] Skipping corrupted record {} in segment {}", topic, offset, segment.getPath());
+                return skip();
+            }
+            if (segment.isSealed()) {
+                log.warn("[{}] Skipping records [{}, {}) of corrupted segment {}", topic, offset, segment.getNextOffset(), segment.getPath());
+                position = segment.getWritePosition();
+                offset = segment.getNextOffset();
+                return true;
+            }
+            log.error("[{}] Corrupted record {} in active segment {}", topic, offset, segment.getPath());
+            return false;
+        }
+
+        private FileQueueRecord next() {
+            int length = view.getInt(position);
+            int pos = position + FileQueueSegment.RECORD_HEADER_SIZE;
+            UUID key = new UUID(view.getLong(pos), view.getLong(pos + Long.BYTES));
+            pos += 2 * Long.BYTES;
+            int headersCount = view.getInt(pos);
+            pos += Integer.BYTES;
+            TbQueueMsgHeaders headers = new DefaultTbQueueMsgHeaders();
+            for (int i = 0; i < headersCount; i++) {
+                byte[] headerKey = new byte[view.getInt(pos)];
+                view.get(pos + Integer.BYTES, headerKey);
+                pos += Integer.BYTES + headerKey.length;
+                byte[] headerValue = new byte[view.getInt(pos)];
+                view.get(pos + Integer.BYTES, headerValue);
+                pos += Integer.BYTES + headerValue.length;
+                headers.put(new String(headerKey, StandardCharsets.UTF_8), headerValue);
+            }
+            byte[] data = new byte[view.getInt(pos)];
+            view.get(pos + Integer.BYTES, data);
+            FileQueueRecord record = new FileQueueRecord(topic, offset, key, headers, data);
+            position += FileQueueSegment.RECORD_HEADER_SIZE + length;
+            offset++;
+            return record;
+        }
+
+    }
+
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.file;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only memory-mapped segment file of a topic. Each record is stored as [length][crc32][body], a zero length marks the end of
+ * the written data. The file is preallocated to the segment size, so the pages are allocated only when the records are written.
+ */
+@Slf4j
+class FileQueueSegment {
+
+    static final String FILE_SUFFIX = ".log";
+    static final int RECORD_HEADER_SIZE = 8;
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (Exception e) {
+            log.warn("Deleted segments are unmapped on garbage collection only", e);
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    @Getter
+    private final long baseOffset;
+    @Getter
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    private volatile int writePosition;
+    private volatile long nextOffset;
+    @Getter
+    private volatile boolean sealed;
+    @Getter
+    private volatile long lastAppendTs;
+    private boolean unmapped;
+
+    private FileQueueSegment(long baseOffset, Path path, FileChannel channel, int capacity) throws IOException {
+        this.baseOffset = baseOffset;
+        this.path = path;
+        this.channel = channel;
+        this.capacity = capacity;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        this.nextOffset = baseOffset;
+        this.lastAppendTs = Files.getLastModifiedTime(path).toMillis();
+    }
+
+    static FileQueueSegment create(Path dir, long baseOffset, int capacity) throws IOException {
+        Path path = dir.resolve(fileName(baseOffset));
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(capacity);
+        }
+        return new FileQueueSegment(baseOffset, path, FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE), capacity);
+    }
+
+    /**
+     * Opens an existing segment and restores its write position, skipping the record that was partially written before a crash.
+     */
+    static FileQueueSegment open(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        long baseOffset = Long.parseLong(name.substring(0, name.length() - FILE_SUFFIX.length()));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileQueueSegment segment = new FileQueueSegment(baseOffset, path, channel, (int) Math.min(channel.size(), Integer.MAX_VALUE));
+        segment.recover();
+        return segment;
+    }
+
+    /*
+     * A mapped buffer is released only when it is garbage collected, which keeps the disk space of the deleted file in use
+     * until then. The buffer is unmapped explicitly through the cleaner of the buffer.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (UNSAFE == null || INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (Exception e) {
+            log.debug("Failed to unmap segment buffer", e);
+        }
+    }
+
+    static String fileName(long baseOffset) {
+        return String.format("%020d", baseOffset) + FILE_SUFFIX;
+    }
+
+    private void recover() {
+        int position = 0;
+        long count = 0;
+        CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER_SIZE <= capacity) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > capacity) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.slice(position + RECORD_HEADER_SIZE, length));
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                log.warn("[{}] Skipping corrupted data starting at position {}", path, position);
+                break;
+            }
+            position += RECORD_HEADER_SIZE + length;
+            count++;
+        }
+        if (position + RECORD_HEADER_SIZE <= capacity) {
+            buffer.putInt(position, 0);
+        }
+        writePosition = position;
+        nextOffset = baseOffset + count;
+    }
+
+    /**
+     * Appends the record body, returns false if the segment has no room for it.
+     * Called by the single writer of the topic.
+     */
+    boolean append(byte[] body) {
+        int position = writePosition;
+        int end = position + RECORD_HEADER_SIZE + body.length;
+        if (sealed || end > capacity) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        buffer.put(position + RECORD_HEADER_SIZE, body);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        if (end + RECORD_HEADER_SIZE <= capacity) {
+            buffer.putInt(end, 0);
+        }
+        buffer.putInt(position, body.length);
+        lastAppendTs = System.currentTimeMillis();
+        nextOffset++;
+        writePosition = end;
+        return true;
+    }
+
+    int getWritePosition() {
+        return writePosition;
+    }
+
+    long getNextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * Returns the view of the mapped file; the records are available up to {@link #getWritePosition()}.
+     */
+    ByteBuffer view() {
+        return buffer.duplicate();
+    }
+
+    void seal() {
+        sealed = true;
+    }
+
+    /*
+     * Synchronized with the delete, since the scheduled flush may still hold the segment of a deleted log.
+     */
+    synchronized void flush() {
+        if (!unmapped) {
+            buffer.force();
+        }
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("[{}] Failed to close segment", path, e);
+        }
+    }
+
+    /**
+     * Closes the segment, unmaps its buffer and deletes the file. The buffer must not be accessed after the delete.
+     */
+    void delete() {
+        close();
+        synchronized (this) {
+            unmapped = true;
+            unmap(buffer);
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("[{}] Failed to delete segment", path, e);
+        }
+    }
+
+}
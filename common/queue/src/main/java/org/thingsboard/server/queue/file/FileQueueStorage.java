@@ -0,0 +1,146 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.file;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.thingsboard.server.queue.TbQueueMsg;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Durable storage of the file queue. Every topic is stored in its own directory as a sequence of memory-mapped segment files.
+ * Appended records are visible to consumers immediately and survive a process crash;
+ * the pages are forced to disk every flush interval to survive an OS crash as well.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("'${queue.type:null}'=='file'")
+public class FileQueueStorage {
+
+    private final TbFileQueueSettings settings;
+    private final Path dataDir;
+    private final ConcurrentMap<String, FileQueueLog> logs = new ConcurrentHashMap<>();
+
+    public FileQueueStorage(TbFileQueueSettings settings) {
+        this.settings = settings;
+        this.dataDir = Paths.get(settings.getDataDir());
+    }
+
+    public long append(String topic, TbQueueMsg msg) throws IOException {
+        try {
+            return getLog(topic).append(msg);
+        } catch (FileQueueLog.LogClosedException e) {
+            // the topic was deleted after its log was looked up, the message goes to the recreated topic
+            return getLog(topic).append(msg);
+        }
+    }
+
+    public List<FileQueueRecord> read(String topic, String groupId, int maxRecords) {
+        return getLog(topic).read(groupId, maxRecords);
+    }
+
+    public void rewind(String topic, String groupId) {
+        getLog(topic).rewind(groupId);
+    }
+
+    /**
+     * Marks the messages of the topic before the given offset as consumed by the consumer group.
+     */
+    public void commit(String topic, String groupId, long offset) {
+        FileQueueLog log = logs.get(topic);
+        if (log != null) {
+            log.commit(groupId, offset);
+        }
+    }
+
+    /**
+     * Returns the number of the messages of the topic not consumed by the slowest consumer group.
+     */
+    public long getLag(String topic) {
+        FileQueueLog log = logs.get(topic);
+        return log != null ? log.getLag() : 0;
+    }
+
+    public long getLagTotal() {
+        return logs.values().stream().mapToLong(FileQueueLog::getLag).sum();
+    }
+
+    public void deleteTopic(String topic) throws IOException {
+        AtomicReference<IOException> error = new AtomicReference<>();
+        // deleted under the lock of the map entry, so the topic is not recreated in the directory that is being deleted
+        logs.computeIfPresent(topic, (t, queueLog) -> {
+            try {
+                queueLog.delete();
+            } catch (IOException e) {
+                error.set(e);
+            }
+            return null;
+        });
+        if (error.get() != null) {
+            throw error.get();
+        }
+    }
+
+    public void printStats() {
+        if (log.isDebugEnabled()) {
+            logs.forEach((topic, queueLog) -> {
+                long lag = queueLog.getLag();
+                if (lag > 0) {
+                    log.debug("[{}] Queue Size [{}]", topic, lag);
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${queue.file.flush_interval_ms:1000}")
+    public void flush() {
+        logs.values().forEach(FileQueueLog::flush);
+    }
+
+    @Scheduled(fixedDelayString = "${queue.file.retention_check_interval_ms:60000}")
+    public void deleteExpiredSegments() {
+        long expirationTs = System.currentTimeMillis() - settings.getRetentionMs();
+        logs.values().forEach(queueLog -> queueLog.deleteExpiredSegments(expirationTs));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        logs.values().forEach(FileQueueLog::close);
+        logs.clear();
+    }
+
+    private FileQueueLog getLog(String topic) {
+        return logs.computeIfAbsent(topic, t -> {
+            try {
+                return new FileQueueLog(t, dataDir.resolve(FileQueueLog.toFileName(t)), settings.getSegmentSize());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open queue log for topic " + t, e);
+            }
+        });
+    }
+
+}
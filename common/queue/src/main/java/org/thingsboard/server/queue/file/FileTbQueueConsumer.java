@@ -0,0 +1,138 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.file;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.queue.TbQueueMsg;
+import org.thingsboard.server.queue.TbQueueMsgDecoder;
+import org.thingsboard.server.queue.common.AbstractTbQueueConsumerTemplate;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Slf4j
+public class FileTbQueueConsumer<T extends TbQueueMsg> extends AbstractTbQueueConsumerTemplate<FileQueueRecord, T> {
+
+    private final FileQueueStorage storage;
+    private final String groupId;
+    private final TbQueueMsgDecoder<T> decoder;
+    private final int maxPollRecords;
+
+    private volatile List<String> topicNames = Collections.emptyList();
+    private final Deque<PolledOffset> uncommittedOffsets = new ArrayDeque<>();
+    private long polledPosition;
+    private long committedPosition;
+
+    public FileTbQueueConsumer(FileQueueStorage storage, TbFileQueueSettings settings, String topic, String groupId, TbQueueMsgDecoder<T> decoder) {
+        super(topic);
+        this.storage = storage;
+        this.groupId = groupId;
+        this.decoder = decoder;
+        this.maxPollRecords = settings.getMaxPollRecords();
+    }
+
+    @Override
+    protected void doSubscribe(List<String> topicNames) {
+        Set<String> previous = new HashSet<>(this.topicNames);
+        for (String topicName : topicNames) {
+            if (!previous.contains(topicName)) {
+                // redeliver the messages polled but not committed by the previous consumer of the topic in the group
+                storage.rewind(topicName, groupId);
+            }
+        }
+        this.topicNames = topicNames;
+    }
+
+    @Override
+    protected List<FileQueueRecord> doPoll(long durationInMillis) {
+        List<FileQueueRecord> records = null;
+        for (String topicName : topicNames) {
+            int limit = maxPollRecords - (records != null ? records.size() : 0);
+            if (limit <= 0) {
+                break;
+            }
+            List<FileQueueRecord> topicRecords = storage.read(topicName, groupId, limit);
+            if (!topicRecords.isEmpty()) {
+                if (records == null) {
+                    records = topicRecords;
+                } else {
+                    records.addAll(topicRecords);
+                }
+            }
+        }
+        return records != null ? records : Collections.emptyList();
+    }
+
+    @Override
+    protected T decode(FileQueueRecord record) throws IOException {
+        return decoder.decode(record);
+    }
+
+    @Override
+    protected void onRecordsDecoded(List<FileQueueRecord> records) {
+        consumerLock.lock();
+        try {
+            for (FileQueueRecord record : records) {
+                uncommittedOffsets.add(new PolledOffset(record.getTopic(), record.getOffset()));
+            }
+            polledPosition += records.size();
+        } finally {
+            consumerLock.unlock();
+        }
+    }
+
+    @Override
+    protected void doCommit() {
+        commit(polledPosition);
+    }
+
+    @Override
+    public void commit(long position) {
+        consumerLock.lock();
+        try {
+            Map<String, Long> offsets = new HashMap<>();
+            while (committedPosition < position && !uncommittedOffsets.isEmpty()) {
+                PolledOffset polledOffset = uncommittedOffsets.poll();
+                offsets.put(polledOffset.topic(), polledOffset.offset() + 1);
+                committedPosition++;
+            }
+            offsets.forEach((topic, offset) -> storage.commit(topic, groupId, offset));
+        } finally {
+            consumerLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isCommitByPositionSupported() {
+        return true;
+    }
+
+    @Override
+    protected void doUnsubscribe() {
+        topicNames = Collections.emptyList();
+    }
+
+    private record PolledOffset(String topic, long offset) {
+    }
+
+}
@@ -21,6 +21,8 @@ import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.util.StopWatch;
 import org.thingsboard.server.queue.TbQueueAdmin;
 import org.thingsboard.server.queue.TbQueueMsg;
@@ -28,9 +30,13 @@ import org.thingsboard.server.queue.common.AbstractTbQueueConsumerTemplate;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -46,6 +52,10 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
     private final TbKafkaConsumerStatsService statsService;
     private final String groupId;
 
+    private final Deque<PolledOffset> uncommittedOffsets = new ArrayDeque<>();
+    private long polledPosition;
+    private long committedPosition;
+
     @Builder
     private TbKafkaConsumerTemplate(TbKafkaSettings settings, TbKafkaDecoder<T> decoder,
                                     String clientId, String groupId, String topic,
@@ -106,9 +116,49 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
         return decoder.decode(new KafkaTbQueueMsg(record));
     }
 
+    @Override
+    protected void onRecordsDecoded(List<ConsumerRecord<String, byte[]>> records) {
+        consumerLock.lock();
+        try {
+            for (ConsumerRecord<String, byte[]> record : records) {
+                uncommittedOffsets.add(new PolledOffset(new TopicPartition(record.topic(), record.partition()), record.offset()));
+            }
+            polledPosition += records.size();
+        } finally {
+            consumerLock.unlock();
+        }
+    }
+
     @Override
     protected void doCommit() {
         consumer.commitSync();
+        uncommittedOffsets.clear();
+        committedPosition = polledPosition;
+    }
+
+    @Override
+    public void commit(long position) {
+        consumerLock.lock();
+        try {
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            while (committedPosition < position && !uncommittedOffsets.isEmpty()) {
+                PolledOffset polledOffset = uncommittedOffsets.poll();
+                offsets.put(polledOffset.partition(), new OffsetAndMetadata(polledOffset.offset() + 1));
+                committedPosition++;
+            }
+            // partitions revoked after the poll are committed by their new owner
+            offsets.keySet().retainAll(consumer.assignment());
+            if (!offsets.isEmpty()) {
+                consumer.commitSync(offsets);
+            }
+        } finally {
+            consumerLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isCommitByPositionSupported() {
+        return true;
     }
 
     @Override
@@ -127,4 +177,7 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
         return true;
     }
 
+    private record PolledOffset(TopicPartition partition, long offset) {
+    }
+
 }
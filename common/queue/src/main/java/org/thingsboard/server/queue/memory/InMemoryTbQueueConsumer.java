@@ -104,6 +104,15 @@ public class InMemoryTbQueueConsumer<T extends TbQueueMsg> implements TbQueueCon
     public void commit() {
     }
 
+    @Override
+    public void commit(long position) {
+    }
+
+    @Override
+    public boolean isCommitByPositionSupported() {
+        return true;
+    }
+
     @Override
     public boolean isStopped() {
         return stopped;
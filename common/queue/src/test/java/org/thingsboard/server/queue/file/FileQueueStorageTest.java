@@ -0,0 +1,294 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.file;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.thingsboard.server.queue.TbQueueMsgHeaders;
+import org.thingsboard.server.queue.common.DefaultTbQueueMsgHeaders;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileQueueStorageTest {
+
+    static final String TOPIC = "tb_rule_engine.main.0";
+    static final String GROUP = "tb_rule_engine.main-consumer";
+
+    @TempDir
+    Path dataDir;
+
+    TbFileQueueSettings settings;
+    FileQueueStorage storage;
+
+    @BeforeEach
+    public void setUp() {
+        settings = new TbFileQueueSettings();
+        settings.setDataDir(dataDir.toString());
+        settings.setSegmentSize(1024);
+        settings.setRetentionMs(60000);
+        settings.setMaxPollRecords(100);
+        storage = new FileQueueStorage(settings);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        storage.destroy();
+    }
+
+    @Test
+    public void givenAppendedMessages_whenRead_thenReturnInOrderWithKeysAndHeaders() throws IOException {
+        UUID key = UUID.randomUUID();
+        TbQueueMsgHeaders headers = new DefaultTbQueueMsgHeaders();
+        headers.put("header", "value".getBytes(StandardCharsets.UTF_8));
+        assertThat(storage.append(TOPIC, msg(key, headers, "first"))).isEqualTo(0);
+        assertThat(storage.append(TOPIC, msg(key, new DefaultTbQueueMsgHeaders(), "second"))).isEqualTo(1);
+
+        List<FileQueueRecord> records = storage.read(TOPIC, GROUP, 10);
+
+        assertThat(records).hasSize(2);
+        assertThat(records.get(0).getKey()).isEqualTo(key);
+        assertThat(records.get(0).getOffset()).isEqualTo(0);
+        assertThat(records.get(0).getHeaders().get("header")).isEqualTo("value".getBytes(StandardCharsets.UTF_8));
+        assertThat(new String(records.get(0).getData(), StandardCharsets.UTF_8)).isEqualTo("first");
+        assertThat(new String(records.get(1).getData(), StandardCharsets.UTF_8)).isEqualTo("second");
+        assertThat(storage.read(TOPIC, GROUP, 10)).isEmpty();
+        assertThat(storage.getLag(TOPIC)).isEqualTo(2);
+    }
+
+    @Test
+    public void givenMessagesLargerThanSegment_whenAppend_thenRollSegmentsAndReadAcrossThem() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            storage.append(TOPIC, msg("message-" + i + "-" + "x".repeat(100)));
+        }
+        storage.append(TOPIC, msg("y".repeat(4096)));
+
+        assertThat(segmentFiles()).hasSizeGreaterThan(5);
+        List<FileQueueRecord> records = storage.read(TOPIC, GROUP, 100);
+        assertThat(records).hasSize(51);
+        for (int i = 0; i < 50; i++) {
+            assertThat(records.get(i).getOffset()).isEqualTo(i);
+            assertThat(new String(records.get(i).getData(), StandardCharsets.UTF_8)).startsWith("message-" + i + "-");
+        }
+        assertThat(records.get(50).getData()).hasSize(4096);
+    }
+
+    @Test
+    public void givenCommittedOffset_whenRestart_thenResumeFromCommittedOffset() throws IOException {
+        for (int i = 0; i < 30; i++) {
+            storage.append(TOPIC, msg("message-" + i + "-" + "x".repeat(50)));
+        }
+        assertThat(storage.read(TOPIC, GROUP, 20)).hasSize(20);
+        storage.commit(TOPIC, GROUP, 12);
+        storage.destroy();
+
+        storage = new FileQueueStorage(settings);
+        List<FileQueueRecord> records = storage.read(TOPIC, GROUP, 100);
+
+        assertThat(records).hasSize(18);
+        assertThat(records.get(0).getOffset()).isEqualTo(12);
+        assertThat(new String(records.get(0).getData(), StandardCharsets.UTF_8)).startsWith("message-12-");
+        assertThat(storage.append(TOPIC, msg("next"))).isEqualTo(30);
+        assertThat(storage.getLag(TOPIC)).isEqualTo(19);
+    }
+
+    @Test
+    public void givenUncommittedMessages_whenRewind_thenRedeliverFromCommittedOffset() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            storage.append(TOPIC, msg("message-" + i));
+        }
+        assertThat(storage.read(TOPIC, GROUP, 3)).hasSize(3);
+        storage.commit(TOPIC, GROUP, 1);
+
+        storage.rewind(TOPIC, GROUP);
+
+        List<FileQueueRecord> records = storage.read(TOPIC, GROUP, 100);
+        assertThat(records).extracting(FileQueueRecord::getOffset).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    public void givenConsumedSegments_whenDeleteExpiredSegments_thenKeepUnconsumedAndActiveSegments() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            storage.append(TOPIC, msg("message-" + i + "-" + "x".repeat(100)));
+        }
+        long segmentsBefore = segmentFiles().size();
+        storage.commit(TOPIC, GROUP, 25);
+
+        storage.deleteExpiredSegments();
+
+        long segmentsAfter = segmentFiles().size();
+        assertThat(segmentsAfter).isLessThan(segmentsBefore).isGreaterThan(1);
+        List<FileQueueRecord> records = storage.read(TOPIC, GROUP, 100);
+        assertThat(records.get(0).getOffset()).isEqualTo(25);
+        assertThat(records).hasSize(25);
+
+        settings.setRetentionMs(-1);
+        storage.deleteExpiredSegments();
+        assertThat(segmentFiles()).hasSize(1);
+    }
+
+    @Test
+    public void givenTwoConsumerGroups_whenRead_thenEachGroupConsumesAllMessages() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            storage.append(TOPIC, msg("message-" + i));
+        }
+        String otherGroup = "tb_rule_engine.other-consumer";
+
+        assertThat(storage.read(TOPIC, GROUP, 3)).extracting(FileQueueRecord::getOffset).containsExactly(0L, 1L, 2L);
+        assertThat(storage.read(TOPIC, otherGroup, 100)).extracting(FileQueueRecord::getOffset).containsExactly(0L, 1L, 2L, 3L, 4L);
+        storage.commit(TOPIC, otherGroup, 5);
+        assertThat(storage.getLag(TOPIC)).isEqualTo(5);
+
+        storage.commit(TOPIC, GROUP, 2);
+        storage.rewind(TOPIC, GROUP);
+        assertThat(storage.read(TOPIC, GROUP, 100)).extracting(FileQueueRecord::getOffset).containsExactly(2L, 3L, 4L);
+        assertThat(storage.getLag(TOPIC)).isEqualTo(3);
+    }
+
+    @Test
+    public void givenRestart_whenAppend_thenReuseTailSegment() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            storage.append(TOPIC, msg("message-" + i));
+        }
+        storage.destroy();
+
+        storage = new FileQueueStorage(settings);
+
+        assertThat(storage.append(TOPIC, msg("message-3"))).isEqualTo(3);
+        assertThat(segmentFiles()).hasSize(1);
+        assertThat(storage.read(TOPIC, GROUP, 100)).extracting(FileQueueRecord::getOffset).containsExactly(0L, 1L, 2L, 3L);
+    }
+
+    @Test
+    public void givenCorruptedRecord_whenRead_thenSkipIt() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            storage.append(TOPIC, msg("message-" + i));
+        }
+        int recordSize = FileQueueSegment.RECORD_HEADER_SIZE + FileQueueLog.encode(msg("message-0")).length;
+        try (FileChannel channel = FileChannel.open(segmentFiles().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0}), recordSize + recordSize - 1);
+        }
+
+        List<FileQueueRecord> records = storage.read(TOPIC, GROUP, 100);
+
+        assertThat(records).extracting(FileQueueRecord::getOffset).containsExactly(0L, 2L);
+        assertThat(new String(records.get(1).getData(), StandardCharsets.UTF_8)).isEqualTo("message-2");
+    }
+
+    @Test
+    public void givenCursorOnExpiredSegment_whenDeleteExpiredSegments_thenContinueFromNextSegment() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            storage.append(TOPIC, msg("message-" + i + "-" + "x".repeat(100)));
+        }
+        assertThat(storage.read(TOPIC, GROUP, 1)).hasSize(1);
+
+        settings.setRetentionMs(-1);
+        storage.deleteExpiredSegments();
+
+        List<FileQueueRecord> records = storage.read(TOPIC, GROUP, 100);
+        assertThat(records).isNotEmpty();
+        assertThat(records.get(records.size() - 1).getOffset()).isEqualTo(49);
+        assertThat(segmentFiles()).hasSize(1);
+    }
+
+    @Test
+    public void givenTopic_whenDelete_thenRemoveTopicDirectory() throws IOException {
+        storage.append(TOPIC, msg("message"));
+
+        storage.deleteTopic(TOPIC);
+
+        try (Stream<Path> files = Files.list(dataDir)) {
+            assertThat(files).isEmpty();
+        }
+        assertThat(storage.read(TOPIC, GROUP, 10)).isEmpty();
+    }
+
+    @Test
+    public void givenConcurrentProducerAndConsumer_whenDeleteTopic_thenNoAccessToDeletedSegments() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AtomicBoolean stopped = new AtomicBoolean();
+        try {
+            Future<Integer> producer = executor.submit(() -> {
+                int count = 0;
+                while (!stopped.get()) {
+                    try {
+                        storage.append(TOPIC, msg("message-" + count + "-" + "x".repeat(100)));
+                        count++;
+                    } catch (FileQueueLog.LogClosedException e) {
+                        // the recreated topic was deleted again before the retry
+                    }
+                }
+                return count;
+            });
+            Future<?> consumer = executor.submit(() -> {
+                while (!stopped.get()) {
+                    List<FileQueueRecord> records = storage.read(TOPIC, GROUP, 10);
+                    if (!records.isEmpty()) {
+                        storage.commit(TOPIC, GROUP, records.get(records.size() - 1).getOffset() + 1);
+                    }
+                    storage.flush();
+                }
+                return null;
+            });
+            for (int i = 0; i < 50; i++) {
+                Thread.sleep(5);
+                storage.deleteTopic(TOPIC);
+            }
+            stopped.set(true);
+
+            assertThat(producer.get(10, TimeUnit.SECONDS)).isPositive();
+            consumer.get(10, TimeUnit.SECONDS);
+        } finally {
+            stopped.set(true);
+            executor.shutdownNow();
+        }
+        // the log of the deleted topic is recreated by the next append
+        long offset = storage.append(TOPIC, msg("last"));
+        assertThat(storage.read(TOPIC, "tb_rule_engine.other-consumer", 100)).extracting(FileQueueRecord::getOffset).contains(offset);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dataDir.resolve(TOPIC))) {
+            return files.filter(file -> file.getFileName().toString().endsWith(FileQueueSegment.FILE_SUFFIX)).toList();
+        }
+    }
+
+    private static FileQueueRecord msg(String data) {
+        return msg(UUID.randomUUID(), new DefaultTbQueueMsgHeaders(), data);
+    }
+
+    private static FileQueueRecord msg(UUID key, TbQueueMsgHeaders headers, String data) {
+        return new FileQueueRecord(TOPIC, 0, key, headers, data.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
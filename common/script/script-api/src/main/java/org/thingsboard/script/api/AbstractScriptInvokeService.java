@@ -20,7 +20,6 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import lombok.extern.slf4j.Slf4j;
-import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.common.util.ThingsBoardExecutors;
 import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.TenantId;
@@ -144,8 +143,7 @@ public abstract class AbstractScriptInvokeService implements ScriptInvokeService
                 var task = doInvokeFunction(scriptId, args);
 
                 var resultFuture = Futures.transform(task.getResultFuture(), output -> {
-                    String result = JacksonUtil.toString(output);
-                    if (resultSizeExceeded(result)) {
+                    if (resultSizeExceeded(output)) {
                         throw new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, null, new RuntimeException(
                                 format("Script invocation result exceeds maximum allowed size of %s symbols", getMaxResultSize())
                         ));
@@ -256,19 +254,16 @@ public abstract class AbstractScriptInvokeService implements ScriptInvokeService
         for (Object arg : args) {
             if (arg instanceof CharSequence) {
                 totalArgsSize += ((CharSequence) arg).length();
-            } else {
-                var str = JacksonUtil.toString(arg);
-                if (str != null) {
-                    totalArgsSize += str.length();
-                }
+            } else if (arg != null) {
+                totalArgsSize += JsonSizeUtil.getJsonLength(arg);
             }
         }
         return totalArgsSize > getMaxTotalArgsSize();
     }
 
-    private boolean resultSizeExceeded(String result) {
+    private boolean resultSizeExceeded(Object result) {
         if (getMaxResultSize() <= 0) return false;
-        return result != null && result.length() > getMaxResultSize();
+        return result != null && JsonSizeUtil.getJsonLength(result) > getMaxResultSize();
     }
 
     private <T> ListenableFuture<T> error(String message) {
@@ -0,0 +1,115 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.script.api;
+
+import org.thingsboard.common.util.JacksonUtil;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Calculates the length of the compact JSON representation of script arguments and results
+ * without serializing maps, collections, strings and numbers. Other values are serialized.
+ */
+public final class JsonSizeUtil {
+
+    private JsonSizeUtil() {
+    }
+
+    public static long getJsonLength(Object value) {
+        if (value == null) {
+            return 4;
+        } else if (value instanceof CharSequence str) {
+            return getStringLength(str);
+        } else if (value instanceof Character) {
+            return getStringLength(value.toString());
+        } else if (value instanceof Boolean bool) {
+            return bool ? 4 : 5;
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return getNumberLength(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            // NaN and infinity are written as quoted strings
+            return value.toString().length() + (Double.isNaN(number) || Double.isInfinite(number) ? 2 : 0);
+        } else if (value instanceof BigInteger || value instanceof BigDecimal) {
+            return value.toString().length();
+        } else if (value instanceof Map<?, ?> map) {
+            return getMapLength(map);
+        } else if (value instanceof Collection<?> collection) {
+            long length = 2 + Math.max(collection.size() - 1, 0);
+            for (Object element : collection) {
+                length += getJsonLength(element);
+            }
+            return length;
+        } else if (value instanceof Object[] array) {
+            long length = 2 + Math.max(array.length - 1, 0);
+            for (Object element : array) {
+                length += getJsonLength(element);
+            }
+            return length;
+        }
+        return serializedLength(value);
+    }
+
+    private static long getMapLength(Map<?, ?> map) {
+        long length = 2 + Math.max(map.size() - 1, 0);
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            Object key = entry.getKey();
+            if (key == null) {
+                return serializedLength(map);
+            }
+            length += getStringLength(key.toString()) + 1 + getJsonLength(entry.getValue());
+        }
+        return length;
+    }
+
+    private static long getStringLength(CharSequence str) {
+        long length = str.length() + 2;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c == '"' || c == '\\') {
+                length += 1;
+            } else if (c < 0x20) {
+                length += c == '\n' || c == '\r' || c == '\t' || c == '\b' || c == '\f' ? 1 : 5;
+            }
+        }
+        return length;
+    }
+
+    private static long getNumberLength(long number) {
+        if (number == Long.MIN_VALUE) {
+            return 20;
+        }
+        long length = 1;
+        if (number < 0) {
+            length++;
+            number = -number;
+        }
+        while (number >= 10) {
+            number /= 10;
+            length++;
+        }
+        return length;
+    }
+
+    private static long serializedLength(Object value) {
+        String str = JacksonUtil.toString(value);
+        return str != null ? str.length() : 0;
+    }
+
+}
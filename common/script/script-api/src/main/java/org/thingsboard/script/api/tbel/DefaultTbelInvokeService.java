@@ -22,6 +22,7 @@ import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.Getter;
@@ -45,20 +46,27 @@ import org.thingsboard.server.common.data.ApiUsageRecordKey;
 import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.stats.TbApiUsageReportClient;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.common.stats.TbApiUsageStateClient;
 
 import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 @Slf4j
 @ConditionalOnProperty(prefix = "tbel", value = "enabled", havingValue = "true", matchIfMissing = true)
@@ -68,10 +76,14 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
     protected final Map<UUID, String> scriptIdToHash = new ConcurrentHashMap<>();
     protected final Map<String, TbelScript> scriptMap = new ConcurrentHashMap<>();
     protected Cache<String, Serializable> compiledScriptsCache;
+    protected final Map<String, ScriptStats> scriptStats = new ConcurrentHashMap<>();
+    private Timer jitExecutionTimer;
+    private Timer reflectiveExecutionTimer;
 
     private SandboxedParserConfiguration parserConfig;
     private final Optional<TbApiUsageStateClient> apiUsageStateClient;
     private final Optional<TbApiUsageReportClient> apiUsageReportClient;
+    private final Optional<StatsFactory> statsFactory;
 
     @Getter
     @Value("${tbel.max_total_args_size:100000}")
@@ -108,18 +120,37 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
     @Value("${tbel.compiled_scripts_cache_size:1000}")
     private int compiledScriptsCacheSize;
 
+    @Value("${tbel.jit.enabled:false}")
+    private boolean jitEnabled;
+
+    @Value("${tbel.jit.tenants:}")
+    private Set<UUID> jitTenants;
+
     private ListeningExecutorService executor;
 
     private final Lock lock = new ReentrantLock();
 
-    protected DefaultTbelInvokeService(Optional<TbApiUsageStateClient> apiUsageStateClient, Optional<TbApiUsageReportClient> apiUsageReportClient) {
+    protected DefaultTbelInvokeService(Optional<TbApiUsageStateClient> apiUsageStateClient, Optional<TbApiUsageReportClient> apiUsageReportClient,
+                                       Optional<StatsFactory> statsFactory) {
         this.apiUsageStateClient = apiUsageStateClient;
         this.apiUsageReportClient = apiUsageReportClient;
+        this.statsFactory = statsFactory;
     }
 
     @Scheduled(fixedDelayString = "${tbel.stats.print_interval_ms:10000}")
     public void printStats() {
         super.printStats();
+        if (isStatsEnabled() && log.isInfoEnabled()) {
+            scriptStats.entrySet().stream()
+                    .sorted(Comparator.comparingLong((Map.Entry<String, ScriptStats> e) -> e.getValue().totalNs.sum()).reversed())
+                    .limit(5)
+                    .forEach(e -> {
+                        ScriptStats stats = e.getValue();
+                        long count = stats.count.sum();
+                        log.info("TBEL script [{}]: invocations [{}], mean [{}] ms, max [{}] ms", e.getKey(), count,
+                                count > 0 ? toMillis(stats.totalNs.sum() / count) : 0, toMillis(stats.maxNs.get()));
+                    });
+        }
     }
 
     @SneakyThrows
@@ -127,6 +158,10 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
     @Override
     public void init() {
         super.init();
+        if (statsFactory.isPresent()) {
+            jitExecutionTimer = statsFactory.get().createTimer("tbelScriptExecution", "mode", "jit");
+            reflectiveExecutionTimer = statsFactory.get().createTimer("tbelScriptExecution", "mode", "reflective");
+        }
         OptimizerFactory.setDefaultOptimizer(OptimizerFactory.SAFE_REFLECTIVE);
         parserConfig = ParserContext.enableSandboxedMode();
         parserConfig.addImport("JSON", TbJson.class);
@@ -134,10 +169,18 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
         parserConfig.registerDataType("Random", Random.class, date -> 8L);
         parserConfig.registerDataType("Calendar", Calendar.class, date -> 8L);
         TbUtils.register(parserConfig);
+        if (jitEnabled) {
+            if (jitTenants == null || jitTenants.isEmpty()) {
+                log.warn("TBEL JIT mode is enabled, but no tenants are listed in 'tbel.jit.tenants'. JIT mode is not used");
+            } else {
+                TbelJitClassLoader.install(parserConfig);
+                log.info("TBEL JIT mode is enabled for tenants {}", jitTenants);
+            }
+        }
         executor = MoreExecutors.listeningDecorator(ThingsBoardExecutors.newWorkStealingPool(threadPoolSize, "tbel-executor"));
         try {
             // Special command to warm up TBEL engine
-            Serializable script = compileScript("var warmUp = {}; warmUp");
+            Serializable script = compileScript("var warmUp = {}; warmUp", false);
             MVEL.executeTbExpression(script, new ExecutionContext(parserConfig), Collections.emptyMap());
         } catch (Exception e) {
             // do nothing
@@ -185,12 +228,13 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
     protected ListenableFuture<UUID> doEvalScript(TenantId tenantId, ScriptType scriptType, String scriptBody, UUID scriptId, String[] argNames) {
         return executor.submit(() -> {
             try {
-                String scriptHash = hash(scriptBody, argNames);
-                compiledScriptsCache.get(scriptHash, k -> compileScript(scriptBody));
+                boolean jit = isJitEnabled(tenantId);
+                String scriptHash = hash(scriptBody, argNames, jit);
+                compiledScriptsCache.get(scriptHash, k -> compileScript(scriptBody, jit));
                 lock.lock();
                 try {
                     scriptIdToHash.put(scriptId, scriptHash);
-                    scriptMap.computeIfAbsent(scriptHash, k -> new TbelScript(scriptBody, argNames));
+                    scriptMap.computeIfAbsent(scriptHash, k -> new TbelScript(scriptBody, argNames, jit));
                 } finally {
                     lock.unlock();
                 }
@@ -210,13 +254,16 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
                 throw new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, null, new RuntimeException("Script not found!"));
             }
             TbelScript script = scriptMap.get(scriptHash);
-            Serializable compiledScript = compiledScriptsCache.get(scriptHash, k -> compileScript(script.getScriptBody()));
+            Serializable compiledScript = compiledScriptsCache.get(scriptHash, k -> compileScript(script.getScriptBody(), script.isJit()));
+            long startTs = System.nanoTime();
             try {
-                return MVEL.executeTbExpression(compiledScript, executionContext, script.createVars(args));
+                return withOptimizer(script.isJit(), () -> MVEL.executeTbExpression(compiledScript, executionContext, script.createVars(args)));
             } catch (ScriptMemoryOverflowException e) {
                 throw new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, script.getScriptBody(), new RuntimeException("Script memory overflow!"));
             } catch (Exception e) {
                 throw new TbScriptException(scriptId, TbScriptException.ErrorCode.RUNTIME, script.getScriptBody(), e);
+            } finally {
+                recordExecutionTime(scriptHash, script, System.nanoTime() - startTs);
             }
         }));
     }
@@ -229,6 +276,7 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
             try {
                 if (!scriptIdToHash.containsValue(scriptHash)) {
                     scriptMap.remove(scriptHash);
+                    scriptStats.remove(scriptHash);
                     compiledScriptsCache.invalidate(scriptHash);
                 }
             } finally {
@@ -237,17 +285,70 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
         }
     }
 
-    private Serializable compileScript(String scriptBody) {
-        return MVEL.compileExpression(scriptBody, new ParserContext());
+    private Serializable compileScript(String scriptBody, boolean jit) {
+        return withOptimizer(jit, () -> MVEL.compileExpression(scriptBody, new ParserContext()));
+    }
+
+    private boolean isJitEnabled(TenantId tenantId) {
+        return jitEnabled && jitTenants != null && tenantId != null && jitTenants.contains(tenantId.getId());
+    }
+
+    /*
+     * Accessors of the compiled script are optimized on the first executions by the optimizer of the current thread.
+     * Since the compiled scripts of the JIT tenants are cached separately, every compiled script is always
+     * optimized by the same optimizer.
+     */
+    private <T> T withOptimizer(boolean jit, Supplier<T> action) {
+        if (!jit) {
+            return action.get();
+        }
+        OptimizerFactory.setThreadAccessorOptimizer(TbelJitAccessorOptimizer.class);
+        try {
+            return action.get();
+        } finally {
+            OptimizerFactory.clearThreadAccessorOptimizer();
+        }
+    }
+
+    private void recordExecutionTime(String scriptHash, TbelScript script, long durationNs) {
+        if (isStatsEnabled()) {
+            if (statsFactory.isPresent()) {
+                (script.isJit() ? jitExecutionTimer : reflectiveExecutionTimer).record(durationNs, TimeUnit.NANOSECONDS);
+            }
+            scriptStats.computeIfAbsent(scriptHash, hash -> new ScriptStats()).record(durationNs);
+        }
+    }
+
+    private static double toMillis(long ns) {
+        return ns / 1_000_000.0;
+    }
+
+    /*
+     * Per script statistics are printed to the log only, so that the number of the registered meters does not depend
+     * on the number of the scripts.
+     */
+    protected static class ScriptStats {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNs = new LongAdder();
+        private final LongAccumulator maxNs = new LongAccumulator(Math::max, 0);
+
+        private void record(long durationNs) {
+            count.increment();
+            totalNs.add(durationNs);
+            maxNs.accumulate(durationNs);
+        }
+
     }
 
     @SuppressWarnings("UnstableApiUsage")
-    protected String hash(String scriptBody, String[] argNames) {
+    protected String hash(String scriptBody, String[] argNames, boolean jit) {
         Hasher hasher = Hashing.murmur3_128().newHasher();
         hasher.putUnencodedChars(scriptBody);
         for (String argName : argNames) {
             hasher.putString(argName, StandardCharsets.UTF_8);
         }
+        hasher.putBoolean(jit);
         return hasher.hash().toString();
     }
 
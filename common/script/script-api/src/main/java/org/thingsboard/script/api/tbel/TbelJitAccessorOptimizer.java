@@ -0,0 +1,116 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.script.api.tbel;
+
+import org.mvel2.ParserContext;
+import org.mvel2.compiler.Accessor;
+import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.optimizers.impl.asm.ASMAccessorOptimizer;
+import org.mvel2.optimizers.impl.refl.ReflectiveAccessorOptimizer;
+
+import java.util.Set;
+
+/**
+ * Accessor optimizer of the TBEL JIT mode. Only the property accessors are generated with ASM. The generated accessors
+ * do not run the sandbox checks, so the property chains that name a forbidden getter are resolved reflectively and
+ * rejected by the sandbox, while the method calls and the assignments stay reflective and are checked on every
+ * invocation. Each expression is resolved by exactly one of the optimizers, so it is evaluated once. Inline collections
+ * and object creation stay reflective as well: the generated ones create plain JDK collections instead of the TBEL
+ * execution collections, which breaks the memory accounting of the script.
+ */
+public class TbelJitAccessorOptimizer extends ASMAccessorOptimizer {
+
+    // property names of the getters forbidden by the sandboxed class loader: Object.getClass() and Class.getClassLoader()
+    private static final Set<String> FORBIDDEN_PROPERTIES = Set.of("class", "getClass", "classLoader", "getClassLoader");
+
+    private final ReflectiveAccessorOptimizer reflectiveOptimizer = new ReflectiveAccessorOptimizer();
+    private boolean reflective;
+
+    @Override
+    public Accessor optimizeAccessor(ParserContext pCtx, char[] property, int start, int offset, Object ctx, Object thisRef,
+                                     VariableResolverFactory factory, boolean rootThisRef, Class ingressType) {
+        if (hasMethodCall(property, start, offset) || hasForbiddenProperty(property, start, offset)) {
+            reflective = true;
+            return reflectiveOptimizer.optimizeAccessor(pCtx, property, start, offset, ctx, thisRef, factory, rootThisRef, ingressType);
+        }
+        reflective = false;
+        return super.optimizeAccessor(pCtx, property, start, offset, ctx, thisRef, factory, rootThisRef, ingressType);
+    }
+
+    @Override
+    public Accessor optimizeSetAccessor(ParserContext pCtx, char[] property, int start, int offset, Object ctx, Object thisRef,
+                                        VariableResolverFactory factory, boolean rootThisRef, Object value, Class ingressType) {
+        reflective = true;
+        return reflectiveOptimizer.optimizeSetAccessor(pCtx, property, start, offset, ctx, thisRef, factory, rootThisRef, value, ingressType);
+    }
+
+    @Override
+    public Accessor optimizeCollection(ParserContext pCtx, Object collectionGraph, Class type, char[] property, int start, int offset,
+                                       Object ctx, Object thisRef, VariableResolverFactory factory) {
+        reflective = true;
+        return reflectiveOptimizer.optimizeCollection(pCtx, collectionGraph, type, property, start, offset, ctx, thisRef, factory);
+    }
+
+    @Override
+    public Accessor optimizeObjectCreation(ParserContext pCtx, char[] property, int start, int offset, Object ctx, Object thisRef,
+                                           VariableResolverFactory factory) {
+        reflective = true;
+        return reflectiveOptimizer.optimizeObjectCreation(pCtx, property, start, offset, ctx, thisRef, factory);
+    }
+
+    @Override
+    public Object getResultOptPass() {
+        return reflective ? reflectiveOptimizer.getResultOptPass() : super.getResultOptPass();
+    }
+
+    @Override
+    public Class getEgressType() {
+        return reflective ? reflectiveOptimizer.getEgressType() : super.getEgressType();
+    }
+
+    @Override
+    public boolean isLiteralOnly() {
+        return reflective ? reflectiveOptimizer.isLiteralOnly() : super.isLiteralOnly();
+    }
+
+    private static boolean hasMethodCall(char[] property, int start, int offset) {
+        for (int i = start; i < Math.min(start + offset, property.length); i++) {
+            if (property[i] == '(') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasForbiddenProperty(char[] property, int start, int offset) {
+        int end = Math.min(start + offset, property.length);
+        int tokenStart = -1;
+        for (int i = start; i <= end; i++) {
+            if (i < end && Character.isJavaIdentifierPart(property[i])) {
+                if (tokenStart < 0) {
+                    tokenStart = i;
+                }
+            } else if (tokenStart >= 0) {
+                if (FORBIDDEN_PROPERTIES.contains(new String(property, tokenStart, i - tokenStart))) {
+                    return true;
+                }
+                tokenStart = -1;
+            }
+        }
+        return false;
+    }
+
+}
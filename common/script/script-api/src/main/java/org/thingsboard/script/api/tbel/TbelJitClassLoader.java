@@ -0,0 +1,45 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.script.api.tbel;
+
+import org.mvel2.ParserConfiguration;
+
+/**
+ * Class loader of the sandboxed parser configuration that lets the accessors generated by the ASM optimizer
+ * link against the MVEL runtime. Scripts resolve classes through {@link #loadClass(String)}, which stays restricted
+ * by the sandboxed class loader, while the generated classes delegate to this loader as to their parent.
+ */
+class TbelJitClassLoader extends ClassLoader {
+
+    private final ClassLoader sandboxedClassLoader;
+
+    private TbelJitClassLoader(ClassLoader sandboxedClassLoader) {
+        super(TbelJitClassLoader.class.getClassLoader());
+        this.sandboxedClassLoader = sandboxedClassLoader;
+    }
+
+    static void install(ParserConfiguration parserConfig) {
+        if (!(parserConfig.getClassLoader() instanceof TbelJitClassLoader)) {
+            parserConfig.setClassLoader(new TbelJitClassLoader(parserConfig.getClassLoader()));
+        }
+    }
+
+    @Override
+    public Class<?> loadClass(String name) throws ClassNotFoundException {
+        return sandboxedClassLoader.loadClass(name);
+    }
+
+}
@@ -25,6 +25,7 @@ public class TbelScript {
 
     private final String scriptBody;
     private final String[] argNames;
+    private final boolean jit;
 
     public Map createVars(Object[] args) {
         if (args == null || args.length != argNames.length) {
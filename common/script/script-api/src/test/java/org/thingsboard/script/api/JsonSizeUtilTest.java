@@ -0,0 +1,58 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.script.api;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.common.util.JacksonUtil;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonSizeUtilTest {
+
+    @Test
+    public void testLengthMatchesSerializedJson() {
+        Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("enabled", true);
+        nested.put("disabled", false);
+        nested.put("none", null);
+        nested.put("values", Arrays.asList(1, -22, 333L, Long.MIN_VALUE, Long.MAX_VALUE, 0.5, 1.0E-10, Double.NaN));
+        nested.put("big", Arrays.asList(new BigDecimal("12.500"), new BigInteger("123456789012345678901234567890")));
+
+        Map<String, Object> msg = new LinkedHashMap<>();
+        msg.put("temperature", 42.1f);
+        msg.put("humidity", (short) 70);
+        msg.put("name", "Quoted \"name\" with \\ and\nnew line, \u0001 control char and юнікод");
+        msg.put("char", '"');
+        msg.put("empty", new ArrayList<>());
+        msg.put("emptyMap", new LinkedHashMap<>());
+        msg.put("array", new Object[]{"a", 1, null});
+        msg.put("nested", nested);
+
+        List<Object> values = List.of(msg, "string", 123, true, new int[]{1, 2, 3});
+        for (Object value : values) {
+            assertThat(JsonSizeUtil.getJsonLength(value)).as(value.toString()).isEqualTo(JacksonUtil.toString(value).length());
+        }
+    }
+
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.script.api.tbel;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.script.api.ScriptType;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TbelJitSandboxTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private DefaultTbelInvokeService invokeService;
+
+    @AfterEach
+    void tearDown() {
+        if (invokeService != null) {
+            invokeService.stop();
+        }
+    }
+
+    @Test
+    void givenJitTenant_whenForbiddenMethodIsCalled_thenScriptFails() throws Exception {
+        initService(Set.of(tenantId.getId()));
+        UUID scriptId = eval("return msg.getClass();");
+
+        assertThat(invokeService.scriptMap.get(invokeService.scriptIdToHash.get(scriptId)).isJit()).isTrue();
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> invoke(scriptId, newMsg())).isInstanceOf(ExecutionException.class);
+        }
+    }
+
+    @Test
+    void givenJitTenant_whenForbiddenGetterIsUsedAsProperty_thenScriptFails() throws Exception {
+        initService(Set.of(tenantId.getId()));
+        for (String script : new String[]{"return msg.class;", "return (msg).class;", "return (msg).class.classLoader;"}) {
+            UUID scriptId = eval(script);
+            for (int i = 0; i < 3; i++) {
+                assertThatThrownBy(() -> invoke(scriptId, "value")).isInstanceOf(ExecutionException.class);
+            }
+        }
+    }
+
+    @Test
+    void givenJitTenant_whenPropertiesAreRead_thenScriptSucceeds() throws Exception {
+        initService(Set.of(tenantId.getId()));
+        UUID scriptId = eval("return msg.temperature > 20 && msg.name.length() > 0;");
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(invoke(scriptId, newMsg())).isEqualTo(true);
+        }
+    }
+
+    @Test
+    void givenJitTenant_whenPropertyIsRead_thenGetterIsInvokedAsInReflectiveMode() throws Exception {
+        initService(Set.of());
+        int reflectiveInvocations = countGetterInvocations();
+        invokeService.stop();
+
+        initService(Set.of(tenantId.getId()));
+        assertThat(countGetterInvocations()).isEqualTo(reflectiveInvocations);
+    }
+
+    @Test
+    void givenNoJitTenants_thenJitIsNotUsed() throws Exception {
+        initService(Set.of());
+        UUID scriptId = eval("return msg.temperature > 20;");
+
+        assertThat(invokeService.scriptMap.get(invokeService.scriptIdToHash.get(scriptId)).isJit()).isFalse();
+        assertThat(invoke(scriptId, newMsg())).isEqualTo(true);
+    }
+
+    private void initService(Set<UUID> jitTenants) {
+        invokeService = new DefaultTbelInvokeService(Optional.empty(), Optional.empty(), Optional.empty()) {};
+        ReflectionTestUtils.setField(invokeService, "maxTotalArgsSize", 100000L);
+        ReflectionTestUtils.setField(invokeService, "maxResultSize", 300000L);
+        ReflectionTestUtils.setField(invokeService, "maxScriptBodySize", 50000L);
+        ReflectionTestUtils.setField(invokeService, "maxErrors", 100);
+        ReflectionTestUtils.setField(invokeService, "maxBlackListDurationSec", 60);
+        ReflectionTestUtils.setField(invokeService, "threadPoolSize", 2);
+        ReflectionTestUtils.setField(invokeService, "maxMemoryLimitMb", 8L);
+        ReflectionTestUtils.setField(invokeService, "compiledScriptsCacheSize", 10);
+        ReflectionTestUtils.setField(invokeService, "jitEnabled", true);
+        ReflectionTestUtils.setField(invokeService, "jitTenants", jitTenants);
+        invokeService.init();
+    }
+
+    private UUID eval(String script) throws Exception {
+        return invokeService.eval(tenantId, ScriptType.RULE_NODE_SCRIPT, script, "msg").get();
+    }
+
+    private Object invoke(UUID scriptId, Object msg) throws Exception {
+        return invokeService.invokeScript(tenantId, null, scriptId, msg).get();
+    }
+
+    private int countGetterInvocations() throws Exception {
+        // the property of a parenthesized expression is resolved by the accessor optimizer of the thread
+        UUID scriptId = eval("return (msg).value;");
+        CountingEntity msg = new CountingEntity();
+        for (int i = 0; i < 3; i++) {
+            invoke(scriptId, msg);
+        }
+        return msg.getInvocations();
+    }
+
+    private static Map<String, Object> newMsg() {
+        Map<String, Object> msg = new HashMap<>();
+        msg.put("temperature", 25);
+        msg.put("name", "thermostat");
+        return msg;
+    }
+
+    public static class CountingEntity {
+
+        private int invocations;
+
+        public int getValue() {
+            return ++invocations;
+        }
+
+        public int getInvocations() {
+            return invocations;
+        }
+
+    }
+
+}
@@ -112,6 +112,11 @@ public class DefaultStatsFactory implements StatsFactory {
                 .register(meterRegistry));
     }
 
+    @Override
+    public void removeMeters(String key, String... tags) {
+        meterRegistry.find(key).tags(tags).meters().forEach(meterRegistry::remove);
+    }
+
     private static String[] getTags(String statsName, String[] otherTags) {
         String[] tags = new String[]{STATS_NAME_TAG, statsName};
         if (otherTags.length > 0) {
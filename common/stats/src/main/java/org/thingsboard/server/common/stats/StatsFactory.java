@@ -31,4 +31,6 @@ public interface StatsFactory {
 
     StatsTimer createTimer(StatsType type, String name, String... tags);
 
+    void removeMeters(String key, String... tags);
+
 }
@@ -22,7 +22,8 @@ public enum StatsType {
     JS_INVOKE("jsInvoke"),
     RATE_EXECUTOR("rateExecutor"),
     HOUSEKEEPER("housekeeper"),
-    EDGE("edge");
+    EDGE("edge"),
+    ACTOR("actor");
 
     private final String name;
 
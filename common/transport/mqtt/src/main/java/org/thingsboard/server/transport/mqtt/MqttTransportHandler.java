@@ -85,6 +85,7 @@ import org.thingsboard.server.transport.mqtt.session.DeviceSessionCtx;
 import org.thingsboard.server.transport.mqtt.session.GatewaySessionHandler;
 import org.thingsboard.server.transport.mqtt.session.MqttTopicMatcher;
 import org.thingsboard.server.transport.mqtt.session.SparkplugNodeSessionHandler;
+import org.thingsboard.server.transport.mqtt.util.MqttTopicTrie;
 import org.thingsboard.server.transport.mqtt.util.ReturnCodeResolver;
 import org.thingsboard.server.transport.mqtt.util.sparkplug.SparkplugMessageType;
 import org.thingsboard.server.transport.mqtt.util.sparkplug.SparkplugRpcRequestHeader;
@@ -133,6 +134,8 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
     private static final Pattern FW_REQUEST_PATTERN = Pattern.compile(MqttTopics.DEVICE_FIRMWARE_REQUEST_TOPIC_PATTERN);
     private static final Pattern SW_REQUEST_PATTERN = Pattern.compile(MqttTopics.DEVICE_SOFTWARE_REQUEST_TOPIC_PATTERN);
 
+    private static final MqttTopicTrie<DeviceTopic> DEVICE_TOPICS = createDeviceTopics();
+
     private static final String SESSION_LIMITS = "getSessionLimits";
 
     private static final String PAYLOAD_TOO_LARGE = "PAYLOAD_TOO_LARGE";
@@ -486,98 +489,103 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
 
     private void processDevicePublish(ChannelHandlerContext ctx, MqttPublishMessage mqttMsg, String topicName, int msgId) {
         try {
-            Matcher fwMatcher;
             MqttTransportAdaptor payloadAdaptor = deviceSessionCtx.getPayloadAdaptor();
             if (deviceSessionCtx.isDeviceAttributesTopic(topicName)) {
-                TransportProtos.PostAttributeMsg postAttributeMsg = payloadAdaptor.convertToPostAttributes(deviceSessionCtx, mqttMsg);
-                transportService.process(deviceSessionCtx.getSessionInfo(), postAttributeMsg, getMetadata(deviceSessionCtx, topicName),
-                        getPubAckCallback(ctx, msgId, postAttributeMsg));
+                processPostAttributes(ctx, payloadAdaptor, mqttMsg, topicName, msgId);
             } else if (deviceSessionCtx.isDeviceTelemetryTopic(topicName)) {
-                TransportProtos.PostTelemetryMsg postTelemetryMsg = payloadAdaptor.convertToPostTelemetry(deviceSessionCtx, mqttMsg);
-                transportService.process(deviceSessionCtx.getSessionInfo(), postTelemetryMsg, getMetadata(deviceSessionCtx, topicName),
-                        getPubAckCallback(ctx, msgId, postTelemetryMsg));
-            } else if (topicName.startsWith(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_TOPIC_PREFIX)) {
-                TransportProtos.GetAttributeRequestMsg getAttributeMsg = payloadAdaptor.convertToGetAttributes(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_ATTRIBUTES_REQUEST_TOPIC_PREFIX);
-                transportService.process(deviceSessionCtx.getSessionInfo(), getAttributeMsg, getPubAckCallback(ctx, msgId, getAttributeMsg));
-                attrReqTopicType = TopicType.V1;
-            } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_RESPONSE_TOPIC)) {
-                TransportProtos.ToDeviceRpcResponseMsg rpcResponseMsg = payloadAdaptor.convertToDeviceRpcResponse(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_RPC_RESPONSE_TOPIC);
-                transportService.process(deviceSessionCtx.getSessionInfo(), rpcResponseMsg, getPubAckCallback(ctx, msgId, rpcResponseMsg));
-            } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_REQUESTS_TOPIC)) {
-                TransportProtos.ToServerRpcRequestMsg rpcRequestMsg = payloadAdaptor.convertToServerRpcRequest(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_RPC_REQUESTS_TOPIC);
-                toServerRpcSubTopicType = TopicType.V1;
-                if (SESSION_LIMITS.equals(rpcRequestMsg.getMethodName())) {
-                    onGetSessionLimitsRpc(deviceSessionCtx.getSessionInfo(), ctx, msgId, rpcRequestMsg);
-                } else {
-                    transportService.process(deviceSessionCtx.getSessionInfo(), rpcRequestMsg, getPubAckCallback(ctx, msgId, rpcRequestMsg));
-                }
-            } else if (topicName.equals(MqttTopics.DEVICE_CLAIM_TOPIC)) {
-                TransportProtos.ClaimDeviceMsg claimDeviceMsg = payloadAdaptor.convertToClaimDevice(deviceSessionCtx, mqttMsg);
-                transportService.process(deviceSessionCtx.getSessionInfo(), claimDeviceMsg, getPubAckCallback(ctx, msgId, claimDeviceMsg));
-            } else if ((fwMatcher = FW_REQUEST_PATTERN.matcher(topicName)).find()) {
-                getOtaPackageCallback(ctx, mqttMsg, msgId, fwMatcher, OtaPackageType.FIRMWARE);
-            } else if ((fwMatcher = SW_REQUEST_PATTERN.matcher(topicName)).find()) {
-                getOtaPackageCallback(ctx, mqttMsg, msgId, fwMatcher, OtaPackageType.SOFTWARE);
-            } else if (topicName.equals(MqttTopics.DEVICE_TELEMETRY_SHORT_TOPIC)) {
-                TransportProtos.PostTelemetryMsg postTelemetryMsg = payloadAdaptor.convertToPostTelemetry(deviceSessionCtx, mqttMsg);
-                transportService.process(deviceSessionCtx.getSessionInfo(), postTelemetryMsg, getMetadata(deviceSessionCtx, topicName),
-                        getPubAckCallback(ctx, msgId, postTelemetryMsg));
-            } else if (topicName.equals(MqttTopics.DEVICE_TELEMETRY_SHORT_JSON_TOPIC)) {
-                TransportProtos.PostTelemetryMsg postTelemetryMsg = context.getJsonMqttAdaptor().convertToPostTelemetry(deviceSessionCtx, mqttMsg);
-                transportService.process(deviceSessionCtx.getSessionInfo(), postTelemetryMsg, getMetadata(deviceSessionCtx, topicName),
-                        getPubAckCallback(ctx, msgId, postTelemetryMsg));
-            } else if (topicName.equals(MqttTopics.DEVICE_TELEMETRY_SHORT_PROTO_TOPIC)) {
-                TransportProtos.PostTelemetryMsg postTelemetryMsg = context.getProtoMqttAdaptor().convertToPostTelemetry(deviceSessionCtx, mqttMsg);
-                transportService.process(deviceSessionCtx.getSessionInfo(), postTelemetryMsg, getMetadata(deviceSessionCtx, topicName),
-                        getPubAckCallback(ctx, msgId, postTelemetryMsg));
-            } else if (topicName.equals(MqttTopics.DEVICE_ATTRIBUTES_SHORT_TOPIC)) {
-                TransportProtos.PostAttributeMsg postAttributeMsg = payloadAdaptor.convertToPostAttributes(deviceSessionCtx, mqttMsg);
-                transportService.process(deviceSessionCtx.getSessionInfo(), postAttributeMsg, getMetadata(deviceSessionCtx, topicName),
-                        getPubAckCallback(ctx, msgId, postAttributeMsg));
-            } else if (topicName.equals(MqttTopics.DEVICE_ATTRIBUTES_SHORT_JSON_TOPIC)) {
-                TransportProtos.PostAttributeMsg postAttributeMsg = context.getJsonMqttAdaptor().convertToPostAttributes(deviceSessionCtx, mqttMsg);
-                transportService.process(deviceSessionCtx.getSessionInfo(), postAttributeMsg, getMetadata(deviceSessionCtx, topicName),
-                        getPubAckCallback(ctx, msgId, postAttributeMsg));
-            } else if (topicName.equals(MqttTopics.DEVICE_ATTRIBUTES_SHORT_PROTO_TOPIC)) {
-                TransportProtos.PostAttributeMsg postAttributeMsg = context.getProtoMqttAdaptor().convertToPostAttributes(deviceSessionCtx, mqttMsg);
-                transportService.process(deviceSessionCtx.getSessionInfo(), postAttributeMsg, getMetadata(deviceSessionCtx, topicName),
-                        getPubAckCallback(ctx, msgId, postAttributeMsg));
-            } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_JSON_TOPIC)) {
-                TransportProtos.ToDeviceRpcResponseMsg rpcResponseMsg = context.getJsonMqttAdaptor().convertToDeviceRpcResponse(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_RPC_RESPONSE_SHORT_JSON_TOPIC);
-                transportService.process(deviceSessionCtx.getSessionInfo(), rpcResponseMsg, getPubAckCallback(ctx, msgId, rpcResponseMsg));
-            } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_PROTO_TOPIC)) {
-                TransportProtos.ToDeviceRpcResponseMsg rpcResponseMsg = context.getProtoMqttAdaptor().convertToDeviceRpcResponse(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_RPC_RESPONSE_SHORT_PROTO_TOPIC);
-                transportService.process(deviceSessionCtx.getSessionInfo(), rpcResponseMsg, getPubAckCallback(ctx, msgId, rpcResponseMsg));
-            } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_TOPIC)) {
-                TransportProtos.ToDeviceRpcResponseMsg rpcResponseMsg = payloadAdaptor.convertToDeviceRpcResponse(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_RPC_RESPONSE_SHORT_TOPIC);
-                transportService.process(deviceSessionCtx.getSessionInfo(), rpcResponseMsg, getPubAckCallback(ctx, msgId, rpcResponseMsg));
-            } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_JSON_TOPIC)) {
-                TransportProtos.ToServerRpcRequestMsg rpcRequestMsg = context.getJsonMqttAdaptor().convertToServerRpcRequest(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_RPC_REQUESTS_SHORT_JSON_TOPIC);
-                transportService.process(deviceSessionCtx.getSessionInfo(), rpcRequestMsg, getPubAckCallback(ctx, msgId, rpcRequestMsg));
-                toServerRpcSubTopicType = TopicType.V2_JSON;
-            } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_PROTO_TOPIC)) {
-                TransportProtos.ToServerRpcRequestMsg rpcRequestMsg = context.getProtoMqttAdaptor().convertToServerRpcRequest(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_RPC_REQUESTS_SHORT_PROTO_TOPIC);
-                transportService.process(deviceSessionCtx.getSessionInfo(), rpcRequestMsg, getPubAckCallback(ctx, msgId, rpcRequestMsg));
-                toServerRpcSubTopicType = TopicType.V2_PROTO;
-            } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_TOPIC)) {
-                TransportProtos.ToServerRpcRequestMsg rpcRequestMsg = payloadAdaptor.convertToServerRpcRequest(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_RPC_REQUESTS_SHORT_TOPIC);
-                transportService.process(deviceSessionCtx.getSessionInfo(), rpcRequestMsg, getPubAckCallback(ctx, msgId, rpcRequestMsg));
-                toServerRpcSubTopicType = TopicType.V2;
-            } else if (topicName.startsWith(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_JSON_TOPIC_PREFIX)) {
-                TransportProtos.GetAttributeRequestMsg getAttributeMsg = context.getJsonMqttAdaptor().convertToGetAttributes(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_JSON_TOPIC_PREFIX);
-                transportService.process(deviceSessionCtx.getSessionInfo(), getAttributeMsg, getPubAckCallback(ctx, msgId, getAttributeMsg));
-                attrReqTopicType = TopicType.V2_JSON;
-            } else if (topicName.startsWith(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_PROTO_TOPIC_PREFIX)) {
-                TransportProtos.GetAttributeRequestMsg getAttributeMsg = context.getProtoMqttAdaptor().convertToGetAttributes(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_PROTO_TOPIC_PREFIX);
-                transportService.process(deviceSessionCtx.getSessionInfo(), getAttributeMsg, getPubAckCallback(ctx, msgId, getAttributeMsg));
-                attrReqTopicType = TopicType.V2_PROTO;
-            } else if (topicName.startsWith(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_TOPIC_PREFIX)) {
-                TransportProtos.GetAttributeRequestMsg getAttributeMsg = payloadAdaptor.convertToGetAttributes(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_TOPIC_PREFIX);
-                transportService.process(deviceSessionCtx.getSessionInfo(), getAttributeMsg, getPubAckCallback(ctx, msgId, getAttributeMsg));
-                attrReqTopicType = TopicType.V2;
+                processPostTelemetry(ctx, payloadAdaptor, mqttMsg, topicName, msgId);
             } else {
-                transportService.recordActivity(deviceSessionCtx.getSessionInfo());
-                ack(ctx, msgId, MqttReasonCodes.PubAck.TOPIC_NAME_INVALID);
+                DeviceTopic deviceTopic = DEVICE_TOPICS.match(topicName);
+                if (deviceTopic == null) {
+                    transportService.recordActivity(deviceSessionCtx.getSessionInfo());
+                    ack(ctx, msgId, MqttReasonCodes.PubAck.TOPIC_NAME_INVALID);
+                    return;
+                }
+                switch (deviceTopic) {
+                    case ATTRIBUTES_REQUEST: {
+                        TransportProtos.GetAttributeRequestMsg getAttributeMsg = payloadAdaptor.convertToGetAttributes(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_ATTRIBUTES_REQUEST_TOPIC_PREFIX);
+                        transportService.process(deviceSessionCtx.getSessionInfo(), getAttributeMsg, getPubAckCallback(ctx, msgId, getAttributeMsg));
+                        attrReqTopicType = TopicType.V1;
+                        break;
+                    }
+                    case RPC_RESPONSE: {
+                        TransportProtos.ToDeviceRpcResponseMsg rpcResponseMsg = payloadAdaptor.convertToDeviceRpcResponse(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_RPC_RESPONSE_TOPIC);
+                        transportService.process(deviceSessionCtx.getSessionInfo(), rpcResponseMsg, getPubAckCallback(ctx, msgId, rpcResponseMsg));
+                        break;
+                    }
+                    case RPC_REQUEST: {
+                        TransportProtos.ToServerRpcRequestMsg rpcRequestMsg = payloadAdaptor.convertToServerRpcRequest(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_RPC_REQUESTS_TOPIC);
+                        toServerRpcSubTopicType = TopicType.V1;
+                        if (SESSION_LIMITS.equals(rpcRequestMsg.getMethodName())) {
+                            onGetSessionLimitsRpc(deviceSessionCtx.getSessionInfo(), ctx, msgId, rpcRequestMsg);
+                        } else {
+                            transportService.process(deviceSessionCtx.getSessionInfo(), rpcRequestMsg, getPubAckCallback(ctx, msgId, rpcRequestMsg));
+                        }
+                        break;
+                    }
+                    case CLAIM: {
+                        TransportProtos.ClaimDeviceMsg claimDeviceMsg = payloadAdaptor.convertToClaimDevice(deviceSessionCtx, mqttMsg);
+                        transportService.process(deviceSessionCtx.getSessionInfo(), claimDeviceMsg, getPubAckCallback(ctx, msgId, claimDeviceMsg));
+                        break;
+                    }
+                    case FIRMWARE_REQUEST:
+                        processOtaPackageRequest(ctx, mqttMsg, topicName, msgId, FW_REQUEST_PATTERN, OtaPackageType.FIRMWARE);
+                        break;
+                    case SOFTWARE_REQUEST:
+                        processOtaPackageRequest(ctx, mqttMsg, topicName, msgId, SW_REQUEST_PATTERN, OtaPackageType.SOFTWARE);
+                        break;
+                    case TELEMETRY_SHORT:
+                        processPostTelemetry(ctx, payloadAdaptor, mqttMsg, topicName, msgId);
+                        break;
+                    case TELEMETRY_SHORT_JSON:
+                        processPostTelemetry(ctx, context.getJsonMqttAdaptor(), mqttMsg, topicName, msgId);
+                        break;
+                    case TELEMETRY_SHORT_PROTO:
+                        processPostTelemetry(ctx, context.getProtoMqttAdaptor(), mqttMsg, topicName, msgId);
+                        break;
+                    case ATTRIBUTES_SHORT:
+                        processPostAttributes(ctx, payloadAdaptor, mqttMsg, topicName, msgId);
+                        break;
+                    case ATTRIBUTES_SHORT_JSON:
+                        processPostAttributes(ctx, context.getJsonMqttAdaptor(), mqttMsg, topicName, msgId);
+                        break;
+                    case ATTRIBUTES_SHORT_PROTO:
+                        processPostAttributes(ctx, context.getProtoMqttAdaptor(), mqttMsg, topicName, msgId);
+                        break;
+                    case RPC_RESPONSE_SHORT_JSON:
+                        processRpcResponse(ctx, context.getJsonMqttAdaptor(), mqttMsg, MqttTopics.DEVICE_RPC_RESPONSE_SHORT_JSON_TOPIC, msgId);
+                        break;
+                    case RPC_RESPONSE_SHORT_PROTO:
+                        processRpcResponse(ctx, context.getProtoMqttAdaptor(), mqttMsg, MqttTopics.DEVICE_RPC_RESPONSE_SHORT_PROTO_TOPIC, msgId);
+                        break;
+                    case RPC_RESPONSE_SHORT:
+                        processRpcResponse(ctx, payloadAdaptor, mqttMsg, MqttTopics.DEVICE_RPC_RESPONSE_SHORT_TOPIC, msgId);
+                        break;
+                    case RPC_REQUEST_SHORT_JSON:
+                        processRpcRequest(ctx, context.getJsonMqttAdaptor(), mqttMsg, MqttTopics.DEVICE_RPC_REQUESTS_SHORT_JSON_TOPIC, msgId);
+                        toServerRpcSubTopicType = TopicType.V2_JSON;
+                        break;
+                    case RPC_REQUEST_SHORT_PROTO:
+                        processRpcRequest(ctx, context.getProtoMqttAdaptor(), mqttMsg, MqttTopics.DEVICE_RPC_REQUESTS_SHORT_PROTO_TOPIC, msgId);
+                        toServerRpcSubTopicType = TopicType.V2_PROTO;
+                        break;
+                    case RPC_REQUEST_SHORT:
+                        processRpcRequest(ctx, payloadAdaptor, mqttMsg, MqttTopics.DEVICE_RPC_REQUESTS_SHORT_TOPIC, msgId);
+                        toServerRpcSubTopicType = TopicType.V2;
+                        break;
+                    case ATTRIBUTES_REQUEST_SHORT_JSON:
+                        processGetAttributes(ctx, context.getJsonMqttAdaptor(), mqttMsg, MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_JSON_TOPIC_PREFIX, msgId);
+                        attrReqTopicType = TopicType.V2_JSON;
+                        break;
+                    case ATTRIBUTES_REQUEST_SHORT_PROTO:
+                        processGetAttributes(ctx, context.getProtoMqttAdaptor(), mqttMsg, MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_PROTO_TOPIC_PREFIX, msgId);
+                        attrReqTopicType = TopicType.V2_PROTO;
+                        break;
+                    case ATTRIBUTES_REQUEST_SHORT:
+                        processGetAttributes(ctx, payloadAdaptor, mqttMsg, MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_TOPIC_PREFIX, msgId);
+                        attrReqTopicType = TopicType.V2;
+                        break;
+                }
             }
         } catch (AdaptorException e) {
             log.debug("[{}] Failed to process publish msg [{}][{}]", sessionId, topicName, msgId, e);
@@ -585,6 +593,43 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
         }
     }
 
+    private void processPostTelemetry(ChannelHandlerContext ctx, MqttTransportAdaptor adaptor, MqttPublishMessage mqttMsg, String topicName, int msgId) throws AdaptorException {
+        TransportProtos.PostTelemetryMsg postTelemetryMsg = adaptor.convertToPostTelemetry(deviceSessionCtx, mqttMsg);
+        transportService.process(deviceSessionCtx.getSessionInfo(), postTelemetryMsg, getMetadata(deviceSessionCtx, topicName),
+                getPubAckCallback(ctx, msgId, postTelemetryMsg));
+    }
+
+    private void processPostAttributes(ChannelHandlerContext ctx, MqttTransportAdaptor adaptor, MqttPublishMessage mqttMsg, String topicName, int msgId) throws AdaptorException {
+        TransportProtos.PostAttributeMsg postAttributeMsg = adaptor.convertToPostAttributes(deviceSessionCtx, mqttMsg);
+        transportService.process(deviceSessionCtx.getSessionInfo(), postAttributeMsg, getMetadata(deviceSessionCtx, topicName),
+                getPubAckCallback(ctx, msgId, postAttributeMsg));
+    }
+
+    private void processRpcResponse(ChannelHandlerContext ctx, MqttTransportAdaptor adaptor, MqttPublishMessage mqttMsg, String topicBase, int msgId) throws AdaptorException {
+        TransportProtos.ToDeviceRpcResponseMsg rpcResponseMsg = adaptor.convertToDeviceRpcResponse(deviceSessionCtx, mqttMsg, topicBase);
+        transportService.process(deviceSessionCtx.getSessionInfo(), rpcResponseMsg, getPubAckCallback(ctx, msgId, rpcResponseMsg));
+    }
+
+    private void processRpcRequest(ChannelHandlerContext ctx, MqttTransportAdaptor adaptor, MqttPublishMessage mqttMsg, String topicBase, int msgId) throws AdaptorException {
+        TransportProtos.ToServerRpcRequestMsg rpcRequestMsg = adaptor.convertToServerRpcRequest(deviceSessionCtx, mqttMsg, topicBase);
+        transportService.process(deviceSessionCtx.getSessionInfo(), rpcRequestMsg, getPubAckCallback(ctx, msgId, rpcRequestMsg));
+    }
+
+    private void processGetAttributes(ChannelHandlerContext ctx, MqttTransportAdaptor adaptor, MqttPublishMessage mqttMsg, String topicBase, int msgId) throws AdaptorException {
+        TransportProtos.GetAttributeRequestMsg getAttributeMsg = adaptor.convertToGetAttributes(deviceSessionCtx, mqttMsg, topicBase);
+        transportService.process(deviceSessionCtx.getSessionInfo(), getAttributeMsg, getPubAckCallback(ctx, msgId, getAttributeMsg));
+    }
+
+    private void processOtaPackageRequest(ChannelHandlerContext ctx, MqttPublishMessage mqttMsg, String topicName, int msgId, Pattern pattern, OtaPackageType type) {
+        Matcher matcher = pattern.matcher(topicName);
+        if (matcher.matches()) {
+            getOtaPackageCallback(ctx, mqttMsg, msgId, matcher, type);
+        } else {
+            transportService.recordActivity(deviceSessionCtx.getSessionInfo());
+            ack(ctx, msgId, MqttReasonCodes.PubAck.TOPIC_NAME_INVALID);
+        }
+    }
+
     private TbMsgMetaData getMetadata(DeviceSessionCtx ctx, String topicName) {
         if (ctx.isDeviceProfileMqttTransportType()) {
             TbMsgMetaData md = new TbMsgMetaData();
@@ -1508,4 +1553,40 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
         transportService.process(sessionInfo, msg, null);
     }
 
+    private static MqttTopicTrie<DeviceTopic> createDeviceTopics() {
+        // registration order is the match priority and follows the order of the former if-else chain
+        MqttTopicTrie<DeviceTopic> topics = new MqttTopicTrie<>();
+        topics.addPrefix(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_TOPIC_PREFIX, DeviceTopic.ATTRIBUTES_REQUEST);
+        topics.addPrefix(MqttTopics.DEVICE_RPC_RESPONSE_TOPIC, DeviceTopic.RPC_RESPONSE);
+        topics.addPrefix(MqttTopics.DEVICE_RPC_REQUESTS_TOPIC, DeviceTopic.RPC_REQUEST);
+        topics.add(MqttTopics.DEVICE_CLAIM_TOPIC, DeviceTopic.CLAIM);
+        topics.add(MqttTopics.DEVICE_FIRMWARE_REQUEST_TOPIC, DeviceTopic.FIRMWARE_REQUEST);
+        topics.add(MqttTopics.DEVICE_SOFTWARE_REQUEST_TOPIC, DeviceTopic.SOFTWARE_REQUEST);
+        topics.add(MqttTopics.DEVICE_TELEMETRY_SHORT_TOPIC, DeviceTopic.TELEMETRY_SHORT);
+        topics.add(MqttTopics.DEVICE_TELEMETRY_SHORT_JSON_TOPIC, DeviceTopic.TELEMETRY_SHORT_JSON);
+        topics.add(MqttTopics.DEVICE_TELEMETRY_SHORT_PROTO_TOPIC, DeviceTopic.TELEMETRY_SHORT_PROTO);
+        topics.add(MqttTopics.DEVICE_ATTRIBUTES_SHORT_TOPIC, DeviceTopic.ATTRIBUTES_SHORT);
+        topics.add(MqttTopics.DEVICE_ATTRIBUTES_SHORT_JSON_TOPIC, DeviceTopic.ATTRIBUTES_SHORT_JSON);
+        topics.add(MqttTopics.DEVICE_ATTRIBUTES_SHORT_PROTO_TOPIC, DeviceTopic.ATTRIBUTES_SHORT_PROTO);
+        topics.addPrefix(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_JSON_TOPIC, DeviceTopic.RPC_RESPONSE_SHORT_JSON);
+        topics.addPrefix(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_PROTO_TOPIC, DeviceTopic.RPC_RESPONSE_SHORT_PROTO);
+        topics.addPrefix(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_TOPIC, DeviceTopic.RPC_RESPONSE_SHORT);
+        topics.addPrefix(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_JSON_TOPIC, DeviceTopic.RPC_REQUEST_SHORT_JSON);
+        topics.addPrefix(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_PROTO_TOPIC, DeviceTopic.RPC_REQUEST_SHORT_PROTO);
+        topics.addPrefix(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_TOPIC, DeviceTopic.RPC_REQUEST_SHORT);
+        topics.addPrefix(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_JSON_TOPIC_PREFIX, DeviceTopic.ATTRIBUTES_REQUEST_SHORT_JSON);
+        topics.addPrefix(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_PROTO_TOPIC_PREFIX, DeviceTopic.ATTRIBUTES_REQUEST_SHORT_PROTO);
+        topics.addPrefix(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_TOPIC_PREFIX, DeviceTopic.ATTRIBUTES_REQUEST_SHORT);
+        return topics;
+    }
+
+    private enum DeviceTopic {
+        ATTRIBUTES_REQUEST, RPC_RESPONSE, RPC_REQUEST, CLAIM, FIRMWARE_REQUEST, SOFTWARE_REQUEST,
+        TELEMETRY_SHORT, TELEMETRY_SHORT_JSON, TELEMETRY_SHORT_PROTO,
+        ATTRIBUTES_SHORT, ATTRIBUTES_SHORT_JSON, ATTRIBUTES_SHORT_PROTO,
+        RPC_RESPONSE_SHORT_JSON, RPC_RESPONSE_SHORT_PROTO, RPC_RESPONSE_SHORT,
+        RPC_REQUEST_SHORT_JSON, RPC_REQUEST_SHORT_PROTO, RPC_REQUEST_SHORT,
+        ATTRIBUTES_REQUEST_SHORT_JSON, ATTRIBUTES_REQUEST_SHORT_PROTO, ATTRIBUTES_REQUEST_SHORT
+    }
+
 }
@@ -42,6 +42,7 @@ import org.springframework.util.ConcurrentReferenceHashMap;
 import org.thingsboard.common.util.DonAsynchron;
 import org.thingsboard.server.common.adaptor.AdaptorException;
 import org.thingsboard.server.common.adaptor.JsonConverter;
+import org.thingsboard.server.common.adaptor.JsonTelemetryDecoder;
 import org.thingsboard.server.common.adaptor.ProtoConverter;
 import org.thingsboard.server.common.data.DataConstants;
 import org.thingsboard.server.common.data.Device;
@@ -370,6 +371,14 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
     }
 
     protected void onDeviceTelemetryJson(int msgId, ByteBuf payload) throws AdaptorException {
+        long systemTs = System.currentTimeMillis();
+        var devicesTelemetry = JsonTelemetryDecoder.convertToGatewayTelemetry(JsonMqttAdaptor.toReader(payload), systemTs);
+        if (devicesTelemetry != null) {
+            devicesTelemetry.forEach((deviceName, telemetry) ->
+                    process(deviceName, deviceCtx -> processPostTelemetryMsg(deviceCtx, telemetry, systemTs, deviceName, msgId),
+                            t -> failedToProcessLog(deviceName, TELEMETRY, t)));
+            return;
+        }
         JsonElement json = JsonMqttAdaptor.validateJsonPayload(sessionId, payload);
         validateJsonObject(json);
         for (Map.Entry<String, JsonElement> deviceEntry : json.getAsJsonObject().entrySet()) {
@@ -383,6 +392,21 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
         }
     }
 
+    private void processPostTelemetryMsg(T deviceCtx, TbPair<TransportProtos.PostTelemetryMsg, List<GatewayMetadata>> gatewayPayloadPair,
+                                         long systemTs, String deviceName, int msgId) {
+        try {
+            TransportProtos.PostTelemetryMsg postTelemetryMsg = gatewayPayloadPair.getFirst();
+            List<GatewayMetadata> metadata = gatewayPayloadPair.getSecond();
+            if (!CollectionUtils.isEmpty(metadata)) {
+                gatewayMetricsService.process(deviceSessionCtx.getSessionInfo(), gateway.getDeviceId(), metadata, systemTs);
+            }
+            transportService.process(deviceCtx.getSessionInfo(), postTelemetryMsg, getPubAckCallback(channel, deviceName, msgId, postTelemetryMsg));
+        } catch (Throwable e) {
+            log.warn("[{}][{}][{}] Failed to process telemetry", gateway.getTenantId(), gateway.getDeviceId(), deviceName, e);
+            ackOrClose(msgId);
+        }
+    }
+
     private void processPostTelemetryMsg(T deviceCtx, JsonElement msg, String deviceName, int msgId) {
         try {
             long systemTs = System.currentTimeMillis();
@@ -16,6 +16,7 @@
 package org.thingsboard.server.transport.mqtt.util;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.thingsboard.server.common.data.device.profile.MqttTopics;
 
 import java.util.concurrent.ConcurrentHashMap;
@@ -24,6 +25,8 @@ import java.util.concurrent.ConcurrentMap;
 @Slf4j
 public class MqttTopicFilterFactory {
 
+    // filters with these characters keep the legacy regex based matching
+    private static final String REGEX_SPECIAL_CHARS = "\\.[]{}()*?^$|";
     private static final ConcurrentMap<String, MqttTopicFilter> filters = new ConcurrentHashMap<>();
     private static final MqttTopicFilter DEFAULT_TELEMETRY_TOPIC_FILTER = toFilter(MqttTopics.DEVICE_TELEMETRY_TOPIC);
     private static final MqttTopicFilter DEFAULT_ATTRIBUTES_TOPIC_FILTER = toFilter(MqttTopics.DEVICE_ATTRIBUTES_TOPIC);
@@ -36,6 +39,9 @@ public class MqttTopicFilterFactory {
             if (filter.equals("#")) {
                 return new AlwaysTrueTopicFilter();
             } else if (filter.contains("+") || filter.contains("#")) {
+                if (MqttTopicTrie.isSupported(filter) && !StringUtils.containsAny(filter, REGEX_SPECIAL_CHARS)) {
+                    return new WildcardTopicFilter(filter);
+                }
                 String regex = filter
                         .replace("\\", "\\\\")
                         .replace("+", "[^/]+")
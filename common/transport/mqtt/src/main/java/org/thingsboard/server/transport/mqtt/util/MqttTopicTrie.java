@@ -0,0 +1,175 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.mqtt.util;
+
+import java.util.Arrays;
+
+/**
+ * Compiled set of MQTT topic filters, matched level by level without regular expressions.
+ * <p>
+ * '+' matches exactly one non-empty level, '#' as the last level matches the parent level and any number of sub levels.
+ * Prefixes that end with '/' match every topic that starts with the prefix, the same way as {@link String#startsWith}.
+ * When several filters match the topic, the value of the filter that was added first is returned.
+ * <p>
+ * The trie is not thread safe for modifications and should be fully built before it is shared.
+ */
+public class MqttTopicTrie<T> {
+
+    private static final String SINGLE_LEVEL_WILDCARD = "+";
+    private static final String MULTI_LEVEL_WILDCARD = "#";
+    private static final char LEVEL_SEPARATOR = '/';
+
+    private final Node<T> root = new Node<>();
+    private int size;
+
+    public static boolean isSupported(String filter) {
+        if (filter == null || filter.isEmpty()) {
+            return false;
+        }
+        String[] levels = filter.split(String.valueOf(LEVEL_SEPARATOR), -1);
+        for (int i = 0; i < levels.length; i++) {
+            String level = levels[i];
+            if (level.equals(MULTI_LEVEL_WILDCARD)) {
+                if (i != levels.length - 1) {
+                    return false;
+                }
+            } else if (!level.equals(SINGLE_LEVEL_WILDCARD) && (level.contains(SINGLE_LEVEL_WILDCARD) || level.contains(MULTI_LEVEL_WILDCARD))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void add(String filter, T value) {
+        if (!isSupported(filter)) {
+            throw new IllegalArgumentException("Unsupported topic filter: " + filter);
+        }
+        Entry<T> entry = new Entry<>(size++, value);
+        Node<T> node = root;
+        for (String level : filter.split(String.valueOf(LEVEL_SEPARATOR), -1)) {
+            if (level.equals(MULTI_LEVEL_WILDCARD)) {
+                node.multiLevel = first(node.multiLevel, entry);
+                return;
+            }
+            node = node.child(level);
+        }
+        node.value = first(node.value, entry);
+    }
+
+    public void addPrefix(String prefix, T value) {
+        if (prefix == null || prefix.isEmpty() || prefix.charAt(prefix.length() - 1) != LEVEL_SEPARATOR) {
+            throw new IllegalArgumentException("Topic prefix should end with '" + LEVEL_SEPARATOR + "': " + prefix);
+        }
+        Entry<T> entry = new Entry<>(size++, value);
+        Node<T> node = root;
+        for (String level : prefix.substring(0, prefix.length() - 1).split(String.valueOf(LEVEL_SEPARATOR), -1)) {
+            node = node.child(level);
+        }
+        node.prefix = first(node.prefix, entry);
+    }
+
+    public T match(String topic) {
+        Entry<T> result = match(root, topic, 0, null);
+        return result != null ? result.value : null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param from index of the first character of the next topic level, or topic length + 1 when all levels are consumed
+     */
+    private Entry<T> match(Node<T> node, String topic, int from, Entry<T> result) {
+        result = first(result, node.multiLevel);
+        if (from > topic.length()) {
+            return first(result, node.value);
+        }
+        result = first(result, node.prefix);
+        int to = topic.indexOf(LEVEL_SEPARATOR, from);
+        if (to < 0) {
+            to = topic.length();
+        }
+        Node<T> child = node.findChild(topic, from, to - from);
+        if (child != null) {
+            result = match(child, topic, to + 1, result);
+        }
+        if (node.singleLevel != null && to > from) {
+            result = match(node.singleLevel, topic, to + 1, result);
+        }
+        return result;
+    }
+
+    private static <T> Entry<T> first(Entry<T> a, Entry<T> b) {
+        if (a == null) {
+            return b;
+        } else if (b == null) {
+            return a;
+        } else {
+            return a.order <= b.order ? a : b;
+        }
+    }
+
+    private record Entry<T>(int order, T value) {}
+
+    private static class Node<T> {
+
+        // topic levels usually have a handful of distinct children, so a linear scan without substring allocation is cheaper than a hash lookup
+        private String[] levels = new String[0];
+        private Node<T>[] children = newArray(0);
+        private Node<T> singleLevel;
+        private Entry<T> value;
+        private Entry<T> multiLevel;
+        private Entry<T> prefix;
+
+        private Node<T> child(String level) {
+            if (level.equals(SINGLE_LEVEL_WILDCARD)) {
+                if (singleLevel == null) {
+                    singleLevel = new Node<>();
+                }
+                return singleLevel;
+            }
+            for (int i = 0; i < levels.length; i++) {
+                if (levels[i].equals(level)) {
+                    return children[i];
+                }
+            }
+            Node<T> child = new Node<>();
+            levels = Arrays.copyOf(levels, levels.length + 1);
+            levels[levels.length - 1] = level;
+            children = Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = child;
+            return child;
+        }
+
+        private Node<T> findChild(String topic, int from, int length) {
+            for (int i = 0; i < levels.length; i++) {
+                String level = levels[i];
+                if (level.length() == length && topic.regionMatches(from, level, 0, length)) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Node<T>[] newArray(int size) {
+            return (Node<T>[]) new Node[size];
+        }
+
+    }
+
+}
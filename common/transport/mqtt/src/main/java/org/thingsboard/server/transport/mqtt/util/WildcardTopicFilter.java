@@ -0,0 +1,40 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.mqtt.util;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Data
+public class WildcardTopicFilter implements MqttTopicFilter {
+
+    private final String filter;
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final MqttTopicTrie<Boolean> trie;
+
+    public WildcardTopicFilter(String filter) {
+        this.filter = filter;
+        this.trie = new MqttTopicTrie<>();
+        this.trie.add(filter, Boolean.TRUE);
+    }
+
+    @Override
+    public boolean filter(String topic) {
+        return trie.match(topic) != null;
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.mqtt.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.thingsboard.server.common.data.device.profile.MqttTopics;
+import org.thingsboard.server.transport.mqtt.util.MqttTopicFilter;
+import org.thingsboard.server.transport.mqtt.util.MqttTopicTrie;
+import org.thingsboard.server.transport.mqtt.util.RegexTopicFilter;
+import org.thingsboard.server.transport.mqtt.util.WildcardTopicFilter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the topic trie with the former if-else chain of the device publish topics
+ * and with the regex based matching of the device profile topic filters.
+ * Every benchmark operation routes a single topic.
+ * <p>
+ * Run with {@code mvn -pl common/transport/mqtt test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=org.thingsboard.server.transport.mqtt.benchmark.MqttTopicRoutingBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(MqttTopicRoutingBenchmark.TOPICS_COUNT)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class MqttTopicRoutingBenchmark {
+
+    static final int TOPICS_COUNT = 12;
+
+    private static final Pattern FW_REQUEST_PATTERN = Pattern.compile(MqttTopics.DEVICE_FIRMWARE_REQUEST_TOPIC_PATTERN);
+    private static final Pattern SW_REQUEST_PATTERN = Pattern.compile(MqttTopics.DEVICE_SOFTWARE_REQUEST_TOPIC_PATTERN);
+    private static final String PROFILE_TOPIC_FILTER = "sensors/+/telemetry/#";
+
+    private final String[] topics = {
+            MqttTopics.DEVICE_RPC_REQUESTS_TOPIC + "1",
+            MqttTopics.DEVICE_CLAIM_TOPIC,
+            MqttTopics.BASE_DEVICE_API_TOPIC_V2 + "/fw/request/1/chunk/2",
+            MqttTopics.DEVICE_TELEMETRY_SHORT_TOPIC,
+            MqttTopics.DEVICE_TELEMETRY_SHORT_PROTO_TOPIC,
+            MqttTopics.DEVICE_ATTRIBUTES_SHORT_JSON_TOPIC,
+            MqttTopics.DEVICE_RPC_RESPONSE_SHORT_PROTO_TOPIC + "42",
+            MqttTopics.DEVICE_RPC_REQUESTS_SHORT_TOPIC + "42",
+            MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_TOPIC_PREFIX + "42",
+            "sensors/device-1/telemetry",
+            "sensors/device-2/telemetry/temperature",
+            "unknown/topic"
+    };
+
+    private MqttTopicTrie<Integer> trie;
+    private MqttTopicFilter regexFilter;
+    private MqttTopicFilter wildcardFilter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        trie = new MqttTopicTrie<>();
+        trie.addPrefix(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_TOPIC_PREFIX, 1);
+        trie.addPrefix(MqttTopics.DEVICE_RPC_RESPONSE_TOPIC, 2);
+        trie.addPrefix(MqttTopics.DEVICE_RPC_REQUESTS_TOPIC, 3);
+        trie.add(MqttTopics.DEVICE_CLAIM_TOPIC, 4);
+        trie.add(MqttTopics.DEVICE_FIRMWARE_REQUEST_TOPIC, 5);
+        trie.add(MqttTopics.DEVICE_SOFTWARE_REQUEST_TOPIC, 6);
+        trie.add(MqttTopics.DEVICE_TELEMETRY_SHORT_TOPIC, 7);
+        trie.add(MqttTopics.DEVICE_TELEMETRY_SHORT_JSON_TOPIC, 8);
+        trie.add(MqttTopics.DEVICE_TELEMETRY_SHORT_PROTO_TOPIC, 9);
+        trie.add(MqttTopics.DEVICE_ATTRIBUTES_SHORT_TOPIC, 10);
+        trie.add(MqttTopics.DEVICE_ATTRIBUTES_SHORT_JSON_TOPIC, 11);
+        trie.add(MqttTopics.DEVICE_ATTRIBUTES_SHORT_PROTO_TOPIC, 12);
+        trie.addPrefix(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_JSON_TOPIC, 13);
+        trie.addPrefix(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_PROTO_TOPIC, 14);
+        trie.addPrefix(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_TOPIC, 15);
+        trie.addPrefix(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_JSON_TOPIC, 16);
+        trie.addPrefix(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_PROTO_TOPIC, 17);
+        trie.addPrefix(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_TOPIC, 18);
+        trie.addPrefix(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_JSON_TOPIC_PREFIX, 19);
+        trie.addPrefix(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_PROTO_TOPIC_PREFIX, 20);
+        trie.addPrefix(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_TOPIC_PREFIX, 21);
+        regexFilter = new RegexTopicFilter(PROFILE_TOPIC_FILTER.replace("+", "[^/]+").replace("/#", "($|/.*)"));
+        wildcardFilter = new WildcardTopicFilter(PROFILE_TOPIC_FILTER);
+        for (String topic : topics) {
+            int expected = ifElseChain(topic);
+            Integer actual = trie.match(topic);
+            if (expected != (actual != null ? actual : 0) || regexFilter.filter(topic) != wildcardFilter.filter(topic)) {
+                throw new IllegalStateException("Routing mismatch for topic " + topic);
+            }
+        }
+    }
+
+    @Benchmark
+    public void ifElseChain(Blackhole bh) {
+        for (String topic : topics) {
+            bh.consume(ifElseChain(topic));
+        }
+    }
+
+    @Benchmark
+    public void trie(Blackhole bh) {
+        for (String topic : topics) {
+            bh.consume(trie.match(topic));
+        }
+    }
+
+    @Benchmark
+    public void regexFilter(Blackhole bh) {
+        for (String topic : topics) {
+            bh.consume(regexFilter.filter(topic));
+        }
+    }
+
+    @Benchmark
+    public void wildcardFilter(Blackhole bh) {
+        for (String topic : topics) {
+            bh.consume(wildcardFilter.filter(topic));
+        }
+    }
+
+    private static int ifElseChain(String topicName) {
+        if (topicName.startsWith(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_TOPIC_PREFIX)) {
+            return 1;
+        } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_RESPONSE_TOPIC)) {
+            return 2;
+        } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_REQUESTS_TOPIC)) {
+            return 3;
+        } else if (topicName.equals(MqttTopics.DEVICE_CLAIM_TOPIC)) {
+            return 4;
+        } else if (FW_REQUEST_PATTERN.matcher(topicName).find()) {
+            return 5;
+        } else if (SW_REQUEST_PATTERN.matcher(topicName).find()) {
+            return 6;
+        } else if (topicName.equals(MqttTopics.DEVICE_TELEMETRY_SHORT_TOPIC)) {
+            return 7;
+        } else if (topicName.equals(MqttTopics.DEVICE_TELEMETRY_SHORT_JSON_TOPIC)) {
+            return 8;
+        } else if (topicName.equals(MqttTopics.DEVICE_TELEMETRY_SHORT_PROTO_TOPIC)) {
+            return 9;
+        } else if (topicName.equals(MqttTopics.DEVICE_ATTRIBUTES_SHORT_TOPIC)) {
+            return 10;
+        } else if (topicName.equals(MqttTopics.DEVICE_ATTRIBUTES_SHORT_JSON_TOPIC)) {
+            return 11;
+        } else if (topicName.equals(MqttTopics.DEVICE_ATTRIBUTES_SHORT_PROTO_TOPIC)) {
+            return 12;
+        } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_JSON_TOPIC)) {
+            return 13;
+        } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_PROTO_TOPIC)) {
+            return 14;
+        } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_TOPIC)) {
+            return 15;
+        } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_JSON_TOPIC)) {
+            return 16;
+        } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_PROTO_TOPIC)) {
+            return 17;
+        } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_TOPIC)) {
+            return 18;
+        } else if (topicName.startsWith(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_JSON_TOPIC_PREFIX)) {
+            return 19;
+        } else if (topicName.startsWith(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_PROTO_TOPIC_PREFIX)) {
+            return 20;
+        } else if (topicName.startsWith(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_TOPIC_PREFIX)) {
+            return 21;
+        } else {
+            return 0;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MqttTopicRoutingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+}
@@ -22,6 +22,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import javax.script.ScriptException;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(MockitoExtension.class)
@@ -66,4 +67,14 @@ public class MqttTopicFilterFactoryTest {
         assertFalse(filter.filter(TEST_STR_2));
     }
 
+    @Test
+    public void wildcardFiltersAreMatchedWithoutRegex() {
+        assertInstanceOf(WildcardTopicFilter.class, MqttTopicFilterFactory.toFilter("Sensor/+/House/#"));
+        assertInstanceOf(RegexTopicFilter.class, MqttTopicFilterFactory.toFilter("Sensor/Temperature#"));
+
+        MqttTopicFilter filter = MqttTopicFilterFactory.toFilter("Sensor/Temp.rature/+");
+        assertInstanceOf(RegexTopicFilter.class, filter);
+        assertTrue(filter.filter("Sensor/Temperature/House"));
+    }
+
 }
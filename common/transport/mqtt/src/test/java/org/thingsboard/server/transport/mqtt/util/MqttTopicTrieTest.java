@@ -0,0 +1,79 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.mqtt.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MqttTopicTrieTest {
+
+    @Test
+    public void testExactAndWildcardMatch() {
+        MqttTopicTrie<String> trie = new MqttTopicTrie<>();
+        trie.add("sensor/temperature", "exact");
+        trie.add("sensor/+/house", "single");
+        trie.add("sensor/humidity/#", "multi");
+
+        assertThat(trie.match("sensor/temperature")).isEqualTo("exact");
+        assertThat(trie.match("sensor/temperature/house")).isEqualTo("single");
+        assertThat(trie.match("sensor//house")).isNull();
+        assertThat(trie.match("sensor/humidity")).isEqualTo("multi");
+        assertThat(trie.match("sensor/humidity/house/48")).isEqualTo("multi");
+        assertThat(trie.match("sensor/humidity2")).isNull();
+        assertThat(trie.match("sensor")).isNull();
+        assertThat(trie.match("/sensor/temperature")).isNull();
+    }
+
+    @Test
+    public void testFirstAddedFilterWins() {
+        MqttTopicTrie<String> trie = new MqttTopicTrie<>();
+        trie.add("a/+/c", "first");
+        trie.add("a/b/c", "second");
+        trie.add("#", "third");
+
+        assertThat(trie.match("a/b/c")).isEqualTo("first");
+        assertThat(trie.match("a/x/c")).isEqualTo("first");
+        assertThat(trie.match("a/b")).isEqualTo("third");
+        assertThat(trie.match("")).isEqualTo("third");
+    }
+
+    @Test
+    public void testPrefixMatchesLikeStartsWith() {
+        MqttTopicTrie<String> trie = new MqttTopicTrie<>();
+        trie.addPrefix("v2/r/res/j/", "json");
+        trie.addPrefix("v2/r/res/", "default");
+
+        assertThat(trie.match("v2/r/res/j/1")).isEqualTo("json");
+        assertThat(trie.match("v2/r/res/j/")).isEqualTo("json");
+        assertThat(trie.match("v2/r/res/j")).isEqualTo("default");
+        assertThat(trie.match("v2/r/res/1/2")).isEqualTo("default");
+        assertThat(trie.match("v2/r/res/")).isEqualTo("default");
+        assertThat(trie.match("v2/r/res")).isNull();
+    }
+
+    @Test
+    public void testUnsupportedFilters() {
+        assertThat(MqttTopicTrie.isSupported("a/+/b/#")).isTrue();
+        assertThat(MqttTopicTrie.isSupported("a/b+")).isFalse();
+        assertThat(MqttTopicTrie.isSupported("a/#/b")).isFalse();
+        assertThat(MqttTopicTrie.isSupported("a#")).isFalse();
+        assertThatThrownBy(() -> new MqttTopicTrie<>().add("a/#/b", 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new MqttTopicTrie<>().addPrefix("a/b", 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport;
+
+import com.google.protobuf.Message;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.transport.auth.ValidateDeviceCredentialsResponse;
+
+public interface TransportDeviceCredentialsCache {
+
+    boolean isEnabled();
+
+    ValidateDeviceCredentialsResponse get(Message request);
+
+    /**
+     * Version of the cache content. Capture it before the credentials are requested from the core
+     * and pass it to {@link #put} so that a response that raced with an eviction is not cached.
+     */
+    long getVersion();
+
+    void put(Message request, ValidateDeviceCredentialsResponse response, long version);
+
+    void evict(DeviceId deviceId);
+
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.google.protobuf.Message;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.stats.StatsCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.transport.DeviceDeletedEvent;
+import org.thingsboard.server.common.transport.DeviceUpdatedEvent;
+import org.thingsboard.server.common.transport.TransportDeviceCredentialsCache;
+import org.thingsboard.server.common.transport.auth.ValidateDeviceCredentialsResponse;
+import org.thingsboard.server.queue.util.TbTransportComponent;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches successful device credentials validation results so that reconnecting devices and devices that send
+ * each message in a separate request (HTTP, CoAP) do not need a transport API round trip to the core.
+ * Entries are keyed by the validation request and evicted on device update, removal or credentials update.
+ */
+@Slf4j
+@Service
+@TbTransportComponent
+public class DefaultTransportDeviceCredentialsCache implements TransportDeviceCredentialsCache {
+
+    private final Cache<Message, ValidateDeviceCredentialsResponse> cache;
+    private final ConcurrentMap<DeviceId, Set<Message>> requestsByDevice = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final StatsCounter hits;
+    private final StatsCounter misses;
+
+    public DefaultTransportDeviceCredentialsCache(@Value("${cache.transportDeviceCredentials.timeToLiveInMinutes:5}") int ttl,
+                                                  @Value("${cache.transportDeviceCredentials.maxSize:0}") int maxSize,
+                                                  StatsFactory statsFactory) {
+        if (maxSize > 0) {
+            cache = Caffeine.newBuilder()
+                    .expireAfterWrite(ttl, TimeUnit.MINUTES)
+                    .maximumSize(maxSize)
+                    .<Message, ValidateDeviceCredentialsResponse>removalListener((request, response, cause) -> {
+                        if (cause != RemovalCause.REPLACED && request != null && response != null) {
+                            removeRequest(response.getDeviceInfo().getDeviceId(), request);
+                        }
+                    })
+                    .build();
+        } else {
+            cache = null;
+        }
+        hits = statsFactory.createStatsCounter("transportDeviceCredentialsCache", "hits");
+        misses = statsFactory.createStatsCounter("transportDeviceCredentialsCache", "misses");
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    @Override
+    public ValidateDeviceCredentialsResponse get(Message request) {
+        ValidateDeviceCredentialsResponse response = cache.getIfPresent(request);
+        if (response != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return response;
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public void put(Message request, ValidateDeviceCredentialsResponse response, long loadVersion) {
+        if (!response.hasDeviceInfo()) {
+            return;
+        }
+        DeviceId deviceId = response.getDeviceInfo().getDeviceId();
+        requestsByDevice.computeIfAbsent(deviceId, id -> ConcurrentHashMap.newKeySet()).add(request);
+        cache.put(request, response);
+        if (version.get() != loadVersion) {
+            log.trace("[{}] Device was updated while credentials were validated, skipping cache", deviceId);
+            cache.invalidate(request);
+        }
+    }
+
+    @Override
+    public void evict(DeviceId deviceId) {
+        if (cache == null) {
+            return;
+        }
+        version.incrementAndGet();
+        Set<Message> requests = requestsByDevice.remove(deviceId);
+        if (requests != null) {
+            cache.invalidateAll(requests);
+        }
+    }
+
+    @EventListener(DeviceUpdatedEvent.class)
+    public void onApplicationEvent(DeviceUpdatedEvent event) {
+        evict(event.getDevice().getId());
+    }
+
+    @EventListener(DeviceDeletedEvent.class)
+    public void onApplicationEvent(DeviceDeletedEvent event) {
+        evict(event.getDeviceId());
+    }
+
+    private void removeRequest(DeviceId deviceId, Message request) {
+        requestsByDevice.computeIfPresent(deviceId, (id, requests) -> {
+            requests.remove(request);
+            return requests.isEmpty() ? null : requests;
+        });
+    }
+
+}
@@ -21,6 +21,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import com.google.protobuf.Message;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
@@ -72,6 +73,7 @@ import org.thingsboard.server.common.transport.DeviceDeletedEvent;
 import org.thingsboard.server.common.transport.DeviceProfileUpdatedEvent;
 import org.thingsboard.server.common.transport.DeviceUpdatedEvent;
 import org.thingsboard.server.common.transport.SessionMsgListener;
+import org.thingsboard.server.common.transport.TransportDeviceCredentialsCache;
 import org.thingsboard.server.common.transport.TransportDeviceProfileCache;
 import org.thingsboard.server.common.transport.TransportResourceCache;
 import org.thingsboard.server.common.transport.TransportService;
@@ -173,6 +175,7 @@ public class DefaultTransportService extends TransportActivityManager implements
     private final TbServiceInfoProvider serviceInfoProvider;
     private final StatsFactory statsFactory;
     private final TransportDeviceProfileCache deviceProfileCache;
+    private final TransportDeviceCredentialsCache credentialsCache;
     private final TransportTenantProfileCache tenantProfileCache;
 
     private final TransportRateLimitService rateLimitService;
@@ -356,7 +359,7 @@ public class DefaultTransportService extends TransportActivityManager implements
         log.trace("Processing msg: {}", msg);
         TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(),
                 TransportApiRequestMsg.newBuilder().setValidateTokenRequestMsg(msg).build());
-        doProcess(transportType, protoMsg, callback);
+        doProcess(transportType, msg, protoMsg, callback);
     }
 
     @Override
@@ -365,7 +368,7 @@ public class DefaultTransportService extends TransportActivityManager implements
         log.trace("Processing msg: {}", msg);
         TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(),
                 TransportApiRequestMsg.newBuilder().setValidateBasicMqttCredRequestMsg(msg).build());
-        doProcess(transportType, protoMsg, callback);
+        doProcess(transportType, msg, protoMsg, callback);
     }
 
     @Override
@@ -393,40 +396,70 @@ public class DefaultTransportService extends TransportActivityManager implements
     public void process(DeviceTransportType transportType, TransportProtos.ValidateDeviceX509CertRequestMsg msg, TransportServiceCallback<ValidateDeviceCredentialsResponse> callback) {
         log.trace("Processing msg: {}", msg);
         TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(), TransportApiRequestMsg.newBuilder().setValidateX509CertRequestMsg(msg).build());
-        doProcess(transportType, protoMsg, callback);
+        doProcess(transportType, msg, protoMsg, callback);
     }
 
     @Override
     public void process(DeviceTransportType transportType, TransportProtos.ValidateOrCreateDeviceX509CertRequestMsg msg, TransportServiceCallback<ValidateDeviceCredentialsResponse> callback) {
         log.trace("Processing msg: {}", msg);
         TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(), TransportApiRequestMsg.newBuilder().setValidateOrCreateX509CertRequestMsg(msg).build());
-        doProcess(transportType, protoMsg, callback);
+        doProcess(transportType, null, protoMsg, callback);
     }
 
-    private void doProcess(DeviceTransportType transportType, TbProtoQueueMsg<TransportApiRequestMsg> protoMsg,
+    private void doProcess(DeviceTransportType transportType, Message credentialsRequest, TbProtoQueueMsg<TransportApiRequestMsg> protoMsg,
                            TransportServiceCallback<ValidateDeviceCredentialsResponse> callback) {
+        boolean useCache = credentialsRequest != null && credentialsCache.isEnabled();
+        if (useCache) {
+            ValidateDeviceCredentialsResponse cached = credentialsCache.get(credentialsRequest);
+            if (cached != null) {
+                transportCallbackExecutor.submit(() -> {
+                    ValidateDeviceCredentialsResponse result;
+                    try {
+                        TransportDeviceInfo tdi = cached.getDeviceInfo();
+                        DeviceProfile profile = deviceProfileCache.get(tdi.getDeviceProfileId());
+                        result = toValidateCredentialsResponse(transportType, tdi, profile, cached.getCredentials());
+                    } catch (Exception e) {
+                        callback.onError(e);
+                        return;
+                    }
+                    callback.onSuccess(result);
+                });
+                return;
+            }
+        }
+        long cacheVersion = useCache ? credentialsCache.getVersion() : 0;
         ListenableFuture<ValidateDeviceCredentialsResponse> response = Futures.transform(transportApiRequestTemplate.send(protoMsg), tmp -> {
             TransportProtos.ValidateDeviceCredentialsResponseMsg msg = tmp.getValue().getValidateCredResponseMsg();
-            ValidateDeviceCredentialsResponse.ValidateDeviceCredentialsResponseBuilder result = ValidateDeviceCredentialsResponse.builder();
             if (msg.hasDeviceInfo()) {
-                result.credentials(msg.getCredentialsBody());
                 TransportDeviceInfo tdi = getTransportDeviceInfo(msg.getDeviceInfo());
-                result.deviceInfo(tdi);
-                if (msg.hasDeviceProfile()) {
-                    DeviceProfile profile = deviceProfileCache.getOrCreate(tdi.getDeviceProfileId(), msg.getDeviceProfile());
-                    if (transportType != DeviceTransportType.DEFAULT
-                            && profile != null && profile.getTransportType() != DeviceTransportType.DEFAULT && profile.getTransportType() != transportType) {
-                        log.debug("[{}] Device profile [{}] has different transport type: {}, expected: {}", tdi.getDeviceId(), tdi.getDeviceProfileId(), profile.getTransportType(), transportType);
-                        throw new IllegalStateException("Device profile has different transport type: " + profile.getTransportType() + ". Expected: " + transportType);
-                    }
-                    result.deviceProfile(profile);
+                DeviceProfile profile = msg.hasDeviceProfile() ? deviceProfileCache.getOrCreate(tdi.getDeviceProfileId(), msg.getDeviceProfile()) : null;
+                ValidateDeviceCredentialsResponse result = toValidateCredentialsResponse(transportType, tdi, profile, msg.getCredentialsBody());
+                if (useCache) {
+                    // The profile is resolved from the device profile cache on every hit to pick up the profile updates
+                    credentialsCache.put(credentialsRequest, ValidateDeviceCredentialsResponse.builder()
+                            .deviceInfo(tdi).credentials(msg.getCredentialsBody()).build(), cacheVersion);
                 }
+                return result;
             }
-            return result.build();
+            return ValidateDeviceCredentialsResponse.builder().build();
         }, MoreExecutors.directExecutor());
         AsyncCallbackTemplate.withCallback(response, callback::onSuccess, callback::onError, transportCallbackExecutor);
     }
 
+    private ValidateDeviceCredentialsResponse toValidateCredentialsResponse(DeviceTransportType transportType, TransportDeviceInfo tdi,
+                                                                            DeviceProfile profile, String credentials) {
+        if (transportType != DeviceTransportType.DEFAULT
+                && profile != null && profile.getTransportType() != DeviceTransportType.DEFAULT && profile.getTransportType() != transportType) {
+            log.debug("[{}] Device profile [{}] has different transport type: {}, expected: {}", tdi.getDeviceId(), tdi.getDeviceProfileId(), profile.getTransportType(), transportType);
+            throw new IllegalStateException("Device profile has different transport type: " + profile.getTransportType() + ". Expected: " + transportType);
+        }
+        return ValidateDeviceCredentialsResponse.builder()
+                .credentials(credentials)
+                .deviceInfo(tdi)
+                .deviceProfile(profile)
+                .build();
+    }
+
     @Override
     public void process(TenantId tenantId, TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg requestMsg, TransportServiceCallback<GetOrCreateDeviceFromGatewayResponse> callback) {
         log.trace("Processing msg: {}", requestMsg);
@@ -932,6 +965,11 @@ public class DefaultTransportService extends TransportActivityManager implements
                     rateLimitService.remove(new DeviceId(entityUuid));
                     onDeviceDeleted(new DeviceId(entityUuid));
                 }
+            } else if (toSessionMsg.hasToTransportUpdateCredentialsNotification()) {
+                TransportProtos.ToTransportUpdateCredentialsProto msg = toSessionMsg.getToTransportUpdateCredentialsNotification();
+                if (msg.hasDeviceIdMSB() && msg.hasDeviceIdLSB()) {
+                    credentialsCache.evict(new DeviceId(new UUID(msg.getDeviceIdMSB(), msg.getDeviceIdLSB())));
+                }
             } else if (toSessionMsg.hasResourceUpdateMsg()) {
                 TransportProtos.ResourceUpdateMsg msg = toSessionMsg.getResourceUpdateMsg();
                 TenantId tenantId = TenantId.fromUUID(new UUID(msg.getTenantIdMSB(), msg.getTenantIdLSB()));
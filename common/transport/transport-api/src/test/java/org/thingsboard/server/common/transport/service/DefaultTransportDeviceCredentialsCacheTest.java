@@ -0,0 +1,98 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.stats.StatsCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.transport.DeviceDeletedEvent;
+import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
+import org.thingsboard.server.common.transport.auth.ValidateDeviceCredentialsResponse;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DefaultTransportDeviceCredentialsCacheTest {
+
+    private final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+    private final TransportProtos.ValidateDeviceTokenRequestMsg request = TransportProtos.ValidateDeviceTokenRequestMsg.newBuilder()
+            .setToken("token").build();
+
+    private DefaultTransportDeviceCredentialsCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        StatsFactory statsFactory = mock(StatsFactory.class);
+        when(statsFactory.createStatsCounter(anyString(), anyString())).thenAnswer(inv -> mock(StatsCounter.class));
+        cache = new DefaultTransportDeviceCredentialsCache(5, 100, statsFactory);
+    }
+
+    @Test
+    public void testPutAndGet() {
+        cache.put(request, response(), cache.getVersion());
+
+        TransportProtos.ValidateDeviceTokenRequestMsg sameRequest = TransportProtos.ValidateDeviceTokenRequestMsg.newBuilder()
+                .setToken("token").build();
+        assertThat(cache.get(sameRequest)).isNotNull();
+        assertThat(cache.get(sameRequest).getDeviceInfo().getDeviceId()).isEqualTo(deviceId);
+        assertThat(cache.get(TransportProtos.ValidateDeviceTokenRequestMsg.newBuilder().setToken("other").build())).isNull();
+    }
+
+    @Test
+    public void testEvictOnDeviceDeleted() {
+        cache.put(request, response(), cache.getVersion());
+
+        cache.onApplicationEvent(new DeviceDeletedEvent(deviceId));
+
+        assertThat(cache.get(request)).isNull();
+    }
+
+    @Test
+    public void testRacingResponseIsNotCached() {
+        long version = cache.getVersion();
+        cache.evict(deviceId);
+        cache.put(request, response(), version);
+
+        assertThat(cache.get(request)).isNull();
+    }
+
+    @Test
+    public void testFailedValidationIsNotCached() {
+        cache.put(request, ValidateDeviceCredentialsResponse.builder().build(), cache.getVersion());
+
+        assertThat(cache.get(request)).isNull();
+    }
+
+    @Test
+    public void testDisabled() {
+        StatsFactory statsFactory = mock(StatsFactory.class);
+        assertThat(new DefaultTransportDeviceCredentialsCache(5, 0, statsFactory).isEnabled()).isFalse();
+    }
+
+    private ValidateDeviceCredentialsResponse response() {
+        TransportDeviceInfo deviceInfo = new TransportDeviceInfo();
+        deviceInfo.setDeviceId(deviceId);
+        return ValidateDeviceCredentialsResponse.builder().deviceInfo(deviceInfo).credentials("token").build();
+    }
+
+}
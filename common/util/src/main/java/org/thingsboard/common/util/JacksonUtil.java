@@ -216,6 +216,18 @@ public class JacksonUtil {
         }
     }
 
+    /**
+     * Converts the tree into a new structure of maps, lists and primitive values, like the ones produced by
+     * reading the same JSON as {@code Object.class}.
+     */
+    public static Object treeToPlainObject(JsonNode node) {
+        try {
+            return OBJECT_MAPPER.readerFor(Object.class).readValue(node);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Can't convert value: " + node.toString(), e);
+        }
+    }
+
     public static JsonNode toJsonNode(String value) {
         return toJsonNode(value, OBJECT_MAPPER);
     }
@@ -17,6 +17,7 @@ package org.thingsboard.server.dao.attributes;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.beans.factory.annotation.Value;
@@ -29,6 +30,7 @@ import org.thingsboard.server.common.data.id.DeviceProfileId;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.dao.entity.EntityDataIndex;
 import org.thingsboard.server.dao.service.Validator;
 
 import java.util.Collection;
@@ -47,12 +49,14 @@ import static org.thingsboard.server.dao.attributes.AttributeUtils.validate;
 @Slf4j
 public class BaseAttributesService implements AttributesService {
     private final AttributesDao attributesDao;
+    private final EntityDataIndex entityDataIndex;
 
     @Value("${sql.attributes.value_no_xss_validation:false}")
     private boolean valueNoXssValidation;
 
-    public BaseAttributesService(AttributesDao attributesDao) {
+    public BaseAttributesService(AttributesDao attributesDao, EntityDataIndex entityDataIndex) {
         this.attributesDao = attributesDao;
+        this.entityDataIndex = entityDataIndex;
     }
 
     @Override
@@ -98,14 +102,14 @@ public class BaseAttributesService implements AttributesService {
     public ListenableFuture<Long> save(TenantId tenantId, EntityId entityId, AttributeScope scope, AttributeKvEntry attribute) {
         validate(entityId, scope);
         AttributeUtils.validate(attribute, valueNoXssValidation);
-        return attributesDao.save(tenantId, entityId, scope, attribute);
+        return saveAndUpdateIndex(tenantId, entityId, scope, attribute);
     }
 
     @Override
     public ListenableFuture<List<Long>> save(TenantId tenantId, EntityId entityId, String scope, List<AttributeKvEntry> attributes) {
         validate(entityId, scope);
         AttributeUtils.validate(attributes, valueNoXssValidation);
-        List<ListenableFuture<Long>> saveFutures = attributes.stream().map(attribute -> attributesDao.save(tenantId, entityId, AttributeScope.valueOf(scope), attribute)).collect(Collectors.toList());
+        List<ListenableFuture<Long>> saveFutures = attributes.stream().map(attribute -> saveAndUpdateIndex(tenantId, entityId, AttributeScope.valueOf(scope), attribute)).collect(Collectors.toList());
         return Futures.allAsList(saveFutures);
     }
 
@@ -113,20 +117,42 @@ public class BaseAttributesService implements AttributesService {
     public ListenableFuture<List<Long>> save(TenantId tenantId, EntityId entityId, AttributeScope scope, List<AttributeKvEntry> attributes) {
         validate(entityId, scope);
         AttributeUtils.validate(attributes, valueNoXssValidation);
-        List<ListenableFuture<Long>> saveFutures = attributes.stream().map(attribute -> attributesDao.save(tenantId, entityId, scope, attribute)).collect(Collectors.toList());
+        List<ListenableFuture<Long>> saveFutures = attributes.stream().map(attribute -> saveAndUpdateIndex(tenantId, entityId, scope, attribute)).collect(Collectors.toList());
         return Futures.allAsList(saveFutures);
     }
 
     @Override
     public ListenableFuture<List<String>> removeAll(TenantId tenantId, EntityId entityId, String scope, List<String> attributeKeys) {
         validate(entityId, scope);
-        return Futures.allAsList(attributesDao.removeAll(tenantId, entityId, AttributeScope.valueOf(scope), attributeKeys));
+        return removeAllAndUpdateIndex(tenantId, entityId, AttributeScope.valueOf(scope), attributeKeys);
     }
 
     @Override
     public ListenableFuture<List<String>> removeAll(TenantId tenantId, EntityId entityId, AttributeScope scope, List<String> attributeKeys) {
         validate(entityId, scope);
-        return Futures.allAsList(attributesDao.removeAll(tenantId, entityId, scope, attributeKeys));
+        return removeAllAndUpdateIndex(tenantId, entityId, scope, attributeKeys);
+    }
+
+    private ListenableFuture<Long> saveAndUpdateIndex(TenantId tenantId, EntityId entityId, AttributeScope scope, AttributeKvEntry attribute) {
+        ListenableFuture<Long> future = attributesDao.save(tenantId, entityId, scope, attribute);
+        if (!entityDataIndex.isEnabled()) {
+            return future;
+        }
+        return Futures.transform(future, version -> {
+            entityDataIndex.onAttributeSaved(tenantId, entityId, scope, attribute);
+            return version;
+        }, MoreExecutors.directExecutor());
+    }
+
+    private ListenableFuture<List<String>> removeAllAndUpdateIndex(TenantId tenantId, EntityId entityId, AttributeScope scope, List<String> attributeKeys) {
+        ListenableFuture<List<String>> future = Futures.allAsList(attributesDao.removeAll(tenantId, entityId, scope, attributeKeys));
+        if (!entityDataIndex.isEnabled()) {
+            return future;
+        }
+        return Futures.transform(future, keys -> {
+            keys.forEach(key -> entityDataIndex.onAttributeRemoved(tenantId, entityId, scope, key));
+            return keys;
+        }, MoreExecutors.directExecutor());
     }
 
     @Override
@@ -39,6 +39,7 @@ import org.thingsboard.server.common.data.util.TbPair;
 import org.thingsboard.server.common.stats.DefaultCounter;
 import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.cache.CacheExecutorService;
+import org.thingsboard.server.dao.entity.EntityDataIndex;
 import org.thingsboard.server.dao.service.Validator;
 import org.thingsboard.server.dao.sql.JpaExecutorService;
 
@@ -70,6 +71,7 @@ public class CachedAttributesService implements AttributesService {
     private final DefaultCounter hitCounter;
     private final DefaultCounter missCounter;
     private final VersionedTbCache<AttributeCacheKey, AttributeKvEntry> cache;
+    private final EntityDataIndex entityDataIndex;
     private ListeningExecutorService cacheExecutor;
 
     @Value("${cache.type:caffeine}")
@@ -81,11 +83,13 @@ public class CachedAttributesService implements AttributesService {
                                    JpaExecutorService jpaExecutorService,
                                    StatsFactory statsFactory,
                                    CacheExecutorService cacheExecutorService,
-                                   VersionedTbCache<AttributeCacheKey, AttributeKvEntry> cache) {
+                                   VersionedTbCache<AttributeCacheKey, AttributeKvEntry> cache,
+                                   EntityDataIndex entityDataIndex) {
         this.attributesDao = attributesDao;
         this.jpaExecutorService = jpaExecutorService;
         this.cacheExecutorService = cacheExecutorService;
         this.cache = cache;
+        this.entityDataIndex = entityDataIndex;
 
         this.hitCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "hit");
         this.missCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "miss");
@@ -176,16 +180,11 @@ public class CachedAttributesService implements AttributesService {
     }
 
     private Map<String, TbCacheValueWrapper<AttributeKvEntry>> findCachedAttributes(EntityId entityId, AttributeScope scope, Collection<String> attributeKeys) {
+        List<AttributeCacheKey> cacheKeys = attributeKeys.stream().map(key -> new AttributeCacheKey(scope, entityId, key)).collect(Collectors.toList());
         Map<String, TbCacheValueWrapper<AttributeKvEntry>> cachedAttributes = new HashMap<>();
-        for (String attributeKey : attributeKeys) {
-            var cachedAttributeValue = cache.get(new AttributeCacheKey(scope, entityId, attributeKey));
-            if (cachedAttributeValue != null) {
-                hitCounter.increment();
-                cachedAttributes.put(attributeKey, cachedAttributeValue);
-            } else {
-                missCounter.increment();
-            }
-        }
+        cache.getAll(cacheKeys).forEach((cacheKey, cachedAttributeValue) -> cachedAttributes.put(cacheKey.getKey(), cachedAttributeValue));
+        hitCounter.add(cachedAttributes.size());
+        missCounter.add(attributeKeys.size() - cachedAttributes.size());
         return cachedAttributes;
     }
 
@@ -244,6 +243,7 @@ public class CachedAttributesService implements AttributesService {
         ListenableFuture<Long> future = attributesDao.save(tenantId, entityId, scope, attribute);
          return Futures.transform(future, version -> {
             put(entityId, scope, new BaseAttributeKvEntry(((BaseAttributeKvEntry)attribute).getKv(), attribute.getLastUpdateTs(), version));
+            entityDataIndex.onAttributeSaved(tenantId, entityId, scope, attribute);
             return version;
         }, cacheExecutor);
     }
@@ -267,6 +267,7 @@ public class CachedAttributesService implements AttributesService {
         return Futures.allAsList(futures.stream().map(future -> Futures.transform(future, keyVersionPair -> {
             String key = keyVersionPair.getFirst();
             cache.evict(new AttributeCacheKey(scope, entityId, key), keyVersionPair.getSecond());
+            entityDataIndex.onAttributeRemoved(tenantId, entityId, scope, key);
             return key;
         }, cacheExecutor)).collect(Collectors.toList()));
     }
@@ -218,5 +218,7 @@ public interface DeviceDao extends Dao<Device>, TenantEntityDao, ExportableEntit
 
     PageData<DeviceIdInfo> findDeviceIdInfos(PageLink pageLink);
 
+    List<DeviceLatestValues> findDevicesWithLatestValues(UUID tenantId, UUID lastDeviceId, int limit, List<String> serverAttributeKeys, List<String> timeseriesKeys);
+
     PageData<DeviceInfo> findDeviceInfosByFilter(DeviceInfoFilter filter, PageLink pageLink);
 }
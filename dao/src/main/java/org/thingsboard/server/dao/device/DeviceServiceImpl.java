@@ -386,6 +386,15 @@ public class DeviceServiceImpl extends CachedVersionedEntityService<DeviceCacheK
         return deviceDao.findDeviceIdInfos(pageLink);
     }
 
+    @Override
+    public List<DeviceLatestValues> findDevicesWithLatestValues(DeviceId lastDeviceId, int limit, List<String> serverAttributeKeys, List<String> timeseriesKeys) {
+        log.trace("Executing findDevicesWithLatestValues, lastDeviceId [{}], limit [{}]", lastDeviceId, limit);
+        if (limit <= 0) {
+            throw new IncorrectParameterException("Limit should be positive!");
+        }
+        return deviceDao.findDevicesWithLatestValues(null, lastDeviceId != null ? lastDeviceId.getId() : null, limit, serverAttributeKeys, timeseriesKeys);
+    }
+
     @Override
     public PageData<Device> findDevicesByTenantIdAndType(TenantId tenantId, String type, PageLink pageLink) {
         log.trace("Executing findDevicesByTenantIdAndType, tenantId [{}], type [{}], pageLink [{}]", tenantId, type, pageLink);
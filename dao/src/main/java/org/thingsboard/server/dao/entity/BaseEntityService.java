@@ -75,6 +75,9 @@ public class BaseEntityService extends AbstractEntityService implements EntitySe
     @Autowired
     private EntityQueryDao entityQueryDao;
 
+    @Autowired
+    private EntityDataIndex entityDataIndex;
+
     @Autowired
     @Lazy
     EntityServiceRegistry entityServiceRegistry;
@@ -226,6 +229,10 @@ public class BaseEntityService extends AbstractEntityService implements EntitySe
     }
 
     private PageData<EntityData> findEntityIdsByFilterAndSorterColumns(TenantId tenantId, CustomerId customerId, EntityDataQuery query) {
+        PageData<EntityData> indexed = entityDataIndex.findEntityDataByQuery(tenantId, customerId, query);
+        if (indexed != null) {
+            return indexed;
+        }
         List<EntityKey> entityFields = null;
         List<EntityKey> latestValues = null;
         if (query.getPageLink().getSortOrder() != null) {
@@ -0,0 +1,332 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.entity;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.thingsboard.common.util.ThingsBoardExecutors;
+import org.thingsboard.server.common.data.AttributeScope;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.StringUtils;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.common.data.kv.KvEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.data.kv.TsKvLatestRemovingResult;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityDataQuery;
+import org.thingsboard.server.common.data.query.EntityFilter;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.EntityNameFilter;
+import org.thingsboard.server.common.data.query.EntityTypeFilter;
+import org.thingsboard.server.dao.device.DeviceDao;
+import org.thingsboard.server.dao.device.DeviceLatestValues;
+import org.thingsboard.server.dao.entity.TenantEntityDataIndex.IndexedKey;
+import org.thingsboard.server.dao.eventsourcing.DeleteEntityEvent;
+import org.thingsboard.server.dao.eventsourcing.SaveEntityEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Tenant scoped in-memory columnar index of the devices and the latest values of the configured keys, used to find
+ * the page of entity ids of the entity data queries without joining the latest values in the database.
+ * <p>
+ * The index of a tenant is loaded in the background on the first device query of the tenant and is kept up to date
+ * by the timeseries, attribute and device services of this node. The writes of other nodes are not seen, so the index
+ * is used in the monolith mode only. Indexes are reloaded in place periodically, to pick up the changes made
+ * bypassing the services, and dropped when the tenant was not queried since the previous reload. The loads are split
+ * into pages executed by a bounded pool, so the tenants are loaded concurrently without blocking each other.
+ * Until the first load of the tenant is done, or when the query can not be answered from the index,
+ * {@link #findEntityDataByQuery} returns {@code null} and the caller falls back to the database.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class EntityDataIndex {
+
+    private final DeviceDao deviceDao;
+
+    @Getter
+    @Value("${sql.entity_data_index.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sql.entity_data_index.timeseries_keys:}")
+    private List<String> timeseriesKeys;
+
+    @Value("${sql.entity_data_index.server_attribute_keys:}")
+    private List<String> serverAttributeKeys;
+
+    @Value("${sql.entity_data_index.max_entities_per_tenant:1000000}")
+    private int maxEntitiesPerTenant;
+
+    @Value("${sql.entity_data_index.load_batch_size:1000}")
+    private int loadBatchSize;
+
+    @Value("${sql.entity_data_index.rebuild_interval_sec:300}")
+    private long rebuildIntervalSec;
+
+    @Value("${sql.entity_data_index.load_threads:2}")
+    private int loadThreads;
+
+    @Value("${database.ts_latest.type:sql}")
+    private String latestTsType;
+
+    @Value("${service.type:monolith}")
+    private String serviceType;
+
+    private final Map<TenantId, TenantState> tenants = new ConcurrentHashMap<>();
+    private final List<IndexedKey> indexedKeys = new ArrayList<>();
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (!"monolith".equalsIgnoreCase(serviceType)) {
+            log.warn("Entity data index is not supported by the '{}' service type, since the writes of other nodes are not indexed. Disabling it", serviceType);
+            enabled = false;
+            return;
+        }
+        timeseriesKeys = nonBlank(timeseriesKeys);
+        serverAttributeKeys = nonBlank(serverAttributeKeys);
+        if (!"sql".equalsIgnoreCase(latestTsType) && !timeseriesKeys.isEmpty()) {
+            log.warn("Latest timeseries are not stored in SQL, timeseries keys {} are not indexed", timeseriesKeys);
+            timeseriesKeys = Collections.emptyList();
+        }
+        timeseriesKeys.forEach(key -> indexedKeys.add(new IndexedKey(EntityKeyType.TIME_SERIES, key)));
+        serverAttributeKeys.forEach(key -> indexedKeys.add(new IndexedKey(EntityKeyType.SERVER_ATTRIBUTE, key)));
+        log.info("Entity data index is enabled for timeseries keys {} and server attribute keys {}", timeseriesKeys, serverAttributeKeys);
+        scheduler = ThingsBoardExecutors.newScheduledThreadPool(Math.max(1, loadThreads), "entity-data-index");
+        scheduler.scheduleWithFixedDelay(this::rebuildIndexes, rebuildIntervalSec, rebuildIntervalSec, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the page of the matching entity ids or {@code null} if the query should be executed by the database.
+     * The entity data of the result contains only the entity ids.
+     */
+    public PageData<EntityData> findEntityDataByQuery(TenantId tenantId, CustomerId customerId, EntityDataQuery query) {
+        if (!enabled || !isDeviceQuery(query.getEntityFilter())) {
+            return null;
+        }
+        TenantState state = tenants.get(tenantId);
+        if (state == null) {
+            TenantState newState = new TenantState(new TenantEntityDataIndex(indexedKeys));
+            state = tenants.putIfAbsent(tenantId, newState);
+            if (state == null) {
+                // the load starts once the state is visible, since it stops when the state of the tenant is replaced
+                state = newState;
+                startLoad(tenantId, state);
+            }
+        }
+        state.accessed = true;
+        TenantEntityDataIndex index = state.index;
+        return index != null && state.loaded ? index.findEntityData(customerId, query) : null;
+    }
+
+    public void onTimeseriesSaved(TenantId tenantId, EntityId entityId, TsKvEntry entry) {
+        updateValue(tenantId, entityId, EntityKeyType.TIME_SERIES, entry.getKey(), entry);
+    }
+
+    public void onTimeseriesRemoved(TenantId tenantId, EntityId entityId, TsKvLatestRemovingResult result) {
+        if (result != null && result.isRemoved()) {
+            // the data is the previous value that replaced the removed one, if any
+            updateValue(tenantId, entityId, EntityKeyType.TIME_SERIES, result.getKey(), result.getData());
+        }
+    }
+
+    public void onAttributeSaved(TenantId tenantId, EntityId entityId, AttributeScope scope, AttributeKvEntry attribute) {
+        if (scope == AttributeScope.SERVER_SCOPE) {
+            updateValue(tenantId, entityId, EntityKeyType.SERVER_ATTRIBUTE, attribute.getKey(), attribute);
+        }
+    }
+
+    public void onAttributeRemoved(TenantId tenantId, EntityId entityId, AttributeScope scope, String key) {
+        if (scope == AttributeScope.SERVER_SCOPE) {
+            updateValue(tenantId, entityId, EntityKeyType.SERVER_ATTRIBUTE, key, null);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(SaveEntityEvent<?> event) {
+        if (!enabled || !(event.getEntity() instanceof Device device)) {
+            return;
+        }
+        if (event.getOldEntity() instanceof Device oldDevice && !device.getTenantId().equals(oldDevice.getTenantId())) {
+            forEachIndex(oldDevice.getTenantId(), index -> index.removeDevice(device.getUuidId()));
+        }
+        forEachIndex(device.getTenantId(), index -> index.putDevice(device));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(DeleteEntityEvent<?> event) {
+        if (!enabled || event.getEntityId() == null) {
+            return;
+        }
+        EntityType entityType = event.getEntityId().getEntityType();
+        if (entityType == EntityType.DEVICE) {
+            forEachIndex(event.getTenantId(), index -> index.removeDevice(event.getEntityId().getId()));
+        } else if (entityType == EntityType.TENANT) {
+            tenants.remove(TenantId.fromUUID(event.getEntityId().getId()));
+        }
+    }
+
+    void startLoad(TenantId tenantId, TenantState state) {
+        if (state.loading.compareAndSet(false, true)) {
+            state.index.startPass();
+            state.lastDeviceId = null;
+            state.loadStartTs = System.currentTimeMillis();
+            scheduler.execute(() -> loadPage(tenantId, state));
+        }
+    }
+
+    /**
+     * Loads the next page of the devices into the index. Every page is a separate task, so the loads of the tenants interleave.
+     */
+    void loadPage(TenantId tenantId, TenantState state) {
+        TenantEntityDataIndex index = state.index;
+        if (tenants.get(tenantId) != state || index == null) {
+            state.loading.set(false);
+            return;
+        }
+        try {
+            long loadSeq = index.getWriteSeq();
+            List<DeviceLatestValues> devices = deviceDao.findDevicesWithLatestValues(tenantId.getId(), state.lastDeviceId, loadBatchSize, serverAttributeKeys, timeseriesKeys);
+            for (DeviceLatestValues values : devices) {
+                index.loadDevice(values.getDevice(), values.getServerAttributes(), values.getLatestTimeseries(), loadSeq);
+            }
+            if (index.size() > maxEntitiesPerTenant) {
+                log.info("[{}] Tenant has more than {} devices, entity data index is not used for it", tenantId, maxEntitiesPerTenant);
+                state.tooLarge = true;
+                state.loaded = false;
+                state.index = null;
+                state.loading.set(false);
+                return;
+            }
+            if (devices.size() == loadBatchSize) {
+                state.lastDeviceId = devices.get(devices.size() - 1).getDevice().getUuidId();
+                scheduler.execute(() -> loadPage(tenantId, state));
+                return;
+            }
+            int deleted = index.finishPass();
+            state.loaded = true;
+            state.loading.set(false);
+            log.debug("[{}] Loaded entity data index of {} devices in {} ms, {} devices deleted", tenantId, index.size(),
+                    System.currentTimeMillis() - state.loadStartTs, deleted);
+        } catch (Exception e) {
+            log.warn("[{}] Failed to load entity data index", tenantId, e);
+            state.loading.set(false);
+        }
+    }
+
+    /**
+     * Reloads the indexes of the tenants queried since the previous reload and drops the rest.
+     * The tenants with too many devices are not reloaded, their state is dropped once they become idle as well,
+     * so the number of their devices is checked again by the load that the next query starts.
+     */
+    void rebuildIndexes() {
+        tenants.forEach((tenantId, state) -> {
+            if (!state.accessed) {
+                tenants.remove(tenantId, state);
+                log.debug("[{}] Dropped entity data index of the idle tenant", tenantId);
+            } else {
+                state.accessed = false;
+                if (!state.tooLarge) {
+                    startLoad(tenantId, state);
+                }
+            }
+        });
+    }
+
+    private void updateValue(TenantId tenantId, EntityId entityId, EntityKeyType keyType, String key, KvEntry value) {
+        if (!enabled || entityId.getEntityType() != EntityType.DEVICE || tenants.isEmpty()) {
+            return;
+        }
+        IndexedKey indexedKey = new IndexedKey(keyType, key);
+        forEachIndex(tenantId, index -> {
+            if (index.isIndexed(indexedKey)) {
+                index.updateValue(entityId.getId(), indexedKey, value);
+            }
+        });
+    }
+
+    private void forEachIndex(TenantId tenantId, Consumer<TenantEntityDataIndex> action) {
+        TenantState state = tenants.get(tenantId);
+        TenantEntityDataIndex index = state != null ? state.index : null;
+        if (index != null) {
+            action.accept(index);
+        }
+    }
+
+    private static boolean isDeviceQuery(EntityFilter filter) {
+        switch (filter.getType()) {
+            case ENTITY_TYPE:
+                return ((EntityTypeFilter) filter).getEntityType() == EntityType.DEVICE;
+            case ENTITY_NAME:
+                return ((EntityNameFilter) filter).getEntityType() == EntityType.DEVICE;
+            case DEVICE_TYPE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static List<String> nonBlank(List<String> keys) {
+        return keys != null ? keys.stream().filter(StringUtils::isNotBlank).map(String::trim).distinct().toList() : Collections.emptyList();
+    }
+
+    static class TenantState {
+        volatile TenantEntityDataIndex index;
+        volatile boolean loaded;
+        volatile boolean accessed;
+        volatile boolean tooLarge;
+        final AtomicBoolean loading = new AtomicBoolean();
+        // accessed by the load tasks of the tenant only, which never run concurrently
+        UUID lastDeviceId;
+        long loadStartTs;
+
+        TenantState(TenantEntityDataIndex index) {
+            this.index = index;
+        }
+    }
+
+}
@@ -0,0 +1,734 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.entity;
+
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.StringUtils;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.common.data.kv.KvEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.query.BooleanFilterPredicate;
+import org.thingsboard.server.common.data.query.ComplexFilterPredicate;
+import org.thingsboard.server.common.data.query.DeviceTypeFilter;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityDataPageLink;
+import org.thingsboard.server.common.data.query.EntityDataQuery;
+import org.thingsboard.server.common.data.query.EntityDataSortOrder;
+import org.thingsboard.server.common.data.query.EntityFilter;
+import org.thingsboard.server.common.data.query.EntityKey;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.EntityNameFilter;
+import org.thingsboard.server.common.data.query.EntityTypeFilter;
+import org.thingsboard.server.common.data.query.KeyFilter;
+import org.thingsboard.server.common.data.query.KeyFilterPredicate;
+import org.thingsboard.server.common.data.query.NumericFilterPredicate;
+import org.thingsboard.server.common.data.query.StringFilterPredicate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.DoublePredicate;
+import java.util.function.Predicate;
+
+import static org.thingsboard.server.common.data.StringUtils.splitByCommaWithoutQuotes;
+import static org.thingsboard.server.dao.sql.query.EntityKeyMapping.CREATED_TIME;
+import static org.thingsboard.server.dao.sql.query.EntityKeyMapping.LABEL;
+import static org.thingsboard.server.dao.sql.query.EntityKeyMapping.NAME;
+import static org.thingsboard.server.dao.sql.query.EntityKeyMapping.TITLE;
+import static org.thingsboard.server.dao.sql.query.EntityKeyMapping.TYPE;
+
+/**
+ * Columnar in-memory store of the devices of a single tenant: the entity fields and the latest values of the indexed keys.
+ * <p>
+ * Every column is an array addressed by the row number of the device. Values written by the services always
+ * overwrite the row, the same way the database upserts do, and mark the row with the next write sequence number.
+ * The index is reloaded from the database in passes: a loaded device replaces the row if the row was not written
+ * since the page was read, otherwise the loaded values are applied only to the cells that were never written.
+ * Rows that were neither loaded nor written during a pass no longer exist in the database and are deleted.
+ * Deleted devices keep their row as a tombstone, so a load that read the device before the deletion does not bring it back.
+ * <p>
+ * {@link #findEntityData} returns {@code null} for the queries it can not answer with the same result as the
+ * database, e.g. LIKE wildcards or sorting by a string column, which depends on the database collation.
+ */
+class TenantEntityDataIndex {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final byte ROW_NO_FIELDS = 0; // the values were written before the device was loaded
+    private static final byte ROW_PRESENT = 1;
+    private static final byte ROW_DELETED = 2;
+
+    private static final byte VALUE_NONE = 0;
+    private static final byte VALUE_REMOVED = 1;
+    private static final byte VALUE_BOOLEAN = 2;
+    private static final byte VALUE_LONG = 3;
+    private static final byte VALUE_DOUBLE = 4;
+    private static final byte VALUE_STRING = 5;
+    private static final byte VALUE_JSON = 6;
+
+    private static final RowComparator ROW_ORDER = Integer::compare;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Integer> rowsById = new HashMap<>();
+    private final Map<IndexedKey, KeyColumn> columns = new HashMap<>();
+
+    private int size;
+    private long writeSeq;
+    private int pass;
+    private long passStartSeq;
+    private byte[] states = new byte[INITIAL_CAPACITY];
+    private long[] rowWrites = new long[INITIAL_CAPACITY];
+    private int[] rowPasses = new int[INITIAL_CAPACITY];
+    private UUID[] ids = new UUID[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private String[] types = new String[INITIAL_CAPACITY];
+    private String[] labels = new String[INITIAL_CAPACITY];
+    private long[] createdTimes = new long[INITIAL_CAPACITY];
+    private UUID[] customerIds = new UUID[INITIAL_CAPACITY];
+
+    TenantEntityDataIndex(Collection<IndexedKey> keys) {
+        keys.forEach(key -> columns.put(key, new KeyColumn()));
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the sequence number of the last write. The values loaded from the database after this call
+     * are at least as new as the rows that were not written since.
+     */
+    long getWriteSeq() {
+        lock.readLock().lock();
+        try {
+            return writeSeq;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void putDevice(Device device) {
+        lock.writeLock().lock();
+        try {
+            int row = getOrCreateRow(device.getUuidId());
+            if (states[row] != ROW_DELETED) {
+                setFields(row, device);
+                rowWrites[row] = ++writeSeq;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void removeDevice(UUID deviceId) {
+        lock.writeLock().lock();
+        try {
+            int row = getOrCreateRow(deviceId);
+            delete(row);
+            rowWrites[row] = ++writeSeq;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Starts a new load pass. The rows that are not loaded or written until {@link #finishPass()} are deleted.
+     */
+    void startPass() {
+        lock.writeLock().lock();
+        try {
+            pass++;
+            passStartSeq = writeSeq;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies the device loaded from the database.
+     *
+     * @param loadSeq the write sequence number taken before the device was read from the database
+     */
+    void loadDevice(Device device, List<AttributeKvEntry> serverAttributes, List<TsKvEntry> latestTimeseries, long loadSeq) {
+        lock.writeLock().lock();
+        try {
+            int row = getOrCreateRow(device.getUuidId());
+            rowPasses[row] = pass;
+            if (states[row] == ROW_DELETED) {
+                return;
+            }
+            boolean replace = rowWrites[row] <= loadSeq;
+            if (replace || states[row] == ROW_NO_FIELDS) {
+                setFields(row, device);
+            }
+            if (replace) {
+                columns.values().forEach(column -> column.clear(row));
+            }
+            loadValues(row, EntityKeyType.SERVER_ATTRIBUTE, serverAttributes);
+            loadValues(row, EntityKeyType.TIME_SERIES, latestTimeseries);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes the rows that were neither loaded nor written since the pass started.
+     *
+     * @return the number of deleted rows
+     */
+    int finishPass() {
+        lock.writeLock().lock();
+        try {
+            int deleted = 0;
+            for (int row = 0; row < size; row++) {
+                if (states[row] != ROW_DELETED && rowPasses[row] != pass && rowWrites[row] <= passStartSeq) {
+                    delete(row);
+                    deleted++;
+                }
+            }
+            return deleted;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the latest value of the key, {@code null} value marks the key as removed.
+     */
+    void updateValue(UUID deviceId, IndexedKey key, KvEntry value) {
+        KeyColumn column = columns.get(key);
+        if (column == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int row = getOrCreateRow(deviceId);
+            if (states[row] != ROW_DELETED) {
+                column.set(row, value);
+                rowWrites[row] = ++writeSeq;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean isIndexed(IndexedKey key) {
+        return columns.containsKey(key);
+    }
+
+    PageData<EntityData> findEntityData(CustomerId customerId, EntityDataQuery query) {
+        RowFilter filter = toEntityFilter(query.getEntityFilter());
+        if (filter == null) {
+            return null;
+        }
+        if (customerId != null && !customerId.isNullUid()) {
+            UUID customerUuid = customerId.getId();
+            filter = and(filter, row -> customerUuid.equals(customerIds[row]));
+        }
+        if (query.getKeyFilters() != null) {
+            for (KeyFilter keyFilter : query.getKeyFilters()) {
+                RowFilter keyRowFilter = toKeyFilter(keyFilter.getKey(), keyFilter.getPredicate());
+                if (keyRowFilter == null) {
+                    return null;
+                }
+                filter = and(filter, keyRowFilter);
+            }
+        }
+        EntityDataPageLink pageLink = query.getPageLink();
+        RowComparator comparator = toComparator(pageLink.getSortOrder());
+        if (comparator == null) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            int[] matched = new int[Math.min(size, INITIAL_CAPACITY)];
+            int count = 0;
+            for (int row = 0; row < size; row++) {
+                if (states[row] == ROW_PRESENT && filter.test(row)) {
+                    if (count == matched.length) {
+                        matched = Arrays.copyOf(matched, matched.length * 2);
+                    }
+                    matched[count++] = row;
+                }
+            }
+            int pageSize = pageLink.getPageSize();
+            int offset = pageLink.getPage() * pageSize;
+            int[] pageRows = selectPage(matched, count, offset, pageSize, comparator);
+            List<EntityData> data = new ArrayList<>(pageRows.length);
+            for (int row : pageRows) {
+                data.add(new EntityData(new DeviceId(ids[row]), Collections.emptyMap(), Collections.emptyMap()));
+            }
+            int totalPages = pageSize > 0 ? (int) Math.ceil((float) count / pageSize) : 1;
+            boolean hasNext = pageSize > 0 && count > offset + pageRows.length;
+            return new PageData<>(data, totalPages, count, hasNext);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] selectPage(int[] matched, int count, int offset, int pageSize, RowComparator comparator) {
+        if (offset >= count) {
+            return new int[0];
+        }
+        int end = (int) Math.min(count, (long) offset + pageSize);
+        if (comparator == ROW_ORDER) {
+            return Arrays.copyOfRange(matched, offset, end);
+        }
+        Integer[] sorted;
+        if (end < count / 4) {
+            // only the first rows are needed, so they are selected with a bounded heap instead of sorting all the rows
+            PriorityQueue<Integer> heap = new PriorityQueue<>(end, (a, b) -> comparator.compare(b, a));
+            for (int i = 0; i < count; i++) {
+                int row = matched[i];
+                if (heap.size() < end) {
+                    heap.add(row);
+                } else if (comparator.compare(row, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(row);
+                }
+            }
+            sorted = new Integer[end];
+            for (int i = end - 1; i >= 0; i--) {
+                sorted[i] = heap.poll();
+            }
+        } else {
+            sorted = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                sorted[i] = matched[i];
+            }
+            Arrays.sort(sorted, comparator::compare);
+        }
+        int[] result = new int[end - offset];
+        for (int i = offset; i < end; i++) {
+            result[i - offset] = sorted[i];
+        }
+        return result;
+    }
+
+    private RowFilter toEntityFilter(EntityFilter entityFilter) {
+        switch (entityFilter.getType()) {
+            case ENTITY_TYPE:
+                return EntityType.DEVICE.equals(((EntityTypeFilter) entityFilter).getEntityType()) ? row -> true : null;
+            case ENTITY_NAME:
+                EntityNameFilter nameFilter = (EntityNameFilter) entityFilter;
+                if (!EntityType.DEVICE.equals(nameFilter.getEntityType()) || nameFilter.getEntityNameFilter() == null) {
+                    return null;
+                }
+                return toNameFilter(nameFilter.getEntityNameFilter());
+            case DEVICE_TYPE:
+                DeviceTypeFilter typeFilter = (DeviceTypeFilter) entityFilter;
+                List<String> deviceTypes = typeFilter.getDeviceTypes();
+                if (deviceTypes == null || deviceTypes.isEmpty()) {
+                    return null;
+                }
+                Set<String> typesSet = new HashSet<>(deviceTypes);
+                RowFilter filter = row -> typesSet.contains(types[row]);
+                if (StringUtils.isEmpty(typeFilter.getDeviceNameFilter())) {
+                    return filter;
+                }
+                RowFilter deviceNameFilter = toNameFilter(typeFilter.getDeviceNameFilter());
+                return deviceNameFilter != null ? and(filter, deviceNameFilter) : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * The database matches the name with "ilike concat(name, '%')", so only the names without wildcards are supported.
+     */
+    private RowFilter toNameFilter(String name) {
+        if (hasWildcards(name)) {
+            return null;
+        }
+        String prefix = name.toLowerCase();
+        return row -> names[row] != null && names[row].toLowerCase().startsWith(prefix);
+    }
+
+    private RowFilter toKeyFilter(EntityKey key, KeyFilterPredicate predicate) {
+        if (key == null || predicate == null) {
+            return null;
+        }
+        switch (predicate.getType()) {
+            case COMPLEX:
+                ComplexFilterPredicate complexPredicate = (ComplexFilterPredicate) predicate;
+                if (complexPredicate.getPredicates() == null || complexPredicate.getPredicates().isEmpty()) {
+                    return null;
+                }
+                RowFilter result = null;
+                for (KeyFilterPredicate nested : complexPredicate.getPredicates()) {
+                    RowFilter nestedFilter = toKeyFilter(key, nested);
+                    if (nestedFilter == null) {
+                        return null;
+                    }
+                    if (result == null) {
+                        result = nestedFilter;
+                    } else {
+                        result = complexPredicate.getOperation() == ComplexFilterPredicate.ComplexOperation.AND ?
+                                and(result, nestedFilter) : or(result, nestedFilter);
+                    }
+                }
+                return result;
+            case STRING:
+                Predicate<String> stringPredicate = toStringPredicate((StringFilterPredicate) predicate);
+                if (stringPredicate == null) {
+                    return null;
+                }
+                if (key.getType() == EntityKeyType.ENTITY_FIELD) {
+                    String[] fieldColumn = getStringField(key.getKey());
+                    return fieldColumn != null ? row -> fieldColumn[row] != null && stringPredicate.test(fieldColumn[row]) : null;
+                }
+                KeyColumn stringColumn = getColumn(key);
+                return stringColumn != null ? row -> stringColumn.types[row] == VALUE_STRING && stringPredicate.test(stringColumn.strings[row]) : null;
+            case NUMERIC:
+                DoublePredicate numericPredicate = toNumericPredicate((NumericFilterPredicate) predicate);
+                if (numericPredicate == null) {
+                    return null;
+                }
+                if (key.getType() == EntityKeyType.ENTITY_FIELD) {
+                    return CREATED_TIME.equals(key.getKey()) ? row -> numericPredicate.test(createdTimes[row]) : null;
+                }
+                KeyColumn numericColumn = getColumn(key);
+                return numericColumn != null ? row -> (numericColumn.types[row] == VALUE_LONG && numericPredicate.test(numericColumn.longs[row])) ||
+                        (numericColumn.types[row] == VALUE_DOUBLE && numericPredicate.test(numericColumn.doubles[row])) : null;
+            case BOOLEAN:
+                BooleanFilterPredicate booleanPredicate = (BooleanFilterPredicate) predicate;
+                Boolean value = booleanPredicate.getValue() != null ? booleanPredicate.getValue().getValue() : null;
+                KeyColumn booleanColumn = key.getType() != EntityKeyType.ENTITY_FIELD ? getColumn(key) : null;
+                if (value == null || booleanPredicate.getOperation() == null || booleanColumn == null) {
+                    return null;
+                }
+                long expected = value ? 1 : 0;
+                boolean equal = booleanPredicate.getOperation() == BooleanFilterPredicate.BooleanOperation.EQUAL;
+                return row -> booleanColumn.types[row] == VALUE_BOOLEAN && (booleanColumn.longs[row] == expected) == equal;
+            default:
+                return null;
+        }
+    }
+
+    private static Predicate<String> toStringPredicate(StringFilterPredicate predicate) {
+        String value = predicate.getValue() != null ? predicate.getValue().getValue() : null;
+        // the database ignores the predicates with an empty value
+        if (StringUtils.isEmpty(value) || predicate.getOperation() == null) {
+            return null;
+        }
+        boolean ignoreCase = predicate.isIgnoreCase();
+        String expected = ignoreCase ? value.toLowerCase() : value;
+        Predicate<String> result;
+        switch (predicate.getOperation()) {
+            case EQUAL:
+                result = expected::equals;
+                break;
+            case NOT_EQUAL:
+                result = s -> !expected.equals(s);
+                break;
+            case STARTS_WITH:
+                result = hasWildcards(expected) ? null : s -> s.startsWith(expected);
+                break;
+            case ENDS_WITH:
+                result = hasWildcards(expected) ? null : s -> s.endsWith(expected);
+                break;
+            case CONTAINS:
+                result = hasWildcards(expected) ? null : s -> s.contains(expected);
+                break;
+            case NOT_CONTAINS:
+                result = hasWildcards(expected) ? null : s -> !s.contains(expected);
+                break;
+            case IN:
+                Set<String> in = new HashSet<>(splitByCommaWithoutQuotes(expected));
+                result = in::contains;
+                break;
+            case NOT_IN:
+                Set<String> notIn = new HashSet<>(splitByCommaWithoutQuotes(expected));
+                result = s -> !notIn.contains(s);
+                break;
+            default:
+                return null;
+        }
+        if (result == null || !ignoreCase) {
+            return result;
+        }
+        Predicate<String> caseSensitive = result;
+        return s -> caseSensitive.test(s.toLowerCase());
+    }
+
+    private static DoublePredicate toNumericPredicate(NumericFilterPredicate predicate) {
+        Double value = predicate.getValue() != null ? predicate.getValue().getValue() : null;
+        if (value == null || predicate.getOperation() == null) {
+            return null;
+        }
+        double expected = value;
+        switch (predicate.getOperation()) {
+            case EQUAL:
+                return d -> d == expected;
+            case NOT_EQUAL:
+                return d -> d != expected;
+            case GREATER:
+                return d -> d > expected;
+            case GREATER_OR_EQUAL:
+                return d -> d >= expected;
+            case LESS:
+                return d -> d < expected;
+            case LESS_OR_EQUAL:
+                return d -> d <= expected;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Mirrors the order of the database: the numeric representation of the value, then the string one and then the id,
+     * all in the requested direction. Sorting by string values is not supported since it depends on the database collation.
+     */
+    private RowComparator toComparator(EntityDataSortOrder sortOrder) {
+        if (sortOrder == null || sortOrder.getKey() == null) {
+            return ROW_ORDER;
+        }
+        EntityKey key = sortOrder.getKey();
+        RowComparator comparator;
+        if (key.getType() == EntityKeyType.ENTITY_FIELD) {
+            if (!CREATED_TIME.equals(key.getKey())) {
+                return null;
+            }
+            comparator = (a, b) -> {
+                int result = Long.compare(createdTimes[a], createdTimes[b]);
+                return result != 0 ? result : compareIds(a, b);
+            };
+        } else {
+            KeyColumn column = getColumn(key);
+            if (column == null) {
+                return null;
+            }
+            lock.readLock().lock();
+            try {
+                if (column.stringRows > 0) {
+                    return null;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            comparator = (a, b) -> {
+                int result = Double.compare(column.toNumber(a), column.toNumber(b));
+                return result != 0 ? result : compareIds(a, b);
+            };
+        }
+        return sortOrder.getDirection() == EntityDataSortOrder.Direction.DESC ? (a, b) -> comparator.compare(b, a) : comparator;
+    }
+
+    /**
+     * Compares the ids the same way the database compares UUID values: as unsigned 128-bit numbers.
+     */
+    private int compareIds(int a, int b) {
+        UUID first = ids[a];
+        UUID second = ids[b];
+        int result = Long.compareUnsigned(first.getMostSignificantBits(), second.getMostSignificantBits());
+        return result != 0 ? result : Long.compareUnsigned(first.getLeastSignificantBits(), second.getLeastSignificantBits());
+    }
+
+    private String[] getStringField(String field) {
+        switch (field) {
+            case NAME:
+            case TITLE:
+                return names;
+            case TYPE:
+                return types;
+            case LABEL:
+                return labels;
+            default:
+                return null;
+        }
+    }
+
+    private KeyColumn getColumn(EntityKey key) {
+        return columns.get(new IndexedKey(key.getType(), key.getKey()));
+    }
+
+    private void loadValues(int row, EntityKeyType keyType, List<? extends KvEntry> values) {
+        if (values == null) {
+            return;
+        }
+        for (KvEntry value : values) {
+            KeyColumn column = columns.get(new IndexedKey(keyType, value.getKey()));
+            // the cells written or removed after the page was read are newer than the loaded value
+            if (column != null && column.types[row] == VALUE_NONE) {
+                column.set(row, value);
+            }
+        }
+    }
+
+    private void delete(int row) {
+        states[row] = ROW_DELETED;
+        for (KeyColumn column : columns.values()) {
+            column.set(row, null);
+        }
+    }
+
+    private void setFields(int row, Device device) {
+        states[row] = ROW_PRESENT;
+        names[row] = device.getName();
+        types[row] = device.getType();
+        labels[row] = device.getLabel();
+        createdTimes[row] = device.getCreatedTime();
+        customerIds[row] = device.getCustomerId() != null ? device.getCustomerId().getId() : null;
+    }
+
+    private int getOrCreateRow(UUID id) {
+        Integer row = rowsById.get(id);
+        if (row != null) {
+            return row;
+        }
+        if (size == ids.length) {
+            int capacity = ids.length * 2;
+            states = Arrays.copyOf(states, capacity);
+            rowWrites = Arrays.copyOf(rowWrites, capacity);
+            rowPasses = Arrays.copyOf(rowPasses, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            types = Arrays.copyOf(types, capacity);
+            labels = Arrays.copyOf(labels, capacity);
+            createdTimes = Arrays.copyOf(createdTimes, capacity);
+            customerIds = Arrays.copyOf(customerIds, capacity);
+            columns.values().forEach(column -> column.grow(capacity));
+        }
+        int newRow = size++;
+        ids[newRow] = id;
+        rowsById.put(id, newRow);
+        return newRow;
+    }
+
+    private static boolean hasWildcards(String value) {
+        return value.indexOf('%') >= 0 || value.indexOf('_') >= 0 || value.indexOf('\\') >= 0;
+    }
+
+    private static RowFilter and(RowFilter first, RowFilter second) {
+        return row -> first.test(row) && second.test(row);
+    }
+
+    private static RowFilter or(RowFilter first, RowFilter second) {
+        return row -> first.test(row) || second.test(row);
+    }
+
+    record IndexedKey(EntityKeyType type, String key) {
+    }
+
+    @FunctionalInterface
+    private interface RowFilter {
+        boolean test(int row);
+    }
+
+    @FunctionalInterface
+    private interface RowComparator {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Latest values of a single key: the value type of the row selects the array that holds the value.
+     * Boolean values are stored in the long array as 1 and 0.
+     */
+    private static class KeyColumn {
+
+        private byte[] types = new byte[INITIAL_CAPACITY];
+        private long[] longs = new long[INITIAL_CAPACITY];
+        private double[] doubles = new double[INITIAL_CAPACITY];
+        private String[] strings = new String[INITIAL_CAPACITY];
+        private int stringRows;
+
+        void set(int row, KvEntry value) {
+            if (types[row] == VALUE_STRING || types[row] == VALUE_JSON) {
+                stringRows--;
+            }
+            strings[row] = null;
+            if (value == null) {
+                types[row] = VALUE_REMOVED;
+                return;
+            }
+            switch (value.getDataType()) {
+                case BOOLEAN:
+                    types[row] = VALUE_BOOLEAN;
+                    longs[row] = value.getBooleanValue().orElse(false) ? 1 : 0;
+                    break;
+                case LONG:
+                    types[row] = VALUE_LONG;
+                    longs[row] = value.getLongValue().orElse(0L);
+                    break;
+                case DOUBLE:
+                    types[row] = VALUE_DOUBLE;
+                    doubles[row] = value.getDoubleValue().orElse(0.0);
+                    break;
+                case STRING:
+                    types[row] = VALUE_STRING;
+                    strings[row] = value.getStrValue().orElse("");
+                    stringRows++;
+                    break;
+                case JSON:
+                    types[row] = VALUE_JSON;
+                    strings[row] = value.getJsonValue().orElse("");
+                    stringRows++;
+                    break;
+            }
+        }
+
+        void clear(int row) {
+            if (types[row] == VALUE_STRING || types[row] == VALUE_JSON) {
+                stringRows--;
+            }
+            strings[row] = null;
+            types[row] = VALUE_NONE;
+        }
+
+        /**
+         * Same as "coalesce(dbl_v, cast(long_v as double precision), (case when bool_v then 1 else 0 end))".
+         */
+        double toNumber(int row) {
+            switch (types[row]) {
+                case VALUE_DOUBLE:
+                    return doubles[row];
+                case VALUE_LONG:
+                case VALUE_BOOLEAN:
+                    return longs[row];
+                default:
+                    return 0;
+            }
+        }
+
+        void grow(int capacity) {
+            types = Arrays.copyOf(types, capacity);
+            longs = Arrays.copyOf(longs, capacity);
+            doubles = Arrays.copyOf(doubles, capacity);
+            strings = Arrays.copyOf(strings, capacity);
+        }
+
+    }
+
+}
@@ -49,11 +49,14 @@ public class CassandraBufferedRateReadExecutor extends AbstractBufferedRateExecu
             @Value("${cassandra.query.poll_ms:50}") long pollMs,
             @Value("${cassandra.query.tenant_rate_limits.print_tenant_names}") boolean printTenantNames,
             @Value("${cassandra.query.print_queries_freq:0}") int printQueriesFreq,
+            @Value("${cassandra.query.adaptive_concurrency.enabled:false}") boolean adaptiveConcurrency,
+            @Value("${cassandra.query.adaptive_concurrency.min_limit:50}") int minConcurrencyLimit,
+            @Value("${cassandra.query.adaptive_concurrency.latency_threshold_ms:1000}") long latencyThresholdMs,
             @Autowired StatsFactory statsFactory,
             @Autowired EntityService entityService,
             @Autowired RateLimitService rateLimitService) {
         super(queueLimit, concurrencyLimit, maxWaitTime, dispatcherThreads, callbackThreads, pollMs, printQueriesFreq, statsFactory,
-                entityService, rateLimitService, printTenantNames);
+                entityService, rateLimitService, printTenantNames, adaptiveConcurrency, minConcurrencyLimit, latencyThresholdMs);
     }
 
     @Scheduled(fixedDelayString = "${cassandra.query.rate_limit_print_interval_ms}")
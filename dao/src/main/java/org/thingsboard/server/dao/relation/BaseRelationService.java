@@ -56,6 +56,7 @@ import org.thingsboard.server.dao.sql.relation.JpaRelationQueryExecutorService;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
@@ -81,6 +82,7 @@ public class BaseRelationService implements RelationService {
     private final ApplicationEventPublisher eventPublisher;
     private final JpaExecutorService executor;
     private final JpaRelationQueryExecutorService relationsExecutor;
+    private final RelationGraphIndex graphIndex;
     protected ScheduledExecutorService timeoutExecutorService;
 
     @Value("${sql.relations.query_timeout:20}")
@@ -89,13 +91,14 @@ public class BaseRelationService implements RelationService {
     public BaseRelationService(RelationDao relationDao, @Lazy EntityService entityService,
                                TbTransactionalCache<RelationCacheKey, RelationCacheValue> cache,
                                ApplicationEventPublisher eventPublisher, JpaExecutorService executor,
-                               JpaRelationQueryExecutorService relationsExecutor) {
+                               JpaRelationQueryExecutorService relationsExecutor, RelationGraphIndex graphIndex) {
         this.relationDao = relationDao;
         this.entityService = entityService;
         this.cache = cache;
         this.eventPublisher = eventPublisher;
         this.executor = executor;
         this.relationsExecutor = relationsExecutor;
+        this.graphIndex = graphIndex;
     }
 
     @PostConstruct
@@ -119,6 +122,9 @@ public class BaseRelationService implements RelationService {
         keys.add(new RelationCacheKey(null, event.getTo(), event.getType(), event.getTypeGroup(), EntitySearchDirection.TO));
         keys.add(new RelationCacheKey(null, event.getTo(), null, event.getTypeGroup(), EntitySearchDirection.TO));
         cache.evict(keys);
+        if (graphIndex.isEnabled()) {
+            graphIndex.evict(event);
+        }
         log.debug("Processed evict event: {}", event);
     }
 
@@ -574,9 +580,54 @@ public class BaseRelationService implements RelationService {
     }
 
     private void processQueue(RelationQueueCtx ctx) {
+        RelationTypeGroup typeGroup = ctx.relationTypeGroup != null ? ctx.relationTypeGroup : RelationTypeGroup.COMMON;
+        Set<EntityId> requested = new HashSet<>();
+        Map<EntityId, List<EntityRelation>> prefetched = new HashMap<>();
+        traverse(ctx, root -> {
+            if (!graphIndex.isEnabled() && requested.add(root)) {
+                prefetchCachedRelations(ctx, typeGroup, root, requested, prefetched);
+            }
+            List<EntityRelation> relations = prefetched.remove(root);
+            return relations != null ? relations : findRelations(ctx.tenantId, root, ctx.direction, ctx.relationTypeGroup);
+        });
+        ctx.future.set(ctx.result);
+    }
+
+    /**
+     * Reads the cached relations of the root and of all queued nodes that were not requested yet in one cache call,
+     * so that a level of the traversal costs a single cache round trip instead of one per node.
+     */
+    private void prefetchCachedRelations(RelationQueueCtx ctx, RelationTypeGroup typeGroup, EntityId root,
+                                         Set<EntityId> requested, Map<EntityId, List<EntityRelation>> prefetched) {
+        Map<RelationCacheKey, EntityId> cacheKeys = new HashMap<>();
+        cacheKeys.put(toRelationCacheKey(root, ctx.direction, typeGroup), root);
+        for (RelationTask task : ctx.tasks) {
+            if (requested.add(task.root)) {
+                cacheKeys.put(toRelationCacheKey(task.root, ctx.direction, typeGroup), task.root);
+            }
+        }
+        cache.getAll(cacheKeys.keySet()).forEach((cacheKey, cacheValue) -> {
+            if (cacheValue.get() != null) {
+                prefetched.put(cacheKeys.get(cacheKey), cacheValue.get().getRelations());
+            }
+        });
+    }
+
+    private static RelationCacheKey toRelationCacheKey(EntityId entityId, EntitySearchDirection direction, RelationTypeGroup typeGroup) {
+        var cacheKeyBuilder = RelationCacheKey.builder().typeGroup(typeGroup).direction(direction);
+        return (direction == EntitySearchDirection.FROM ? cacheKeyBuilder.from(entityId) : cacheKeyBuilder.to(entityId)).build();
+    }
+
+    /**
+     * Returns false as soon as the lookup returns null for a node, leaving the result incomplete.
+     */
+    private boolean traverse(RelationQueueCtx ctx, Function<EntityId, List<EntityRelation>> lookup) {
         RelationTask task = ctx.tasks.poll();
         while (task != null) {
-            List<EntityRelation> relations = findRelations(ctx.tenantId, task.root, ctx.direction, ctx.relationTypeGroup);
+            List<EntityRelation> relations = lookup.apply(task.root);
+            if (relations == null) {
+                return false;
+            }
             Map<EntityId, List<EntityRelation>> newChildrenRelations = new HashMap<>();
             for (EntityRelation childRelation : relations) {
                 log.trace("Found Relation: {}", childRelation);
@@ -609,7 +660,7 @@ public class BaseRelationService implements RelationService {
             });
             task = ctx.tasks.poll();
         }
-        ctx.future.set(ctx.result);
+        return true;
     }
 
     private ListenableFuture<Set<EntityRelation>> findRelationsRecursively(final TenantId tenantId, final EntityId rootId, final EntitySearchDirection direction,
@@ -618,6 +669,15 @@ public class BaseRelationService implements RelationService {
         if (lvl == 0) {
             return Futures.immediateFuture(Collections.emptySet());
         }
+        if (graphIndex.isEnabled()) {
+            // Fast path: the whole traversal is answered from the index, otherwise fall back to the DAO based one
+            var indexCtx = new RelationQueueCtx(tenantId, direction, relationTypeGroup, fetchLastLevelOnly, lvl, new ConcurrentHashMap<>(uniqueMap));
+            indexCtx.tasks.add(new RelationTask(1, rootId, Collections.emptyList()));
+            RelationTypeGroup typeGroup = relationTypeGroup != null ? relationTypeGroup : RelationTypeGroup.COMMON;
+            if (traverse(indexCtx, root -> graphIndex.get(tenantId, root, direction, typeGroup))) {
+                return Futures.immediateFuture(indexCtx.result);
+            }
+        }
         var relationQueueCtx = new RelationQueueCtx(tenantId, direction, relationTypeGroup, fetchLastLevelOnly, lvl, uniqueMap);
         relationQueueCtx.tasks.add(new RelationTask(1, rootId, Collections.emptyList()));
         relationsExecutor.submit(() -> processQueue(relationQueueCtx));
@@ -630,6 +690,11 @@ public class BaseRelationService implements RelationService {
         if (relationTypeGroup == null) {
             relationTypeGroup = RelationTypeGroup.COMMON;
         }
+        if (graphIndex.isEnabled()) {
+            RelationTypeGroup typeGroup = relationTypeGroup;
+            return graphIndex.getOrLoad(tenantId, rootId, direction, typeGroup, () -> direction == EntitySearchDirection.FROM ?
+                    findByFrom(tenantId, rootId, typeGroup) : findByTo(tenantId, rootId, typeGroup));
+        }
         if (direction == EntitySearchDirection.FROM) {
             relations = findByFrom(tenantId, rootId, relationTypeGroup);
         } else {
@@ -0,0 +1,164 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.relation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.common.data.relation.EntitySearchDirection;
+import org.thingsboard.server.common.data.relation.RelationTypeGroup;
+import org.thingsboard.server.dao.eventsourcing.DeleteEntityEvent;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Tenant scoped in-memory adjacency index of entity relations used to resolve recursive relation queries
+ * without a database round trip per visited node.
+ * <p>
+ * The index is filled lazily: adjacency lists are loaded from the DAO the first time a node is visited and
+ * dropped on every {@link EntityRelationEvent} that touches the node, so the next traversal reloads them.
+ * A node that is not indexed yet is reported as a miss and the caller falls back to the DAO.
+ * <p>
+ * The relation events are local to the node, so the index is used in the monolith mode only.
+ * Each tenant graph is bounded by the max number of nodes and the time to live, and is dropped when the tenant is deleted.
+ */
+@Component
+@Slf4j
+public class RelationGraphIndex {
+
+    @Value("${sql.relations.graph_index.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sql.relations.graph_index.max_nodes_per_tenant:100000}")
+    private int maxNodesPerTenant;
+
+    @Value("${sql.relations.graph_index.ttl_sec:300}")
+    private long ttlSec;
+
+    @Value("${service.type:monolith}")
+    private String serviceType;
+
+    private final Map<TenantId, Cache<AdjacencyKey, EntityRelation[]>> tenantGraphs = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (enabled && !"monolith".equalsIgnoreCase(serviceType)) {
+            log.warn("Relation graph index is not supported by the '{}' service type, since relation changes are not propagated across the cluster. Disabling it", serviceType);
+            enabled = false;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the indexed relations of the node or {@code null} if the node is not indexed yet.
+     */
+    public List<EntityRelation> get(TenantId tenantId, EntityId entityId, EntitySearchDirection direction, RelationTypeGroup typeGroup) {
+        Cache<AdjacencyKey, EntityRelation[]> graph = tenantGraphs.get(tenantId);
+        if (graph == null) {
+            return null;
+        }
+        EntityRelation[] relations = graph.getIfPresent(new AdjacencyKey(entityId.getId(), direction, typeGroup));
+        return relations != null ? asList(relations) : null;
+    }
+
+    public List<EntityRelation> getOrLoad(TenantId tenantId, EntityId entityId, EntitySearchDirection direction, RelationTypeGroup typeGroup,
+                                          Supplier<List<EntityRelation>> loader) {
+        List<EntityRelation> relations = get(tenantId, entityId, direction, typeGroup);
+        if (relations != null) {
+            return relations;
+        }
+        long loadVersion = version.get();
+        relations = loader.get();
+        put(tenantId, entityId, direction, typeGroup, relations, loadVersion);
+        return relations;
+    }
+
+    void put(TenantId tenantId, EntityId entityId, EntitySearchDirection direction, RelationTypeGroup typeGroup,
+             List<EntityRelation> relations, long loadVersion) {
+        Cache<AdjacencyKey, EntityRelation[]> graph = tenantGraphs.computeIfAbsent(tenantId, id -> Caffeine.newBuilder()
+                .maximumSize(maxNodesPerTenant)
+                .expireAfterWrite(ttlSec, TimeUnit.SECONDS)
+                .build());
+        AdjacencyKey key = new AdjacencyKey(entityId.getId(), direction, typeGroup);
+        graph.put(key, relations.toArray(new EntityRelation[0]));
+        // The relations were loaded before a concurrent modification was applied, so they may be stale
+        if (version.get() != loadVersion) {
+            graph.invalidate(key);
+        }
+    }
+
+    public void evict(EntityRelationEvent event) {
+        version.incrementAndGet();
+        if (tenantGraphs.isEmpty()) {
+            return;
+        }
+        AdjacencyKey fromKey = new AdjacencyKey(event.getFrom().getId(), EntitySearchDirection.FROM, event.getTypeGroup());
+        AdjacencyKey toKey = new AdjacencyKey(event.getTo().getId(), EntitySearchDirection.TO, event.getTypeGroup());
+        // The event does not carry the tenant id, but entity ids are unique across tenants
+        for (Cache<AdjacencyKey, EntityRelation[]> graph : tenantGraphs.values()) {
+            graph.invalidate(fromKey);
+            graph.invalidate(toKey);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(DeleteEntityEvent<?> event) {
+        if (event.getEntityId() != null && event.getEntityId().getEntityType() == EntityType.TENANT) {
+            tenantGraphs.remove(TenantId.fromUUID(event.getEntityId().getId()));
+        }
+    }
+
+    long getVersion() {
+        return version.get();
+    }
+
+    long size(TenantId tenantId) {
+        Cache<AdjacencyKey, EntityRelation[]> graph = tenantGraphs.get(tenantId);
+        if (graph == null) {
+            return 0;
+        }
+        graph.cleanUp();
+        return graph.estimatedSize();
+    }
+
+    private static List<EntityRelation> asList(EntityRelation[] relations) {
+        return relations.length == 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(relations));
+    }
+
+    private record AdjacencyKey(UUID entityId, EntitySearchDirection direction, RelationTypeGroup typeGroup) {
+    }
+
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.util.CollectionsUtil;
+import org.thingsboard.server.common.stats.MessagesStats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Queue that collects the next batch while the previous one is being saved and adapts the batch size
+ * to the observed flush latency and queue depth.
+ * <p>
+ * The collector thread drains, filters and sorts the batch and hands it over to the writer thread.
+ * Only one batch per queue is saved at a time, so the order of updates for the same key is preserved.
+ * The batch size is halved when a flush takes longer than {@code targetFlushLatencyMs}
+ * and doubled (up to {@code batchSize}) while there is a backlog and the database keeps up.
+ * There is no fixed flush interval: a batch is flushed as soon as the writer is free,
+ * so the interval between flushes follows the insert latency.
+ */
+@Slf4j
+public class TbSqlAdaptiveBlockingQueue<E, R> implements TbSqlQueue<E, R> {
+
+    private final BlockingQueue<TbSqlQueueElement<E, R>> queue = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Batch<E, R>> batches = new ArrayBlockingQueue<>(1);
+    private final TbSqlBlockingQueueParams params;
+    private final MessagesStats stats;
+    private final AtomicInteger queueSize;
+    private final Timer flushTimer;
+    private final int maxBatchSize;
+    private final int minBatchSize;
+    private final long maxDelay;
+    private final long minDelay;
+
+    private volatile int batchSize;
+    private ExecutorService collectorExecutor;
+    private ExecutorService writerExecutor;
+
+    public TbSqlAdaptiveBlockingQueue(TbSqlBlockingQueueParams params, MessagesStats stats, AtomicInteger queueSize, Timer flushTimer) {
+        this.params = params;
+        this.stats = stats;
+        this.queueSize = queueSize;
+        this.flushTimer = flushTimer;
+        this.maxBatchSize = params.getBatchSize();
+        this.minBatchSize = Math.max(1, Math.min(params.getMinBatchSize(), maxBatchSize));
+        this.batchSize = maxBatchSize;
+        this.maxDelay = params.getMaxDelay();
+        this.minDelay = Math.max(0, Math.min(params.getMinDelay(), maxDelay));
+    }
+
+    @Override
+    public void init(ScheduledLogExecutorComponent logExecutor, Function<List<E>, List<R>> saveFunction, Comparator<E> batchUpdateComparator, Function<List<TbSqlQueueElement<E, R>>, List<TbSqlQueueElement<E, R>>> filter, int index) {
+        String threadName = "sql-queue-" + index + "-" + params.getLogName().toLowerCase();
+        collectorExecutor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName(threadName + "-collector"));
+        writerExecutor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName(threadName + "-writer"));
+        collectorExecutor.submit(() -> collect(batchUpdateComparator, filter));
+        writerExecutor.submit(() -> write(saveFunction));
+
+        logExecutor.scheduleAtFixedRate(() -> {
+            if (!queue.isEmpty() || stats.getTotal() > 0 || stats.getSuccessful() > 0 || stats.getFailed() > 0) {
+                log.info("Queue-{} [{}] queueSize [{}] batchSize [{}] totalAdded [{}] totalSaved [{}] totalFailed [{}]", index,
+                        params.getLogName(), queue.size(), batchSize, stats.getTotal(), stats.getSuccessful(), stats.getFailed());
+                stats.reset();
+            }
+        }, params.getStatsPrintIntervalMs(), params.getStatsPrintIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private void collect(Comparator<E> batchUpdateComparator, Function<List<TbSqlQueueElement<E, R>>, List<TbSqlQueueElement<E, R>>> filter) {
+        String logName = params.getLogName();
+        while (!Thread.interrupted()) {
+            List<TbSqlQueueElement<E, R>> entities = null;
+            try {
+                TbSqlQueueElement<E, R> attr = queue.poll(maxDelay, TimeUnit.MILLISECONDS);
+                if (attr == null) {
+                    continue;
+                }
+                int currentBatchSize = batchSize;
+                entities = new ArrayList<>(currentBatchSize);
+                entities.add(attr);
+                queue.drainTo(entities, currentBatchSize - 1);
+                if (entities.size() < currentBatchSize) {
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(getFlushDelay(entities.size(), currentBatchSize));
+                    long remaining;
+                    while (entities.size() < currentBatchSize && (remaining = deadline - System.nanoTime()) > 0) {
+                        TbSqlQueueElement<E, R> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        entities.add(next);
+                        queue.drainTo(entities, currentBatchSize - entities.size());
+                    }
+                }
+                queueSize.addAndGet(-entities.size());
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}] Going to save {} entities", logName, entities.size());
+                    log.trace("[{}] Going to save entities: {}", logName, entities);
+                }
+
+                List<TbSqlQueueElement<E, R>> entitiesToSave = filter.apply(entities);
+                if (params.isBatchSortEnabled()) {
+                    entitiesToSave = entitiesToSave.stream().sorted((o1, o2) -> batchUpdateComparator.compare(o1.getEntity(), o2.getEntity())).toList();
+                }
+                batches.put(new Batch<>(entities, entitiesToSave));
+            } catch (Throwable t) {
+                if (t instanceof InterruptedException) {
+                    log.info("[{}] Queue polling was interrupted", logName);
+                    break;
+                } else if (entities != null) {
+                    log.error("[{}] Failed to prepare {} entities", logName, entities.size(), t);
+                    onFailure(entities, t);
+                }
+            }
+        }
+        log.info("[{}] Queue polling completed", logName);
+    }
+
+    private void write(Function<List<E>, List<R>> saveFunction) {
+        String logName = params.getLogName();
+        while (!Thread.interrupted()) {
+            Batch<E, R> batch;
+            try {
+                batch = batches.take();
+            } catch (InterruptedException e) {
+                log.info("[{}] Queue writing was interrupted", logName);
+                break;
+            }
+            List<TbSqlQueueElement<E, R>> entities = batch.entities();
+            List<TbSqlQueueElement<E, R>> entitiesToSave = batch.entitiesToSave();
+            try {
+                long flushStartTs = System.nanoTime();
+                List<R> result = saveFunction.apply(entitiesToSave.stream().map(TbSqlQueueElement::getEntity).toList());
+                long flushTime = System.nanoTime() - flushStartTs;
+                flushTimer.record(flushTime, TimeUnit.NANOSECONDS);
+
+                if (params.isWithResponse()) {
+                    for (int i = 0; i < entitiesToSave.size(); i++) {
+                        entitiesToSave.get(i).getFuture().set(result.get(i));
+                    }
+
+                    if (entities.size() > entitiesToSave.size()) {
+                        CollectionsUtil.diffLists(entitiesToSave, entities).forEach(v -> v.getFuture().set(null));
+                    }
+                } else {
+                    entities.forEach(v -> v.getFuture().set(null));
+                }
+
+                stats.incrementSuccessful(entities.size());
+                adjustBatchSize(entities.size(), TimeUnit.NANOSECONDS.toMillis(flushTime));
+            } catch (Throwable t) {
+                log.error("[{}] Failed to save {} entities", logName, entities.size(), t);
+                onFailure(entities, t);
+            }
+        }
+        log.info("[{}] Queue writing completed", logName);
+    }
+
+    void adjustBatchSize(int savedCount, long flushLatencyMs) {
+        int currentBatchSize = batchSize;
+        if (flushLatencyMs > params.getTargetFlushLatencyMs()) {
+            if (currentBatchSize > minBatchSize) {
+                batchSize = Math.max(minBatchSize, currentBatchSize / 2);
+                log.debug("[{}] Flush of {} entities took {} ms, decreasing batch size to {}", params.getLogName(), savedCount, flushLatencyMs, batchSize);
+            }
+        } else if (currentBatchSize < maxBatchSize && savedCount >= currentBatchSize && queueSize.get() >= currentBatchSize) {
+            batchSize = (int) Math.min(maxBatchSize, 2L * currentBatchSize);
+            log.debug("[{}] Queue size is {}, increasing batch size to {}", params.getLogName(), queueSize.get(), batchSize);
+        }
+    }
+
+    /**
+     * Time to wait for more elements when the batch is not full. Grows linearly from the min delay for a single queued
+     * element to the max delay for an almost full batch: a shallow queue is flushed right away, and a deeper one waits
+     * for the rest of the batch instead of producing several partial inserts.
+     */
+    long getFlushDelay(int queueDepth, int currentBatchSize) {
+        return minDelay + (maxDelay - minDelay) * Math.min(queueDepth, currentBatchSize) / currentBatchSize;
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    private void onFailure(List<TbSqlQueueElement<E, R>> entities, Throwable t) {
+        try {
+            stats.incrementFailed(entities.size());
+            entities.forEach(entityFutureWrapper -> entityFutureWrapper.getFuture().setException(t));
+        } catch (Throwable th) {
+            log.error("[{}] Failed to set future exception", params.getLogName(), th);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (collectorExecutor != null) {
+            collectorExecutor.shutdownNow();
+        }
+        if (writerExecutor != null) {
+            writerExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public ListenableFuture<R> add(E element) {
+        SettableFuture<R> future = SettableFuture.create();
+        queue.add(new TbSqlQueueElement<>(future, element));
+        queueSize.incrementAndGet();
+        stats.incrementTotal();
+        return future;
+    }
+
+    private record Batch<E, R>(List<TbSqlQueueElement<E, R>> entities, List<TbSqlQueueElement<E, R>> entitiesToSave) {}
+
+}
@@ -17,6 +17,7 @@ package org.thingsboard.server.dao.sql;
 
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.common.data.util.CollectionsUtil;
@@ -30,6 +31,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -41,10 +43,14 @@ public class TbSqlBlockingQueue<E, R> implements TbSqlQueue<E, R> {
 
     private ExecutorService executor;
     private final MessagesStats stats;
+    private final AtomicInteger queueSize;
+    private final Timer flushTimer;
 
-    public TbSqlBlockingQueue(TbSqlBlockingQueueParams params, MessagesStats stats) {
+    public TbSqlBlockingQueue(TbSqlBlockingQueueParams params, MessagesStats stats, AtomicInteger queueSize, Timer flushTimer) {
         this.params = params;
         this.stats = stats;
+        this.queueSize = queueSize;
+        this.flushTimer = flushTimer;
     }
 
     @Override
@@ -65,6 +71,7 @@ public class TbSqlBlockingQueue<E, R> implements TbSqlQueue<E, R> {
                         entities.add(attr);
                     }
                     queue.drainTo(entities, batchSize - 1);
+                    queueSize.addAndGet(-entities.size());
                     boolean fullPack = entities.size() == batchSize;
                     if (log.isDebugEnabled()) {
                         log.debug("[{}] Going to save {} entities", logName, entities.size());
@@ -77,7 +84,9 @@ public class TbSqlBlockingQueue<E, R> implements TbSqlQueue<E, R> {
                         entitiesToSave = entitiesToSave.stream().sorted((o1, o2) -> batchUpdateComparator.compare(o1.getEntity(), o2.getEntity())).toList();
                     }
 
+                    long flushStartTs = System.nanoTime();
                     List<R> result = saveFunction.apply(entitiesToSave.stream().map(TbSqlQueueElement::getEntity).collect(Collectors.toList()));
+                    flushTimer.record(System.nanoTime() - flushStartTs, TimeUnit.NANOSECONDS);
 
                     if (params.isWithResponse()) {
                         for (int i = 0; i < entitiesToSave.size(); i++) {
@@ -138,6 +147,7 @@ public class TbSqlBlockingQueue<E, R> implements TbSqlQueue<E, R> {
     public ListenableFuture<R> add(E element) {
         SettableFuture<R> future = SettableFuture.create();
         queue.add(new TbSqlQueueElement<>(future, element));
+        queueSize.incrementAndGet();
         stats.incrementTotal();
         return future;
     }
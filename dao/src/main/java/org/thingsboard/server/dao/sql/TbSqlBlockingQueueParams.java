@@ -27,8 +27,12 @@ public class TbSqlBlockingQueueParams {
     private final String logName;
     private final int batchSize;
     private final long maxDelay;
+    private final long minDelay;
     private final long statsPrintIntervalMs;
     private final String statsNamePrefix;
     private final boolean batchSortEnabled;
     private final boolean withResponse;
+    private final boolean adaptive;
+    private final int minBatchSize;
+    private final long targetFlushLatencyMs;
 }
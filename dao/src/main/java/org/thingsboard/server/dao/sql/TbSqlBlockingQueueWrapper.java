@@ -16,6 +16,7 @@
 package org.thingsboard.server.dao.sql;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import io.micrometer.core.instrument.Timer;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.server.common.stats.MessagesStats;
@@ -24,13 +25,14 @@ import org.thingsboard.server.common.stats.StatsFactory;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 @Slf4j
 @Data
 public class TbSqlBlockingQueueWrapper<E, R> {
-    private final CopyOnWriteArrayList<TbSqlBlockingQueue<E, R>> queues = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<TbSqlQueue<E, R>> queues = new CopyOnWriteArrayList<>();
     private final TbSqlBlockingQueueParams params;
     private final Function<E, Integer> hashCodeFunction;
     private final int maxThreads;
@@ -50,8 +52,14 @@ public class TbSqlBlockingQueueWrapper<E, R> {
 
     public void init(ScheduledLogExecutorComponent logExecutor, Function<List<E>, List<R>> saveFunction, Comparator<E> batchUpdateComparator, Function<List<TbSqlQueueElement<E, R>>, List<TbSqlQueueElement<E, R>>> filter) {
         for (int i = 0; i < maxThreads; i++) {
-            MessagesStats stats = statsFactory.createMessagesStats(params.getStatsNamePrefix() + ".queue." + i);
-            TbSqlBlockingQueue<E, R> queue = new TbSqlBlockingQueue<>(params, stats);
+            String statsKey = params.getStatsNamePrefix() + ".queue";
+            String queueIndex = Integer.toString(i);
+            MessagesStats stats = statsFactory.createMessagesStats(statsKey + "." + i);
+            AtomicInteger queueSize = statsFactory.createGauge(statsKey + ".size", new AtomicInteger(0), "queue", queueIndex);
+            Timer flushTimer = statsFactory.createTimer(statsKey + ".flush", "queue", queueIndex);
+            TbSqlQueue<E, R> queue = params.isAdaptive() ?
+                    new TbSqlAdaptiveBlockingQueue<>(params, stats, queueSize, flushTimer) :
+                    new TbSqlBlockingQueue<>(params, stats, queueSize, flushTimer);
             queues.add(queue);
             queue.init(logExecutor, saveFunction, batchUpdateComparator, filter, i);
         }
@@ -63,6 +71,6 @@ public class TbSqlBlockingQueueWrapper<E, R> {
     }
 
     public void destroy() {
-        queues.forEach(TbSqlBlockingQueue::destroy);
+        queues.forEach(TbSqlQueue::destroy);
     }
 }
@@ -84,6 +84,18 @@ public class JpaAttributeDao extends JpaAbstractDaoListeningExecutorService impl
     @Value("${sql.attributes.batch_threads:4}")
     private int batchThreads;
 
+    @Value("${sql.attributes.batch_adaptive_enabled:false}")
+    private boolean batchAdaptiveEnabled;
+
+    @Value("${sql.attributes.batch_min_delay:5}")
+    private long batchMinDelay;
+
+    @Value("${sql.attributes.batch_min_size:100}")
+    private int batchMinSize;
+
+    @Value("${sql.attributes.batch_target_flush_latency_ms:50}")
+    private long batchTargetFlushLatencyMs;
+
     @Value("${sql.batch_sort:true}")
     private boolean batchSortEnabled;
 
@@ -99,6 +111,10 @@ public class JpaAttributeDao extends JpaAbstractDaoListeningExecutorService impl
                 .statsNamePrefix("attributes")
                 .batchSortEnabled(batchSortEnabled)
                 .withResponse(true)
+                .adaptive(batchAdaptiveEnabled)
+                .minBatchSize(batchMinSize)
+                .minDelay(batchMinDelay)
+                .targetFlushLatencyMs(batchTargetFlushLatencyMs)
                 .build();
 
         Function<AttributeKvEntity, Integer> hashcodeFunction = entity -> entity.getId().getEntityId().hashCode();
@@ -21,11 +21,32 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.CollectionUtils;
+import org.thingsboard.server.common.data.AttributeScope;
+import org.thingsboard.server.common.data.Device;
 import org.thingsboard.server.common.data.DeviceIdInfo;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.BooleanDataEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.JsonDataEntry;
+import org.thingsboard.server.common.data.kv.KvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.dao.device.DeviceLatestValues;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -38,6 +59,14 @@ public class DefaultNativeDeviceRepository implements NativeDeviceRepository {
 
     private final String COUNT_QUERY = "SELECT count(id) FROM device;";
     private final String QUERY = "SELECT tenant_id as tenantId, customer_id as customerId, id as id FROM device ORDER BY created_time ASC LIMIT %s OFFSET %s";
+    private static final String DEVICES_WITH_LATEST_VALUES_QUERY = "SELECT id, tenant_id, customer_id, created_time, name, label, type FROM device " +
+            "%s ORDER BY id LIMIT :limit";
+    private static final String SERVER_ATTRIBUTES_QUERY = "SELECT a.entity_id, k.key, a.bool_v, a.str_v, a.long_v, a.dbl_v, a.json_v, a.last_update_ts " +
+            "FROM attribute_kv a JOIN key_dictionary k ON k.key_id = a.attribute_key " +
+            "WHERE %s AND a.attribute_type = :attributeType AND k.key IN (:keys)";
+    private static final String LATEST_TIMESERIES_QUERY = "SELECT l.entity_id, k.key, l.bool_v, l.str_v, l.long_v, l.dbl_v, l.json_v, l.ts " +
+            "FROM ts_kv_latest l JOIN key_dictionary k ON k.key_id = l.key " +
+            "WHERE %s AND k.key IN (:keys)";
     private final NamedParameterJdbcTemplate jdbcTemplate;
     private final TransactionTemplate transactionTemplate;
 
@@ -61,4 +90,102 @@ public class DefaultNativeDeviceRepository implements NativeDeviceRepository {
             return new PageData<>(data, totalPages, totalElements, hasNext);
         });
     }
+
+    @Override
+    public List<DeviceLatestValues> findDevicesWithLatestValues(UUID tenantId, UUID lastDeviceId, int limit, List<String> serverAttributeKeys, List<String> timeseriesKeys) {
+        return transactionTemplate.execute(status -> {
+            long startTs = System.currentTimeMillis();
+            Map<String, Object> params = new HashMap<>();
+            params.put("limit", limit);
+            List<String> conditions = new ArrayList<>();
+            if (tenantId != null) {
+                params.put("tenantId", tenantId);
+                conditions.add("tenant_id = :tenantId");
+            }
+            if (lastDeviceId != null) {
+                params.put("lastId", lastDeviceId);
+                conditions.add("id > :lastId");
+            }
+            String where = conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions);
+            Map<UUID, Device> devices = new LinkedHashMap<>();
+            jdbcTemplate.query(String.format(DEVICES_WITH_LATEST_VALUES_QUERY, where), params, rs -> {
+                UUID id = rs.getObject("id", UUID.class);
+                Device device = new Device(new DeviceId(id));
+                device.setCreatedTime(rs.getLong("created_time"));
+                UUID deviceTenantId = rs.getObject("tenant_id", UUID.class);
+                device.setTenantId(TenantId.fromUUID(deviceTenantId != null ? deviceTenantId : TenantId.SYS_TENANT_ID.getId()));
+                UUID customerId = rs.getObject("customer_id", UUID.class);
+                device.setCustomerId(customerId != null ? new CustomerId(customerId) : null);
+                device.setName(rs.getString("name"));
+                device.setLabel(rs.getString("label"));
+                device.setType(rs.getString("type"));
+                devices.put(id, device);
+            });
+            if (devices.isEmpty()) {
+                return Collections.emptyList();
+            }
+            Map<String, Object> valuesParams = new HashMap<>();
+            String entityIdCondition;
+            if (tenantId == null) {
+                // the page is a continuous range of ids, so the values are fetched with a range scan of the primary key
+                valuesParams.put("fromId", devices.keySet().iterator().next());
+                valuesParams.put("toId", devices.keySet().stream().reduce((first, second) -> second).get());
+                entityIdCondition = "%s.entity_id BETWEEN :fromId AND :toId";
+            } else {
+                // ids of other tenants are interleaved with the page, so the range may be much wider than the page itself
+                valuesParams.put("ids", devices.keySet());
+                entityIdCondition = "%s.entity_id IN (:ids)";
+            }
+            Map<UUID, List<AttributeKvEntry>> attributes = new HashMap<>();
+            if (!CollectionUtils.isEmpty(serverAttributeKeys)) {
+                valuesParams.put("attributeType", AttributeScope.SERVER_SCOPE.getId());
+                valuesParams.put("keys", serverAttributeKeys);
+                jdbcTemplate.query(String.format(SERVER_ATTRIBUTES_QUERY, String.format(entityIdCondition, "a")), valuesParams, rs -> {
+                    UUID entityId = rs.getObject("entity_id", UUID.class);
+                    if (devices.containsKey(entityId)) {
+                        attributes.computeIfAbsent(entityId, id -> new ArrayList<>())
+                                .add(new BaseAttributeKvEntry(toKvEntry(rs), rs.getLong("last_update_ts")));
+                    }
+                });
+            }
+            Map<UUID, List<TsKvEntry>> timeseries = new HashMap<>();
+            if (!CollectionUtils.isEmpty(timeseriesKeys)) {
+                valuesParams.put("keys", timeseriesKeys);
+                jdbcTemplate.query(String.format(LATEST_TIMESERIES_QUERY, String.format(entityIdCondition, "l")), valuesParams, rs -> {
+                    UUID entityId = rs.getObject("entity_id", UUID.class);
+                    if (devices.containsKey(entityId)) {
+                        timeseries.computeIfAbsent(entityId, id -> new ArrayList<>())
+                                .add(new BasicTsKvEntry(rs.getLong("ts"), toKvEntry(rs)));
+                    }
+                });
+            }
+            log.debug("Fetched {} devices with latest values in {} ms", devices.size(), System.currentTimeMillis() - startTs);
+            return devices.entrySet().stream()
+                    .map(entry -> new DeviceLatestValues(entry.getValue(),
+                            attributes.getOrDefault(entry.getKey(), Collections.emptyList()),
+                            timeseries.getOrDefault(entry.getKey(), Collections.emptyList())))
+                    .collect(Collectors.toList());
+        });
+    }
+
+    private static KvEntry toKvEntry(ResultSet rs) throws SQLException {
+        String key = rs.getString("key");
+        boolean boolV = rs.getBoolean("bool_v");
+        if (!rs.wasNull()) {
+            return new BooleanDataEntry(key, boolV);
+        }
+        long longV = rs.getLong("long_v");
+        if (!rs.wasNull()) {
+            return new LongDataEntry(key, longV);
+        }
+        double dblV = rs.getDouble("dbl_v");
+        if (!rs.wasNull()) {
+            return new DoubleDataEntry(key, dblV);
+        }
+        String jsonV = rs.getString("json_v");
+        if (jsonV != null) {
+            return new JsonDataEntry(key, jsonV);
+        }
+        return new StringDataEntry(key, rs.getString("str_v"));
+    }
 }
@@ -38,6 +38,7 @@ import org.thingsboard.server.common.data.page.PageData;
 import org.thingsboard.server.common.data.page.PageLink;
 import org.thingsboard.server.dao.DaoUtil;
 import org.thingsboard.server.dao.device.DeviceDao;
+import org.thingsboard.server.dao.device.DeviceLatestValues;
 import org.thingsboard.server.dao.model.sql.DeviceEntity;
 import org.thingsboard.server.dao.sql.JpaAbstractDao;
 import org.thingsboard.server.dao.util.SqlDao;
@@ -261,6 +262,11 @@ public class JpaDeviceDao extends JpaAbstractDao<DeviceEntity, Device> implement
         return nativeDeviceRepository.findDeviceIdInfos(DaoUtil.toPageable(pageLink));
     }
 
+    @Override
+    public List<DeviceLatestValues> findDevicesWithLatestValues(UUID tenantId, UUID lastDeviceId, int limit, List<String> serverAttributeKeys, List<String> timeseriesKeys) {
+        return nativeDeviceRepository.findDevicesWithLatestValues(tenantId, lastDeviceId, limit, serverAttributeKeys, timeseriesKeys);
+    }
+
     @Override
     public Device findByTenantIdAndExternalId(UUID tenantId, UUID externalId) {
         return DaoUtil.getData(deviceRepository.findByTenantIdAndExternalId(tenantId, externalId));
@@ -18,9 +18,15 @@ package org.thingsboard.server.dao.sql.device;
 import org.springframework.data.domain.Pageable;
 import org.thingsboard.server.common.data.DeviceIdInfo;
 import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.dao.device.DeviceLatestValues;
+
+import java.util.List;
+import java.util.UUID;
 
 public interface NativeDeviceRepository {
 
     PageData<DeviceIdInfo> findDeviceIdInfos(Pageable pageable);
 
+    List<DeviceLatestValues> findDevicesWithLatestValues(UUID tenantId, UUID lastDeviceId, int limit, List<String> serverAttributeKeys, List<String> timeseriesKeys);
+
 }
@@ -21,8 +21,10 @@ import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort.Direction;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.kv.Aggregation;
@@ -39,10 +41,13 @@ import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
 import org.thingsboard.server.dao.sqlts.insert.InsertTsRepository;
+import org.thingsboard.server.dao.sqlts.rollup.TsKvRollupService;
+import org.thingsboard.server.dao.sqlts.ts.TsKvAggregationRepository;
 import org.thingsboard.server.dao.sqlts.ts.TsKvRepository;
 import org.thingsboard.server.dao.timeseries.TimeseriesDao;
 import org.thingsboard.server.dao.util.TimeUtils;
 
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -57,9 +62,21 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
     @Autowired
     protected TsKvRepository tsKvRepository;
 
+    @Autowired
+    protected TsKvAggregationRepository tsKvAggregationRepository;
+
     @Autowired
     protected InsertTsRepository<TsKvEntity> insertRepository;
 
+    @Autowired
+    protected TsKvRollupService rollupService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${sql.ts.single_query_aggregation:true}")
+    protected boolean singleQueryAggregation;
+
     protected TbSqlBlockingQueueWrapper<TsKvEntity, Void> tsQueue;
     @Autowired
     private StatsFactory statsFactory;
@@ -76,11 +93,24 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
                 .statsPrintIntervalMs(tsStatsPrintIntervalMs)
                 .statsNamePrefix("ts")
                 .batchSortEnabled(batchSortEnabled)
+                .adaptive(tsBatchAdaptiveEnabled)
+                .minBatchSize(tsBatchMinSize)
+                .minDelay(tsBatchMinDelay)
+                .targetFlushLatencyMs(tsBatchTargetFlushLatencyMs)
                 .build();
 
         Function<TsKvEntity, Integer> hashcodeFunction = entity -> entity.getEntityId().hashCode();
         tsQueue = new TbSqlBlockingQueueWrapper<>(tsParams, hashcodeFunction, tsBatchThreads, statsFactory);
-        tsQueue.init(logExecutor, v -> insertRepository.saveOrUpdate(v),
+        tsQueue.init(logExecutor, v -> {
+                    if (rollupService.isEnabled()) {
+                        transactionTemplate.executeWithoutResult(status -> {
+                            insertRepository.saveOrUpdate(v);
+                            rollupService.onSaved(v);
+                        });
+                    } else {
+                        insertRepository.saveOrUpdate(v);
+                    }
+                },
                 Comparator.comparing((Function<TsKvEntity, UUID>) AbstractTsKvEntity::getEntityId)
                         .thenComparing(AbstractTsKvEntity::getKey)
                         .thenComparing(AbstractTsKvEntity::getTs)
@@ -97,11 +127,19 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
     @Override
     public ListenableFuture<Void> remove(TenantId tenantId, EntityId entityId, DeleteTsKvQuery query) {
         return service.submit(() -> {
-            tsKvRepository.delete(
-                    entityId.getId(),
-                    keyDictionaryDao.getOrSaveKeyId(query.getKey()),
-                    query.getStartTs(),
-                    query.getEndTs());
+            Integer keyId = keyDictionaryDao.getOrSaveKeyId(query.getKey());
+            if (rollupService.isEnabled()) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    tsKvRepository.delete(entityId.getId(), keyId, query.getStartTs(), query.getEndTs());
+                    rollupService.onRemoved(entityId.getId(), keyId, query.getStartTs(), query.getEndTs());
+                });
+            } else {
+                tsKvRepository.delete(
+                        entityId.getId(),
+                        keyId,
+                        query.getStartTs(),
+                        query.getEndTs());
+            }
             return null;
         });
     }
@@ -121,6 +159,8 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
         var aggParams = query.getAggParameters();
         if (Aggregation.NONE.equals(aggParams.getAggregation())) {
             return Futures.immediateFuture(findAllAsyncWithLimit(entityId, query));
+        } else if (singleQueryAggregation || rollupService.isApplicable(aggParams.getIntervalType(), aggParams.getInterval())) {
+            return getReadTsKvQueryResultFuture(query, findAllAndAggregateAsync(entityId, query));
         } else {
             List<ListenableFuture<Optional<TsKvEntity>>> futures = new ArrayList<>();
             var intervalType = aggParams.getIntervalType();
@@ -158,6 +198,54 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
         return new ReadTsKvQueryResult(query.getId(), tsKvEntries, lastTs);
     }
 
+    private ListenableFuture<List<Optional<? extends AbstractTsKvEntity>>> findAllAndAggregateAsync(EntityId entityId, ReadTsKvQuery query) {
+        var aggParams = query.getAggParameters();
+        long startTs = query.getStartTs();
+        long endTs = Math.max(query.getStartTs() + 1, query.getEndTs());
+        return service.submit(() -> {
+            var keyId = keyDictionaryDao.getOrSaveKeyId(query.getKey());
+            List<TsKvEntity> entities;
+            if (rollupService.isApplicable(aggParams.getIntervalType(), aggParams.getInterval())) {
+                long[] intervalStarts = IntervalType.MILLISECONDS.equals(aggParams.getIntervalType()) ?
+                        calculateIntervalStarts(startTs, endTs, aggParams.getInterval()) :
+                        calculateIntervalStarts(startTs, endTs, aggParams.getIntervalType(), aggParams.getTzId());
+                entities = rollupService.findAllAndAggregate(entityId.getId(), keyId, intervalStarts, endTs, query.getAggregation());
+            } else if (IntervalType.MILLISECONDS.equals(aggParams.getIntervalType())) {
+                entities = tsKvAggregationRepository.findAllAndAggregate(entityId.getId(), keyId, startTs, endTs, aggParams.getInterval(), query.getAggregation());
+            } else {
+                long[] intervalStarts = calculateIntervalStarts(startTs, endTs, aggParams.getIntervalType(), aggParams.getTzId());
+                entities = tsKvAggregationRepository.findAllAndAggregate(entityId.getId(), keyId, intervalStarts, endTs, query.getAggregation());
+            }
+            List<Optional<? extends AbstractTsKvEntity>> result = new ArrayList<>(entities.size());
+            for (TsKvEntity entity : entities) {
+                if (entity.isNotEmpty()) {
+                    entity.setEntityId(entityId.getId());
+                    entity.setStrKey(query.getKey());
+                    result.add(Optional.of(entity));
+                }
+            }
+            return result;
+        });
+    }
+
+    static long[] calculateIntervalStarts(long startTs, long endTs, long interval) {
+        long[] intervalStarts = new long[(int) ((endTs - startTs + interval - 1) / interval)];
+        for (int i = 0; i < intervalStarts.length; i++) {
+            intervalStarts[i] = startTs + i * interval;
+        }
+        return intervalStarts;
+    }
+
+    static long[] calculateIntervalStarts(long startTs, long endTs, IntervalType intervalType, ZoneId tzId) {
+        List<Long> intervalStarts = new ArrayList<>();
+        long intervalStart = startTs;
+        while (intervalStart < endTs) {
+            intervalStarts.add(intervalStart);
+            intervalStart = TimeUtils.calculateIntervalEnd(intervalStart, intervalType, tzId);
+        }
+        return intervalStarts.stream().mapToLong(Long::longValue).toArray();
+    }
+
     ListenableFuture<Optional<TsKvEntity>> findAndAggregateAsync(EntityId entityId, String key, long startTs, long endTs, long ts, Aggregation aggregation) {
         return service.submit(() -> {
             TsKvEntity entity = switchAggregation(entityId, key, startTs, endTs, aggregation);
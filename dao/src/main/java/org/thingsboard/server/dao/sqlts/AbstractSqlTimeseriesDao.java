@@ -63,6 +63,18 @@ public abstract class AbstractSqlTimeseriesDao extends BaseAbstractSqlTimeseries
     @Value("${sql.timescale.batch_threads:4}")
     protected int timescaleBatchThreads;
 
+    @Value("${sql.ts.batch_adaptive_enabled:false}")
+    protected boolean tsBatchAdaptiveEnabled;
+
+    @Value("${sql.ts.batch_min_delay:10}")
+    protected long tsBatchMinDelay;
+
+    @Value("${sql.ts.batch_min_size:1000}")
+    protected int tsBatchMinSize;
+
+    @Value("${sql.ts.batch_target_flush_latency_ms:100}")
+    protected long tsBatchTargetFlushLatencyMs;
+
     @Value("${sql.batch_sort:true}")
     protected boolean batchSortEnabled;
 
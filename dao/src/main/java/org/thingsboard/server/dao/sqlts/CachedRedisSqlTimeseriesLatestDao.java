@@ -40,8 +40,12 @@ import org.thingsboard.server.dao.timeseries.TimeseriesLatestDao;
 import org.thingsboard.server.dao.timeseries.TsLatestCacheKey;
 import org.thingsboard.server.dao.util.SqlTsLatestAnyDaoCachedRedis;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Component
@@ -132,6 +136,30 @@ public class CachedRedisSqlTimeseriesLatestDao extends BaseAbstractSqlTimeseries
         return Futures.transform(doFindLatest(tenantId, entityId, key), x -> sqlDao.wrapNullTsKvEntry(key, x.orElse(null)), MoreExecutors.directExecutor());
     }
 
+    @Override
+    public ListenableFuture<List<TsKvEntry>> findLatest(TenantId tenantId, EntityId entityId, Collection<String> keys) {
+        List<TsLatestCacheKey> cacheKeys = keys.stream().map(key -> new TsLatestCacheKey(entityId, key)).collect(Collectors.toList());
+        ListenableFuture<Map<TsLatestCacheKey, TbCacheValueWrapper<TsKvEntry>>> cacheFuture = cacheExecutorService.submit(() -> cache.getAll(cacheKeys));
+
+        return Futures.transformAsync(cacheFuture, cacheValues -> {
+            List<ListenableFuture<TsKvEntry>> futures = new ArrayList<>(cacheKeys.size());
+            for (TsLatestCacheKey cacheKey : cacheKeys) {
+                TbCacheValueWrapper<TsKvEntry> cacheValueWrap = cacheValues.get(cacheKey);
+                ListenableFuture<Optional<TsKvEntry>> future;
+                if (cacheValueWrap != null) {
+                    final TsKvEntry tsKvEntry = cacheValueWrap.get();
+                    log.debug("findLatest cache hit [{}][{}][{}]", entityId, cacheKey.getKey(), tsKvEntry);
+                    future = Futures.immediateFuture(Optional.ofNullable(tsKvEntry));
+                } else {
+                    log.debug("findLatest cache miss [{}][{}]", entityId, cacheKey.getKey());
+                    future = findLatestAndPutToCache(tenantId, cacheKey);
+                }
+                futures.add(Futures.transform(future, x -> sqlDao.wrapNullTsKvEntry(cacheKey.getKey(), x.orElse(null)), MoreExecutors.directExecutor()));
+            }
+            return Futures.allAsList(futures);
+        }, MoreExecutors.directExecutor());
+    }
+
     public ListenableFuture<Optional<TsKvEntry>> doFindLatest(TenantId tenantId, EntityId entityId, String key) {
         final TsLatestCacheKey cacheKey = new TsLatestCacheKey(entityId, key);
         ListenableFuture<TbCacheValueWrapper<TsKvEntry>> cacheFuture = cacheExecutorService.submit(() -> cache.get(cacheKey));
@@ -143,12 +171,16 @@ public class CachedRedisSqlTimeseriesLatestDao extends BaseAbstractSqlTimeseries
                 return Futures.immediateFuture(Optional.ofNullable(tsKvEntry));
             }
             log.debug("findLatest cache miss [{}][{}]", entityId, key);
-            ListenableFuture<Optional<TsKvEntry>> daoFuture = sqlDao.findLatestOpt(tenantId, entityId, key);
+            return findLatestAndPutToCache(tenantId, cacheKey);
+        }, MoreExecutors.directExecutor());
+    }
 
-            return Futures.transform(daoFuture, daoValue -> {
-                cache.put(cacheKey, daoValue.orElse(null));
-                return daoValue;
-            }, MoreExecutors.directExecutor());
+    private ListenableFuture<Optional<TsKvEntry>> findLatestAndPutToCache(TenantId tenantId, TsLatestCacheKey cacheKey) {
+        ListenableFuture<Optional<TsKvEntry>> daoFuture = sqlDao.findLatestOpt(tenantId, cacheKey.getEntityId(), cacheKey.getKey());
+
+        return Futures.transform(daoFuture, daoValue -> {
+            cache.put(cacheKey, daoValue.orElse(null));
+            return daoValue;
         }, MoreExecutors.directExecutor());
     }
 
@@ -96,6 +96,18 @@ public class SqlTimeseriesLatestDao extends BaseAbstractSqlTimeseriesDao impleme
     @Value("${sql.ts_latest.batch_threads:4}")
     private int tsLatestBatchThreads;
 
+    @Value("${sql.ts_latest.batch_adaptive_enabled:false}")
+    private boolean tsLatestBatchAdaptiveEnabled;
+
+    @Value("${sql.ts_latest.batch_min_delay:5}")
+    private long tsLatestBatchMinDelay;
+
+    @Value("${sql.ts_latest.batch_min_size:100}")
+    private int tsLatestBatchMinSize;
+
+    @Value("${sql.ts_latest.batch_target_flush_latency_ms:50}")
+    private long tsLatestBatchTargetFlushLatencyMs;
+
     @Value("${sql.batch_sort:true}")
     protected boolean batchSortEnabled;
 
@@ -118,6 +130,10 @@ public class SqlTimeseriesLatestDao extends BaseAbstractSqlTimeseriesDao impleme
                 .statsNamePrefix("ts.latest")
                 .batchSortEnabled(batchSortEnabled)
                 .withResponse(true)
+                .adaptive(tsLatestBatchAdaptiveEnabled)
+                .minBatchSize(tsLatestBatchMinSize)
+                .minDelay(tsLatestBatchMinDelay)
+                .targetFlushLatencyMs(tsLatestBatchTargetFlushLatencyMs)
                 .build();
 
         java.util.function.Function<TsKvLatestEntity, Integer> hashcodeFunction = entity -> entity.getEntityId().hashCode();
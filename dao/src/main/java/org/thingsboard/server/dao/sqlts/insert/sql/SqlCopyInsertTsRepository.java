@@ -0,0 +1,141 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.insert.sql;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.sqlts.insert.AbstractInsertRepository;
+import org.thingsboard.server.dao.sqlts.insert.InsertTsRepository;
+import org.thingsboard.server.dao.util.SqlTsDao;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Streams the batch into a session-local staging table using the binary COPY protocol
+ * and merges it into ts_kv with a single INSERT ... SELECT ... ON CONFLICT statement.
+ * <p>
+ * The staging table is a temporary table: it is never WAL-logged, and every pooled connection
+ * has its own copy, so concurrent writers do not contend on it. Rows are removed on commit.
+ */
+@SqlTsDao
+@Repository
+@Transactional
+@ConditionalOnProperty(prefix = "sql.ts", value = "insert_strategy", havingValue = "copy")
+public class SqlCopyInsertTsRepository extends AbstractInsertRepository implements InsertTsRepository<TsKvEntity> {
+
+    private static final String CREATE_STAGING_TABLE = "CREATE TEMP TABLE IF NOT EXISTS ts_kv_staging " +
+            "(seq int, entity_id uuid, key int, ts bigint, bool_v boolean, str_v varchar, long_v bigint, dbl_v double precision, json_v varchar) " +
+            "ON COMMIT DELETE ROWS";
+
+    private static final String COPY_TO_STAGING_TABLE = "COPY ts_kv_staging (seq, entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v) FROM STDIN (FORMAT BINARY)";
+
+    // DISTINCT ON keeps the last value for duplicate keys in the batch, since ON CONFLICT can't update the same row twice
+    private static final String MERGE_FROM_STAGING_TABLE = "INSERT INTO ts_kv (entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v) " +
+            "SELECT DISTINCT ON (entity_id, key, ts) entity_id, key, ts, bool_v, str_v, long_v, dbl_v, cast(json_v AS json) " +
+            "FROM ts_kv_staging ORDER BY entity_id, key, ts, seq DESC " +
+            "ON CONFLICT (entity_id, key, ts) DO UPDATE SET bool_v = excluded.bool_v, str_v = excluded.str_v, " +
+            "long_v = excluded.long_v, dbl_v = excluded.dbl_v, json_v = excluded.json_v";
+
+    private static final byte[] COPY_SIGNATURE = "PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1);
+    private static final short FIELDS_COUNT = 9;
+    private static final int COPY_BUFFER_SIZE = 65536;
+
+    @Override
+    public void saveOrUpdate(List<TsKvEntity> entities) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING_TABLE);
+                copyToStagingTable(connection, entities);
+                statement.executeUpdate(MERGE_FROM_STAGING_TABLE);
+            }
+            return null;
+        });
+    }
+
+    private void copyToStagingTable(Connection connection, List<TsKvEntity> entities) throws SQLException {
+        try (DataOutputStream out = new DataOutputStream(new PGCopyOutputStream(connection.unwrap(PGConnection.class), COPY_TO_STAGING_TABLE, COPY_BUFFER_SIZE))) {
+            out.write(COPY_SIGNATURE);
+            out.writeInt(0); // flags
+            out.writeInt(0); // header extension length
+            for (int i = 0; i < entities.size(); i++) {
+                TsKvEntity tsKvEntity = entities.get(i);
+                out.writeShort(FIELDS_COUNT);
+                out.writeInt(Integer.BYTES);
+                out.writeInt(i);
+                writeUuid(out, tsKvEntity.getEntityId());
+                out.writeInt(Integer.BYTES);
+                out.writeInt(tsKvEntity.getKey());
+                out.writeInt(Long.BYTES);
+                out.writeLong(tsKvEntity.getTs());
+                if (tsKvEntity.getBooleanValue() != null) {
+                    out.writeInt(1);
+                    out.writeBoolean(tsKvEntity.getBooleanValue());
+                } else {
+                    out.writeInt(-1);
+                }
+                writeString(out, replaceNullChars(tsKvEntity.getStrValue()));
+                if (tsKvEntity.getLongValue() != null) {
+                    out.writeInt(Long.BYTES);
+                    out.writeLong(tsKvEntity.getLongValue());
+                } else {
+                    out.writeInt(-1);
+                }
+                if (tsKvEntity.getDoubleValue() != null) {
+                    out.writeInt(Double.BYTES);
+                    out.writeDouble(tsKvEntity.getDoubleValue());
+                } else {
+                    out.writeInt(-1);
+                }
+                writeString(out, replaceNullChars(tsKvEntity.getJsonValue()));
+            }
+            out.writeShort(-1); // file trailer
+        } catch (IOException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Failed to copy " + entities.size() + " entries to the staging table", e);
+        }
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeInt(16);
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.rollup;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Splits the intervals of an aggregation query into the ranges that are read from the daily rollups,
+ * the hourly rollups and the raw data. Every range belongs to a single interval, identified by its index.
+ */
+@Getter
+public class TsKvRollupRanges {
+
+    public static final long HOUR = 60 * 60 * 1000L;
+    public static final long DAY = 24 * HOUR;
+
+    private final Ranges raw = new Ranges();
+    private final Ranges hourly = new Ranges();
+    private final Ranges daily = new Ranges();
+
+    public TsKvRollupRanges(long[] intervalStarts, long endTs, long rollupStartTs, long rollupEndTs) {
+        this(intervalStarts, endTs, rollupStartTs, rollupEndTs, new long[0]);
+    }
+
+    /**
+     * @param intervalStarts start timestamps of the intervals; every interval ends where the next one starts
+     * @param endTs          end timestamp of the last interval
+     * @param rollupStartTs  rollups are not used before this timestamp
+     * @param rollupEndTs    rollups are not used after this timestamp
+     * @param outdatedHours  start timestamps of the outdated hourly buckets in ascending order; these hours and
+     *                       the days they belong to are not read from the rollups
+     */
+    public TsKvRollupRanges(long[] intervalStarts, long endTs, long rollupStartTs, long rollupEndTs, long[] outdatedHours) {
+        for (int i = 0; i < intervalStarts.length; i++) {
+            long startTs = intervalStarts[i];
+            long intervalEndTs = i + 1 < intervalStarts.length ? intervalStarts[i + 1] : endTs;
+            long hourStartTs = ceil(Math.max(startTs, rollupStartTs), HOUR);
+            long hourEndTs = floor(Math.min(intervalEndTs, rollupEndTs), HOUR);
+            if (hourStartTs >= hourEndTs) {
+                raw.add(startTs, intervalEndTs, i);
+                continue;
+            }
+            raw.add(startTs, hourStartTs, i);
+            long rollupTs = hourStartTs;
+            int idx = Arrays.binarySearch(outdatedHours, hourStartTs);
+            for (int j = idx >= 0 ? idx : -idx - 1; j < outdatedHours.length && outdatedHours[j] < hourEndTs; j++) {
+                addRollups(rollupTs, outdatedHours[j], i);
+                raw.add(outdatedHours[j], outdatedHours[j] + HOUR, i);
+                rollupTs = outdatedHours[j] + HOUR;
+            }
+            addRollups(rollupTs, hourEndTs, i);
+            raw.add(hourEndTs, intervalEndTs, i);
+        }
+    }
+
+    private void addRollups(long hourStartTs, long hourEndTs, int intervalIdx) {
+        long dayStartTs = ceil(hourStartTs, DAY);
+        long dayEndTs = floor(hourEndTs, DAY);
+        if (dayStartTs >= dayEndTs) {
+            hourly.add(hourStartTs, hourEndTs, intervalIdx);
+        } else {
+            hourly.add(hourStartTs, dayStartTs, intervalIdx);
+            daily.add(dayStartTs, dayEndTs, intervalIdx);
+            hourly.add(dayEndTs, hourEndTs, intervalIdx);
+        }
+    }
+
+    static long floor(long ts, long size) {
+        return ts - Math.floorMod(ts, size);
+    }
+
+    static long ceil(long ts, long size) {
+        long floor = floor(ts, size);
+        return floor == ts ? ts : floor + size;
+    }
+
+    public static class Ranges {
+
+        private long[] startTs = new long[16];
+        private long[] endTs = new long[16];
+        private int[] intervalIdx = new int[16];
+        private int size;
+
+        void add(long startTs, long endTs, int intervalIdx) {
+            if (startTs >= endTs) {
+                return;
+            }
+            if (size == this.startTs.length) {
+                int capacity = size * 2;
+                this.startTs = Arrays.copyOf(this.startTs, capacity);
+                this.endTs = Arrays.copyOf(this.endTs, capacity);
+                this.intervalIdx = Arrays.copyOf(this.intervalIdx, capacity);
+            }
+            this.startTs[size] = startTs;
+            this.endTs[size] = endTs;
+            this.intervalIdx[size] = intervalIdx;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public Long[] getStartTs() {
+            return Arrays.stream(startTs, 0, size).boxed().toArray(Long[]::new);
+        }
+
+        public Long[] getEndTs() {
+            return Arrays.stream(endTs, 0, size).boxed().toArray(Long[]::new);
+        }
+
+        public Integer[] getIntervalIdx() {
+            return Arrays.stream(intervalIdx, 0, size).boxed().toArray(Integer[]::new);
+        }
+
+    }
+
+}
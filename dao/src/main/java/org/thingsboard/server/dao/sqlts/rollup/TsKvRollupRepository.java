@@ -0,0 +1,274 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.rollup;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.util.SqlTsDao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.thingsboard.server.dao.sqlts.rollup.TsKvRollupRanges.DAY;
+import static org.thingsboard.server.dao.sqlts.rollup.TsKvRollupRanges.HOUR;
+
+@Repository
+@SqlTsDao
+public class TsKvRollupRepository {
+
+    private static final String ROLLUP_COLUMNS = "bool_count, str_count, long_count, dbl_count, json_count, " +
+            "long_sum, dbl_sum, long_min, long_max, dbl_min, dbl_max, str_min, str_max, max_ts, str_max_ts";
+
+    private static final String RAW_STATE = "SUM(CASE WHEN t.bool_v IS NULL THEN 0 ELSE 1 END) AS bool_count, " +
+            "SUM(CASE WHEN t.str_v IS NULL THEN 0 ELSE 1 END) AS str_count, " +
+            "SUM(CASE WHEN t.long_v IS NULL THEN 0 ELSE 1 END) AS long_count, " +
+            "SUM(CASE WHEN t.dbl_v IS NULL THEN 0 ELSE 1 END) AS dbl_count, " +
+            "SUM(CASE WHEN t.json_v IS NULL THEN 0 ELSE 1 END) AS json_count, " +
+            "SUM(t.long_v) AS long_sum, SUM(t.dbl_v) AS dbl_sum, MIN(t.long_v) AS long_min, MAX(t.long_v) AS long_max, " +
+            "MIN(t.dbl_v) AS dbl_min, MAX(t.dbl_v) AS dbl_max, MIN(t.str_v) AS str_min, MAX(t.str_v) AS str_max, " +
+            "MAX(t.ts) AS max_ts, MAX(CASE WHEN t.str_v IS NULL THEN NULL ELSE t.ts END) AS str_max_ts";
+
+    private static final String ROLLUP_STATE = rollupState("t");
+
+    private static final String BUCKETS = "unnest(?::uuid[], ?::int[], ?::bigint[]) AS b(entity_id, key, bucket_ts)";
+
+    private static final String ON_CONFLICT_UPDATE = " ON CONFLICT (entity_id, key, bucket_size, bucket_ts) DO UPDATE SET " +
+            "bool_count = excluded.bool_count, str_count = excluded.str_count, long_count = excluded.long_count, " +
+            "dbl_count = excluded.dbl_count, json_count = excluded.json_count, long_sum = excluded.long_sum, dbl_sum = excluded.dbl_sum, " +
+            "long_min = excluded.long_min, long_max = excluded.long_max, dbl_min = excluded.dbl_min, dbl_max = excluded.dbl_max, " +
+            "str_min = excluded.str_min, str_max = excluded.str_max, max_ts = excluded.max_ts, str_max_ts = excluded.str_max_ts";
+
+    private static final String DELETE_BUCKETS = "DELETE FROM ts_rollup r USING " + BUCKETS +
+            " WHERE r.entity_id = b.entity_id AND r.key = b.key AND r.bucket_size = ? AND r.bucket_ts = b.bucket_ts";
+
+    private static final String INSERT_HOURLY_BUCKETS = "INSERT INTO ts_rollup (entity_id, key, bucket_size, bucket_ts, " + ROLLUP_COLUMNS + ") " +
+            "SELECT b.entity_id, b.key, " + HOUR + ", b.bucket_ts, " + RAW_STATE + " FROM " + BUCKETS +
+            " JOIN ts_kv t ON t.entity_id = b.entity_id AND t.key = b.key AND t.ts >= b.bucket_ts AND t.ts < b.bucket_ts + " + HOUR +
+            " GROUP BY b.entity_id, b.key, b.bucket_ts" + ON_CONFLICT_UPDATE;
+
+    private static final String INSERT_DAILY_BUCKETS = "INSERT INTO ts_rollup (entity_id, key, bucket_size, bucket_ts, " + ROLLUP_COLUMNS + ") " +
+            "SELECT b.entity_id, b.key, " + DAY + ", b.bucket_ts, " + ROLLUP_STATE + " FROM " + BUCKETS +
+            " JOIN ts_rollup t ON t.entity_id = b.entity_id AND t.key = b.key AND t.bucket_size = " + HOUR +
+            " AND t.bucket_ts >= b.bucket_ts AND t.bucket_ts < b.bucket_ts + " + DAY +
+            " GROUP BY b.entity_id, b.key, b.bucket_ts" + ON_CONFLICT_UPDATE;
+
+    private static final String DELETE_COVERED_BUCKETS = "DELETE FROM ts_rollup WHERE entity_id = ? AND key = ? " +
+            "AND bucket_ts >= ? AND bucket_ts + bucket_size <= ?";
+
+    private static final String RANGES = "unnest(?::bigint[], ?::bigint[], ?::int[]) AS r(start_ts, end_ts, idx)";
+
+    private static final String FIND_ALL_AND_AGGREGATE = "SELECT s.idx, " + rollupState("s") + " FROM (" +
+            "SELECT r.idx, " + RAW_STATE + " FROM " + RANGES +
+            " JOIN ts_kv t ON t.entity_id = ? AND t.key = ? AND t.ts >= r.start_ts AND t.ts < r.end_ts GROUP BY r.idx" +
+            " UNION ALL SELECT r.idx, " + ROLLUP_STATE + " FROM " + RANGES +
+            " JOIN ts_rollup t ON t.entity_id = ? AND t.key = ? AND t.bucket_size = " + HOUR +
+            " AND t.bucket_ts >= r.start_ts AND t.bucket_ts < r.end_ts GROUP BY r.idx" +
+            " UNION ALL SELECT r.idx, " + ROLLUP_STATE + " FROM " + RANGES +
+            " JOIN ts_rollup t ON t.entity_id = ? AND t.key = ? AND t.bucket_size = " + DAY +
+            " AND t.bucket_ts >= r.start_ts AND t.bucket_ts < r.end_ts GROUP BY r.idx" +
+            ") s GROUP BY s.idx ORDER BY s.idx";
+
+    // the no-op update waits for the running recalculation of the bucket instead of skipping it, so the mark is not lost
+    private static final String MARK_OUTDATED = "INSERT INTO ts_rollup_outdated (entity_id, key, bucket_ts) SELECT b.entity_id, b.key, b.bucket_ts FROM " + BUCKETS +
+            " ON CONFLICT (entity_id, key, bucket_ts) DO UPDATE SET bucket_ts = excluded.bucket_ts";
+    private static final String FIND_OUTDATED = "SELECT entity_id, key, bucket_ts FROM ts_rollup_outdated LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String FIND_OUTDATED_BY_KEY = "SELECT bucket_ts FROM ts_rollup_outdated WHERE entity_id = ? AND key = ? " +
+            "AND bucket_ts + " + HOUR + " > ? AND bucket_ts < ? ORDER BY bucket_ts";
+    private static final String DELETE_OUTDATED = "DELETE FROM ts_rollup_outdated o USING " + BUCKETS +
+            " WHERE o.entity_id = b.entity_id AND o.key = b.key AND o.bucket_ts = b.bucket_ts";
+
+    private static final String DELETE_EXPIRED_BUCKETS = "DELETE FROM ts_rollup r WHERE r.bucket_ts + r.bucket_size <= ? " +
+            "OR NOT EXISTS (SELECT 1 FROM ts_kv t WHERE t.entity_id = r.entity_id AND t.key = r.key " +
+            "AND t.ts >= r.bucket_ts AND t.ts < r.bucket_ts + r.bucket_size)";
+
+    private static final String INIT_WATERMARK = "INSERT INTO ts_rollup_watermark (id, start_ts) VALUES (0, ?) ON CONFLICT (id) DO NOTHING";
+    private static final String FIND_WATERMARK = "SELECT start_ts FROM ts_rollup_watermark WHERE id = 0";
+    private static final String DELETE_WATERMARK = "DELETE FROM ts_rollup_watermark WHERE id = 0";
+    private static final String DELETE_BUCKETS_SINCE = "DELETE FROM ts_rollup WHERE bucket_ts + bucket_size > ?";
+    private static final String DELETE_ALL_BUCKETS = "DELETE FROM ts_rollup";
+    private static final String DELETE_ALL_OUTDATED = "DELETE FROM ts_rollup_outdated";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns the timestamp the rollups were enabled at. Rollups are not complete for the earlier data.
+     * When the watermark is created, the buckets after it are removed, since they may be left from the time
+     * the rollups were enabled before.
+     */
+    @Transactional
+    public long getOrInitWatermark(long ts) {
+        if (jdbcTemplate.update(INIT_WATERMARK, ts) > 0) {
+            jdbcTemplate.update(DELETE_BUCKETS_SINCE, ts);
+        }
+        return jdbcTemplate.queryForObject(FIND_WATERMARK, Long.class);
+    }
+
+    /**
+     * Removes the watermark, the buckets and the outdated marks, so the rollups are started over the next time they are enabled.
+     */
+    @Transactional
+    public void reset() {
+        jdbcTemplate.update(DELETE_WATERMARK);
+        jdbcTemplate.update(DELETE_ALL_BUCKETS);
+        jdbcTemplate.update(DELETE_ALL_OUTDATED);
+    }
+
+    /**
+     * Marks the given hourly buckets as outdated. Expected to be called in the transaction that changes the raw data.
+     */
+    public void markOutdated(Collection<TsKvRollupKey> hourlyBuckets) {
+        jdbcTemplate.update(MARK_OUTDATED, ps -> setBuckets(ps, hourlyBuckets));
+    }
+
+    /**
+     * Returns the start timestamps of the outdated hourly buckets of the key that overlap the given range, in ascending order.
+     */
+    public long[] findOutdated(UUID entityId, int key, long startTs, long endTs) {
+        return jdbcTemplate.queryForList(FIND_OUTDATED_BY_KEY, Long.class, entityId, key, startTs, endTs)
+                .stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Recalculates up to the given number of the outdated hourly buckets from the raw data and the daily buckets
+     * that contain them. Buckets locked by the concurrent updates are skipped.
+     *
+     * @return the number of the recalculated hourly buckets
+     */
+    @Transactional
+    public int updateOutdated(int limit) {
+        List<TsKvRollupKey> hourlyBuckets = jdbcTemplate.query(FIND_OUTDATED, (rs, rowNum) ->
+                new TsKvRollupKey(rs.getObject("entity_id", UUID.class), rs.getInt("key"), rs.getLong("bucket_ts")), limit);
+        if (!hourlyBuckets.isEmpty()) {
+            Set<TsKvRollupKey> dailyBuckets = new LinkedHashSet<>();
+            for (TsKvRollupKey bucket : hourlyBuckets) {
+                dailyBuckets.add(new TsKvRollupKey(bucket.entityId(), bucket.key(), TsKvRollupRanges.floor(bucket.bucketTs(), DAY)));
+            }
+            updateBuckets(hourlyBuckets, HOUR, INSERT_HOURLY_BUCKETS);
+            updateBuckets(dailyBuckets, DAY, INSERT_DAILY_BUCKETS);
+            jdbcTemplate.update(DELETE_OUTDATED, ps -> setBuckets(ps, hourlyBuckets));
+        }
+        return hourlyBuckets.size();
+    }
+
+    /**
+     * Deletes the buckets that ended before the expiration time and the buckets without the raw data left.
+     */
+    public int deleteExpired(long expirationTs) {
+        return jdbcTemplate.update(DELETE_EXPIRED_BUCKETS, expirationTs);
+    }
+
+    private void updateBuckets(Collection<TsKvRollupKey> buckets, long bucketSize, String insertQuery) {
+        // buckets without raw data left are not inserted back
+        jdbcTemplate.update(DELETE_BUCKETS, ps -> {
+            setBuckets(ps, buckets);
+            ps.setLong(4, bucketSize);
+        });
+        jdbcTemplate.update(insertQuery, ps -> setBuckets(ps, buckets));
+    }
+
+    private static void setBuckets(PreparedStatement ps, Collection<TsKvRollupKey> buckets) throws SQLException {
+        UUID[] entityIds = new UUID[buckets.size()];
+        Integer[] keys = new Integer[buckets.size()];
+        Long[] bucketsTs = new Long[buckets.size()];
+        int i = 0;
+        for (TsKvRollupKey bucket : buckets) {
+            entityIds[i] = bucket.entityId();
+            keys[i] = bucket.key();
+            bucketsTs[i] = bucket.bucketTs();
+            i++;
+        }
+        Connection connection = ps.getConnection();
+        ps.setArray(1, connection.createArrayOf("uuid", entityIds));
+        ps.setArray(2, connection.createArrayOf("int", keys));
+        ps.setArray(3, connection.createArrayOf("bigint", bucketsTs));
+    }
+
+    /**
+     * Deletes the hourly and daily buckets that lay entirely within the given range.
+     */
+    public void deleteCovered(UUID entityId, int key, long startTs, long endTs) {
+        jdbcTemplate.update(DELETE_COVERED_BUCKETS, entityId, key, startTs, endTs);
+    }
+
+    public List<TsKvEntity> findAllAndAggregate(UUID entityId, int key, long[] intervalStarts, long endTs, TsKvRollupRanges ranges, Aggregation aggregation) {
+        return jdbcTemplate.query(FIND_ALL_AND_AGGREGATE, ps -> {
+            int index = 1;
+            for (TsKvRollupRanges.Ranges r : List.of(ranges.getRaw(), ranges.getHourly(), ranges.getDaily())) {
+                Connection connection = ps.getConnection();
+                ps.setArray(index++, connection.createArrayOf("bigint", r.getStartTs()));
+                ps.setArray(index++, connection.createArrayOf("bigint", r.getEndTs()));
+                ps.setArray(index++, connection.createArrayOf("int", r.getIntervalIdx()));
+                ps.setObject(index++, entityId);
+                ps.setInt(index++, key);
+            }
+        }, (rs, rowNum) -> {
+            int idx = rs.getInt("idx");
+            long bucketStartTs = intervalStarts[idx];
+            long bucketEndTs = idx + 1 < intervalStarts.length ? intervalStarts[idx + 1] : endTs;
+            TsKvEntity entity = toEntity(rs, aggregation);
+            entity.setTs(bucketStartTs + (bucketEndTs - bucketStartTs) / 2);
+            return entity;
+        });
+    }
+
+    private static TsKvEntity toEntity(ResultSet rs, Aggregation aggregation) throws SQLException {
+        long maxTs = rs.getLong("max_ts");
+        long longCount = rs.getLong("long_count");
+        long doubleCount = rs.getLong("dbl_count");
+        return switch (aggregation) {
+            case AVG, SUM -> {
+                Long longSum = getNullableLong(rs, "long_sum");
+                double doubleSum = rs.getDouble("dbl_sum");
+                yield new TsKvEntity(longSum != null ? longSum : 0L, doubleSum, longCount, doubleCount, aggregation.name(), maxTs);
+            }
+            case MIN, MAX -> {
+                String suffix = aggregation == Aggregation.MIN ? "_min" : "_max";
+                Long longValue = getNullableLong(rs, "long" + suffix);
+                double doubleValue = rs.getDouble("dbl" + suffix);
+                TsKvEntity numeric = new TsKvEntity(longValue, rs.wasNull() ? null : doubleValue, longCount, doubleCount, aggregation.name(), maxTs);
+                yield numeric.isNotEmpty() ? numeric : new TsKvEntity(rs.getString("str" + suffix), getNullableLong(rs, "str_max_ts"));
+            }
+            case COUNT -> new TsKvEntity(rs.getLong("bool_count"), rs.getLong("str_count"), longCount, doubleCount, rs.getLong("json_count"), maxTs);
+            default -> throw new IllegalArgumentException("Not supported aggregation type: " + aggregation);
+        };
+    }
+
+    private static String rollupState(String alias) {
+        return String.format("SUM(%1$s.bool_count) AS bool_count, SUM(%1$s.str_count) AS str_count, " +
+                "SUM(%1$s.long_count) AS long_count, SUM(%1$s.dbl_count) AS dbl_count, SUM(%1$s.json_count) AS json_count, " +
+                "SUM(%1$s.long_sum) AS long_sum, SUM(%1$s.dbl_sum) AS dbl_sum, MIN(%1$s.long_min) AS long_min, MAX(%1$s.long_max) AS long_max, " +
+                "MIN(%1$s.dbl_min) AS dbl_min, MAX(%1$s.dbl_max) AS dbl_max, MIN(%1$s.str_min) AS str_min, MAX(%1$s.str_max) AS str_max, " +
+                "MAX(%1$s.max_ts) AS max_ts, MAX(%1$s.str_max_ts) AS str_max_ts", alias);
+    }
+
+    private static Long getNullableLong(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.rollup;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.thingsboard.common.util.ThingsBoardExecutors;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.common.data.kv.IntervalType;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.util.SqlTsDao;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.thingsboard.server.dao.sqlts.rollup.TsKvRollupRanges.HOUR;
+
+/**
+ * Maintains hourly and daily rollups of the time-series data and reads the aggregates from them.
+ * <p>
+ * Saved and removed data points mark their hourly buckets as outdated in the same transaction, so the marks survive
+ * restarts. The outdated buckets and the daily buckets that contain them are recalculated periodically, so the rollups
+ * stay exact when existing data points are overwritten. The aggregation queries use the rollups only for the data older
+ * than the update interval and newer than the time the rollups were enabled at; the rest is read from the raw data.
+ * The hours that are marked as outdated but not recalculated yet are read from the raw data as well.
+ * <p>
+ * The changes made while the rollups are disabled are not tracked, so the rollups have to be reset with the
+ * "ts-rollups-reset" upgrade before they are enabled again.
+ */
+@Service
+@SqlTsDao
+@Slf4j
+@RequiredArgsConstructor
+public class TsKvRollupService {
+
+    private final TsKvRollupRepository rollupRepository;
+
+    @Value("${sql.ts.rollup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sql.ts.rollup.update_interval_ms:10000}")
+    private long updateIntervalMs;
+
+    @Value("${sql.ts.rollup.update_batch_size:1000}")
+    private int updateBatchSize;
+
+    // keeps the row locks taken by the concurrent batches in the same order
+    private static final Comparator<TsKvRollupKey> BUCKET_ORDER = Comparator.comparing(TsKvRollupKey::entityId)
+            .thenComparingInt(TsKvRollupKey::key)
+            .thenComparingLong(TsKvRollupKey::bucketTs);
+
+    private ScheduledExecutorService scheduler;
+    private volatile long rollupStartTs = Long.MAX_VALUE;
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            rollupStartTs = rollupRepository.getOrInitWatermark(TsKvRollupRanges.ceil(System.currentTimeMillis(), HOUR));
+            log.info("Timeseries rollups are enabled for the data since {}", rollupStartTs);
+            scheduler = ThingsBoardExecutors.newSingleThreadScheduledExecutor("ts-rollup");
+            scheduler.scheduleWithFixedDelay(this::updateOutdatedBuckets, updateIntervalMs, updateIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Rollups are used only if the intervals are at least one hour long.
+     */
+    public boolean isApplicable(IntervalType intervalType, long interval) {
+        return enabled && (!IntervalType.MILLISECONDS.equals(intervalType) || interval >= HOUR);
+    }
+
+    /**
+     * Expected to be called in the transaction that saves the data points.
+     */
+    public void onSaved(List<TsKvEntity> entities) {
+        if (enabled) {
+            Set<TsKvRollupKey> buckets = new TreeSet<>(BUCKET_ORDER);
+            for (TsKvEntity entity : entities) {
+                buckets.add(new TsKvRollupKey(entity.getEntityId(), entity.getKey(), TsKvRollupRanges.floor(entity.getTs(), HOUR)));
+            }
+            rollupRepository.markOutdated(buckets);
+        }
+    }
+
+    /**
+     * Expected to be called in the transaction that removes the data points.
+     */
+    public void onRemoved(UUID entityId, int key, long startTs, long endTs) {
+        if (enabled && startTs < endTs) {
+            rollupRepository.deleteCovered(entityId, key, startTs, endTs);
+            // partially removed hours and the days they belong to
+            Set<TsKvRollupKey> buckets = new TreeSet<>(BUCKET_ORDER);
+            buckets.add(new TsKvRollupKey(entityId, key, TsKvRollupRanges.floor(startTs, HOUR)));
+            buckets.add(new TsKvRollupKey(entityId, key, TsKvRollupRanges.floor(endTs - 1, HOUR)));
+            rollupRepository.markOutdated(buckets);
+        }
+    }
+
+    /**
+     * Removes all the rollups and the watermark, so the rollups are started over the next time they are enabled.
+     */
+    public void reset() {
+        rollupRepository.reset();
+        log.info("Timeseries rollups are removed and will be started over once enabled");
+    }
+
+    public void cleanup(long systemTtl) {
+        long expirationTs = systemTtl > 0 ? System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(systemTtl) : 0;
+        try {
+            int removed = rollupRepository.deleteExpired(expirationTs);
+            log.info("Total rollup buckets removed by TTL: [{}]", removed);
+        } catch (Exception e) {
+            log.error("Failed to cleanup timeseries rollups", e);
+        }
+    }
+
+    public List<TsKvEntity> findAllAndAggregate(UUID entityId, int key, long[] intervalStarts, long endTs, Aggregation aggregation) {
+        long rollupEndTs = TsKvRollupRanges.floor(System.currentTimeMillis() - updateIntervalMs, HOUR);
+        long[] outdatedHours = rollupStartTs < rollupEndTs && intervalStarts.length > 0 ?
+                rollupRepository.findOutdated(entityId, key, Math.max(intervalStarts[0], rollupStartTs), Math.min(endTs, rollupEndTs)) : new long[0];
+        TsKvRollupRanges ranges = new TsKvRollupRanges(intervalStarts, endTs, rollupStartTs, rollupEndTs, outdatedHours);
+        return rollupRepository.findAllAndAggregate(entityId, key, intervalStarts, endTs, ranges, aggregation);
+    }
+
+    void updateOutdatedBuckets() {
+        // the outdated buckets stay in the table until recalculated, so the ones left by a failure or a restart are picked up later
+        try {
+            int updated;
+            do {
+                updated = rollupRepository.updateOutdated(updateBatchSize);
+                log.debug("Updated {} hourly rollup buckets", updated);
+            } while (updated == updateBatchSize);
+        } catch (Exception e) {
+            log.warn("Failed to update rollup buckets", e);
+        }
+    }
+
+}
@@ -106,6 +106,9 @@ public class JpaSqlTimeseriesDao extends AbstractChunkedAggregationTimeseriesDao
             cleanupPartitions(systemTtl);
         }
         super.cleanup(systemTtl);
+        if (rollupService.isEnabled()) {
+            rollupService.cleanup(systemTtl);
+        }
     }
 
     private void cleanupPartitions(long systemTtl) {
@@ -86,6 +86,10 @@ public class TimescaleTimeseriesDao extends AbstractSqlTimeseriesDao implements
                 .statsPrintIntervalMs(tsStatsPrintIntervalMs)
                 .statsNamePrefix("ts.timescale")
                 .batchSortEnabled(batchSortEnabled)
+                .adaptive(tsBatchAdaptiveEnabled)
+                .minBatchSize(tsBatchMinSize)
+                .minDelay(tsBatchMinDelay)
+                .targetFlushLatencyMs(tsBatchTargetFlushLatencyMs)
                 .build();
 
         Function<TimescaleTsKvEntity, Integer> hashcodeFunction = entity -> entity.getEntityId().hashCode();
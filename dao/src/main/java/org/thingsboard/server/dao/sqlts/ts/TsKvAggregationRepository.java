@@ -0,0 +1,140 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.ts;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.util.SqlTsDao;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Aggregates all the intervals of a time-series query with a single grouped query.
+ * Intervals of a fixed length are calculated from the timestamp, calendar intervals (week, month, quarter)
+ * are looked up in the array of the interval start timestamps, so the time zone is already applied by the caller.
+ */
+@Repository
+@SqlTsDao
+public class TsKvAggregationRepository {
+
+    private static final String FIXED_INTERVAL_BUCKET = "(ts - ?) / ?";
+    private static final String CALENDAR_INTERVAL_BUCKET = "width_bucket(ts, ?) - 1";
+
+    private static final String NUMERIC_SUM =
+            "SUM(COALESCE(long_v, 0)) AS long_v, SUM(COALESCE(dbl_v, 0.0)) AS dbl_v, ";
+    private static final String NUMERIC_COUNT =
+            "SUM(CASE WHEN long_v IS NULL THEN 0 ELSE 1 END) AS long_count, SUM(CASE WHEN dbl_v IS NULL THEN 0 ELSE 1 END) AS dbl_count, ";
+    private static final String STR_AGG_TS = "MAX(CASE WHEN str_v IS NULL THEN NULL ELSE ts END) AS str_agg_ts, ";
+
+    private static final String AVG_OR_SUM = NUMERIC_SUM + NUMERIC_COUNT;
+    private static final String MAX = "MAX(long_v) AS long_v, MAX(dbl_v) AS dbl_v, " + NUMERIC_COUNT + "MAX(str_v) AS str_v, " + STR_AGG_TS;
+    private static final String MIN = "MIN(long_v) AS long_v, MIN(dbl_v) AS dbl_v, " + NUMERIC_COUNT + "MIN(str_v) AS str_v, " + STR_AGG_TS;
+    private static final String COUNT = "SUM(CASE WHEN bool_v IS NULL THEN 0 ELSE 1 END) AS bool_count, " +
+            "SUM(CASE WHEN str_v IS NULL THEN 0 ELSE 1 END) AS str_count, " +
+            NUMERIC_COUNT +
+            "SUM(CASE WHEN json_v IS NULL THEN 0 ELSE 1 END) AS json_count, ";
+
+    private static final String QUERY = "SELECT %s AS bucket, %sMAX(ts) AS agg_ts FROM ts_kv " +
+            "WHERE entity_id = ? AND key = ? AND ts >= ? AND ts < ? GROUP BY bucket ORDER BY bucket";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Aggregates the intervals of the given length from startTs to endTs. The last interval may be shorter.
+     */
+    public List<TsKvEntity> findAllAndAggregate(UUID entityId, int key, long startTs, long endTs, long interval, Aggregation aggregation) {
+        String query = String.format(QUERY, FIXED_INTERVAL_BUCKET, getAggregationColumns(aggregation));
+        return jdbcTemplate.query(query, ps -> {
+            ps.setLong(1, startTs);
+            ps.setLong(2, interval);
+            setWhereClauseValues(ps, 3, entityId, key, startTs, endTs);
+        }, (rs, rowNum) -> {
+            long bucketStartTs = startTs + rs.getLong("bucket") * interval;
+            return toEntity(rs, aggregation, bucketStartTs, Math.min(bucketStartTs + interval, endTs));
+        });
+    }
+
+    /**
+     * Aggregates the intervals that start at the given timestamps. The last interval ends at endTs.
+     */
+    public List<TsKvEntity> findAllAndAggregate(UUID entityId, int key, long[] intervalStarts, long endTs, Aggregation aggregation) {
+        String query = String.format(QUERY, CALENDAR_INTERVAL_BUCKET, getAggregationColumns(aggregation));
+        Long[] thresholds = new Long[intervalStarts.length];
+        for (int i = 0; i < intervalStarts.length; i++) {
+            thresholds[i] = intervalStarts[i];
+        }
+        return jdbcTemplate.query(query, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("bigint", thresholds));
+            setWhereClauseValues(ps, 2, entityId, key, intervalStarts[0], endTs);
+        }, (rs, rowNum) -> {
+            int bucket = rs.getInt("bucket");
+            long bucketEndTs = bucket + 1 < intervalStarts.length ? intervalStarts[bucket + 1] : endTs;
+            return toEntity(rs, aggregation, intervalStarts[bucket], bucketEndTs);
+        });
+    }
+
+    private static void setWhereClauseValues(PreparedStatement ps, int index, UUID entityId, int key, long startTs, long endTs) throws SQLException {
+        ps.setObject(index, entityId);
+        ps.setInt(index + 1, key);
+        ps.setLong(index + 2, startTs);
+        ps.setLong(index + 3, endTs);
+    }
+
+    private static String getAggregationColumns(Aggregation aggregation) {
+        return switch (aggregation) {
+            case AVG, SUM -> AVG_OR_SUM;
+            case MAX -> MAX;
+            case MIN -> MIN;
+            case COUNT -> COUNT;
+            default -> throw new IllegalArgumentException("Not supported aggregation type: " + aggregation);
+        };
+    }
+
+    private static TsKvEntity toEntity(ResultSet rs, Aggregation aggregation, long bucketStartTs, long bucketEndTs) throws SQLException {
+        long aggTs = rs.getLong("agg_ts");
+        TsKvEntity entity = switch (aggregation) {
+            case COUNT -> new TsKvEntity(rs.getLong("bool_count"), rs.getLong("str_count"), rs.getLong("long_count"),
+                    rs.getLong("dbl_count"), rs.getLong("json_count"), aggTs);
+            case MAX, MIN -> {
+                TsKvEntity numeric = toNumericEntity(rs, aggregation, aggTs);
+                yield numeric.isNotEmpty() ? numeric : new TsKvEntity(rs.getString("str_v"), getNullableLong(rs, "str_agg_ts"));
+            }
+            default -> toNumericEntity(rs, aggregation, aggTs);
+        };
+        entity.setTs(bucketStartTs + (bucketEndTs - bucketStartTs) / 2);
+        return entity;
+    }
+
+    private static TsKvEntity toNumericEntity(ResultSet rs, Aggregation aggregation, long aggTs) throws SQLException {
+        Long longValue = getNullableLong(rs, "long_v");
+        double doubleValue = rs.getDouble("dbl_v");
+        return new TsKvEntity(longValue, rs.wasNull() ? null : doubleValue, rs.getLong("long_count"), rs.getLong("dbl_count"), aggregation.name(), aggTs);
+    }
+
+    private static Long getNullableLong(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+}
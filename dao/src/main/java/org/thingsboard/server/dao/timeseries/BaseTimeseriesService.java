@@ -38,6 +38,7 @@ import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQueryResult;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.common.data.kv.TsKvLatestRemovingResult;
+import org.thingsboard.server.dao.entity.EntityDataIndex;
 import org.thingsboard.server.dao.entityview.EntityViewService;
 import org.thingsboard.server.dao.exception.IncorrectParameterException;
 import org.thingsboard.server.dao.service.Validator;
@@ -89,6 +90,9 @@ public class BaseTimeseriesService implements TimeseriesService {
     @Autowired
     private EntityViewService entityViewService;
 
+    @Autowired
+    private EntityDataIndex entityDataIndex;
+
     @Override
     public ListenableFuture<List<ReadTsKvQueryResult>> findAllByQueries(TenantId tenantId, EntityId entityId, List<ReadTsKvQuery> queries) {
         validate(entityId);
@@ -126,12 +130,8 @@ public class BaseTimeseriesService implements TimeseriesService {
     @Override
     public ListenableFuture<List<TsKvEntry>> findLatest(TenantId tenantId, EntityId entityId, Collection<String> keys) {
         validate(entityId);
-        List<ListenableFuture<TsKvEntry>> futures = new ArrayList<>(keys.size());
         keys.forEach(key -> Validator.validateString(key, k -> "Incorrect key " + k));
-        for (String key : keys) {
-            futures.add(timeseriesLatestDao.findLatest(tenantId, entityId, key));
-        }
-        return Futures.allAsList(futures);
+        return timeseriesLatestDao.findLatest(tenantId, entityId, keys);
     }
 
     @Override
@@ -190,14 +190,36 @@ public class BaseTimeseriesService implements TimeseriesService {
     public ListenableFuture<List<Long>> saveLatest(TenantId tenantId, EntityId entityId, List<TsKvEntry> tsKvEntries) {
         List<ListenableFuture<Long>> futures = new ArrayList<>(tsKvEntries.size());
         for (TsKvEntry tsKvEntry : tsKvEntries) {
-            futures.add(timeseriesLatestDao.saveLatest(tenantId, entityId, tsKvEntry));
+            futures.add(saveLatestAndUpdateIndex(tenantId, entityId, tsKvEntry));
         }
         return Futures.allAsList(futures);
     }
 
     private void saveAndRegisterFutures(TenantId tenantId, List<ListenableFuture<Integer>> futures, EntityId entityId, TsKvEntry tsKvEntry, long ttl) {
         doSaveAndRegisterFuturesFor(tenantId, futures, entityId, tsKvEntry, ttl);
-        futures.add(Futures.transform(timeseriesLatestDao.saveLatest(tenantId, entityId, tsKvEntry), v -> 0, MoreExecutors.directExecutor()));
+        futures.add(Futures.transform(saveLatestAndUpdateIndex(tenantId, entityId, tsKvEntry), v -> 0, MoreExecutors.directExecutor()));
+    }
+
+    private ListenableFuture<Long> saveLatestAndUpdateIndex(TenantId tenantId, EntityId entityId, TsKvEntry tsKvEntry) {
+        ListenableFuture<Long> future = timeseriesLatestDao.saveLatest(tenantId, entityId, tsKvEntry);
+        if (!entityDataIndex.isEnabled()) {
+            return future;
+        }
+        return Futures.transform(future, version -> {
+            entityDataIndex.onTimeseriesSaved(tenantId, entityId, tsKvEntry);
+            return version;
+        }, MoreExecutors.directExecutor());
+    }
+
+    private ListenableFuture<TsKvLatestRemovingResult> removeLatestAndUpdateIndex(TenantId tenantId, EntityId entityId, DeleteTsKvQuery query) {
+        ListenableFuture<TsKvLatestRemovingResult> future = timeseriesLatestDao.removeLatest(tenantId, entityId, query);
+        if (!entityDataIndex.isEnabled()) {
+            return future;
+        }
+        return Futures.transform(future, result -> {
+            entityDataIndex.onTimeseriesRemoved(tenantId, entityId, result);
+            return result;
+        }, MoreExecutors.directExecutor());
     }
 
     private void saveWithoutLatestAndRegisterFutures(TenantId tenantId, List<ListenableFuture<Integer>> futures, EntityId entityId, TsKvEntry tsKvEntry, long ttl) {
@@ -248,7 +270,7 @@ public class BaseTimeseriesService implements TimeseriesService {
         List<ListenableFuture<TsKvLatestRemovingResult>> futures = new ArrayList<>(keys.size());
         for (String key : keys) {
             DeleteTsKvQuery query = new BaseDeleteTsKvQuery(key, 0, System.currentTimeMillis(), false);
-            futures.add(timeseriesLatestDao.removeLatest(tenantId, entityId, query));
+            futures.add(removeLatestAndUpdateIndex(tenantId, entityId, query));
         }
         return Futures.allAsList(futures);
     }
@@ -269,7 +291,7 @@ public class BaseTimeseriesService implements TimeseriesService {
     private void deleteAndRegisterFutures(TenantId tenantId, List<ListenableFuture<TsKvLatestRemovingResult>> futures, EntityId entityId, DeleteTsKvQuery query) {
         futures.add(Futures.transform(timeseriesDao.remove(tenantId, entityId, query), v -> null, MoreExecutors.directExecutor()));
         if (query.getDeleteLatest()) {
-            futures.add(timeseriesLatestDao.removeLatest(tenantId, entityId, query));
+            futures.add(removeLatestAndUpdateIndex(tenantId, entityId, query));
         }
     }
 
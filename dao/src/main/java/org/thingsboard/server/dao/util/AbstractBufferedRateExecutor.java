@@ -15,11 +15,15 @@
  */
 package org.thingsboard.server.dao.util;
 
+import com.datastax.oss.driver.api.core.DriverTimeoutException;
 import com.datastax.oss.driver.api.core.ProtocolVersion;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 import com.datastax.oss.driver.api.core.cql.ColumnDefinition;
 import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
 import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.servererrors.OverloadedException;
+import com.datastax.oss.driver.api.core.servererrors.ReadTimeoutException;
+import com.datastax.oss.driver.api.core.servererrors.WriteTimeoutException;
 import com.datastax.oss.driver.api.core.type.DataType;
 import com.datastax.oss.driver.api.core.type.codec.TypeCodec;
 import com.datastax.oss.driver.api.core.type.codec.registry.CodecRegistry;
@@ -41,13 +45,12 @@ import org.thingsboard.server.common.stats.StatsType;
 import org.thingsboard.server.dao.entity.EntityService;
 import org.thingsboard.server.dao.nosql.CassandraStatementTask;
 
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -61,14 +64,15 @@ import java.util.regex.Matcher;
 public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extends ListenableFuture<V>, V> implements BufferedRateExecutor<T, F> {
 
     public static final String CONCURRENCY_LEVEL = "currBuffer";
+    public static final String CONCURRENCY_LIMIT = "currLimit";
+    private static final int MAX_PRINTED_TENANT_QUEUES = 10;
 
     private final long maxWaitTime;
-    private final long pollMs;
-    private final BlockingQueue<AsyncTaskContext<T, V>> queue;
+    private final TenantFairQueue<AsyncTaskContext<T, V>> queue;
     private final ExecutorService dispatcherExecutor;
     private final ExecutorService callbackExecutor;
     private final ScheduledExecutorService timeoutExecutor;
-    private final int concurrencyLimit;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
     private final int printQueriesFreq;
 
     private final AtomicInteger printQueriesIdx = new AtomicInteger(0);
@@ -84,18 +88,21 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
 
     public AbstractBufferedRateExecutor(int queueLimit, int concurrencyLimit, long maxWaitTime, int dispatcherThreads,
                                         int callbackThreads, long pollMs, int printQueriesFreq, StatsFactory statsFactory,
-                                        EntityService entityService, RateLimitService rateLimitService, boolean printTenantNames) {
+                                        EntityService entityService, RateLimitService rateLimitService, boolean printTenantNames,
+                                        boolean adaptiveConcurrency, int minConcurrencyLimit, long latencyThresholdMs) {
         this.maxWaitTime = maxWaitTime;
-        this.pollMs = pollMs;
-        this.concurrencyLimit = concurrencyLimit;
         this.printQueriesFreq = printQueriesFreq;
-        this.queue = new LinkedBlockingDeque<>(queueLimit);
         this.dispatcherExecutor = Executors.newFixedThreadPool(dispatcherThreads, ThingsBoardThreadFactory.forName("nosql-" + getBufferName() + "-dispatcher"));
         this.callbackExecutor = ThingsBoardExecutors.newWorkStealingPool(callbackThreads, "nosql-" + getBufferName() + "-callback");
         this.timeoutExecutor = ThingsBoardExecutors.newSingleThreadScheduledExecutor("nosql-" + getBufferName() + "-timeout");
-        this.stats = new BufferedRateExecutorStats(statsFactory);
+        this.stats = new BufferedRateExecutorStats(statsFactory, getBufferName());
+        this.queue = new TenantFairQueue<>(queueLimit, stats::createTenantQueueSizeGauge);
         String concurrencyLevelKey = StatsType.RATE_EXECUTOR.getName() + "." + CONCURRENCY_LEVEL + getBufferName(); //metric name may change with buffer name suffix
         this.concurrencyLevel = statsFactory.createGauge(concurrencyLevelKey, new AtomicInteger(0));
+        this.concurrencyLimiter = new AdaptiveConcurrencyLimiter(adaptiveConcurrency, minConcurrencyLimit, concurrencyLimit,
+                latencyThresholdMs, pollMs, concurrencyLevel);
+        String concurrencyLimitKey = StatsType.RATE_EXECUTOR.getName() + "." + CONCURRENCY_LIMIT + getBufferName();
+        statsFactory.createGauge(concurrencyLimitKey, concurrencyLimiter.getCurrentLimit());
 
         this.entityService = entityService;
         this.rateLimitService = rateLimitService;
@@ -127,7 +134,8 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
         if (!perTenantLimitReached) {
             try {
                 stats.getTotalAdded().increment();
-                queue.add(new AsyncTaskContext<>(UUID.randomUUID(), task, settableFuture, System.currentTimeMillis()));
+                queue.add(tenantId != null ? tenantId : TenantId.SYS_TENANT_ID,
+                        new AsyncTaskContext<>(UUID.randomUUID(), task, settableFuture, System.currentTimeMillis()));
             } catch (IllegalStateException e) {
                 stats.getTotalRejected().increment();
                 settableFuture.setException(e);
@@ -159,56 +167,70 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
     private void dispatch() {
         log.info("[{}] Buffered rate executor thread started", getBufferName());
         while (!Thread.interrupted()) {
-            int curLvl = concurrencyLevel.get();
             AsyncTaskContext<T, V> taskCtx = null;
+            boolean permitAcquired = false;
             try {
-                if (curLvl <= concurrencyLimit) {
-                    taskCtx = queue.take();
-                    final AsyncTaskContext<T, V> finalTaskCtx = taskCtx;
-                    if (printQueriesFreq > 0) {
-                        if (printQueriesIdx.incrementAndGet() >= printQueriesFreq) {
-                            printQueriesIdx.set(0);
-                            String query = queryToString(finalTaskCtx);
-                            log.info("[{}][{}] Cassandra query: {}", getBufferName(), taskCtx.getId(), query);
-                        }
+                taskCtx = queue.take();
+                if (taskCtx.getCreateTime() + maxWaitTime > System.currentTimeMillis()) {
+                    concurrencyLimiter.acquire();
+                    permitAcquired = true;
+                }
+                final AsyncTaskContext<T, V> finalTaskCtx = taskCtx;
+                if (printQueriesFreq > 0) {
+                    if (printQueriesIdx.incrementAndGet() >= printQueriesFreq) {
+                        printQueriesIdx.set(0);
+                        String query = queryToString(finalTaskCtx);
+                        log.info("[{}][{}] Cassandra query: {}", getBufferName(), taskCtx.getId(), query);
                     }
-                    logTask("Processing", finalTaskCtx);
-                    concurrencyLevel.incrementAndGet();
-                    long timeout = finalTaskCtx.getCreateTime() + maxWaitTime - System.currentTimeMillis();
-                    if (timeout > 0) {
-                        stats.getTotalLaunched().increment();
-                        ListenableFuture<V> result = execute(finalTaskCtx);
-                        result = Futures.withTimeout(result, timeout, TimeUnit.MILLISECONDS, timeoutExecutor);
-                        Futures.addCallback(result, new FutureCallback<V>() {
-                            @Override
-                            public void onSuccess(@Nullable V result) {
-                                logTask("Releasing", finalTaskCtx);
-                                stats.getTotalReleased().increment();
-                                concurrencyLevel.decrementAndGet();
-                                finalTaskCtx.getFuture().set(result);
-                            }
+                }
+                logTask("Processing", finalTaskCtx);
+                long launchTs = System.currentTimeMillis();
+                long timeout = finalTaskCtx.getCreateTime() + maxWaitTime - launchTs;
+                if (timeout > 0) {
+                    stats.getTotalLaunched().increment();
+                    ListenableFuture<V> execution = execute(finalTaskCtx);
+                    // the permit is held until the database completes the execution, and the latency is measured from
+                    // the launch, while the caller times out earlier since the task also waited in the queue
+                    Futures.addCallback(execution, new FutureCallback<V>() {
+                        @Override
+                        public void onSuccess(@Nullable V result) {
+                            release(finalTaskCtx, launchTs, false);
+                        }
+
+                        @Override
+                        public void onFailure(Throwable t) {
+                            release(finalTaskCtx, launchTs, isOverloaded(t));
+                        }
+                    }, callbackExecutor);
+                    ListenableFuture<V> result = Futures.withTimeout(Futures.nonCancellationPropagating(execution),
+                            timeout, TimeUnit.MILLISECONDS, timeoutExecutor);
+                    Futures.addCallback(result, new FutureCallback<V>() {
+                        @Override
+                        public void onSuccess(@Nullable V result) {
+                            logTask("Releasing", finalTaskCtx);
+                            stats.getTotalReleased().increment();
+                            finalTaskCtx.getFuture().set(result);
+                        }
 
-                            @Override
-                            public void onFailure(Throwable t) {
-                                if (t instanceof TimeoutException) {
-                                    logTask("Expired During Execution", finalTaskCtx);
-                                } else {
-                                    logTask("Failed", finalTaskCtx);
-                                }
-                                stats.getTotalFailed().increment();
-                                concurrencyLevel.decrementAndGet();
-                                finalTaskCtx.getFuture().setException(t);
-                                log.debug("[{}] Failed to execute task: {}", finalTaskCtx.getId(), finalTaskCtx.getTask(), t);
+                        @Override
+                        public void onFailure(Throwable t) {
+                            if (t instanceof TimeoutException) {
+                                logTask("Expired During Execution", finalTaskCtx);
+                            } else {
+                                logTask("Failed", finalTaskCtx);
                             }
-                        }, callbackExecutor);
-                    } else {
-                        logTask("Expired Before Execution", finalTaskCtx);
-                        stats.getTotalExpired().increment();
-                        concurrencyLevel.decrementAndGet();
-                        taskCtx.getFuture().setException(new TimeoutException());
-                    }
+                            stats.getTotalFailed().increment();
+                            finalTaskCtx.getFuture().setException(t);
+                            log.debug("[{}] Failed to execute task: {}", finalTaskCtx.getId(), finalTaskCtx.getTask(), t);
+                        }
+                    }, callbackExecutor);
                 } else {
-                    Thread.sleep(pollMs);
+                    logTask("Expired Before Execution", finalTaskCtx);
+                    stats.getTotalExpired().increment();
+                    if (permitAcquired) {
+                        concurrencyLimiter.release();
+                    }
+                    taskCtx.getFuture().setException(new TimeoutException());
                 }
             } catch (InterruptedException e) {
                 break;
@@ -216,7 +238,9 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
                 if (taskCtx != null) {
                     log.debug("[{}] Failed to execute task: {}", taskCtx.getId(), taskCtx, e);
                     stats.getTotalFailed().increment();
-                    concurrencyLevel.decrementAndGet();
+                    if (permitAcquired) {
+                        concurrencyLimiter.release();
+                    }
                 } else {
                     log.debug("Failed to queue task:", e);
                 }
@@ -225,6 +249,21 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
         log.info("[{}] Buffered rate executor thread stopped", getBufferName());
     }
 
+    private void release(AsyncTaskContext<T, V> taskCtx, long launchTs, boolean overloaded) {
+        long latency = System.currentTimeMillis() - launchTs;
+        concurrencyLimiter.release(latency, overloaded);
+        TenantId tenantId = taskCtx.getTask().getTenantId();
+        stats.recordTenantLatency(tenantId != null ? tenantId : TenantId.SYS_TENANT_ID, latency);
+    }
+
+    /**
+     * Only the errors reported by the driver count, since the caller's {@link TimeoutException} includes the time spent in the queue.
+     */
+    private static boolean isOverloaded(Throwable t) {
+        return t instanceof DriverTimeoutException || t instanceof OverloadedException
+                || t instanceof ReadTimeoutException || t instanceof WriteTimeoutException;
+    }
+
     private void logTask(String action, AsyncTaskContext<T, V> taskCtx) {
         if (log.isTraceEnabled()) {
             if (taskCtx.getTask() instanceof CassandraStatementTask) {
@@ -278,6 +317,10 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
     }
 
     public void printStats() {
+        // the queues and the latency stats of the tenants without tasks since the previous print are removed with their meters
+        queue.removeIdle(stats::removeTenantQueueSizeGauge);
+        stats.removeIdleTenantLatencies();
+
         int queueSize = getQueueSize();
         int rateLimitedTenantsCount = (int) stats.getRateLimitedTenants().values().stream()
                 .filter(defaultCounter -> defaultCounter.get() > 0)
@@ -296,6 +339,7 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
             });
             statsBuilder.append("totalRateLimitedTenants").append(" = [").append(rateLimitedTenantsCount).append("] ");
             statsBuilder.append(CONCURRENCY_LEVEL).append(" = [").append(concurrencyLevel.get()).append("] ");
+            statsBuilder.append(CONCURRENCY_LIMIT).append(" = [").append(concurrencyLimiter.getLimit()).append("] ");
 
             stats.getStatsCounters().forEach(StatsCounter::clear);
             log.info("[{}] Permits {}", getBufferName(), statsBuilder);
@@ -309,19 +353,38 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
                     int rateLimitedRequests = counter.get();
                     counter.clear();
                     if (printTenantNames) {
-                        String name = tenantNamesCache.computeIfAbsent(tenantId, tId -> {
-                            String defaultName = "N/A";
-                            try {
-                                return entityService.fetchEntityName(TenantId.SYS_TENANT_ID, tenantId).orElse(defaultName);
-                            } catch (Exception e) {
-                                log.error("[{}][{}] Failed to get tenant name", getBufferName(), tenantId, e);
-                                return defaultName;
-                            }
-                        });
-                        log.info("[{}][{}][{}] Rate limited requests: {}", getBufferName(), tenantId, name, rateLimitedRequests);
+                        log.info("[{}][{}][{}] Rate limited requests: {}", getBufferName(), tenantId, getTenantName(tenantId), rateLimitedRequests);
                     } else {
                         log.info("[{}][{}] Rate limited requests: {}", getBufferName(), tenantId, rateLimitedRequests);
                     }
                 });
+
+        Map<TenantId, Integer> tenantQueueSizes = queue.getTenantSizes();
+        tenantQueueSizes.entrySet().stream()
+                .sorted(Map.Entry.<TenantId, Integer>comparingByValue(Comparator.reverseOrder()))
+                .limit(MAX_PRINTED_TENANT_QUEUES)
+                .forEach(entry -> {
+                    TenantId tenantId = entry.getKey();
+                    BufferedRateExecutorStats.TenantLatencyStats latency = stats.getTenantLatencies().get(tenantId);
+                    double avgLatency = latency != null ? latency.getAvg() : 0.0;
+                    if (printTenantNames) {
+                        log.info("[{}][{}][{}] Queued requests: {}, avg latency: {} ms", getBufferName(), tenantId, getTenantName(tenantId), entry.getValue(), avgLatency);
+                    } else {
+                        log.info("[{}][{}] Queued requests: {}, avg latency: {} ms", getBufferName(), tenantId, entry.getValue(), avgLatency);
+                    }
+                });
+        stats.getTenantLatencies().values().forEach(BufferedRateExecutorStats.TenantLatencyStats::reset);
+    }
+
+    private String getTenantName(TenantId tenantId) {
+        return tenantNamesCache.computeIfAbsent(tenantId, tId -> {
+            String defaultName = "N/A";
+            try {
+                return entityService.fetchEntityName(TenantId.SYS_TENANT_ID, tenantId).orElse(defaultName);
+            } catch (Exception e) {
+                log.error("[{}][{}] Failed to get tenant name", getBufferName(), tenantId, e);
+                return defaultName;
+            }
+        });
     }
 }
@@ -0,0 +1,121 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of concurrently executed tasks. Threads waiting for a permit are signalled when a task is released.
+ * <p>
+ * In the adaptive mode the limit follows the AIMD scheme: it grows by one per limit of tasks that completed within
+ * the latency threshold while the permits were in use, and is multiplied by {@link #BACKOFF_RATIO} when a task is slower
+ * than the threshold or fails because the database is overloaded. The limit is decreased at most once per threshold
+ * interval, so a burst of slow responses to the same overload does not collapse it. The limit always stays between
+ * the minimum and the maximum one, and starts from the maximum.
+ */
+class AdaptiveConcurrencyLimiter {
+
+    static final double BACKOFF_RATIO = 0.9;
+
+    private final boolean adaptive;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdMs;
+    private final long recheckMs;
+    private final AtomicInteger inFlight;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+
+    private final AtomicInteger currentLimit;
+    private double limit;
+    private long lastBackoffTs;
+
+    AdaptiveConcurrencyLimiter(boolean adaptive, int minLimit, int maxLimit, long latencyThresholdMs, long recheckMs, AtomicInteger inFlight) {
+        this.adaptive = adaptive;
+        this.maxLimit = Math.max(1, maxLimit);
+        this.minLimit = Math.max(1, Math.min(minLimit, this.maxLimit));
+        this.latencyThresholdMs = latencyThresholdMs;
+        this.recheckMs = Math.max(1, recheckMs);
+        this.inFlight = inFlight;
+        this.limit = this.maxLimit;
+        this.currentLimit = new AtomicInteger(this.maxLimit);
+    }
+
+    AtomicInteger getCurrentLimit() {
+        return currentLimit;
+    }
+
+    int getLimit() {
+        return currentLimit.get();
+    }
+
+    void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight.get() >= getLimit()) {
+                permitReleased.await(recheckMs, TimeUnit.MILLISECONDS);
+            }
+            inFlight.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the permit of a task that was not executed, without affecting the limit.
+     */
+    void release() {
+        lock.lock();
+        try {
+            inFlight.decrementAndGet();
+            permitReleased.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(long latencyMs, boolean overloaded) {
+        lock.lock();
+        try {
+            int inUse = inFlight.getAndDecrement();
+            int prevLimit = getLimit();
+            if (adaptive) {
+                if (overloaded || latencyMs > latencyThresholdMs) {
+                    long ts = System.currentTimeMillis();
+                    if (ts - lastBackoffTs >= latencyThresholdMs) {
+                        limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                        lastBackoffTs = ts;
+                    }
+                } else if (inUse * 2 >= prevLimit) {
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+            }
+            currentLimit.set((int) limit);
+            if (getLimit() > prevLimit) {
+                permitReleased.signalAll();
+            } else {
+                permitReleased.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
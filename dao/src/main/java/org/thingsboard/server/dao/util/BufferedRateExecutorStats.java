@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.dao.util;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.server.common.data.id.TenantId;
@@ -27,6 +28,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 @Slf4j
 @Getter
@@ -43,8 +47,10 @@ public class BufferedRateExecutorStats {
     private static final String TOTAL_RATE_LIMITED = "totalRateLimited";
 
     private final StatsFactory statsFactory;
+    private final String bufferName;
 
     private final ConcurrentMap<TenantId, DefaultCounter> rateLimitedTenants = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TenantId, TenantLatencyStats> tenantLatencies = new ConcurrentHashMap<>();
 
     private final List<StatsCounter> statsCounters = new ArrayList<>();
 
@@ -56,8 +62,9 @@ public class BufferedRateExecutorStats {
     private final StatsCounter totalRejected;
     private final StatsCounter totalRateLimited;
 
-    public BufferedRateExecutorStats(StatsFactory statsFactory) {
+    public BufferedRateExecutorStats(StatsFactory statsFactory, String bufferName) {
         this.statsFactory = statsFactory;
+        this.bufferName = bufferName;
 
         String key = StatsType.RATE_EXECUTOR.getName();
 
@@ -87,4 +94,72 @@ public class BufferedRateExecutorStats {
         )
                 .increment();
     }
+
+    public AtomicInteger createTenantQueueSizeGauge(TenantId tenantId) {
+        return statsFactory.createGauge(getTenantQueueSizeKey(), new AtomicInteger(0), TENANT_ID_TAG, tenantId.toString());
+    }
+
+    public void removeTenantQueueSizeGauge(TenantId tenantId) {
+        statsFactory.removeMeters(getTenantQueueSizeKey(), TENANT_ID_TAG, tenantId.toString());
+    }
+
+    public void recordTenantLatency(TenantId tenantId, long latencyMs) {
+        // recorded under the lock of the map entry, so the stats are not removed concurrently
+        tenantLatencies.compute(tenantId, (tId, latency) -> {
+            if (latency == null) {
+                latency = new TenantLatencyStats(statsFactory.createTimer(getTenantLatencyKey(), TENANT_ID_TAG, tId.toString()));
+            }
+            latency.record(latencyMs);
+            return latency;
+        });
+    }
+
+    /**
+     * Removes the latency stats and the timers of the tenants without tasks since the stats were reset.
+     */
+    public void removeIdleTenantLatencies() {
+        for (TenantId tenantId : tenantLatencies.keySet()) {
+            tenantLatencies.computeIfPresent(tenantId, (tId, latency) -> {
+                if (latency.count.sum() > 0) {
+                    return latency;
+                }
+                statsFactory.removeMeters(getTenantLatencyKey(), TENANT_ID_TAG, tId.toString());
+                return null;
+            });
+        }
+    }
+
+    private String getTenantQueueSizeKey() {
+        return StatsType.RATE_EXECUTOR.getName() + ".tenantQueueSize" + bufferName;
+    }
+
+    private String getTenantLatencyKey() {
+        return StatsType.RATE_EXECUTOR.getName() + ".tenantLatency" + bufferName;
+    }
+
+    public static class TenantLatencyStats {
+        private final Timer timer;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalTime = new LongAdder();
+
+        private TenantLatencyStats(Timer timer) {
+            this.timer = timer;
+        }
+
+        private void record(long latencyMs) {
+            timer.record(latencyMs, TimeUnit.MILLISECONDS);
+            count.increment();
+            totalTime.add(latencyMs);
+        }
+
+        public double getAvg() {
+            long cnt = count.sum();
+            return cnt > 0 ? (double) totalTime.sum() / cnt : 0.0;
+        }
+
+        public void reset() {
+            count.reset();
+            totalTime.reset();
+        }
+    }
 }
@@ -0,0 +1,143 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.util;
+
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Bounded queue that keeps the elements of each tenant in a separate FIFO queue and serves the tenants in the round-robin
+ * order, so the backlog of one tenant does not delay the elements of the others.
+ * <p>
+ * A tenant queue is present in the ready queue at most once: only while it has elements and is not being served by another
+ * consumer. The {@code scheduled} flag is cleared only by the consumer holding the tenant queue.
+ * <p>
+ * The queues of the tenants are created on demand and removed by {@link #removeIdle} once they stay empty for a whole
+ * interval between the calls. Elements are added under the lock of the map entry, so a queue is never removed with elements.
+ */
+class TenantFairQueue<E> {
+
+    private final int capacity;
+    private final Function<TenantId, AtomicInteger> sizeCounterFactory;
+    private final AtomicInteger size = new AtomicInteger();
+    private final ConcurrentMap<TenantId, TenantQueue<E>> queues = new ConcurrentHashMap<>();
+    private final BlockingQueue<TenantQueue<E>> ready = new LinkedBlockingQueue<>();
+
+    TenantFairQueue(int capacity, Function<TenantId, AtomicInteger> sizeCounterFactory) {
+        this.capacity = capacity;
+        this.sizeCounterFactory = sizeCounterFactory;
+    }
+
+    void add(TenantId tenantId, E element) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            throw new IllegalStateException("Queue full");
+        }
+        TenantQueue<E> queue = queues.compute(tenantId, (id, existing) -> {
+            TenantQueue<E> tenantQueue = existing != null ? existing : new TenantQueue<>(sizeCounterFactory.apply(id));
+            tenantQueue.size.incrementAndGet();
+            tenantQueue.elements.add(element);
+            tenantQueue.active = true;
+            return tenantQueue;
+        });
+        if (queue.scheduled.compareAndSet(false, true)) {
+            ready.add(queue);
+        }
+    }
+
+    E take() throws InterruptedException {
+        while (true) {
+            TenantQueue<E> queue = ready.take();
+            E element = queue.elements.poll();
+            if (element != null) {
+                queue.size.decrementAndGet();
+                size.decrementAndGet();
+            }
+            if (!queue.elements.isEmpty()) {
+                ready.add(queue);
+            } else {
+                queue.scheduled.set(false);
+                if (!queue.elements.isEmpty() && queue.scheduled.compareAndSet(false, true)) {
+                    ready.add(queue);
+                }
+            }
+            if (element != null) {
+                return element;
+            }
+        }
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    Map<TenantId, Integer> getTenantSizes() {
+        Map<TenantId, Integer> sizes = new ConcurrentHashMap<>();
+        queues.forEach((tenantId, queue) -> {
+            int tenantSize = queue.size.get();
+            if (tenantSize > 0) {
+                sizes.put(tenantId, tenantSize);
+            }
+        });
+        return sizes;
+    }
+
+    /**
+     * Removes the queues of the tenants that have no elements and had none added since the previous call.
+     *
+     * @param onRemove called with the tenant of every removed queue
+     */
+    void removeIdle(Consumer<TenantId> onRemove) {
+        for (TenantId tenantId : queues.keySet()) {
+            // the callback runs under the lock of the map entry, before a new queue of the tenant can be created
+            queues.computeIfPresent(tenantId, (id, queue) -> {
+                if (queue.active) {
+                    queue.active = false;
+                    return queue;
+                }
+                if (queue.elements.isEmpty() && !queue.scheduled.get()) {
+                    onRemove.accept(id);
+                    return null;
+                }
+                return queue;
+            });
+        }
+    }
+
+    private static class TenantQueue<E> {
+        private final Queue<E> elements = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicInteger size;
+        // guarded by the lock of the map entry
+        private boolean active;
+
+        private TenantQueue(AtomicInteger size) {
+            this.size = size;
+        }
+    }
+
+}
@@ -27,6 +27,45 @@ CREATE TABLE IF NOT EXISTS ts_kv
     CONSTRAINT ts_kv_pkey PRIMARY KEY (entity_id, key, ts)
 ) PARTITION BY RANGE (ts);
 
+CREATE TABLE IF NOT EXISTS ts_rollup
+(
+    entity_id   uuid   NOT NULL,
+    key         int    NOT NULL,
+    bucket_size bigint NOT NULL,
+    bucket_ts   bigint NOT NULL,
+    bool_count  bigint NOT NULL,
+    str_count   bigint NOT NULL,
+    long_count  bigint NOT NULL,
+    dbl_count   bigint NOT NULL,
+    json_count  bigint NOT NULL,
+    long_sum    numeric,
+    dbl_sum     double precision,
+    long_min    bigint,
+    long_max    bigint,
+    dbl_min     double precision,
+    dbl_max     double precision,
+    str_min     varchar(10000000),
+    str_max     varchar(10000000),
+    max_ts      bigint NOT NULL,
+    str_max_ts  bigint,
+    CONSTRAINT ts_rollup_pkey PRIMARY KEY (entity_id, key, bucket_size, bucket_ts)
+);
+
+CREATE TABLE IF NOT EXISTS ts_rollup_watermark
+(
+    id       int    NOT NULL,
+    start_ts bigint NOT NULL,
+    CONSTRAINT ts_rollup_watermark_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS ts_rollup_outdated
+(
+    entity_id uuid   NOT NULL,
+    key       int    NOT NULL,
+    bucket_ts bigint NOT NULL,
+    CONSTRAINT ts_rollup_outdated_pkey PRIMARY KEY (entity_id, key, bucket_ts)
+);
+
 CREATE TABLE IF NOT EXISTS key_dictionary
 (
     key    varchar(255) NOT NULL,
@@ -70,6 +70,7 @@ public class RedisTbTransactionalCacheTest {
         relationRedisCache.getAndPutInTransaction(createRelationCacheKey(), null, false);
         relationRedisCache.getAndPutInTransaction(createRelationCacheKey(), null, null, null, false);
         relationRedisCache.getOrFetchFromDB(createRelationCacheKey(), null, false, false);
+        relationRedisCache.getAll(List.of(createRelationCacheKey()));
 
         verify(connectionFactory, never()).getConnection();
         verifyNoInteractions(redisConnection);
@@ -0,0 +1,229 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.entity;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.thingsboard.server.common.data.AttributeScope;
+import org.thingsboard.server.common.data.Customer;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.query.DeviceTypeFilter;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityDataPageLink;
+import org.thingsboard.server.common.data.query.EntityDataQuery;
+import org.thingsboard.server.common.data.query.EntityDataSortOrder;
+import org.thingsboard.server.common.data.query.EntityFilter;
+import org.thingsboard.server.common.data.query.EntityKey;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.EntityNameFilter;
+import org.thingsboard.server.common.data.query.EntityTypeFilter;
+import org.thingsboard.server.common.data.query.FilterPredicateValue;
+import org.thingsboard.server.common.data.query.KeyFilter;
+import org.thingsboard.server.common.data.query.KeyFilterPredicate;
+import org.thingsboard.server.common.data.query.NumericFilterPredicate;
+import org.thingsboard.server.common.data.query.NumericFilterPredicate.NumericOperation;
+import org.thingsboard.server.common.data.query.StringFilterPredicate;
+import org.thingsboard.server.common.data.query.StringFilterPredicate.StringOperation;
+import org.thingsboard.server.dao.attributes.AttributesService;
+import org.thingsboard.server.dao.customer.CustomerService;
+import org.thingsboard.server.dao.device.DeviceDao;
+import org.thingsboard.server.dao.device.DeviceLatestValues;
+import org.thingsboard.server.dao.device.DeviceService;
+import org.thingsboard.server.dao.entity.TenantEntityDataIndex.IndexedKey;
+import org.thingsboard.server.dao.service.AbstractServiceTest;
+import org.thingsboard.server.dao.service.DaoSqlTest;
+import org.thingsboard.server.dao.sql.query.EntityQueryRepository;
+import org.thingsboard.server.dao.timeseries.TimeseriesService;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the same queries against the database and the index loaded from it.
+ */
+@DaoSqlTest
+public class EntityDataIndexParityTest extends AbstractServiceTest {
+
+    private static final String TEMPERATURE = "temperature";
+    private static final String FIRMWARE = "firmware";
+    private static final CustomerId NULL_CUSTOMER_ID = new CustomerId(CustomerId.NULL_UUID);
+
+    @Autowired
+    private EntityQueryRepository entityQueryRepository;
+    @Autowired
+    private DeviceService deviceService;
+    @Autowired
+    private DeviceDao deviceDao;
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private AttributesService attributesService;
+    @Autowired
+    private TimeseriesService timeseriesService;
+
+    private CustomerId customerId;
+    private TenantEntityDataIndex index;
+
+    @Before
+    public void before() throws Exception {
+        Customer customer = new Customer();
+        customer.setTenantId(tenantId);
+        customer.setTitle("Parity customer");
+        customerId = customerService.saveCustomer(customer).getId();
+
+        for (int i = 0; i < 30; i++) {
+            Device device = new Device();
+            device.setTenantId(tenantId);
+            device.setName((i % 3 == 0 ? "Pump " : "Sensor ") + i);
+            device.setType(i % 2 == 0 ? "thermostat" : "meter");
+            device.setCustomerId(i < 10 ? customerId : null);
+            device = deviceService.saveDevice(device);
+            attributesService.save(tenantId, device.getId(), AttributeScope.SERVER_SCOPE,
+                    new BaseAttributeKvEntry(new StringDataEntry(FIRMWARE, "v" + (i % 4)), 1L)).get(30, TimeUnit.SECONDS);
+            if (i == 29) {
+                // the device without the value is not matched by the key filters
+                continue;
+            }
+            // the long and double values are compared as numbers
+            BasicTsKvEntry temperature = i % 2 == 0 ?
+                    new BasicTsKvEntry(1L, new LongDataEntry(TEMPERATURE, (long) i * 3)) :
+                    new BasicTsKvEntry(1L, new DoubleDataEntry(TEMPERATURE, i * 3 + 0.5));
+            timeseriesService.save(tenantId, device.getId(), temperature).get(30, TimeUnit.SECONDS);
+        }
+
+        index = new TenantEntityDataIndex(List.of(new IndexedKey(EntityKeyType.TIME_SERIES, TEMPERATURE),
+                new IndexedKey(EntityKeyType.SERVER_ATTRIBUTE, FIRMWARE)));
+        List<DeviceLatestValues> devices = deviceDao.findDevicesWithLatestValues(tenantId.getId(), null, 100, List.of(FIRMWARE), List.of(TEMPERATURE));
+        assertThat(devices).hasSize(30);
+        devices.forEach(values -> index.loadDevice(values.getDevice(), values.getServerAttributes(), values.getLatestTimeseries(), index.getWriteSeq()));
+    }
+
+    @Test
+    public void testSortByLatestValue() {
+        for (EntityDataSortOrder.Direction direction : EntityDataSortOrder.Direction.values()) {
+            EntityDataSortOrder sortOrder = new EntityDataSortOrder(new EntityKey(EntityKeyType.TIME_SERIES, TEMPERATURE), direction);
+            for (int page = 0; page < 3; page++) {
+                assertSamePage(query(deviceFilter(), 7, page, sortOrder,
+                        keyFilter(EntityKeyType.TIME_SERIES, TEMPERATURE, numeric(NumericOperation.GREATER_OR_EQUAL, 0))), NULL_CUSTOMER_ID);
+            }
+        }
+    }
+
+    @Test
+    public void testNumericFilters() {
+        for (NumericOperation operation : NumericOperation.values()) {
+            assertSameResult(query(deviceFilter(), keyFilter(EntityKeyType.TIME_SERIES, TEMPERATURE, numeric(operation, 30))), NULL_CUSTOMER_ID);
+            assertSameResult(query(deviceFilter(), keyFilter(EntityKeyType.TIME_SERIES, TEMPERATURE, numeric(operation, 31.5))), NULL_CUSTOMER_ID);
+        }
+    }
+
+    @Test
+    public void testStringFilters() {
+        for (StringOperation operation : List.of(StringOperation.EQUAL, StringOperation.NOT_EQUAL, StringOperation.STARTS_WITH,
+                StringOperation.ENDS_WITH, StringOperation.CONTAINS, StringOperation.NOT_CONTAINS)) {
+            assertSameResult(query(deviceFilter(), keyFilter(EntityKeyType.SERVER_ATTRIBUTE, FIRMWARE, string(operation, "v1", false))), NULL_CUSTOMER_ID);
+            assertSameResult(query(deviceFilter(), keyFilter(EntityKeyType.SERVER_ATTRIBUTE, FIRMWARE, string(operation, "V1", true))), NULL_CUSTOMER_ID);
+        }
+    }
+
+    @Test
+    public void testEntityFilters() {
+        assertSameResult(query(new DeviceTypeFilter(List.of("thermostat"), null)), NULL_CUSTOMER_ID);
+        assertSameResult(query(new DeviceTypeFilter(List.of("thermostat", "meter"), "pump")), NULL_CUSTOMER_ID);
+
+        EntityNameFilter nameFilter = new EntityNameFilter();
+        nameFilter.setEntityType(EntityType.DEVICE);
+        nameFilter.setEntityNameFilter("Sensor 1");
+        assertSameResult(query(nameFilter), NULL_CUSTOMER_ID);
+
+        assertSameResult(query(deviceFilter(), keyFilter(EntityKeyType.TIME_SERIES, TEMPERATURE, numeric(NumericOperation.LESS, 60))), customerId);
+        assertSameResult(query(new DeviceTypeFilter(List.of("meter"), null),
+                keyFilter(EntityKeyType.SERVER_ATTRIBUTE, FIRMWARE, string(StringOperation.NOT_EQUAL, "v3", false))), customerId);
+    }
+
+    private void assertSameResult(EntityDataQuery query, CustomerId customerId) {
+        PageData<EntityData> expected = entityQueryRepository.findEntityDataByQuery(tenantId, customerId, query);
+        PageData<EntityData> actual = index.findEntityData(customerId, query);
+        assertThat(actual).isNotNull();
+        assertThat(ids(actual)).containsExactlyInAnyOrderElementsOf(ids(expected));
+        assertThat(actual.getTotalElements()).isEqualTo(expected.getTotalElements());
+    }
+
+    private void assertSamePage(EntityDataQuery query, CustomerId customerId) {
+        PageData<EntityData> expected = entityQueryRepository.findEntityDataByQuery(tenantId, customerId, query);
+        PageData<EntityData> actual = index.findEntityData(customerId, query);
+        assertThat(actual).isNotNull();
+        assertThat(ids(actual)).containsExactlyElementsOf(ids(expected));
+        assertThat(actual.getTotalElements()).isEqualTo(expected.getTotalElements());
+        assertThat(actual.getTotalPages()).isEqualTo(expected.getTotalPages());
+        assertThat(actual.hasNext()).isEqualTo(expected.hasNext());
+    }
+
+    private static EntityDataQuery query(EntityFilter filter, KeyFilter... keyFilters) {
+        return query(filter, 100, 0, null, keyFilters);
+    }
+
+    private static EntityDataQuery query(EntityFilter filter, int pageSize, int page, EntityDataSortOrder sortOrder, KeyFilter... keyFilters) {
+        EntityDataPageLink pageLink = new EntityDataPageLink(pageSize, page, null, sortOrder);
+        return new EntityDataQuery(filter, pageLink, Collections.emptyList(), Collections.emptyList(), List.of(keyFilters));
+    }
+
+    private static EntityTypeFilter deviceFilter() {
+        EntityTypeFilter filter = new EntityTypeFilter();
+        filter.setEntityType(EntityType.DEVICE);
+        return filter;
+    }
+
+    private static KeyFilter keyFilter(EntityKeyType keyType, String key, KeyFilterPredicate predicate) {
+        KeyFilter keyFilter = new KeyFilter();
+        keyFilter.setKey(new EntityKey(keyType, key));
+        keyFilter.setPredicate(predicate);
+        return keyFilter;
+    }
+
+    private static NumericFilterPredicate numeric(NumericOperation operation, double value) {
+        NumericFilterPredicate predicate = new NumericFilterPredicate();
+        predicate.setOperation(operation);
+        predicate.setValue(FilterPredicateValue.fromDouble(value));
+        return predicate;
+    }
+
+    private static StringFilterPredicate string(StringOperation operation, String value, boolean ignoreCase) {
+        StringFilterPredicate predicate = new StringFilterPredicate();
+        predicate.setOperation(operation);
+        predicate.setValue(FilterPredicateValue.fromString(value));
+        predicate.setIgnoreCase(ignoreCase);
+        return predicate;
+    }
+
+    private static List<UUID> ids(PageData<EntityData> pageData) {
+        return pageData.getData().stream().map(data -> data.getEntityId().getId()).toList();
+    }
+
+}
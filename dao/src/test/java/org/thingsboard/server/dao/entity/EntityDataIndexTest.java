@@ -0,0 +1,122 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.entity;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.query.EntityDataPageLink;
+import org.thingsboard.server.common.data.query.EntityDataQuery;
+import org.thingsboard.server.common.data.query.EntityTypeFilter;
+import org.thingsboard.server.dao.device.DeviceDao;
+import org.thingsboard.server.dao.device.DeviceLatestValues;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EntityDataIndexTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final DeviceDao deviceDao = mock(DeviceDao.class);
+
+    private EntityDataIndex entityDataIndex;
+
+    @BeforeEach
+    public void setUp() {
+        entityDataIndex = new EntityDataIndex(deviceDao);
+        ReflectionTestUtils.setField(entityDataIndex, "enabled", true);
+        ReflectionTestUtils.setField(entityDataIndex, "timeseriesKeys", List.of("temperature"));
+        ReflectionTestUtils.setField(entityDataIndex, "serverAttributeKeys", Collections.emptyList());
+        ReflectionTestUtils.setField(entityDataIndex, "maxEntitiesPerTenant", 1);
+        ReflectionTestUtils.setField(entityDataIndex, "loadBatchSize", 10);
+        ReflectionTestUtils.setField(entityDataIndex, "rebuildIntervalSec", 3600L);
+        ReflectionTestUtils.setField(entityDataIndex, "loadThreads", 1);
+        ReflectionTestUtils.setField(entityDataIndex, "latestTsType", "sql");
+        ReflectionTestUtils.setField(entityDataIndex, "serviceType", "monolith");
+        entityDataIndex.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        entityDataIndex.destroy();
+    }
+
+    @Test
+    public void testTooLargeTenantIsDroppedWhenIdleAndCheckedAgainOnNextQuery() {
+        when(deviceDao.findDevicesWithLatestValues(eq(tenantId.getId()), any(), anyInt(), any(), any()))
+                .thenReturn(List.of(device(1), device(2)));
+
+        assertThat(entityDataIndex.findEntityDataByQuery(tenantId, null, query())).isNull();
+        await().atMost(10, TimeUnit.SECONDS).until(() -> state() != null && state().tooLarge);
+
+        // queried since the previous reload, so the state is kept and not reloaded
+        entityDataIndex.rebuildIndexes();
+        assertThat(state()).isNotNull();
+        assertThat(entityDataIndex.findEntityDataByQuery(tenantId, null, query())).isNull();
+        entityDataIndex.rebuildIndexes();
+        assertThat(state()).isNotNull();
+        verify(deviceDao, times(1)).findDevicesWithLatestValues(eq(tenantId.getId()), any(), anyInt(), any(), any());
+
+        entityDataIndex.rebuildIndexes();
+        assertThat(state()).isNull();
+
+        when(deviceDao.findDevicesWithLatestValues(eq(tenantId.getId()), any(), anyInt(), any(), any()))
+                .thenReturn(List.of(device(1)));
+        entityDataIndex.findEntityDataByQuery(tenantId, null, query());
+        await().atMost(10, TimeUnit.SECONDS).until(() -> state() != null && state().loaded);
+        assertThat(state().tooLarge).isFalse();
+        assertThat(entityDataIndex.findEntityDataByQuery(tenantId, null, query()).getData()).hasSize(1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private EntityDataIndex.TenantState state() {
+        Map<TenantId, EntityDataIndex.TenantState> tenants = (Map<TenantId, EntityDataIndex.TenantState>) ReflectionTestUtils.getField(entityDataIndex, "tenants");
+        return tenants.get(tenantId);
+    }
+
+    private DeviceLatestValues device(int i) {
+        Device device = new Device(new DeviceId(new UUID(i, 0)));
+        device.setTenantId(tenantId);
+        device.setName("Sensor " + i);
+        device.setType("thermostat");
+        return new DeviceLatestValues(device, Collections.emptyList(), Collections.emptyList());
+    }
+
+    private static EntityDataQuery query() {
+        EntityTypeFilter filter = new EntityTypeFilter();
+        filter.setEntityType(EntityType.DEVICE);
+        return new EntityDataQuery(filter, new EntityDataPageLink(10, 0, null, null), Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+    }
+
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.entity;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.query.DeviceTypeFilter;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityDataPageLink;
+import org.thingsboard.server.common.data.query.EntityDataQuery;
+import org.thingsboard.server.common.data.query.EntityDataSortOrder;
+import org.thingsboard.server.common.data.query.EntityFilter;
+import org.thingsboard.server.common.data.query.EntityKey;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.EntityTypeFilter;
+import org.thingsboard.server.common.data.query.FilterPredicateValue;
+import org.thingsboard.server.common.data.query.KeyFilter;
+import org.thingsboard.server.common.data.query.KeyFilterPredicate;
+import org.thingsboard.server.common.data.query.NumericFilterPredicate;
+import org.thingsboard.server.common.data.query.StringFilterPredicate;
+import org.thingsboard.server.dao.entity.TenantEntityDataIndex.IndexedKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TenantEntityDataIndexTest {
+
+    private static final IndexedKey TEMPERATURE = new IndexedKey(EntityKeyType.TIME_SERIES, "temperature");
+    private static final IndexedKey FIRMWARE = new IndexedKey(EntityKeyType.SERVER_ATTRIBUTE, "firmware");
+
+    private final CustomerId customerId = new CustomerId(UUID.randomUUID());
+    private final List<Device> devices = new ArrayList<>();
+
+    private TenantEntityDataIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new TenantEntityDataIndex(List.of(TEMPERATURE, FIRMWARE));
+        for (int i = 0; i < 10; i++) {
+            Device device = new Device(new DeviceId(new UUID(i, 0)));
+            device.setName("Sensor " + i);
+            device.setType(i % 2 == 0 ? "thermostat" : "meter");
+            device.setCreatedTime(1000 + i);
+            device.setCustomerId(i < 3 ? customerId : null);
+            index.loadDevice(device,
+                    List.of(new BaseAttributeKvEntry(new StringDataEntry("firmware", i < 5 ? "v1" : "v2"), 1)),
+                    List.of(new BasicTsKvEntry(1, new LongDataEntry("temperature", (long) (i % 5)))), index.getWriteSeq());
+            devices.add(device);
+        }
+    }
+
+    @Test
+    public void testSortByLatestValueWithPaging() {
+        EntityDataSortOrder sortOrder = new EntityDataSortOrder(new EntityKey(EntityKeyType.TIME_SERIES, "temperature"), EntityDataSortOrder.Direction.DESC);
+
+        PageData<EntityData> firstPage = index.findEntityData(null, query(deviceFilter(), 0, sortOrder));
+        assertThat(ids(firstPage)).containsExactly(id(9), id(4), id(8), id(3));
+        assertThat(firstPage.getTotalElements()).isEqualTo(10);
+        assertThat(firstPage.getTotalPages()).isEqualTo(3);
+        assertThat(firstPage.hasNext()).isTrue();
+
+        // the first rows of a large result are selected without sorting all the rows
+        assertThat(ids(index.findEntityData(null, query(deviceFilter(), 1, 0, sortOrder)))).containsExactly(id(9));
+
+        PageData<EntityData> lastPage = index.findEntityData(null, query(deviceFilter(), 2, sortOrder));
+        assertThat(ids(lastPage)).containsExactly(id(5), id(0));
+        assertThat(lastPage.hasNext()).isFalse();
+    }
+
+    @Test
+    public void testFilterByTypeCustomerAndKeys() {
+        DeviceTypeFilter typeFilter = new DeviceTypeFilter(List.of("thermostat"), "sensor");
+        EntityDataQuery query = query(typeFilter, 0, null,
+                keyFilter(new EntityKey(EntityKeyType.TIME_SERIES, "temperature"), numeric(NumericFilterPredicate.NumericOperation.GREATER_OR_EQUAL, 2)),
+                keyFilter(new EntityKey(EntityKeyType.SERVER_ATTRIBUTE, "firmware"), string(StringFilterPredicate.StringOperation.EQUAL, "V1", true)));
+        assertThat(ids(index.findEntityData(null, query))).containsExactly(id(2), id(4));
+        assertThat(ids(index.findEntityData(customerId, query))).containsExactly(id(2));
+    }
+
+    @Test
+    public void testWritesOverrideLoadAndDeletedDevicesAreNotLoaded() {
+        TenantEntityDataIndex index = new TenantEntityDataIndex(List.of(TEMPERATURE));
+        index.updateValue(devices.get(0).getUuidId(), TEMPERATURE, new DoubleDataEntry("temperature", 25.5));
+        index.updateValue(devices.get(1).getUuidId(), TEMPERATURE, null);
+        index.removeDevice(devices.get(2).getUuidId());
+        for (Device device : devices.subList(0, 4)) {
+            index.loadDevice(device, Collections.emptyList(), List.of(new BasicTsKvEntry(1, new LongDataEntry("temperature", 30L))), 0);
+        }
+
+        EntityDataQuery query = query(deviceFilter(), 0, null, keyFilter(new EntityKey(EntityKeyType.TIME_SERIES, "temperature"),
+                numeric(NumericFilterPredicate.NumericOperation.LESS, 100)));
+        assertThat(ids(index.findEntityData(null, query))).containsExactly(id(0), id(3));
+
+        index.putDevice(devices.get(3));
+        index.updateValue(devices.get(3).getUuidId(), TEMPERATURE, new LongDataEntry("temperature", 150L));
+        assertThat(ids(index.findEntityData(null, query))).containsExactly(id(0));
+    }
+
+    @Test
+    public void testReloadReplacesNotWrittenRowsAndDeletesMissingDevices() {
+        EntityDataQuery query = query(deviceFilter(), 10, 0, null, keyFilter(new EntityKey(EntityKeyType.TIME_SERIES, "temperature"),
+                numeric(NumericFilterPredicate.NumericOperation.GREATER_OR_EQUAL, 100)));
+        index.startPass();
+        long loadSeq = index.getWriteSeq();
+        // written after the page was read, so the loaded value is older
+        index.updateValue(devices.get(1).getUuidId(), TEMPERATURE, new LongDataEntry("temperature", 5L));
+        for (Device device : devices.subList(0, 8)) {
+            index.loadDevice(device, Collections.emptyList(), List.of(new BasicTsKvEntry(2, new LongDataEntry("temperature", 100L))), loadSeq);
+        }
+        // written during the pass, so the device exists although it was not loaded
+        index.updateValue(devices.get(9).getUuidId(), TEMPERATURE, new LongDataEntry("temperature", 200L));
+
+        assertThat(index.finishPass()).isEqualTo(1);
+
+        assertThat(ids(index.findEntityData(null, query))).containsExactly(id(0), id(2), id(3), id(4), id(5), id(6), id(7), id(9));
+        assertThat(index.findEntityData(null, query(deviceFilter(), 10, 0, null))).extracting(PageData::getTotalElements).isEqualTo(9L);
+        // the loaded rows do not keep the values missing in the database
+        EntityDataQuery byFirmware = query(deviceFilter(), 10, 0, null, keyFilter(new EntityKey(EntityKeyType.SERVER_ATTRIBUTE, "firmware"),
+                string(StringFilterPredicate.StringOperation.EQUAL, "v1", false)));
+        assertThat(ids(index.findEntityData(null, byFirmware))).containsExactly(id(1));
+    }
+
+    @Test
+    public void testNotSupportedQueries() {
+        EntityDataQuery wildcard = query(deviceFilter(), 0, null, keyFilter(new EntityKey(EntityKeyType.ENTITY_FIELD, "name"),
+                string(StringFilterPredicate.StringOperation.STARTS_WITH, "Sensor_", false)));
+        assertThat(index.findEntityData(null, wildcard)).isNull();
+
+        EntityDataQuery notIndexedKey = query(deviceFilter(), 0, null, keyFilter(new EntityKey(EntityKeyType.TIME_SERIES, "humidity"),
+                numeric(NumericFilterPredicate.NumericOperation.GREATER, 1)));
+        assertThat(index.findEntityData(null, notIndexedKey)).isNull();
+
+        EntityDataSortOrder byName = new EntityDataSortOrder(new EntityKey(EntityKeyType.ENTITY_FIELD, "name"));
+        assertThat(index.findEntityData(null, query(deviceFilter(), 0, byName))).isNull();
+
+        EntityDataSortOrder byStringValue = new EntityDataSortOrder(new EntityKey(EntityKeyType.SERVER_ATTRIBUTE, "firmware"));
+        assertThat(index.findEntityData(null, query(deviceFilter(), 0, byStringValue))).isNull();
+    }
+
+    private static EntityDataQuery query(EntityFilter filter, int page, EntityDataSortOrder sortOrder, KeyFilter... keyFilters) {
+        return query(filter, 4, page, sortOrder, keyFilters);
+    }
+
+    private static EntityDataQuery query(EntityFilter filter, int pageSize, int page, EntityDataSortOrder sortOrder, KeyFilter... keyFilters) {
+        EntityDataPageLink pageLink = new EntityDataPageLink(pageSize, page, null, sortOrder);
+        return new EntityDataQuery(filter, pageLink, Collections.emptyList(), Collections.emptyList(), List.of(keyFilters));
+    }
+
+    private static EntityTypeFilter deviceFilter() {
+        EntityTypeFilter filter = new EntityTypeFilter();
+        filter.setEntityType(EntityType.DEVICE);
+        return filter;
+    }
+
+    private static KeyFilter keyFilter(EntityKey key, KeyFilterPredicate predicate) {
+        KeyFilter keyFilter = new KeyFilter();
+        keyFilter.setKey(key);
+        keyFilter.setPredicate(predicate);
+        return keyFilter;
+    }
+
+    private static NumericFilterPredicate numeric(NumericFilterPredicate.NumericOperation operation, double value) {
+        NumericFilterPredicate predicate = new NumericFilterPredicate();
+        predicate.setOperation(operation);
+        predicate.setValue(FilterPredicateValue.fromDouble(value));
+        return predicate;
+    }
+
+    private static StringFilterPredicate string(StringFilterPredicate.StringOperation operation, String value, boolean ignoreCase) {
+        StringFilterPredicate predicate = new StringFilterPredicate();
+        predicate.setOperation(operation);
+        predicate.setValue(FilterPredicateValue.fromString(value));
+        predicate.setIgnoreCase(ignoreCase);
+        return predicate;
+    }
+
+    private static List<UUID> ids(PageData<EntityData> pageData) {
+        return pageData.getData().stream().map(data -> data.getEntityId().getId()).toList();
+    }
+
+    private static UUID id(int i) {
+        return new UUID(i, 0);
+    }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.relation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.AssetId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.common.data.relation.EntitySearchDirection;
+import org.thingsboard.server.common.data.relation.RelationTypeGroup;
+import org.thingsboard.server.dao.eventsourcing.DeleteEntityEvent;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RelationGraphIndexTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final AssetId building = new AssetId(UUID.randomUUID());
+    private final DeviceId device = new DeviceId(UUID.randomUUID());
+    private final EntityRelation relation = new EntityRelation(building, device, EntityRelation.CONTAINS_TYPE);
+
+    private RelationGraphIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new RelationGraphIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "maxNodesPerTenant", 2);
+        ReflectionTestUtils.setField(index, "ttlSec", 300L);
+        ReflectionTestUtils.setField(index, "serviceType", "monolith");
+        index.init();
+    }
+
+    @Test
+    public void testLoadsOnceAndServesFromIndex() {
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            List<EntityRelation> relations = index.getOrLoad(tenantId, building, EntitySearchDirection.FROM, RelationTypeGroup.COMMON, () -> {
+                loads.incrementAndGet();
+                return List.of(relation);
+            });
+            assertThat(relations).containsExactly(relation);
+        }
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(index.get(tenantId, building, EntitySearchDirection.TO, RelationTypeGroup.COMMON)).isNull();
+        assertThat(index.get(TenantId.fromUUID(UUID.randomUUID()), building, EntitySearchDirection.FROM, RelationTypeGroup.COMMON)).isNull();
+    }
+
+    @Test
+    public void testEvictDropsBothEndpoints() {
+        index.getOrLoad(tenantId, building, EntitySearchDirection.FROM, RelationTypeGroup.COMMON, () -> List.of(relation));
+        index.getOrLoad(tenantId, device, EntitySearchDirection.TO, RelationTypeGroup.COMMON, () -> List.of(relation));
+        assertThat(index.size(tenantId)).isEqualTo(2);
+
+        index.evict(EntityRelationEvent.from(relation));
+
+        assertThat(index.get(tenantId, building, EntitySearchDirection.FROM, RelationTypeGroup.COMMON)).isNull();
+        assertThat(index.get(tenantId, device, EntitySearchDirection.TO, RelationTypeGroup.COMMON)).isNull();
+    }
+
+    @Test
+    public void testStaleLoadIsNotIndexed() {
+        List<EntityRelation> relations = index.getOrLoad(tenantId, building, EntitySearchDirection.FROM, RelationTypeGroup.COMMON, () -> {
+            index.evict(EntityRelationEvent.from(relation));
+            return List.of();
+        });
+        assertThat(relations).isEmpty();
+        assertThat(index.get(tenantId, building, EntitySearchDirection.FROM, RelationTypeGroup.COMMON)).isNull();
+    }
+
+    @Test
+    public void testMaxNodesPerTenant() {
+        index.getOrLoad(tenantId, building, EntitySearchDirection.FROM, RelationTypeGroup.COMMON, List::of);
+        index.getOrLoad(tenantId, building, EntitySearchDirection.TO, RelationTypeGroup.COMMON, List::of);
+        index.getOrLoad(tenantId, device, EntitySearchDirection.TO, RelationTypeGroup.COMMON, List::of);
+        assertThat(index.size(tenantId)).isEqualTo(2);
+    }
+
+    @Test
+    public void testTenantDeletionDropsTenantGraph() {
+        index.getOrLoad(tenantId, building, EntitySearchDirection.FROM, RelationTypeGroup.COMMON, () -> List.of(relation));
+
+        index.handleEvent(DeleteEntityEvent.builder().tenantId(tenantId).entityId(tenantId).build());
+
+        assertThat(index.size(tenantId)).isZero();
+        assertThat(index.get(tenantId, building, EntitySearchDirection.FROM, RelationTypeGroup.COMMON)).isNull();
+    }
+
+    @Test
+    public void testDisabledInClusterMode() {
+        RelationGraphIndex clusterIndex = new RelationGraphIndex();
+        ReflectionTestUtils.setField(clusterIndex, "enabled", true);
+        ReflectionTestUtils.setField(clusterIndex, "serviceType", "tb-core");
+
+        clusterIndex.init();
+
+        assertThat(clusterIndex.isEnabled()).isFalse();
+    }
+
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.stats.MessagesStats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class TbSqlAdaptiveBlockingQueueTest {
+
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final Timer flushTimer = Timer.builder("test.flush").register(new SimpleMeterRegistry());
+    private TbSqlAdaptiveBlockingQueue<Integer, Integer> queue;
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.destroy();
+        }
+    }
+
+    @Test
+    void testBatchSizeDecreasesOnSlowFlushAndIncreasesOnBacklog() {
+        queue = createQueue(1000, 100, 50);
+        assertThat(queue.getBatchSize()).isEqualTo(1000);
+
+        queue.adjustBatchSize(1000, 200);
+        assertThat(queue.getBatchSize()).isEqualTo(500);
+        queue.adjustBatchSize(500, 200);
+        queue.adjustBatchSize(250, 200);
+        queue.adjustBatchSize(125, 200);
+        assertThat(queue.getBatchSize()).isEqualTo(100);
+
+        queue.adjustBatchSize(100, 10);
+        assertThat(queue.getBatchSize()).isEqualTo(100);
+
+        queueSize.set(5000);
+        queue.adjustBatchSize(100, 10);
+        assertThat(queue.getBatchSize()).isEqualTo(200);
+        queue.adjustBatchSize(200, 10);
+        queue.adjustBatchSize(400, 10);
+        queue.adjustBatchSize(800, 10);
+        assertThat(queue.getBatchSize()).isEqualTo(1000);
+    }
+
+    @Test
+    void testFlushDelayFollowsQueueDepth() {
+        queue = createQueue(1000, 100, 50);
+        assertThat(queue.getFlushDelay(1, 1000)).isEqualTo(2);
+        assertThat(queue.getFlushDelay(500, 1000)).isEqualTo(6);
+        assertThat(queue.getFlushDelay(1000, 1000)).isEqualTo(10);
+        assertThat(queue.getFlushDelay(5000, 1000)).isEqualTo(10);
+    }
+
+    @Test
+    void testElementsAreSavedInOrderWithResponse() throws Exception {
+        queue = createQueue(100, 10, 1000);
+        List<Integer> saved = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch firstBatchLatch = new CountDownLatch(1);
+        queue.init(mock(ScheduledLogExecutorComponent.class), batch -> {
+            try {
+                firstBatchLatch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            saved.addAll(batch);
+            return batch.stream().map(i -> i * 2).toList();
+        }, Comparator.naturalOrder(), l -> l, 0);
+
+        List<ListenableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(queue.add(i));
+        }
+        firstBatchLatch.countDown();
+
+        List<Integer> results = Futures.allAsList(futures).get(10, TimeUnit.SECONDS);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(results.get(i)).isEqualTo(i * 2);
+            assertThat(saved.get(i)).isEqualTo(i);
+        }
+        assertThat(queueSize.get()).isZero();
+        assertThat(flushTimer.count()).isPositive();
+    }
+
+    private TbSqlAdaptiveBlockingQueue<Integer, Integer> createQueue(int batchSize, int minBatchSize, long targetFlushLatencyMs) {
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Test")
+                .batchSize(batchSize)
+                .maxDelay(10)
+                .minDelay(2)
+                .statsPrintIntervalMs(10000)
+                .statsNamePrefix("test")
+                .withResponse(true)
+                .adaptive(true)
+                .minBatchSize(minBatchSize)
+                .targetFlushLatencyMs(targetFlushLatencyMs)
+                .build();
+        return new TbSqlAdaptiveBlockingQueue<>(params, mock(MessagesStats.class), queueSize, flushTimer);
+    }
+
+}
@@ -24,6 +24,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.AttributeScope;
 import org.thingsboard.server.common.data.Device;
 import org.thingsboard.server.common.data.DeviceProfile;
 import org.thingsboard.server.common.data.DeviceProfileType;
@@ -31,14 +32,25 @@ import org.thingsboard.server.common.data.DeviceTransportType;
 import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.KvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
 import org.thingsboard.server.common.data.page.PageData;
 import org.thingsboard.server.common.data.page.PageLink;
 import org.thingsboard.server.dao.AbstractJpaDaoTest;
+import org.thingsboard.server.dao.attributes.AttributesDao;
 import org.thingsboard.server.dao.device.DeviceDao;
+import org.thingsboard.server.dao.device.DeviceLatestValues;
 import org.thingsboard.server.dao.device.DeviceProfileDao;
+import org.thingsboard.server.dao.timeseries.TimeseriesLatestDao;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
@@ -68,6 +80,12 @@ public class JpaDeviceDaoTest extends AbstractJpaDaoTest {
     @Autowired
     private DeviceProfileDao deviceProfileDao;
 
+    @Autowired
+    private AttributesDao attributesDao;
+
+    @Autowired
+    private TimeseriesLatestDao timeseriesLatestDao;
+
     private DeviceProfile savedDeviceProfile;
 
     ListeningExecutorService executor;
@@ -184,6 +202,61 @@ public class JpaDeviceDaoTest extends AbstractJpaDaoTest {
         assertEquals(20, devices.size());
     }
 
+    @Test
+    public void testFindDevicesWithLatestValuesByKeysetPages() throws Exception {
+        // the values are saved for every third device only, the other devices have no latest values
+        Map<UUID, Long> values = new HashMap<>();
+        for (int i = 0; i < deviceIds.size(); i += 3) {
+            TenantId tenantId = TenantId.fromUUID(i % 2 == 0 ? tenantId1 : tenantId2);
+            DeviceId deviceId = new DeviceId(deviceIds.get(i));
+            attributesDao.save(tenantId, deviceId, AttributeScope.SERVER_SCOPE,
+                    new BaseAttributeKvEntry(new LongDataEntry("inactivityTimeout", (long) i), 1000L)).get(30, TimeUnit.SECONDS);
+            timeseriesLatestDao.saveLatest(tenantId, deviceId, new BasicTsKvEntry(2000L, new LongDataEntry("lastActivityTime", (long) i))).get(30, TimeUnit.SECONDS);
+            values.put(deviceIds.get(i), (long) i);
+        }
+        List<UUID> tenant1DeviceIds = new ArrayList<>();
+        for (int i = 0; i < deviceIds.size(); i += 2) {
+            tenant1DeviceIds.add(deviceIds.get(i));
+        }
+
+        for (UUID tenantId : Arrays.asList(tenantId1, null)) {
+            // the page size is not a divisor of the number of devices, so the last page is partial
+            List<DeviceLatestValues> loaded = new ArrayList<>();
+            List<DeviceLatestValues> page;
+            UUID lastDeviceId = null;
+            do {
+                page = deviceDao.findDevicesWithLatestValues(tenantId, lastDeviceId, 7, List.of("inactivityTimeout"), List.of("lastActivityTime"));
+                loaded.addAll(page);
+                if (!page.isEmpty()) {
+                    lastDeviceId = page.get(page.size() - 1).getDevice().getUuidId();
+                }
+            } while (page.size() == 7);
+
+            List<UUID> loadedIds = loaded.stream().map(deviceLatestValues -> deviceLatestValues.getDevice().getUuidId()).toList();
+            assertThat(loadedIds).doesNotHaveDuplicates();
+            if (tenantId != null) {
+                assertThat(loadedIds).containsExactlyInAnyOrderElementsOf(tenant1DeviceIds);
+            } else {
+                assertThat(loadedIds).containsAll(deviceIds);
+            }
+            for (DeviceLatestValues deviceLatestValues : loaded) {
+                UUID id = deviceLatestValues.getDevice().getUuidId();
+                if (!deviceIds.contains(id)) {
+                    continue;
+                }
+                Long value = values.get(id);
+                if (value == null) {
+                    assertThat(deviceLatestValues.getServerAttributes()).isEmpty();
+                    assertThat(deviceLatestValues.getLatestTimeseries()).isEmpty();
+                } else {
+                    assertThat(deviceLatestValues.getServerAttributes()).map(KvEntry::getLongValue).containsExactly(Optional.of(value));
+                    assertThat(deviceLatestValues.getLatestTimeseries()).map(KvEntry::getLongValue).containsExactly(Optional.of(value));
+                    assertThat(deviceLatestValues.getLatestTimeseries().get(0).getTs()).isEqualTo(2000L);
+                }
+            }
+        }
+    }
+
     private List<UUID> createDevices(UUID tenantId1, UUID tenantId2, UUID customerId1, UUID customerId2, int count) {
         List<UUID> savedDevicesUUID = new ArrayList<>();
         for (int i = 0; i < count / 2; i++) {
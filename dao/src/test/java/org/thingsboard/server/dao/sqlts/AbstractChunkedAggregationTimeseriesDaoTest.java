@@ -19,10 +19,13 @@ import com.google.common.util.concurrent.Futures;
 import org.junit.Before;
 import org.junit.Test;
 import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.IntervalType;
 import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQueryResult;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.dao.sqlts.rollup.TsKvRollupService;
 
+import java.time.ZoneId;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -48,6 +51,7 @@ public class AbstractChunkedAggregationTimeseriesDaoTest {
     @Before
     public void setUp() throws Exception {
         tsDao = spy(AbstractChunkedAggregationTimeseriesDao.class);
+        tsDao.rollupService = mock(TsKvRollupService.class);
         Optional<TsKvEntry> optionalListenableFuture = Optional.of(mock(TsKvEntry.class));
         willReturn(Futures.immediateFuture(optionalListenableFuture)).given(tsDao).findAndAggregateAsync(any(), anyString(), anyLong(), anyLong(), anyLong(), any());
         willReturn(Futures.immediateFuture(mock(ReadTsKvQueryResult.class))).given(tsDao).getReadTsKvQueryResultFuture(any(), any());
@@ -146,6 +150,29 @@ public class AbstractChunkedAggregationTimeseriesDaoTest {
         }
     }
 
+    @Test
+    public void givenMonthInterval_whenCalculateIntervalStarts_thenIntervalsStartAtMonthStartInTimeZone() {
+        ZoneId tzId = ZoneId.of("Europe/Kyiv");
+        long startTs = 1704899727000L; // Wednesday, January 10, 2024 15:15:27 GMT
+        long endTs = 1711918800000L; // Monday, April 1, 2024 0:00:00 GMT+03:00
+        assertThat(AbstractChunkedAggregationTimeseriesDao.calculateIntervalStarts(startTs, endTs, IntervalType.MONTH, tzId)).containsExactly(
+                startTs,
+                1706738400000L, // Thursday, February 1, 2024 0:00:00 GMT+02:00
+                1709244000000L // Friday, March 1, 2024 0:00:00 GMT+02:00
+        );
+    }
+
+    @Test
+    public void givenWeekInterval_whenCalculateIntervalStarts_thenLastIntervalStartsBeforeEndTs() {
+        ZoneId tzId = ZoneId.of("Europe/Amsterdam");
+        long startTs = 1704899727000L; // Wednesday, January 10, 2024 15:15:27 GMT
+        long endTs = 1705273200001L; // Monday, January 15, 2024 0:00:00.001 GMT+01:00
+        assertThat(AbstractChunkedAggregationTimeseriesDao.calculateIntervalStarts(startTs, endTs, IntervalType.WEEK_ISO, tzId)).containsExactly(
+                startTs,
+                1705273200000L // Monday, January 15, 2024 0:00:00 GMT+01:00
+        );
+    }
+
     long getTsForReadTsKvQuery(long startTs, long endTs) {
         return startTs + (endTs - startTs) / 2L;
     }
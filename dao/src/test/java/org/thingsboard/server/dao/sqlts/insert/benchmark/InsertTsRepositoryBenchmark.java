@@ -0,0 +1,155 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.insert.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.sqlts.insert.InsertTsRepository;
+import org.thingsboard.server.dao.sqlts.insert.sql.SqlCopyInsertTsRepository;
+import org.thingsboard.server.dao.sqlts.insert.sql.SqlInsertTsRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares rows per second of the "batch" and "copy" ts_kv insert strategies, see the {@code rows} counter.
+ * <p>
+ * Runs against an empty PostgreSQL database, a container is started by default.
+ * Use {@code -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/benchmark} to run against an existing server.
+ * <p>
+ * Run with {@code mvn -pl dao test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=org.thingsboard.server.dao.sqlts.insert.benchmark.InsertTsRepositoryBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+public class InsertTsRepositoryBenchmark {
+
+    private static final String CREATE_TS_KV_TABLE = "CREATE TABLE IF NOT EXISTS ts_kv (entity_id uuid NOT NULL, key int NOT NULL, ts bigint NOT NULL, " +
+            "bool_v boolean, str_v varchar(10000000), long_v bigint, dbl_v double precision, json_v json, " +
+            "CONSTRAINT ts_kv_pkey PRIMARY KEY (entity_id, key, ts))";
+    private static final int ENTITIES_COUNT = 100;
+    private static final int KEYS_COUNT = 10;
+
+    @Param({"batch", "copy"})
+    private String strategy;
+
+    @Param({"1000", "10000", "100000"})
+    private int batchSize;
+
+    private SingleConnectionDataSource dataSource;
+    private TransactionTemplate transactionTemplate;
+    private InsertTsRepository<TsKvEntity> repository;
+    private UUID[] entityIds;
+    private List<TsKvEntity> batch;
+    private long ts;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Rows {
+        public long rows;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        dataSource = new SingleConnectionDataSource(
+                System.getProperty("benchmark.jdbc.url", "jdbc:tc:postgresql:16.6:///thingsboard?TC_TMPFS=/testtmpfs:rw"),
+                System.getProperty("benchmark.jdbc.username", "postgres"),
+                System.getProperty("benchmark.jdbc.password", "postgres"), true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(CREATE_TS_KV_TABLE);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        repository = "copy".equals(strategy) ? new SqlCopyInsertTsRepository() : new SqlInsertTsRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(repository, "transactionTemplate", transactionTemplate);
+
+        entityIds = new UUID[ENTITIES_COUNT];
+        for (int i = 0; i < ENTITIES_COUNT; i++) {
+            entityIds[i] = UUID.randomUUID();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void cleanUp() {
+        new JdbcTemplate(dataSource).execute("TRUNCATE ts_kv");
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareBatch() {
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            TsKvEntity entity = new TsKvEntity();
+            entity.setEntityId(entityIds[i % ENTITIES_COUNT]);
+            entity.setKey((i / ENTITIES_COUNT) % KEYS_COUNT);
+            entity.setTs(ts + i / (ENTITIES_COUNT * KEYS_COUNT));
+            switch (i % 4) {
+                case 0 -> entity.setLongValue((long) i);
+                case 1 -> entity.setDoubleValue(i * 0.5);
+                case 2 -> entity.setBooleanValue(i % 8 == 2);
+                default -> entity.setStrValue("value-" + i);
+            }
+            batch.add(entity);
+        }
+        ts += batchSize;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (dataSource != null) {
+            dataSource.destroy();
+        }
+    }
+
+    @Benchmark
+    public void saveOrUpdate(Rows rows) {
+        transactionTemplate.executeWithoutResult(status -> repository.saveOrUpdate(batch));
+        rows.rows += batch.size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(InsertTsRepositoryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+}
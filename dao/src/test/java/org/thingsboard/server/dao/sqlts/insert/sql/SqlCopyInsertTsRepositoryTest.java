@@ -0,0 +1,137 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.insert.sql;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.service.AbstractServiceTest;
+import org.thingsboard.server.dao.service.DaoSqlTest;
+import org.thingsboard.server.dao.sqlts.insert.InsertTsRepository;
+import org.thingsboard.server.dao.timeseries.TimeseriesDao;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DaoSqlTest
+@TestPropertySource(properties = {
+        "sql.ts.insert_strategy=copy"
+})
+public class SqlCopyInsertTsRepositoryTest extends AbstractServiceTest {
+
+    private static final String SELECT_ROWS = "SELECT key, ts, bool_v, str_v, long_v, dbl_v, cast(json_v AS varchar) AS json_v " +
+            "FROM ts_kv WHERE entity_id = ? ORDER BY key, ts";
+
+    @Autowired
+    private InsertTsRepository<TsKvEntity> insertTsRepository;
+    @Autowired
+    private TimeseriesDao timeseriesDao;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testAllValueTypesRoundTrip() throws Exception {
+        assertThat(insertTsRepository).isInstanceOf(SqlCopyInsertTsRepository.class);
+        UUID entityId = UUID.randomUUID();
+        long ts = createPartition();
+
+        insertTsRepository.saveOrUpdate(List.of(
+                entity(entityId, 1, ts, e -> e.setBooleanValue(true)),
+                entity(entityId, 2, ts, e -> e.setBooleanValue(false)),
+                entity(entityId, 3, ts, e -> e.setStrValue("Unicode é中文 with\u0000null char")),
+                entity(entityId, 4, ts, e -> e.setStrValue("")),
+                entity(entityId, 5, ts, e -> e.setLongValue(Long.MIN_VALUE)),
+                entity(entityId, 6, ts, e -> e.setDoubleValue(-1.5e-300)),
+                entity(entityId, 7, ts, e -> e.setJsonValue("{\"a\":[1,2,{\"b\":null}]}")),
+                entity(entityId, 8, ts, e -> {})
+        ));
+
+        List<Map<String, Object>> rows = findRows(entityId);
+        assertThat(rows).hasSize(8);
+        assertRow(rows.get(0), 1, ts, true, null, null, null, null);
+        assertRow(rows.get(1), 2, ts, false, null, null, null, null);
+        assertRow(rows.get(2), 3, ts, null, "Unicode é中文 withnull char", null, null, null);
+        assertRow(rows.get(3), 4, ts, null, "", null, null, null);
+        assertRow(rows.get(4), 5, ts, null, null, Long.MIN_VALUE, null, null);
+        assertRow(rows.get(5), 6, ts, null, null, null, -1.5e-300, null);
+        assertRow(rows.get(6), 7, ts, null, null, null, null, "{\"a\":[1,2,{\"b\":null}]}");
+        assertRow(rows.get(7), 8, ts, null, null, null, null, null);
+    }
+
+    @Test
+    public void testDuplicatesInBatchKeepLastValue() throws Exception {
+        UUID entityId = UUID.randomUUID();
+        long ts = createPartition();
+
+        insertTsRepository.saveOrUpdate(List.of(
+                entity(entityId, 1, ts + 1, e -> e.setLongValue(1L)),
+                entity(entityId, 1, ts + 1, e -> e.setStrValue("second")),
+                entity(entityId, 1, ts + 2, e -> e.setDoubleValue(2.0)),
+                entity(entityId, 1, ts + 1, e -> e.setBooleanValue(true))
+        ));
+        List<Map<String, Object>> rows = findRows(entityId);
+        assertThat(rows).hasSize(2);
+        assertRow(rows.get(0), 1, ts + 1, true, null, null, null, null);
+        assertRow(rows.get(1), 1, ts + 2, null, null, null, 2.0, null);
+
+        // the existing row is replaced entirely, so the values of other types become null
+        insertTsRepository.saveOrUpdate(List.of(entity(entityId, 1, ts + 2, e -> e.setStrValue("updated"))));
+        rows = findRows(entityId);
+        assertRow(rows.get(1), 1, ts + 2, null, "updated", null, null, null);
+    }
+
+    private long createPartition() throws Exception {
+        // saving through the DAO creates the ts_kv partition for the current month
+        long ts = System.currentTimeMillis();
+        timeseriesDao.save(tenantId, new DeviceId(UUID.randomUUID()), new BasicTsKvEntry(ts, new LongDataEntry("partition", 0L)), 0)
+                .get(30, TimeUnit.SECONDS);
+        return ts;
+    }
+
+    private List<Map<String, Object>> findRows(UUID entityId) {
+        return jdbcTemplate.queryForList(SELECT_ROWS, entityId);
+    }
+
+    private static TsKvEntity entity(UUID entityId, int key, long ts, Consumer<TsKvEntity> valueSetter) {
+        TsKvEntity entity = new TsKvEntity();
+        entity.setEntityId(entityId);
+        entity.setKey(key);
+        entity.setTs(ts);
+        valueSetter.accept(entity);
+        return entity;
+    }
+
+    private static void assertRow(Map<String, Object> row, int key, long ts, Boolean boolV, String strV, Long longV, Double dblV, String jsonV) {
+        assertThat(((Number) row.get("key")).intValue()).isEqualTo(key);
+        assertThat(((Number) row.get("ts")).longValue()).isEqualTo(ts);
+        assertThat(row.get("bool_v")).isEqualTo(boolV);
+        assertThat(row.get("str_v")).isEqualTo(strV);
+        assertThat(row.get("long_v") != null ? ((Number) row.get("long_v")).longValue() : null).isEqualTo(longV);
+        assertThat(row.get("dbl_v") != null ? ((Number) row.get("dbl_v")).doubleValue() : null).isEqualTo(dblV);
+        assertThat(row.get("json_v")).isEqualTo(jsonV);
+    }
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.rollup;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.thingsboard.server.dao.sqlts.rollup.TsKvRollupRanges.DAY;
+import static org.thingsboard.server.dao.sqlts.rollup.TsKvRollupRanges.HOUR;
+
+class TsKvRollupRangesTest {
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final long DAY_START = 1704844800000L; // Wednesday, January 10, 2024 0:00:00 GMT
+
+    @Test
+    void testIntervalSplitIntoRawHourlyAndDailyRanges() {
+        long startTs = DAY_START - 2 * HOUR - 30 * MINUTE;
+        long endTs = DAY_START + 2 * DAY + HOUR + 15 * MINUTE;
+        TsKvRollupRanges ranges = new TsKvRollupRanges(new long[]{startTs}, endTs, 0, Long.MAX_VALUE);
+
+        assertThat(ranges.getRaw().getStartTs()).containsExactly(startTs, DAY_START + 2 * DAY + HOUR);
+        assertThat(ranges.getRaw().getEndTs()).containsExactly(DAY_START - 2 * HOUR, endTs);
+        assertThat(ranges.getHourly().getStartTs()).containsExactly(DAY_START - 2 * HOUR, DAY_START + 2 * DAY);
+        assertThat(ranges.getHourly().getEndTs()).containsExactly(DAY_START, DAY_START + 2 * DAY + HOUR);
+        assertThat(ranges.getDaily().getStartTs()).containsExactly(DAY_START);
+        assertThat(ranges.getDaily().getEndTs()).containsExactly(DAY_START + 2 * DAY);
+    }
+
+    @Test
+    void testEveryRangeBelongsToItsInterval() {
+        long[] intervalStarts = {DAY_START, DAY_START + DAY + 30 * MINUTE};
+        long endTs = DAY_START + 2 * DAY;
+        TsKvRollupRanges ranges = new TsKvRollupRanges(intervalStarts, endTs, 0, Long.MAX_VALUE);
+
+        assertThat(ranges.getDaily().getStartTs()).containsExactly(DAY_START);
+        assertThat(ranges.getDaily().getIntervalIdx()).containsExactly(0);
+        assertThat(ranges.getHourly().getStartTs()).containsExactly(DAY_START + DAY + HOUR);
+        assertThat(ranges.getHourly().getEndTs()).containsExactly(endTs);
+        assertThat(ranges.getHourly().getIntervalIdx()).containsExactly(1);
+        assertThat(ranges.getRaw().getStartTs()).containsExactly(DAY_START + DAY, DAY_START + DAY + 30 * MINUTE);
+        assertThat(ranges.getRaw().getEndTs()).containsExactly(DAY_START + DAY + 30 * MINUTE, DAY_START + DAY + HOUR);
+        assertThat(ranges.getRaw().getIntervalIdx()).containsExactly(0, 1);
+    }
+
+    @Test
+    void testOutdatedHoursAndTheirDaysAreReadFromRawData() {
+        long endTs = DAY_START + 2 * DAY;
+        long[] outdatedHours = {DAY_START - HOUR, DAY_START + 5 * HOUR, endTs};
+        TsKvRollupRanges ranges = new TsKvRollupRanges(new long[]{DAY_START}, endTs, 0, Long.MAX_VALUE, outdatedHours);
+
+        assertThat(ranges.getRaw().getStartTs()).containsExactly(DAY_START + 5 * HOUR);
+        assertThat(ranges.getRaw().getEndTs()).containsExactly(DAY_START + 6 * HOUR);
+        assertThat(ranges.getHourly().getStartTs()).containsExactly(DAY_START, DAY_START + 6 * HOUR);
+        assertThat(ranges.getHourly().getEndTs()).containsExactly(DAY_START + 5 * HOUR, DAY_START + DAY);
+        assertThat(ranges.getDaily().getStartTs()).containsExactly(DAY_START + DAY);
+        assertThat(ranges.getDaily().getEndTs()).containsExactly(endTs);
+    }
+
+    @Test
+    void testDataOutsideOfRollupRangeIsReadFromRawData() {
+        long rollupStartTs = DAY_START + 3 * HOUR;
+        long rollupEndTs = DAY_START + 5 * HOUR;
+        TsKvRollupRanges ranges = new TsKvRollupRanges(new long[]{DAY_START}, DAY_START + DAY, rollupStartTs, rollupEndTs);
+
+        assertThat(ranges.getDaily().size()).isZero();
+        assertThat(ranges.getHourly().getStartTs()).containsExactly(rollupStartTs);
+        assertThat(ranges.getHourly().getEndTs()).containsExactly(rollupEndTs);
+        assertThat(ranges.getRaw().getStartTs()).containsExactly(DAY_START, rollupEndTs);
+        assertThat(ranges.getRaw().getEndTs()).containsExactly(rollupStartTs, DAY_START + DAY);
+    }
+
+    @Test
+    void testIntervalShorterThanHourIsReadFromRawData() {
+        long startTs = DAY_START + 10 * MINUTE;
+        TsKvRollupRanges ranges = new TsKvRollupRanges(new long[]{startTs}, startTs + HOUR, 0, Long.MAX_VALUE);
+
+        assertThat(ranges.getHourly().size()).isZero();
+        assertThat(ranges.getRaw().getStartTs()).containsExactly(startTs);
+        assertThat(ranges.getRaw().getEndTs()).containsExactly(startTs + HOUR);
+    }
+
+}
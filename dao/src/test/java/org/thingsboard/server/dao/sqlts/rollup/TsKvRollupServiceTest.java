@@ -0,0 +1,182 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.rollup;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.dao.dictionary.KeyDictionaryDao;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.service.AbstractServiceTest;
+import org.thingsboard.server.dao.service.DaoSqlTest;
+import org.thingsboard.server.dao.timeseries.TimeseriesDao;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.thingsboard.server.dao.sqlts.rollup.TsKvRollupRanges.DAY;
+import static org.thingsboard.server.dao.sqlts.rollup.TsKvRollupRanges.HOUR;
+
+@DaoSqlTest
+@TestPropertySource(properties = {
+        "sql.ts.rollup.enabled=true",
+        // the buckets are recalculated by the tests only
+        "sql.ts.rollup.update_interval_ms=3600000"
+})
+public class TsKvRollupServiceTest extends AbstractServiceTest {
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final long DAY_START = 1704844800000L; // Wednesday, January 10, 2024 0:00:00 GMT
+    private static final String KEY = "rollupTestKey";
+
+    private static final String SELECT_BUCKETS = "SELECT bucket_size, bucket_ts, long_count, long_sum, long_min, long_max " +
+            "FROM ts_rollup WHERE entity_id = ? AND key = ? ORDER BY bucket_size, bucket_ts";
+    private static final String SELECT_OUTDATED = "SELECT bucket_ts FROM ts_rollup_outdated WHERE entity_id = ? AND key = ? ORDER BY bucket_ts";
+
+    @Autowired
+    private TsKvRollupService rollupService;
+    @Autowired
+    private TsKvRollupRepository rollupRepository;
+    @Autowired
+    private TimeseriesDao timeseriesDao;
+    @Autowired
+    private KeyDictionaryDao keyDictionaryDao;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private DeviceId deviceId;
+    private int keyId;
+    private long rollupStartTs;
+
+    @Before
+    public void before() {
+        deviceId = new DeviceId(UUID.randomUUID());
+        keyId = keyDictionaryDao.getOrSaveKeyId(KEY);
+        rollupStartTs = (long) ReflectionTestUtils.getField(rollupService, "rollupStartTs");
+        // the test data is older than the watermark set on startup
+        ReflectionTestUtils.setField(rollupService, "rollupStartTs", 0L);
+    }
+
+    @After
+    public void after() {
+        ReflectionTestUtils.setField(rollupService, "rollupStartTs", rollupStartTs);
+    }
+
+    @Test
+    public void testSavedDataPointsMarkBucketsOutdatedAndUpsertRollups() throws Exception {
+        save(DAY_START + 10 * MINUTE, 1);
+        save(DAY_START + 20 * MINUTE, 2);
+        save(DAY_START + HOUR + 10 * MINUTE, 4);
+        assertThat(findOutdated()).containsExactly(DAY_START, DAY_START + HOUR);
+
+        rollupService.updateOutdatedBuckets();
+
+        assertThat(findOutdated()).isEmpty();
+        List<Map<String, Object>> buckets = findBuckets();
+        assertThat(buckets).hasSize(3);
+        assertBucket(buckets.get(0), HOUR, DAY_START, 2, 3, 1, 2);
+        assertBucket(buckets.get(1), HOUR, DAY_START + HOUR, 1, 4, 4, 4);
+        assertBucket(buckets.get(2), DAY, DAY_START, 3, 7, 1, 4);
+
+        // the existing buckets are updated in place
+        save(DAY_START + 10 * MINUTE, 10);
+        assertThat(findOutdated()).containsExactly(DAY_START);
+        rollupService.updateOutdatedBuckets();
+
+        buckets = findBuckets();
+        assertThat(buckets).hasSize(3);
+        assertBucket(buckets.get(0), HOUR, DAY_START, 2, 12, 2, 10);
+        assertBucket(buckets.get(1), HOUR, DAY_START + HOUR, 1, 4, 4, 4);
+        assertBucket(buckets.get(2), DAY, DAY_START, 3, 16, 2, 10);
+    }
+
+    @Test
+    public void testOutdatedBucketsAreReadFromRawData() throws Exception {
+        save(DAY_START + 10 * MINUTE, 1);
+        save(DAY_START + 5 * HOUR, 2);
+        rollupService.updateOutdatedBuckets();
+        assertThat(aggregateDay(Aggregation.SUM)).isEqualTo(3L);
+
+        // not recalculated yet
+        save(DAY_START + 10 * MINUTE, 10);
+        assertThat(findOutdated()).containsExactly(DAY_START);
+        assertThat(rollupRepository.findOutdated(deviceId.getId(), keyId, DAY_START, DAY_START + DAY)).containsExactly(DAY_START);
+
+        assertThat(aggregateDay(Aggregation.SUM)).isEqualTo(12L);
+        assertThat(aggregateDay(Aggregation.MAX)).isEqualTo(10L);
+        assertThat(aggregateDay(Aggregation.COUNT)).isEqualTo(2L);
+
+        rollupService.updateOutdatedBuckets();
+        assertThat(aggregateDay(Aggregation.SUM)).isEqualTo(12L);
+    }
+
+    @Test
+    public void testExpiredBucketsAndBucketsWithoutDataAreDeleted() throws Exception {
+        save(DAY_START + 10 * MINUTE, 1);
+        save(DAY_START + DAY + 10 * MINUTE, 2);
+        rollupService.updateOutdatedBuckets();
+        assertThat(findBuckets()).hasSize(4);
+
+        rollupRepository.deleteExpired(DAY_START + DAY);
+        List<Map<String, Object>> buckets = findBuckets();
+        assertThat(buckets).hasSize(2);
+        assertBucket(buckets.get(0), HOUR, DAY_START + DAY, 1, 2, 2, 2);
+        assertBucket(buckets.get(1), DAY, DAY_START + DAY, 1, 2, 2, 2);
+
+        jdbcTemplate.update("DELETE FROM ts_kv WHERE entity_id = ? AND key = ?", deviceId.getId(), keyId);
+        rollupRepository.deleteExpired(0);
+        assertThat(findBuckets()).isEmpty();
+    }
+
+    private void save(long ts, long value) throws Exception {
+        timeseriesDao.save(tenantId, deviceId, new BasicTsKvEntry(ts, new LongDataEntry(KEY, value)), 0).get(30, TimeUnit.SECONDS);
+    }
+
+    private Long aggregateDay(Aggregation aggregation) {
+        List<TsKvEntity> result = rollupService.findAllAndAggregate(deviceId.getId(), keyId, new long[]{DAY_START}, DAY_START + DAY, aggregation);
+        assertThat(result).hasSize(1);
+        return result.get(0).getLongValue();
+    }
+
+    private List<Long> findOutdated() {
+        return jdbcTemplate.queryForList(SELECT_OUTDATED, Long.class, deviceId.getId(), keyId);
+    }
+
+    private List<Map<String, Object>> findBuckets() {
+        return jdbcTemplate.queryForList(SELECT_BUCKETS, deviceId.getId(), keyId);
+    }
+
+    private static void assertBucket(Map<String, Object> bucket, long bucketSize, long bucketTs, long count, long sum, long min, long max) {
+        assertThat(((Number) bucket.get("bucket_size")).longValue()).isEqualTo(bucketSize);
+        assertThat(((Number) bucket.get("bucket_ts")).longValue()).isEqualTo(bucketTs);
+        assertThat(((Number) bucket.get("long_count")).longValue()).isEqualTo(count);
+        assertThat(((Number) bucket.get("long_sum")).longValue()).isEqualTo(sum);
+        assertThat(((Number) bucket.get("long_min")).longValue()).isEqualTo(min);
+        assertThat(((Number) bucket.get("long_max")).longValue()).isEqualTo(max);
+    }
+
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.util;
+
+import com.datastax.oss.driver.api.core.DriverTimeoutException;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.cache.limits.RateLimitService;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.stats.StatsType;
+import org.thingsboard.server.dao.entity.EntityService;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_MOCKS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AbstractBufferedRateExecutorTest {
+
+    private static final long MAX_WAIT_TIME = 1000;
+
+    private final Map<String, Number> gauges = new ConcurrentHashMap<>();
+    private final BlockingQueue<SettableFuture<String>> executions = new LinkedBlockingQueue<>();
+    private TestExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        StatsFactory statsFactory = mock(StatsFactory.class, RETURNS_MOCKS);
+        when(statsFactory.createGauge(anyString(), any(), any(String[].class))).thenAnswer(invocation -> {
+            gauges.put(invocation.getArgument(0), invocation.getArgument(1));
+            return invocation.getArgument(1);
+        });
+        executor = new TestExecutor(statsFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.stop();
+    }
+
+    @Test
+    void testTimeoutOfTaskDelayedInQueueDoesNotDecreaseLimit() throws Exception {
+        ListenableFuture<String> first = executor.submit(() -> TenantId.SYS_TENANT_ID);
+        ListenableFuture<String> second = executor.submit(() -> TenantId.SYS_TENANT_ID);
+        ListenableFuture<String> delayed = executor.submit(() -> TenantId.SYS_TENANT_ID);
+        SettableFuture<String> firstExecution = executions.poll(5, TimeUnit.SECONDS);
+        SettableFuture<String> secondExecution = executions.poll(5, TimeUnit.SECONDS);
+
+        // the third task waits in the queue for the most of its max wait time
+        Thread.sleep(MAX_WAIT_TIME * 6 / 10);
+        firstExecution.set("first");
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        SettableFuture<String> delayedExecution = executions.poll(5, TimeUnit.SECONDS);
+
+        assertThatThrownBy(() -> delayed.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        // the permits are held until the database completes the executions
+        assertThat(concurrencyLevel().get()).isEqualTo(2);
+
+        delayedExecution.set("delayed");
+        secondExecution.set("second");
+        await().atMost(5, TimeUnit.SECONDS).until(() -> concurrencyLevel().get() == 0);
+        // the executions were faster than the latency threshold, so the timeouts of the callers are not an overload
+        assertThat(concurrencyLimit().get()).isEqualTo(2);
+    }
+
+    @Test
+    void testDriverTimeoutDecreasesLimit() throws Exception {
+        ListenableFuture<String> result = executor.submit(() -> TenantId.SYS_TENANT_ID);
+        executions.poll(5, TimeUnit.SECONDS).setException(new DriverTimeoutException("timeout"));
+
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(DriverTimeoutException.class);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> concurrencyLimit().get() == 1);
+    }
+
+    private AtomicInteger concurrencyLevel() {
+        return (AtomicInteger) gauges.get(StatsType.RATE_EXECUTOR.getName() + "." + AbstractBufferedRateExecutor.CONCURRENCY_LEVEL + TestExecutor.BUFFER_NAME);
+    }
+
+    private AtomicInteger concurrencyLimit() {
+        return (AtomicInteger) gauges.get(StatsType.RATE_EXECUTOR.getName() + "." + AbstractBufferedRateExecutor.CONCURRENCY_LIMIT + TestExecutor.BUFFER_NAME);
+    }
+
+    private class TestExecutor extends AbstractBufferedRateExecutor<AsyncTask, ListenableFuture<String>, String> {
+
+        static final String BUFFER_NAME = "Test";
+
+        TestExecutor(StatsFactory statsFactory) {
+            super(100, 2, MAX_WAIT_TIME, 1, 1, 10, 0, statsFactory, mock(EntityService.class), mock(RateLimitService.class),
+                    false, true, 1, 5000);
+        }
+
+        @Override
+        protected SettableFuture<String> create() {
+            return SettableFuture.create();
+        }
+
+        @Override
+        protected ListenableFuture<String> wrap(AsyncTask task, SettableFuture<String> future) {
+            return future;
+        }
+
+        @Override
+        protected ListenableFuture<String> execute(AsyncTaskContext<AsyncTask, String> taskCtx) {
+            SettableFuture<String> execution = SettableFuture.create();
+            executions.add(execution);
+            return execution;
+        }
+
+        @Override
+        public String getBufferName() {
+            return BUFFER_NAME;
+        }
+
+    }
+
+}
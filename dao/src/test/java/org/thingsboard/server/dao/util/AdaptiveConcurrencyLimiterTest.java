@@ -0,0 +1,89 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void testLimitDecreasesOnSlowQueriesAndRecovers() throws InterruptedException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 5, 100, 0, 50, inFlight);
+
+        limiter.acquire();
+        limiter.release(10, false);
+        assertThat(limiter.getLimit()).isEqualTo(90);
+
+        limiter.acquire();
+        limiter.release(0, true);
+        assertThat(limiter.getLimit()).isEqualTo(81);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire();
+            limiter.release(10, false);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(5);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+        }
+        // additive increase adds one per limit of fast queries executed while the permits are in use
+        for (int i = 0; i < 6; i++) {
+            limiter.release(0, false);
+            limiter.acquire();
+        }
+        assertThat(limiter.getLimit()).isEqualTo(6);
+        assertThat(inFlight.get()).isEqualTo(5);
+    }
+
+    @Test
+    void testFixedLimitIsNotChanged() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(false, 5, 100, 0, 50, new AtomicInteger());
+        limiter.acquire();
+        limiter.release(10000, true);
+        assertThat(limiter.getLimit()).isEqualTo(100);
+    }
+
+    @Test
+    void testWaitingThreadIsSignalledOnRelease() throws InterruptedException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(false, 1, 1, 1000, 60000, inFlight);
+        limiter.acquire();
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                limiter.acquire();
+                acquired.countDown();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        waiter.start();
+        assertThat(acquired.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+        limiter.release(1, false);
+        assertThat(acquired.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(inFlight.get()).isEqualTo(1);
+    }
+
+}
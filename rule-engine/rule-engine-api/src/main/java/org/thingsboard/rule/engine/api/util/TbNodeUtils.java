@@ -56,7 +56,7 @@ public class TbNodeUtils {
     public static String processPattern(String pattern, TbMsg tbMsg) {
         try {
             String result = processPattern(pattern, tbMsg.getMetaData());
-            JsonNode json = JacksonUtil.toJsonNode(tbMsg.getData());
+            JsonNode json = tbMsg.getDataAsJson();
             if (json.isObject()) {
                 Matcher matcher = DATA_PATTERN.matcher(result);
                 while (matcher.find()) {
@@ -53,7 +53,7 @@ export abstract class WebsocketService<T extends WsSubscriber> implements WsServ
 
   wsUri: string;
 
-  dataStream: WebSocketSubject<CmdWrapper | CmdUpdateMsg | AuthWsCmd>;
+  dataStream: WebSocketSubject<CmdWrapper | CmdUpdateMsg | CmdUpdateMsg[] | AuthWsCmd>;
 
   errorName = 'WebSocket Error';
 
@@ -164,7 +164,7 @@ export abstract class WebsocketService<T extends WsSubscriber> implements WsServ
 
   private openSocket(token: string) {
     const uri = `${this.wsUri}`;
-    this.dataStream = webSocket<CmdUpdateMsg>(
+    this.dataStream = webSocket<CmdUpdateMsg | CmdUpdateMsg[]>(
       {
         url: uri,
         openObserver: {
@@ -181,7 +181,7 @@ export abstract class WebsocketService<T extends WsSubscriber> implements WsServ
     );
 
     this.dataStream.subscribe({
-      next: (message: CmdUpdateMsg) => {
+      next: (message: CmdUpdateMsg | CmdUpdateMsg[]) => {
         this.ngZone.runOutsideAngular(() => {
           this.onMessage(message);
         });
@@ -214,11 +214,15 @@ export abstract class WebsocketService<T extends WsSubscriber> implements WsServ
     }
   }
 
-  private onMessage(message: CmdUpdateMsg) {
-    if (message.errorCode) {
-      this.showWsError(message.errorCode, message.errorMsg);
-    } else {
-      this.processOnMessage(message as WebsocketDataMsg);
+  private onMessage(message: CmdUpdateMsg | CmdUpdateMsg[]) {
+    // the server may send several coalesced updates as a single frame
+    const messages = Array.isArray(message) ? message : [message];
+    for (const msg of messages) {
+      if (msg.errorCode) {
+        this.showWsError(msg.errorCode, msg.errorMsg);
+      } else {
+        this.processOnMessage(msg as WebsocketDataMsg);
+      }
     }
     this.checkToClose();
   }